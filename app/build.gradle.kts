@@ -21,7 +21,15 @@ android {
     }
 
     buildTypes {
+        debug {
+            // Live seating broker: the host machine, as seen from the emulator
+            resValue("string", "mqtt_broker_uri", "tcp://10.0.2.2:1883")
+        }
         release {
+            // Production broker, e.g. -PmqttBrokerUri=ssl://broker.example.edu:8883 or in
+            // ~/.gradle/gradle.properties; without it live seating is off
+            resValue("string", "mqtt_broker_uri",
+                providers.gradleProperty("mqttBrokerUri").getOrElse(""))
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -36,6 +44,10 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        // JVM tests run classes that log through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -87,6 +99,8 @@ dependencies {
     implementation("androidx.appcompat:appcompat:1.7.0")
 
     testImplementation(libs.junit)
+    // Embedded MQTT broker for the MQTT client tests
+    testImplementation(libs.moquette.broker)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
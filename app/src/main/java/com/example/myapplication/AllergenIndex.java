@@ -0,0 +1,428 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AllergenIndex - Bitset index of allergen and dietary tags for fast menu filtering
+ *
+ * Tags: free-text allergen strings ("Gluten, Eggs, Milk", "Contains Soy", "Vegan") are
+ * normalized once into an int mask (parseTags) and stored in the allergen_mask column of
+ * menu_items and dynamic_menus. A mask without the KNOWN bit means nothing is known about
+ * the item.
+ *
+ * Index: one slice per (hall, date, meal). A slice stores one long[] bitset per tag with a
+ * bit per item, so a filter such as "no milk, no gluten" is computed 64 items at a time:
+ *   known AND NOT milk AND NOT gluten (AND vegan ...)
+ * A week of menus for every hall is a few thousand bits per tag, so filter toggles can be
+ * applied on the UI thread. Menus of other dates (stored as MenuVersions, without tags) are
+ * filtered by item name against the masks the indexed menus gave each item (filterItems).
+ *
+ * Safety: items whose tags are unknown never pass a non-empty filter.
+ *
+ * Threading: rebuilds run on a background thread and publish a new immutable set of slices;
+ * queries may be called from any thread.
+ */
+public class AllergenIndex {
+    private static final String TAG = "AllergenIndex";
+
+    // Allergen bits
+    public static final int MILK = 1;
+    public static final int EGGS = 1 << 1;
+    public static final int FISH = 1 << 2;
+    public static final int SHELLFISH = 1 << 3;
+    public static final int TREE_NUTS = 1 << 4;
+    public static final int PEANUTS = 1 << 5;
+    public static final int GLUTEN = 1 << 6;
+    public static final int SOY = 1 << 7;
+    public static final int SESAME = 1 << 8;
+    // Dietary bits
+    public static final int VEGETARIAN = 1 << 16;
+    public static final int VEGAN = 1 << 17;
+    public static final int HALAL = 1 << 18;
+    // Set when the item's tags were available at all
+    public static final int KNOWN = 1 << 30;
+
+    // Menu date key for the built-in sample menus, which have no date
+    public static final String SAMPLE_DATE = "sample";
+    // Days of fetched menus kept in the index
+    public static final int INDEX_DAYS = 7;
+
+    private static final int[] TAG_BITS = {
+            MILK, EGGS, FISH, SHELLFISH, TREE_NUTS, PEANUTS, GLUTEN, SOY, SESAME, VEGETARIAN, VEGAN, HALAL
+    };
+
+    // Whole words (singular) naming an allergen or diet, for parseTags
+    private static final Map<String, Integer> TAG_WORDS = new HashMap<>();
+
+    static {
+        putTagWords(MILK, "milk", "dairy", "lactose", "casein", "whey");
+        putTagWords(EGGS, "egg");
+        putTagWords(FISH, "fish", "salmon", "tuna", "cod", "tilapia", "pollock", "halibut", "trout", "catfish",
+                "anchovy", "anchovies", "swordfish", "haddock", "bass", "mahi", "sardine", "flounder", "snapper",
+                "mackerel", "herring", "perch", "walleye", "whitefish");
+        putTagWords(SHELLFISH, "shellfish", "crustacean", "shrimp", "crab", "lobster", "clam", "mussel", "oyster",
+                "scallop", "crawfish", "crayfish", "prawn", "mollusk", "mollusc", "squid", "calamari", "octopus");
+        putTagWords(TREE_NUTS, "nut", "treenut", "almond", "walnut", "pecan", "cashew", "pistachio", "hazelnut",
+                "macadamia", "coconut", "filbert");
+        putTagWords(PEANUTS, "peanut");
+        putTagWords(GLUTEN, "gluten", "wheat", "barley", "rye");
+        putTagWords(SOY, "soy", "soya", "soybean");
+        putTagWords(SESAME, "sesame");
+        putTagWords(VEGETARIAN, "vegetarian");
+        putTagWords(VEGAN | VEGETARIAN, "vegan");
+        putTagWords(HALAL, "halal");
+    }
+
+    private static AllergenIndex instance;
+
+    /**
+     * Receives one indexed row while the index is loaded from the database
+     */
+    public interface RowSink {
+        void add(String hallName, String dateKey, String mealTime, String stationName, String itemName, int mask);
+    }
+
+    /**
+     * Immutable filter: every avoided tag must be absent and every required tag present
+     */
+    public static final class Filter {
+        public static final Filter NONE = new Filter(0, 0);
+
+        public final int avoidMask;
+        public final int requireMask;
+
+        public Filter(int avoidMask, int requireMask) {
+            this.avoidMask = avoidMask;
+            this.requireMask = requireMask;
+        }
+
+        public boolean isEmpty() {
+            return avoidMask == 0 && requireMask == 0;
+        }
+
+        public Filter withAvoided(int tag, boolean avoided) {
+            return new Filter(avoided ? avoidMask | tag : avoidMask & ~tag, requireMask);
+        }
+
+        public Filter withRequired(int tag, boolean required) {
+            return new Filter(avoidMask, required ? requireMask | tag : requireMask & ~tag);
+        }
+
+        /**
+         * Single-item form of the slice query, for items that are not indexed
+         */
+        public boolean matches(int mask) {
+            if (isEmpty()) {
+                return true;
+            }
+            return (mask & KNOWN) != 0 && (mask & avoidMask) == 0 && (mask & requireMask) == requireMask;
+        }
+    }
+
+    /**
+     * Items of one (hall, date, meal) and their tag bitsets
+     */
+    private static final class Slice {
+        final String[] items;
+        final String[] stations;
+        final long[] known;
+        // One bitset per entry of TAG_BITS
+        final long[][] tagBits;
+
+        Slice(List<String> items, List<String> stations, List<Integer> masks) {
+            int n = items.size();
+            int words = (n + 63) >>> 6;
+            this.items = items.toArray(new String[0]);
+            this.stations = stations.toArray(new String[0]);
+            this.known = new long[words];
+            this.tagBits = new long[TAG_BITS.length][words];
+            for (int i = 0; i < n; i++) {
+                int mask = masks.get(i);
+                long bit = 1L << (i & 63);
+                if ((mask & KNOWN) != 0) {
+                    known[i >>> 6] |= bit;
+                }
+                for (int t = 0; t < TAG_BITS.length; t++) {
+                    if ((mask & TAG_BITS[t]) != 0) {
+                        tagBits[t][i >>> 6] |= bit;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Bitset of the items passing the filter
+         */
+        long[] match(Filter filter) {
+            long[] result = new long[known.length];
+            if (filter.isEmpty()) {
+                for (int w = 0; w < result.length; w++) {
+                    result[w] = -1L;
+                }
+                int tail = items.length & 63;
+                if (tail != 0) {
+                    result[result.length - 1] = (1L << tail) - 1;
+                }
+                return result;
+            }
+            System.arraycopy(known, 0, result, 0, known.length);
+            for (int t = 0; t < TAG_BITS.length; t++) {
+                int tag = TAG_BITS[t];
+                long[] bits = tagBits[t];
+                if ((filter.avoidMask & tag) != 0) {
+                    for (int w = 0; w < result.length; w++) result[w] &= ~bits[w];
+                } else if ((filter.requireMask & tag) != 0) {
+                    for (int w = 0; w < result.length; w++) result[w] &= bits[w];
+                }
+            }
+            return result;
+        }
+    }
+
+    private final MenuDatabaseHelper dbHelper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile Map<String, Slice> slices = new HashMap<>();
+    // Item name -> mask, over all indexed menus
+    private volatile Map<String, Integer> itemMasks = new HashMap<>();
+    private volatile boolean loaded = false;
+
+    public static synchronized AllergenIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new AllergenIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AllergenIndex(Context context) {
+        dbHelper = MenuDatabaseHelper.getInstance(context);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Rebuilds the index in the background
+     *
+     * @param onDone Run on the UI thread when the new index is published; may be null
+     */
+    public void rebuildAsync(Runnable onDone) {
+        executor.execute(() -> {
+            rebuild();
+            if (onDone != null) {
+                mainHandler.post(onDone);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the index from the database on the calling (background) thread
+     */
+    public void rebuild() {
+        Map<String, List<String>> items = new LinkedHashMap<>();
+        Map<String, List<String>> stations = new HashMap<>();
+        Map<String, List<Integer>> masks = new HashMap<>();
+        Map<String, Integer> namedMasks = new HashMap<>();
+        dbHelper.readAllergenMasks(INDEX_DAYS, (hallName, dateKey, mealTime, stationName, itemName, mask) -> {
+            Integer named = namedMasks.get(itemName);
+            if (named == null || (named & KNOWN) == 0) {
+                namedMasks.put(itemName, mask);
+            }
+            String key = sliceKey(hallName, dateKey, mealTime);
+            List<String> sliceItems = items.get(key);
+            if (sliceItems == null) {
+                sliceItems = new ArrayList<>();
+                items.put(key, sliceItems);
+                stations.put(key, new ArrayList<>());
+                masks.put(key, new ArrayList<>());
+            }
+            sliceItems.add(itemName);
+            stations.get(key).add(stationName);
+            masks.get(key).add(mask);
+        });
+
+        Map<String, Slice> rebuilt = new HashMap<>();
+        int total = 0;
+        for (Map.Entry<String, List<String>> entry : items.entrySet()) {
+            String key = entry.getKey();
+            rebuilt.put(key, new Slice(entry.getValue(), stations.get(key), masks.get(key)));
+            total += entry.getValue().size();
+        }
+        slices = rebuilt;
+        itemMasks = namedMasks;
+        loaded = true;
+        Log.d(TAG, "Indexed " + total + " items in " + rebuilt.size() + " slices");
+    }
+
+    /**
+     * Names of the items of one hall's meal that pass the filter
+     *
+     * @param dateKey Menu date (todayKey(), or SAMPLE_DATE for the built-in menus)
+     * @return Matching item names in menu order, or null if that menu is not indexed
+     */
+    public List<String> filter(String hallName, String dateKey, String mealTime, Filter filter) {
+        Slice slice = slices.get(sliceKey(hallName, dateKey, mealTime));
+        if (slice == null) {
+            return null;
+        }
+        return collect(slice, slice.match(filter), null);
+    }
+
+    /**
+     * Filters items of a menu that is not indexed (e.g. a MenuVersion of another date) by the
+     * tags their names carry on indexed menus. Items never seen with tags do not pass.
+     *
+     * @return The names passing the filter
+     */
+    public Set<String> filterItems(Collection<String> itemNames, Filter filter) {
+        Map<String, Integer> masks = itemMasks;
+        Set<String> matches = new HashSet<>();
+        for (String name : itemNames) {
+            Integer mask = masks.get(name);
+            if (filter.matches(mask != null ? mask : 0)) {
+                matches.add(name);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Items passing the filter across all halls for one date and meal
+     *
+     * @return Hall name -> matching item names, for halls with at least one match
+     */
+    public Map<String, List<String>> filterAllHalls(String dateKey, String mealTime, Filter filter) {
+        Map<String, List<String>> byHall = new LinkedHashMap<>();
+        for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
+            Slice slice = slices.get(sliceKey(hall.getName(), dateKey, mealTime));
+            if (slice != null) {
+                List<String> matches = collect(slice, slice.match(filter), null);
+                if (!matches.isEmpty()) {
+                    byHall.put(hall.getName(), matches);
+                }
+            }
+        }
+        return byHall;
+    }
+
+    /**
+     * Station -> matching items of one hall's meal, or null if that menu is not indexed
+     */
+    public Map<String, List<String>> filterByStation(String hallName, String dateKey, String mealTime, Filter filter) {
+        Slice slice = slices.get(sliceKey(hallName, dateKey, mealTime));
+        if (slice == null) {
+            return null;
+        }
+        Map<String, List<String>> byStation = new LinkedHashMap<>();
+        collect(slice, slice.match(filter), byStation);
+        return byStation;
+    }
+
+    private static List<String> collect(Slice slice, long[] bits, Map<String, List<String>> byStation) {
+        List<String> names = new ArrayList<>();
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                names.add(slice.items[i]);
+                if (byStation != null) {
+                    List<String> station = byStation.get(slice.stations[i]);
+                    if (station == null) {
+                        station = new ArrayList<>();
+                        byStation.put(slice.stations[i], station);
+                    }
+                    station.add(slice.items[i]);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String sliceKey(String hallName, String dateKey, String mealTime) {
+        return hallName + '\n' + dateKey + '\n' + mealTime;
+    }
+
+    /**
+     * Date key of today's fetched menus (dynamic_menus dates are UTC)
+     */
+    public static String todayKey() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+
+    /**
+     * Normalizes free-text allergen and diet tags into a mask. Words are matched whole ("egg",
+     * not "eggplant"), and species such as "Crab" or "Salmon" map to their allergen group.
+     *
+     * @param text Comma separated tags, e.g. "Gluten, Eggs, Milk", "None", "Contains Soy, Vegan"
+     * @return The mask; 0 (not KNOWN) unless every term is recognized, so an allergen without a
+     *         tag (e.g. "Mustard") or unrelated text never marks an item as free of the others
+     */
+    public static int parseTags(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int mask = 0;
+        boolean anyTerm = false;
+        for (String raw : text.toLowerCase(Locale.US).split("[,;/|]")) {
+            String term = raw.trim();
+            if (term.isEmpty()) {
+                continue;
+            }
+            anyTerm = true;
+            boolean absence = false;
+            int termMask = 0;
+            for (String word : term.split("[^a-z]+")) {
+                // "None", "Gluten Free", "Made without Gluten" describe an absence
+                if (word.equals("none") || word.equals("free") || word.equals("without")) {
+                    absence = true;
+                } else {
+                    termMask |= tagOfWord(word);
+                }
+            }
+            if (absence) {
+                continue;
+            }
+            if (termMask == 0) {
+                return 0;
+            }
+            mask |= termMask;
+        }
+        return anyTerm ? mask | KNOWN : 0;
+    }
+
+    private static int tagOfWord(String word) {
+        Integer bits = TAG_WORDS.get(word);
+        if (bits == null && word.length() > 3 && word.endsWith("s")) {
+            bits = TAG_WORDS.get(word.substring(0, word.length() - 1));
+        }
+        return bits != null ? bits : 0;
+    }
+
+    private static void putTagWords(int bits, String... words) {
+        for (String word : words) {
+            TAG_WORDS.put(word, bits);
+        }
+    }
+}
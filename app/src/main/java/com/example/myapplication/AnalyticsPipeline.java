@@ -0,0 +1,240 @@
+package com.example.myapplication;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import com.google.firebase.analytics.FirebaseAnalytics;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AnalyticsPipeline - Buffers, samples and aggregates analytics events off the UI thread
+ *
+ * Logging an event only stores references in a preallocated slot of a lock-free ring buffer;
+ * no Bundle is built and no formatting happens on the caller's thread. A background thread
+ * drains the ring every FLUSH_INTERVAL_MS (or sooner when it fills up) and sends the batch.
+ *
+ * Features:
+ * - Counters (registerCounter): identical events of a batch are sent once with a "count"
+ *   parameter, so a user flipping meal tabs costs one event per hall/meal/date per batch
+ * - Per-event sampling (setSampleRate): the decision is made before anything is queued, and
+ *   sampled events carry "sample_rate" so counts can be scaled back up
+ * - Plain events (log) keep their Bundle and are sent as they are
+ * - When the ring is full, events are dropped and counted rather than blocking the caller
+ *
+ * Threading: count() and log() are lock-free and may be called from any thread (the ring
+ * accepts many producers and one consumer, the flush thread).
+ */
+public class AnalyticsPipeline {
+    private static final String TAG = "AnalyticsPipeline";
+
+    private static final int CAPACITY = 1024;
+    private static final int FLUSH_THRESHOLD = CAPACITY / 2;
+    private static final long FLUSH_INTERVAL_MS = 30_000;
+    private static final String PARAM_COUNT = "count";
+    private static final String PARAM_SAMPLE_RATE = "sample_rate";
+
+    /**
+     * One queued event; counters use the fields, plain events the Bundle
+     */
+    private static final class Slot {
+        String name;
+        Object field1;
+        Object field2;
+        Object field3;
+        Bundle params;
+        float sampleRate;
+    }
+
+    private final FirebaseAnalytics analytics;
+    private final Slot[] slots = new Slot[CAPACITY];
+    // Per slot: position it may be written at (free) or position + 1 (filled)
+    private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    // Written only by the flush thread; producers read it to decide when to request a flush
+    private volatile long head = 0;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Counter event -> names of its fields
+    private final Map<String, String[]> counters = new ConcurrentHashMap<>();
+    private final Map<String, Float> sampleRates = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+
+    public AnalyticsPipeline(FirebaseAnalytics analytics) {
+        this.analytics = analytics;
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        flusher.scheduleWithFixedDelay(this::flushNow, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Declares an aggregated event; up to three parameters identify identical events
+     */
+    public void registerCounter(String eventName, String... fieldNames) {
+        counters.put(eventName, fieldNames.clone());
+    }
+
+    /**
+     * @param rate Fraction of the events of that name that are kept (1 = all)
+     */
+    public void setSampleRate(String eventName, float rate) {
+        sampleRates.put(eventName, Math.max(0f, Math.min(1f, rate)));
+    }
+
+    /**
+     * Queues one occurrence of a registered counter. Field values are turned into strings on
+     * the flush thread; Dates become yyyy-MM-dd.
+     */
+    public void count(String eventName, Object field1, Object field2, Object field3) {
+        enqueue(eventName, field1, field2, field3, null);
+    }
+
+    /**
+     * Queues a plain event with prepared parameters
+     */
+    public void log(String eventName, Bundle params) {
+        enqueue(eventName, null, null, null, params);
+    }
+
+    /**
+     * Sends everything queued so far in the background
+     */
+    public void flush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushNow);
+        }
+    }
+
+    private void enqueue(String eventName, Object field1, Object field2, Object field3, Bundle params) {
+        Float rate = sampleRates.get(eventName);
+        float sampleRate = rate != null ? rate : 1f;
+        if (sampleRate < 1f && ThreadLocalRandom.current().nextFloat() >= sampleRate) {
+            return;
+        }
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & (CAPACITY - 1));
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Slot slot = slots[index];
+                    slot.name = eventName;
+                    slot.field1 = field1;
+                    slot.field2 = field2;
+                    slot.field3 = field3;
+                    slot.params = params;
+                    slot.sampleRate = sampleRate;
+                    // Publishes the slot to the flush thread
+                    sequences.lazySet(index, position + 1);
+                    if (position + 1 - head >= FLUSH_THRESHOLD) {
+                        flush();
+                    }
+                    return;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                dropped.incrementAndGet();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void flushNow() {
+        flushRequested.set(false);
+        try {
+            // Counter key -> {event name, field values..., sample rate} and its count
+            Map<String, Object[]> aggregated = new LinkedHashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            int sent = 0;
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+
+            while (true) {
+                int index = (int) (head & (CAPACITY - 1));
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+                Slot slot = slots[index];
+                String name = slot.name;
+                String[] fieldNames = counters.get(name);
+                if (fieldNames != null) {
+                    String v1 = format(slot.field1, dateFormat);
+                    String v2 = format(slot.field2, dateFormat);
+                    String v3 = format(slot.field3, dateFormat);
+                    String key = name + '\u001F' + v1 + '\u001F' + v2 + '\u001F' + v3;
+                    if (!aggregated.containsKey(key)) {
+                        aggregated.put(key, new Object[]{name, v1, v2, v3, slot.sampleRate});
+                    }
+                    Integer count = counts.get(key);
+                    counts.put(key, count != null ? count + 1 : 1);
+                } else {
+                    Bundle params = slot.params != null ? slot.params : new Bundle();
+                    if (slot.sampleRate < 1f) {
+                        params.putFloat(PARAM_SAMPLE_RATE, slot.sampleRate);
+                    }
+                    analytics.logEvent(name, params);
+                    sent++;
+                }
+
+                slot.name = null;
+                slot.field1 = null;
+                slot.field2 = null;
+                slot.field3 = null;
+                slot.params = null;
+                // Frees the slot for the next lap of producers
+                sequences.lazySet(index, head + CAPACITY);
+                head++;
+            }
+
+            for (Map.Entry<String, Object[]> entry : aggregated.entrySet()) {
+                Object[] event = entry.getValue();
+                String[] fieldNames = counters.get((String) event[0]);
+                Bundle params = new Bundle();
+                for (int i = 0; i < fieldNames.length && i < 3; i++) {
+                    if (event[i + 1] != null) {
+                        params.putString(fieldNames[i], (String) event[i + 1]);
+                    }
+                }
+                params.putLong(PARAM_COUNT, counts.get(entry.getKey()));
+                float sampleRate = (Float) event[4];
+                if (sampleRate < 1f) {
+                    params.putFloat(PARAM_SAMPLE_RATE, sampleRate);
+                }
+                analytics.logEvent((String) event[0], params);
+                sent++;
+            }
+
+            long lost = dropped.getAndSet(0);
+            if (sent > 0 || lost > 0) {
+                Log.d(TAG, "Sent " + sent + " analytics events" + (lost > 0 ? ", dropped " + lost : ""));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Analytics flush failed", e);
+        }
+    }
+
+    private static String format(Object value, SimpleDateFormat dateFormat) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Date ? dateFormat.format((Date) value) : value.toString();
+    }
+}
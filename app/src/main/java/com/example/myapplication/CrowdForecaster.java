@@ -0,0 +1,292 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CrowdForecaster - Expected occupancy per dining hall, weekday and time of day
+ *
+ * Model: for every hall, weekday and 15-minute slot of the day (7 x 96 slots) an
+ * exponentially weighted mean and variance of the occupancy ratio. Each closed 15-minute
+ * bucket from OccupancyHistoryStore is one observation for its slot, so the model keeps
+ * learning as long as seat data flows. The learning rate starts as a plain average
+ * (1/n) and settles at MIN_LEARNING_RATE, which weights roughly the last six weeks.
+ *
+ * Queries are a map lookup plus array reads (linear interpolation between the two nearest
+ * slot centres), so they are cheap enough to call per tile per frame.
+ *
+ * Persistence: the model is written to filesDir/crowd_forecast.bin shortly after it changes.
+ * On first run it is bootstrapped from the last BOOTSTRAP_WEEKS of stored history.
+ *
+ * Threading: updates are serialized on the forecaster; queries are lock-free and may see a
+ * slot a few milliseconds before or after an update.
+ */
+public class CrowdForecaster implements OccupancyHistoryStore.RollupListener {
+    private static final String TAG = "CrowdForecaster";
+
+    private static final String MODEL_FILE = "crowd_forecast.bin";
+    private static final int MODEL_FORMAT_VERSION = 1;
+
+    private static final long SLOT_MS = 15 * 60_000L;
+    private static final long DAY_MS = 24 * 60 * 60_000L;
+    private static final int SLOTS_PER_DAY = (int) (DAY_MS / SLOT_MS);
+    private static final int SLOTS = 7 * SLOTS_PER_DAY;
+
+    private static final float MIN_LEARNING_RATE = 0.15f;
+    // A slot needs this many observations before it is trusted
+    private static final int MIN_OBSERVATIONS = 2;
+    private static final int BOOTSTRAP_WEEKS = 8;
+    private static final long SAVE_DELAY_MS = 30_000;
+
+    private static CrowdForecaster instance;
+
+    /**
+     * Learned statistics of one hall
+     */
+    private static final class HallModel {
+        final String hallKey;
+        final float[] mean = new float[SLOTS];
+        final float[] variance = new float[SLOTS];
+        final short[] observations = new short[SLOTS];
+
+        HallModel(String hallKey) {
+            this.hallKey = hallKey;
+        }
+    }
+
+    private final File modelFile;
+    private final OccupancyHistoryStore history;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, HallModel> models = new ConcurrentHashMap<>();
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private boolean saveScheduled = false;
+
+    public static synchronized CrowdForecaster getInstance(Context context) {
+        if (instance == null) {
+            instance = new CrowdForecaster(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CrowdForecaster(Context context) {
+        modelFile = new File(context.getFilesDir(), MODEL_FILE);
+        history = OccupancyHistoryStore.getInstance(context);
+        executor.execute(() -> {
+            if (!loadModel()) {
+                bootstrapFromHistory();
+            }
+            history.addRollupListener(this);
+        });
+    }
+
+    /**
+     * Expected occupancy ratio (0-1) of a hall at the given time
+     *
+     * @return The ratio, or -1 if there is not enough history for that time slot
+     */
+    public float expectedOccupancy(String hallName, long timeMs) {
+        HallModel model = models.get(SeatOccupancyEngine.hallKey(hallName));
+        if (model == null) {
+            return -1f;
+        }
+
+        // Position relative to slot centres, so values blend smoothly across slot edges
+        long weekMs = localWeekMs(timeMs) - SLOT_MS / 2;
+        if (weekMs < 0) weekMs += 7 * DAY_MS;
+        int slot = (int) (weekMs / SLOT_MS);
+        int next = (slot + 1) % SLOTS;
+        float fraction = (weekMs % SLOT_MS) / (float) SLOT_MS;
+
+        boolean hasSlot = model.observations[slot] >= MIN_OBSERVATIONS;
+        boolean hasNext = model.observations[next] >= MIN_OBSERVATIONS;
+        if (hasSlot && hasNext) {
+            return model.mean[slot] + (model.mean[next] - model.mean[slot]) * fraction;
+        }
+        if (hasSlot || hasNext) {
+            return hasSlot ? model.mean[slot] : model.mean[next];
+        }
+        return -1f;
+    }
+
+    /**
+     * Standard deviation of the occupancy ratio in the slot containing timeMs, or -1 if unknown
+     */
+    public float occupancyStdDev(String hallName, long timeMs) {
+        HallModel model = models.get(SeatOccupancyEngine.hallKey(hallName));
+        if (model == null) {
+            return -1f;
+        }
+        int slot = (int) (localWeekMs(timeMs) / SLOT_MS);
+        return model.observations[slot] >= MIN_OBSERVATIONS ? (float) Math.sqrt(model.variance[slot]) : -1f;
+    }
+
+    /**
+     * Finds the quietest expected time to visit within a window, in 15-minute steps
+     *
+     * @return Start time of the best slot, or -1 if nothing in the window has history
+     */
+    public long bestTimeToGo(String hallName, long fromMs, long toMs) {
+        long best = -1;
+        float bestOccupancy = Float.MAX_VALUE;
+        for (long t = fromMs; t < toMs; t += SLOT_MS) {
+            float expected = expectedOccupancy(hallName, t);
+            if (expected >= 0 && expected < bestOccupancy) {
+                bestOccupancy = expected;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void onRollupClosed(String hallKey, OccupancyHistoryStore.Resolution resolution, long bucketStartMs,
+                               float meanOccupied, int maxOccupied, int capacity) {
+        if (resolution != OccupancyHistoryStore.Resolution.QUARTER_HOUR || capacity <= 0) {
+            return;
+        }
+        observe(hallKey, bucketStartMs, meanOccupied / capacity);
+        scheduleSave();
+    }
+
+    /**
+     * Folds one observation into the slot containing timeMs
+     */
+    private synchronized void observe(String hallKey, long timeMs, float ratio) {
+        HallModel model = models.get(hallKey);
+        if (model == null) {
+            model = new HallModel(hallKey);
+            models.put(hallKey, model);
+        }
+
+        int slot = (int) (localWeekMs(timeMs) / SLOT_MS);
+        int n = model.observations[slot] + 1;
+        float alpha = Math.max(1f / n, MIN_LEARNING_RATE);
+
+        // Exponentially weighted mean and variance (West's incremental form)
+        float diff = ratio - model.mean[slot];
+        float increment = alpha * diff;
+        model.mean[slot] += increment;
+        model.variance[slot] = (1 - alpha) * (model.variance[slot] + diff * increment);
+        if (n <= Short.MAX_VALUE) {
+            model.observations[slot] = (short) n;
+        }
+    }
+
+    /**
+     * Milliseconds since Monday 00:00 local time
+     */
+    private long localWeekMs(long timeMs) {
+        long local = timeMs + timeZone.getOffset(timeMs);
+        long day = Math.floorDiv(local, DAY_MS);
+        // 1970-01-01 was a Thursday
+        int weekday = (int) Math.floorMod(day + 3, 7);
+        return weekday * DAY_MS + Math.floorMod(local, DAY_MS);
+    }
+
+    private void bootstrapFromHistory() {
+        long now = System.currentTimeMillis();
+        long from = now - BOOTSTRAP_WEEKS * 7 * DAY_MS;
+        int observed = 0;
+        for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
+            OccupancyHistoryStore.Series series = history.query(hall.getName(), from, now,
+                    OccupancyHistoryStore.Resolution.QUARTER_HOUR);
+            String key = hall.getTopicSegment();
+            for (int i = 0; i < series.size(); i++) {
+                float ratio = series.getOccupancyRatio(i);
+                if (ratio >= 0) {
+                    observe(key, series.getStartMs(i), ratio);
+                    observed++;
+                }
+            }
+        }
+        if (observed > 0) {
+            Log.d(TAG, "Bootstrapped forecast from " + observed + " historical buckets");
+            scheduleSave();
+        }
+    }
+
+    private synchronized void scheduleSave() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        executor.schedule(this::saveModel, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void saveModel() {
+        saveScheduled = false;
+        File tmp = new File(modelFile.getPath() + ".tmp");
+        List<HallModel> snapshot = new ArrayList<>(models.values());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MODEL_FORMAT_VERSION);
+            out.writeInt(SLOTS);
+            out.writeInt(snapshot.size());
+            for (HallModel model : snapshot) {
+                out.writeUTF(model.hallKey);
+                for (int i = 0; i < SLOTS; i++) {
+                    out.writeShort(model.observations[i]);
+                    if (model.observations[i] > 0) {
+                        out.writeFloat(model.mean[i]);
+                        out.writeFloat(model.variance[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save forecast model", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(modelFile)) {
+            Log.w(TAG, "Could not replace forecast model");
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return false if there was no usable saved model
+     */
+    private synchronized boolean loadModel() {
+        if (!modelFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(modelFile)))) {
+            if (in.readInt() != MODEL_FORMAT_VERSION || in.readInt() != SLOTS) {
+                return false;
+            }
+            int halls = in.readInt();
+            for (int h = 0; h < halls; h++) {
+                HallModel model = new HallModel(in.readUTF());
+                for (int i = 0; i < SLOTS; i++) {
+                    model.observations[i] = in.readShort();
+                    if (model.observations[i] > 0) {
+                        model.mean[i] = in.readFloat();
+                        model.variance[i] = in.readFloat();
+                    }
+                }
+                models.put(model.hallKey, model);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable forecast model", e);
+            models.clear();
+            return false;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.example.myapplication;
 
 import android.widget.FrameLayout;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * DiningHall - Data class representing a dining hall with location information
  *
@@ -9,12 +12,20 @@ import android.widget.FrameLayout;
  * and UI components for reorganization animations.
  *
  * Coordinates are based on actual MSU campus locations for accurate distance calculation.
+ *
+ * Hall identity (names, coordinates) comes from HallRegistry; this class adds the tile view
+ * and the per-screen layout state, so code that does not lay out tiles should use the
+ * registry instead of getAllDiningHalls().
  */
 public class DiningHall {
-    private final String name;
-    private final String displayName;
-    private final double latitude;
-    private final double longitude;
+    // Earth radius in meters
+    static final double EARTH_RADIUS_M = 6371000;
+
+    // Apply walking distance multiplier for campus paths
+    // Research shows walking distance is typically 1.3-1.5x straight-line distance on campus
+    static final double WALKING_MULTIPLIER = 1.4;
+
+    private final HallRegistry.Hall hall;
     private final int viewId;
     private FrameLayout frameLayout;
     private double distanceFromUser;
@@ -23,27 +34,23 @@ public class DiningHall {
     /**
      * Constructor for DiningHall
      *
-     * @param name Display name of the dining hall
-     * @param displayName Full display name
-     * @param latitude Latitude coordinate
-     * @param longitude Longitude coordinate
+     * @param hall The hall in HallRegistry
      * @param viewId Resource ID of the FrameLayout
      */
-    public DiningHall(String name, String displayName, double latitude, double longitude, int viewId) {
-        this.name = name;
-        this.displayName = displayName;
-        this.latitude = latitude;
-        this.longitude = longitude;
+    public DiningHall(HallRegistry.Hall hall, int viewId) {
+        this.hall = hall;
         this.viewId = viewId;
         this.distanceFromUser = Double.MAX_VALUE;
         this.originalPosition = -1;
     }
 
     // Getters and setters
-    public String getName() { return name; }
-    public String getDisplayName() { return displayName; }
-    public double getLatitude() { return latitude; }
-    public double getLongitude() { return longitude; }
+    public HallRegistry.Hall getHall() { return hall; }
+    public int getHallId() { return hall.getId(); }
+    public String getName() { return hall.getName(); }
+    public String getDisplayName() { return hall.getDisplayName(); }
+    public double getLatitude() { return hall.getLatitude(); }
+    public double getLongitude() { return hall.getLongitude(); }
     public int getViewId() { return viewId; }
 
     public FrameLayout getFrameLayout() { return frameLayout; }
@@ -56,34 +63,48 @@ public class DiningHall {
     public void setOriginalPosition(int position) { this.originalPosition = position; }
 
     /**
-     * Creates the complete list of MSU dining halls with their actual coordinates
+     * Creates the tiles of all dining halls in HallRegistry, in tile order
      *
-     * @return Array of all dining halls with coordinates
+     * @return New DiningHall objects (they hold per-screen state) for every hall with a tile
      */
     public static DiningHall[] getAllDiningHalls() {
-        return new DiningHall[] {
-            // Top row - Full width featured dining hall (accurate coordinates)
-            new DiningHall("Snyder-Phillips", "Snyder-Phillips Hall",
-                42.73022289349873, -84.47344892521157, R.id.boxSnyderPhillips),
-
-            // Grid rows - Remaining 6 dining halls with precise GPS coordinates
-            new DiningHall("Brody", "Brody Dining Hall",
-                42.731379562909424, -84.49526567905579, R.id.boxBrody),
-            new DiningHall("Case", "Case Dining Hall",
-                42.724567591646384, -84.48870729559268, R.id.boxCase),
-            new DiningHall("Owen", "Owen Dining Hall",
-                42.72657035421706, -84.47055947007354, R.id.boxOwen),
-            new DiningHall("Shaw", "Shaw Dining Hall",
-                42.726786523682144, -84.47529606042431, R.id.boxShaw),
-            new DiningHall("Akers", "Akers Dining Hall",
-                42.72434170664002, -84.46480484532314, R.id.boxAkers),
-            new DiningHall("Landon", "Landon Dining Hall",
-                42.73380788983037, -84.48514502978489, R.id.boxLandon)
-        };
+        List<DiningHall> halls = new ArrayList<>();
+        for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
+            int viewId = getViewIdForHall(hall.getId());
+            if (viewId != 0) {
+                halls.add(new DiningHall(hall, viewId));
+            }
+        }
+        return halls.toArray(new DiningHall[0]);
+    }
+
+    /**
+     * @return Resource ID of the hall's tile on the home screen, or 0 if it has none
+     */
+    static int getViewIdForHall(int hallId) {
+        switch (hallId) {
+            case HallRegistry.SNYDER_PHILLIPS:
+                return R.id.boxSnyderPhillips;
+            case HallRegistry.BRODY:
+                return R.id.boxBrody;
+            case HallRegistry.CASE:
+                return R.id.boxCase;
+            case HallRegistry.OWEN:
+                return R.id.boxOwen;
+            case HallRegistry.SHAW:
+                return R.id.boxShaw;
+            case HallRegistry.AKERS:
+                return R.id.boxAkers;
+            case HallRegistry.LANDON:
+                return R.id.boxLandon;
+            default:
+                return 0;
+        }
     }
 
     /**
      * Utility method to calculate distance between two geographic points using Haversine formula
+     * For repeated lookups against the hall list use HallGeoIndex, which caches the per-hall trig.
      *
      * @param lat1 Latitude of first point
      * @param lon1 Longitude of first point
@@ -92,8 +113,6 @@ public class DiningHall {
      * @return Distance in meters
      */
     public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final double EARTH_RADIUS_M = 6371000; // Earth radius in meters
-
         double lat1Rad = Math.toRadians(lat1);
         double lat2Rad = Math.toRadians(lat2);
         double deltaLatRad = Math.toRadians(lat2 - lat1);
@@ -107,15 +126,11 @@ public class DiningHall {
 
         double straightLineDistance = EARTH_RADIUS_M * c;
 
-        // Apply walking distance multiplier for campus paths
-        // Research shows walking distance is typically 1.3-1.5x straight-line distance on campus
-        final double WALKING_MULTIPLIER = 1.4;
-
         return straightLineDistance * WALKING_MULTIPLIER;
     }
 
     @Override
     public String toString() {
-        return String.format("%s (%.0fm away)", displayName, distanceFromUser);
+        return String.format("%s (%.0fm away)", getDisplayName(), distanceFromUser);
     }
 }
\ No newline at end of file
@@ -0,0 +1,352 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * FavoritesMatcher - Finds the user's favorite items in freshly scraped menus
+ *
+ * All favorites are compiled into one Aho-Corasick automaton, so scanning a menu is a single
+ * pass over its text no matter how many favorites the user has:
+ * - Text is normalized before matching: lower case, accents stripped, apostrophes dropped,
+ *   any other punctuation or whitespace run becomes one space ("Belgian Waffles!" and
+ *   "belgian  waffles" are the same)
+ * - A favorite matches whole words inside a menu item, so "Belgian Waffles" is found in
+ *   "Belgian Waffles w/ Strawberries" but "Waffle" is not found in "Waffles"
+ * - The automaton is a dense transition table over a 38-symbol alphabet with failure
+ *   transitions folded in, so every input character costs one array read
+ *
+ * Threading: setFavorites() swaps in a new immutable automaton; scans may run on any thread
+ * concurrently with it and see either the old or the new favorites.
+ */
+public class FavoritesMatcher {
+    private static final String TAG = "FavoritesMatcher";
+
+    // Alphabet: a-z, 0-9, space, and one shared symbol for every other letter
+    private static final int SYMBOL_SPACE = 36;
+    private static final int SYMBOL_OTHER = 37;
+    private static final int ALPHABET = 38;
+
+    private static FavoritesMatcher instance;
+
+    /**
+     * One favorite found on a menu
+     */
+    public static final class Hit {
+        public final String favorite;
+        public final String itemName;
+        public final String stationName;
+        public final String mealName;
+
+        Hit(String favorite, String itemName, String stationName, String mealName) {
+            this.favorite = favorite;
+            this.itemName = itemName;
+            this.stationName = stationName;
+            this.mealName = mealName;
+        }
+    }
+
+    private volatile Automaton automaton = Automaton.EMPTY;
+
+    // Latest hits per hall, and the favorites already announced per hall on alertedDate;
+    // cleared when menus of another date come in, so it never outgrows one day
+    private final Map<String, List<Hit>> hitsByHall = new HashMap<>();
+    private final Set<String> alerted = new HashSet<>();
+    private String alertedDate;
+
+    public static synchronized FavoritesMatcher getInstance() {
+        if (instance == null) {
+            instance = new FavoritesMatcher();
+        }
+        return instance;
+    }
+
+    // Package-private for tests; the app uses the shared instance
+    FavoritesMatcher() {
+    }
+
+    /**
+     * Replaces the favorites and compiles them into a new automaton
+     */
+    public void setFavorites(Collection<String> favorites) {
+        automaton = Automaton.compile(favorites);
+        Log.d(TAG, "Compiled " + automaton.patternCount() + " favorites into "
+                + automaton.stateCount() + " states");
+    }
+
+    public boolean hasFavorites() {
+        return automaton.patternCount() > 0;
+    }
+
+    /**
+     * @return Whether any favorite matches one of the item names (whole words, normalized as in scan)
+     */
+    public boolean matchesAny(Collection<String> itemNames) {
+        Automaton current = automaton;
+        if (current.patternCount() == 0) {
+            return false;
+        }
+        StringBuilder normalized = new StringBuilder();
+        List<Integer> found = new ArrayList<>();
+        for (String item : itemNames) {
+            normalize(item, normalized);
+            current.match(normalized, found);
+            if (!found.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans one hall's menu for favorites
+     *
+     * @return Hits in menu order; each favorite is reported once per meal
+     */
+    public List<Hit> scan(MSUMenuScraper.MenuResult result) {
+        Automaton current = automaton;
+        List<Hit> hits = new ArrayList<>();
+        if (current.patternCount() == 0 || result == null || !result.success || result.stations == null) {
+            return hits;
+        }
+
+        StringBuilder normalized = new StringBuilder();
+        List<Integer> found = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (MSUMenuScraper.Station station : result.stations) {
+            for (MSUMenuScraper.Meal meal : station.meals) {
+                for (String item : meal.items) {
+                    normalize(item, normalized);
+                    found.clear();
+                    current.match(normalized, found);
+                    // Several favorites can match one item
+                    for (int i = 0; i < found.size(); i++) {
+                        String favorite = current.pattern(found.get(i));
+                        if (seen.add(meal.mealName + '\n' + favorite)) {
+                            hits.add(new Hit(favorite, item, station.stationName, meal.mealName));
+                        }
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Scans several menus (e.g. every hall, or a week of days)
+     *
+     * @return Hits per hall name, only for halls with at least one hit
+     */
+    public Map<String, List<Hit>> scanAll(Collection<MSUMenuScraper.MenuResult> results) {
+        Map<String, List<Hit>> byHall = new LinkedHashMap<>();
+        for (MSUMenuScraper.MenuResult result : results) {
+            List<Hit> hits = scan(result);
+            if (!hits.isEmpty()) {
+                List<Hit> existing = byHall.get(result.hallName);
+                if (existing == null) {
+                    byHall.put(result.hallName, hits);
+                } else {
+                    existing.addAll(hits);
+                }
+            }
+        }
+        return byHall;
+    }
+
+    /**
+     * Scans a freshly ingested menu and remembers the hits for getHits(). Menus are ingested
+     * for the current day only; the first menu of a new date forgets the old announcements.
+     *
+     * @return Hits for favorites not announced before for this hall and date
+     */
+    public List<Hit> ingest(MSUMenuScraper.MenuResult result) {
+        List<Hit> hits = scan(result);
+        List<Hit> fresh = new ArrayList<>();
+        synchronized (this) {
+            hitsByHall.put(result.hallName, hits);
+            if (!Objects.equals(result.date, alertedDate)) {
+                alerted.clear();
+                alertedDate = result.date;
+            }
+            for (Hit hit : hits) {
+                if (alerted.add(result.hallName + '\n' + hit.favorite)) {
+                    fresh.add(hit);
+                }
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Favorites found in the hall's most recently ingested menu
+     */
+    public synchronized List<Hit> getHits(String hallName) {
+        List<Hit> hits = hitsByHall.get(hallName);
+        return hits != null ? new ArrayList<>(hits) : new ArrayList<>();
+    }
+
+    /**
+     * Writes the normalized form of text into out, framed by spaces so that patterns only
+     * match whole words
+     */
+    static void normalize(String text, StringBuilder out) {
+        out.setLength(0);
+        out.append(' ');
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\'' || c == '\u2019') {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                out.append(Character.toLowerCase(c));
+            } else if (out.charAt(out.length() - 1) != ' ') {
+                out.append(' ');
+            }
+        }
+        if (out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= '0' && c <= '9') return 26 + (c - '0');
+        if (c == ' ') return SYMBOL_SPACE;
+        return SYMBOL_OTHER;
+    }
+
+    /**
+     * Immutable compiled automaton
+     */
+    private static final class Automaton {
+        static final Automaton EMPTY = compile(Collections.emptyList());
+
+        private final String[] patterns;
+        // next[state * ALPHABET + symbol], failure transitions already folded in
+        private final int[] next;
+        // Pattern ending at the state (-1 if none) and the next state on the failure chain
+        // that ends a pattern (-1 if none)
+        private final int[] output;
+        private final int[] outputLink;
+        private final int states;
+
+        private Automaton(String[] patterns, int[] next, int[] output, int[] outputLink, int states) {
+            this.patterns = patterns;
+            this.next = next;
+            this.output = output;
+            this.outputLink = outputLink;
+            this.states = states;
+        }
+
+        static Automaton compile(Collection<String> favorites) {
+            // Deduplicate by normalized form; the first spelling wins
+            Map<String, String> unique = new LinkedHashMap<>();
+            StringBuilder buffer = new StringBuilder();
+            for (String favorite : favorites) {
+                if (favorite == null) continue;
+                normalize(favorite, buffer);
+                if (buffer.length() > 2 && !unique.containsKey(buffer.toString())) {
+                    unique.put(buffer.toString(), favorite);
+                }
+            }
+
+            int maxStates = 1;
+            for (String key : unique.keySet()) {
+                maxStates += key.length();
+            }
+            int[] next = new int[maxStates * ALPHABET];
+            Arrays.fill(next, -1);
+            int[] output = new int[maxStates];
+            Arrays.fill(output, -1);
+            int states = 1;
+
+            // Trie
+            String[] patterns = unique.values().toArray(new String[0]);
+            int index = 0;
+            for (String key : unique.keySet()) {
+                int state = 0;
+                for (int i = 0; i < key.length(); i++) {
+                    int slot = state * ALPHABET + symbol(key.charAt(i));
+                    if (next[slot] < 0) {
+                        next[slot] = states++;
+                    }
+                    state = next[slot];
+                }
+                output[state] = index++;
+            }
+
+            // Breadth-first: failure links, folded into the transition table
+            int[] fail = new int[states];
+            int[] outputLink = new int[states];
+            Arrays.fill(outputLink, -1);
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int s = 0; s < ALPHABET; s++) {
+                int child = next[s];
+                if (child < 0) {
+                    next[s] = 0;
+                } else {
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                int f = fail[state];
+                outputLink[state] = output[f] >= 0 ? f : outputLink[f];
+                for (int s = 0; s < ALPHABET; s++) {
+                    int slot = state * ALPHABET + s;
+                    int child = next[slot];
+                    if (child < 0) {
+                        next[slot] = next[f * ALPHABET + s];
+                    } else {
+                        fail[child] = next[f * ALPHABET + s];
+                        queue.add(child);
+                    }
+                }
+            }
+
+            return new Automaton(patterns, Arrays.copyOf(next, states * ALPHABET),
+                    Arrays.copyOf(output, states), outputLink, states);
+        }
+
+        int patternCount() {
+            return patterns.length;
+        }
+
+        int stateCount() {
+            return states;
+        }
+
+        String pattern(int index) {
+            return patterns[index];
+        }
+
+        /**
+         * Runs normalized text through the automaton and appends the index of every pattern
+         * occurrence to out (a pattern occurring twice is appended twice)
+         */
+        void match(CharSequence normalized, List<Integer> out) {
+            int state = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                state = next[state * ALPHABET + symbol(normalized.charAt(i))];
+                for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                    out.add(output[s]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FavoritesStore - Local, write-through copy of the user's favorite menu items
+ *
+ * Features:
+ * - Reads are synchronous lookups in memory; the set is restored from SharedPreferences at
+ *   startup, so opening a menu never waits for the network
+ * - Toggles apply immediately and are queued as pending operations (also persisted). Pending
+ *   operations are sent to users/{uid}/favorites in one WriteBatch per SYNC_DELAY_MS, so rapid
+ *   star tapping costs one write round trip, and an add followed by a remove cancels out
+ * - One long-lived snapshot listener follows changes made on other devices; each snapshot
+ *   replaces the remote state, which is overlaid with the local pending operations so an
+ *   unsynced toggle is never undone
+ * - Failed batches stay pending and are retried with backoff
+ * - Documents are keyed by the SHA-256 of the item name (names may contain '/', which a
+ *   document id may not) and carry the name in a field. Older documents keyed by the raw
+ *   name are still read, and deleted along with the item
+ *
+ * Threading: all methods must be called on the UI thread; listeners are called there too.
+ */
+public class FavoritesStore {
+    private static final String TAG = "FavoritesStore";
+
+    private static final String PREFS_NAME = "FavoritesStore";
+    private static final String KEY_FAVORITES = "favorites_";
+    private static final String KEY_PENDING = "pending_";
+    // Pending operations are persisted as "+item" (add) or "-item" (remove)
+    private static final char OP_ADD = '+';
+    private static final char OP_REMOVE = '-';
+
+    private static final long SYNC_DELAY_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60_000L;
+    // Firestore limit on writes per batch
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final String FIELD_NAME = "name";
+
+    private static FavoritesStore instance;
+
+    /**
+     * Notified on the UI thread when favorites change, locally or remotely
+     */
+    public interface FavoritesListener {
+        /**
+         * @param changedItems Items whose favorite state flipped
+         */
+        void onFavoritesChanged(Set<String> changedItems);
+    }
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<FavoritesListener> listeners = new ArrayList<>();
+    private final Runnable syncTask = this::sync;
+
+    private String userId;
+    private final Set<String> favorites = new HashSet<>();
+    // Remote state as last seen from the snapshot listener
+    private final Set<String> remote = new HashSet<>();
+    // Item -> id of the document it was read from, where that is not documentIdOf(item)
+    private final Map<String, String> legacyDocumentIds = new HashMap<>();
+    // Item -> true (add) / false (remove), in toggle order
+    private final Map<String, Boolean> pending = new LinkedHashMap<>();
+    private ListenerRegistration registration;
+    // Whether the listener has reported the server's state since bindUser
+    private boolean remoteLoaded = false;
+    private boolean syncInFlight = false;
+    private long retryDelayMs = SYNC_DELAY_MS;
+
+    public static synchronized FavoritesStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FavoritesStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FavoritesStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        FirebaseAuth auth = FirebaseAuth.getInstance();
+        bindUser(auth.getCurrentUser());
+        auth.addAuthStateListener(firebaseAuth -> bindUser(firebaseAuth.getCurrentUser()));
+    }
+
+    public boolean isSignedIn() {
+        return userId != null;
+    }
+
+    public boolean isFavorite(String itemName) {
+        return favorites.contains(itemName);
+    }
+
+    /**
+     * @return Read-only view of the current favorites
+     */
+    public Set<String> getFavorites() {
+        return Collections.unmodifiableSet(favorites);
+    }
+
+    /**
+     * Flips the favorite state of an item
+     *
+     * @return The new state, or false if no user is signed in
+     */
+    public boolean toggle(String itemName) {
+        boolean favorite = !favorites.contains(itemName);
+        setFavorite(itemName, favorite);
+        return favorite && userId != null;
+    }
+
+    public void setFavorite(String itemName, boolean favorite) {
+        if (userId == null || favorites.contains(itemName) == favorite) {
+            return;
+        }
+        if (favorite) {
+            favorites.add(itemName);
+        } else {
+            favorites.remove(itemName);
+        }
+
+        // An operation that restores the remote state cancels the pending one
+        if (remote.contains(itemName) == favorite) {
+            pending.remove(itemName);
+        } else {
+            pending.put(itemName, favorite);
+        }
+        persist();
+        scheduleSync(SYNC_DELAY_MS);
+        notifyChanged(Collections.singleton(itemName));
+    }
+
+    public void addListener(FavoritesListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(FavoritesListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Switches to the given user's favorites (or clears them on sign-out)
+     */
+    private void bindUser(FirebaseUser user) {
+        String uid = user != null ? user.getUid() : null;
+        if (uid == null ? userId == null : uid.equals(userId)) {
+            return;
+        }
+
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        mainHandler.removeCallbacks(syncTask);
+        Set<String> before = new HashSet<>(favorites);
+        favorites.clear();
+        remote.clear();
+        legacyDocumentIds.clear();
+        pending.clear();
+        remoteLoaded = false;
+        syncInFlight = false;
+        retryDelayMs = SYNC_DELAY_MS;
+        userId = uid;
+
+        if (uid != null) {
+            restore();
+            registration = favoritesCollection().addSnapshotListener((snapshot, error) -> {
+                if (error != null || snapshot == null) {
+                    Log.w(TAG, "Favorites listener failed", error);
+                    return;
+                }
+                // A cache-only first snapshot may be older than the restored favorites
+                if (!remoteLoaded && snapshot.getMetadata().isFromCache()) {
+                    return;
+                }
+                remoteLoaded = true;
+                // Rebuilt from the full snapshot, so items removed on another device (or
+                // restored from prefs but gone from the server) are dropped too
+                remote.clear();
+                legacyDocumentIds.clear();
+                for (QueryDocumentSnapshot document : snapshot) {
+                    String name = document.getString(FIELD_NAME);
+                    if (name == null) {
+                        name = document.getId();
+                    }
+                    remote.add(name);
+                    if (!document.getId().equals(documentIdOf(name))) {
+                        legacyDocumentIds.put(name, document.getId());
+                    }
+                }
+                applyRemote();
+            });
+            if (!pending.isEmpty()) {
+                scheduleSync(SYNC_DELAY_MS);
+            }
+        }
+
+        Set<String> changed = symmetricDifference(before, favorites);
+        if (!changed.isEmpty()) {
+            notifyChanged(changed);
+        }
+    }
+
+    /**
+     * Recomputes favorites as remote state plus pending local operations
+     */
+    private void applyRemote() {
+        Set<String> merged = new HashSet<>(remote);
+        for (Map.Entry<String, Boolean> op : pending.entrySet()) {
+            if (op.getValue()) {
+                merged.add(op.getKey());
+            } else {
+                merged.remove(op.getKey());
+            }
+        }
+        Set<String> changed = symmetricDifference(favorites, merged);
+        if (changed.isEmpty()) {
+            return;
+        }
+        favorites.clear();
+        favorites.addAll(merged);
+        persist();
+        notifyChanged(changed);
+    }
+
+    private void scheduleSync(long delayMs) {
+        if (syncInFlight) {
+            // The running batch reschedules when it completes
+            return;
+        }
+        mainHandler.removeCallbacks(syncTask);
+        mainHandler.postDelayed(syncTask, delayMs);
+    }
+
+    /**
+     * Sends pending operations in one WriteBatch
+     */
+    private void sync() {
+        if (userId == null || pending.isEmpty() || syncInFlight) {
+            return;
+        }
+
+        Map<String, Boolean> batchOps = new HashMap<>();
+        CollectionReference collection = favoritesCollection();
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        int writes = 0;
+        for (Map.Entry<String, Boolean> op : pending.entrySet()) {
+            // A removal may also delete an older document of the item
+            if (writes + 2 > MAX_BATCH_SIZE) {
+                break;
+            }
+            if (op.getValue()) {
+                Map<String, Object> data = new HashMap<>();
+                data.put(FIELD_NAME, op.getKey());
+                data.put("timestamp", FieldValue.serverTimestamp());
+                batch.set(collection.document(documentIdOf(op.getKey())), data);
+                writes++;
+            } else {
+                batch.delete(collection.document(documentIdOf(op.getKey())));
+                writes++;
+                String legacyId = legacyDocumentIds.get(op.getKey());
+                if (legacyId != null) {
+                    batch.delete(collection.document(legacyId));
+                    writes++;
+                }
+            }
+            batchOps.put(op.getKey(), op.getValue());
+        }
+
+        String batchUser = userId;
+        syncInFlight = true;
+        batch.commit().addOnCompleteListener(task -> {
+            if (!batchUser.equals(userId)) {
+                return;
+            }
+            syncInFlight = false;
+            if (task.isSuccessful()) {
+                // Drop operations that were not toggled again while the batch was in flight
+                for (Map.Entry<String, Boolean> op : batchOps.entrySet()) {
+                    if (op.getValue().equals(pending.get(op.getKey()))) {
+                        pending.remove(op.getKey());
+                        if (op.getValue()) {
+                            remote.add(op.getKey());
+                        } else {
+                            remote.remove(op.getKey());
+                        }
+                    }
+                }
+                persist();
+                retryDelayMs = SYNC_DELAY_MS;
+                Log.d(TAG, "Synced " + batchOps.size() + " favorite change(s)");
+                if (!pending.isEmpty()) {
+                    scheduleSync(SYNC_DELAY_MS);
+                }
+            } else {
+                Log.w(TAG, "Favorites sync failed, retrying in " + retryDelayMs + "ms", task.getException());
+                scheduleSync(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+            }
+        });
+    }
+
+    private CollectionReference favoritesCollection() {
+        return FirebaseFirestore.getInstance()
+                .collection("users").document(userId)
+                .collection("favorites");
+    }
+
+    /**
+     * @return The id of an item's favorite document; any name maps to a valid id
+     */
+    static String documentIdOf(String itemName) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(itemName.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void restore() {
+        favorites.addAll(prefs.getStringSet(KEY_FAVORITES + userId, Collections.emptySet()));
+        for (String op : prefs.getStringSet(KEY_PENDING + userId, Collections.emptySet())) {
+            if (op.length() > 1) {
+                pending.put(op.substring(1), op.charAt(0) == OP_ADD);
+            }
+        }
+        // Until the listener reports, assume the server has everything that is not pending
+        remote.addAll(favorites);
+        for (Map.Entry<String, Boolean> op : pending.entrySet()) {
+            if (op.getValue()) {
+                remote.remove(op.getKey());
+            } else {
+                remote.add(op.getKey());
+            }
+        }
+    }
+
+    private void persist() {
+        Set<String> ops = new HashSet<>();
+        for (Map.Entry<String, Boolean> op : pending.entrySet()) {
+            ops.add((op.getValue() ? OP_ADD : OP_REMOVE) + op.getKey());
+        }
+        prefs.edit()
+                .putStringSet(KEY_FAVORITES + userId, new HashSet<>(favorites))
+                .putStringSet(KEY_PENDING + userId, ops)
+                .apply();
+    }
+
+    private void notifyChanged(Set<String> changedItems) {
+        FavoritesMatcher.getInstance().setFavorites(favorites);
+        for (FavoritesListener listener : new ArrayList<>(listeners)) {
+            listener.onFavoritesChanged(changedItems);
+        }
+    }
+
+    private static Set<String> symmetricDifference(Set<String> a, Set<String> b) {
+        Set<String> diff = new HashSet<>();
+        for (String item : a) {
+            if (!b.contains(item)) diff.add(item);
+        }
+        for (String item : b) {
+            if (!a.contains(item)) diff.add(item);
+        }
+        return diff;
+    }
+}
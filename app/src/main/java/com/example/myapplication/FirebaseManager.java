@@ -7,9 +7,13 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.analytics.FirebaseAnalytics;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.storage.FirebaseStorage;
 
+import java.util.Date;
+
 /**
  * Firebase Manager - Centralized Firebase service management
  *
@@ -25,10 +29,16 @@ import com.google.firebase.storage.FirebaseStorage;
  */
 public class FirebaseManager {
     private static final String TAG = "FirebaseManager";
+    // Bound on Firestore's on-disk cache (published menus, favorites)
+    private static final long FIRESTORE_CACHE_BYTES = 20L * 1024 * 1024;
+    private static final String EVENT_MENU_VIEW = "menu_view";
+    private static final String EVENT_DATE_SELECTED = "date_selected";
+    private static final String EVENT_HALL_SELECTED = "dining_hall_selected";
     private static FirebaseManager instance;
 
     // Firebase services
     private FirebaseAnalytics analytics;
+    private AnalyticsPipeline analyticsPipeline;
     private FirebaseFirestore firestore;
     private FirebaseAuth auth;
     private FirebaseStorage storage;
@@ -58,7 +68,9 @@ public class FirebaseManager {
 
             // Initialize Firebase services
             analytics = FirebaseAnalytics.getInstance(context);
+            analyticsPipeline = createAnalyticsPipeline(analytics);
             firestore = FirebaseFirestore.getInstance();
+            configureFirestore(context);
             auth = FirebaseAuth.getInstance();
             storage = FirebaseStorage.getInstance();
             messaging = FirebaseMessaging.getInstance();
@@ -68,8 +80,8 @@ public class FirebaseManager {
             // Enable Firestore offline persistence
             firestore.enableNetwork();
 
-            // Set up FCM token retrieval
-            setupFirebaseMessaging();
+            // Set up FCM token retrieval and menu change messages
+            setupFirebaseMessaging(context);
 
         } catch (Exception e) {
             Log.e(TAG, "Error initializing Firebase services", e);
@@ -77,9 +89,42 @@ public class FirebaseManager {
     }
 
     /**
-     * Set up Firebase Cloud Messaging for push notifications
+     * Events fired from UI interactions go through the pipeline, which batches them off the
+     * UI thread and aggregates the high-frequency ones into counts
+     */
+    private static AnalyticsPipeline createAnalyticsPipeline(FirebaseAnalytics analytics) {
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(analytics);
+        pipeline.registerCounter(EVENT_MENU_VIEW, "hall_name", "meal_time", "date");
+        pipeline.registerCounter(EVENT_DATE_SELECTED, "hall_name", "meal_time", "selected_date");
+        pipeline.registerCounter(EVENT_HALL_SELECTED, "hall_name", "source");
+        // Date browsing is only looked at in aggregate; a quarter of it is plenty
+        pipeline.setSampleRate(EVENT_DATE_SELECTED, 0.25f);
+        return pipeline;
+    }
+
+    /**
+     * Points Firestore at the emulator if R.string.firestore_emulator_host is set and bounds its
+     * persistent cache; must run before Firestore is used anywhere else
+     */
+    private void configureFirestore(Context context) {
+        String emulatorHost = context.getString(R.string.firestore_emulator_host).trim();
+        if (!emulatorHost.isEmpty()) {
+            int colon = emulatorHost.lastIndexOf(':');
+            firestore.useEmulator(emulatorHost.substring(0, colon), Integer.parseInt(emulatorHost.substring(colon + 1)));
+            Log.d(TAG, "Using the Firestore emulator at " + emulatorHost);
+        }
+        firestore.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                        .setSizeBytes(FIRESTORE_CACHE_BYTES)
+                        .build())
+                .build());
+    }
+
+    /**
+     * Set up Firebase Cloud Messaging for push notifications and subscribe to the menu service's
+     * change messages (handled by MenuMessagingService)
      */
-    private void setupFirebaseMessaging() {
+    private void setupFirebaseMessaging(Context context) {
         messaging.getToken()
                 .addOnCompleteListener(task -> {
                     if (!task.isSuccessful()) {
@@ -90,8 +135,15 @@ public class FirebaseManager {
                     // Get new FCM registration token
                     String token = task.getResult();
                     Log.d(TAG, "FCM Registration Token: " + token);
+                });
 
-                    // TODO: Send token to your teammates' backend for push notifications
+        MenuInvalidator invalidator = MenuInvalidator.getInstance(context);
+        messaging.subscribeToTopic(MenuDocuments.TOPIC_MENU_UPDATES)
+                .addOnCompleteListener(task -> {
+                    invalidator.setSubscribed(task.isSuccessful());
+                    if (!task.isSuccessful()) {
+                        Log.w(TAG, "Subscribing to menu updates failed", task.getException());
+                    }
                 });
     }
 
@@ -120,17 +172,27 @@ public class FirebaseManager {
     // Analytics helper methods
 
     public void logEvent(String eventName, android.os.Bundle params) {
-        if (analytics != null) {
-            analytics.logEvent(eventName, params);
+        if (analyticsPipeline != null) {
+            analyticsPipeline.log(eventName, params);
         }
     }
 
-    public void logMenuView(String hallName, String mealTime, String date) {
-        android.os.Bundle bundle = new android.os.Bundle();
-        bundle.putString("hall_name", hallName);
-        bundle.putString("meal_time", mealTime);
-        bundle.putString("date", date);
-        logEvent("menu_view", bundle);
+    public void logMenuView(String hallName, String mealTime, Date date) {
+        if (analyticsPipeline != null) {
+            analyticsPipeline.count(EVENT_MENU_VIEW, hallName, mealTime, date);
+        }
+    }
+
+    public void logDateSelected(String hallName, String mealTime, Date date) {
+        if (analyticsPipeline != null) {
+            analyticsPipeline.count(EVENT_DATE_SELECTED, hallName, mealTime, date);
+        }
+    }
+
+    public void logHallSelected(String hallName, String source) {
+        if (analyticsPipeline != null) {
+            analyticsPipeline.count(EVENT_HALL_SELECTED, hallName, source, null);
+        }
     }
 
     public void logUserLogin(String method) {
@@ -138,4 +200,13 @@ public class FirebaseManager {
         bundle.putString("method", method);
         logEvent("user_login", bundle);
     }
+
+    /**
+     * Sends queued analytics events now instead of with the next batch
+     */
+    public void flushAnalytics() {
+        if (analyticsPipeline != null) {
+            analyticsPipeline.flush();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * HallGeoIndex - Spatial index for nearest-hall lookups
+ *
+ * Built once over a fixed set of halls. Everything that depends only on hall coordinates
+ * (radians, cosines, planar projection, grid buckets) is precomputed at construction so a
+ * location fix costs a few multiplications per candidate instead of a full Haversine.
+ *
+ * Query modes:
+ * - Campus range (within LOCAL_RANGE_M of the reference point): equirectangular projection
+ *   around the halls' centroid plus a uniform grid, searched ring by ring for k-nearest.
+ *   No trig calls per fix. The projection scales longitude by the cosine of the reference
+ *   latitude only, so distances carry a relative error of about tan(lat) x the fix's latitude
+ *   offset from the reference (in radians): decimetres for fixes within 2 km of campus, tens
+ *   of metres at LOCAL_RANGE_M. nearest() can only differ from an exact Haversine search when
+ *   two halls are that close to equidistant.
+ * - Out of range: Haversine over every hall, reusing the cached hall cosines.
+ *
+ * All returned distances are walking distances (straight line x DiningHall.WALKING_MULTIPLIER),
+ * matching DiningHall.calculateDistance.
+ *
+ * Thread-safety: immutable after construction, safe to share across threads. The DiningHall
+ * objects it holds are shared and must be treated as read-only.
+ */
+public final class HallGeoIndex {
+
+    // Beyond this distance from the reference point the planar approximation is not used
+    private static final double LOCAL_RANGE_M = 20000;
+    // Grid cell edge; a few halls per cell at MSU density
+    private static final double CELL_SIZE_M = 250;
+
+    private final DiningHall[] halls;
+
+    // Cached per-hall trig for the Haversine fallback
+    private final double[] latRad;
+    private final double[] lonRad;
+    private final double[] cosLat;
+
+    // Reference point for the local projection
+    private final double refLatRad;
+    private final double refLonRad;
+    private final double refCosLat;
+
+    // Planar coordinates in meters relative to the reference point
+    private final double[] x;
+    private final double[] y;
+
+    // Uniform grid in compressed-row form: hall indices of cell c are
+    // cellItems[cellStart[c] .. cellStart[c + 1])
+    private final int minCellX;
+    private final int minCellY;
+    private final int cellsX;
+    private final int cellsY;
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    /**
+     * Lazily built index over the default MSU dining hall list
+     */
+    private static final class DefaultHolder {
+        static final HallGeoIndex INSTANCE = new HallGeoIndex(DiningHall.getAllDiningHalls());
+    }
+
+    /**
+     * Returns the shared index over DiningHall.getAllDiningHalls(), built on first use
+     */
+    public static HallGeoIndex getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Builds an index over the given halls
+     *
+     * @param halls Halls to index; the array is copied, the hall objects are shared
+     */
+    public HallGeoIndex(DiningHall[] halls) {
+        this.halls = Arrays.copyOf(halls, halls.length);
+        int n = halls.length;
+
+        latRad = new double[n];
+        lonRad = new double[n];
+        cosLat = new double[n];
+        double sumLat = 0;
+        double sumLon = 0;
+        for (int i = 0; i < n; i++) {
+            latRad[i] = Math.toRadians(halls[i].getLatitude());
+            lonRad[i] = Math.toRadians(halls[i].getLongitude());
+            cosLat[i] = Math.cos(latRad[i]);
+            sumLat += latRad[i];
+            sumLon += lonRad[i];
+        }
+
+        refLatRad = n > 0 ? sumLat / n : 0;
+        refLonRad = n > 0 ? sumLon / n : 0;
+        refCosLat = Math.cos(refLatRad);
+
+        x = new double[n];
+        y = new double[n];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int[] hallCellX = new int[n];
+        int[] hallCellY = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = projectX(lonRad[i]);
+            y[i] = projectY(latRad[i]);
+            hallCellX[i] = cellOf(x[i]);
+            hallCellY[i] = cellOf(y[i]);
+            minX = Math.min(minX, hallCellX[i]);
+            minY = Math.min(minY, hallCellY[i]);
+            maxX = Math.max(maxX, hallCellX[i]);
+            maxY = Math.max(maxY, hallCellY[i]);
+        }
+
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        minCellX = minX;
+        minCellY = minY;
+        cellsX = maxX - minX + 1;
+        cellsY = maxY - minY + 1;
+
+        // Counting sort of halls into cells
+        cellStart = new int[cellsX * cellsY + 1];
+        for (int i = 0; i < n; i++) {
+            cellStart[cellIndex(hallCellX[i], hallCellY[i]) + 1]++;
+        }
+        for (int c = 0; c < cellsX * cellsY; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellItems = new int[n];
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length);
+        for (int i = 0; i < n; i++) {
+            cellItems[fill[cellIndex(hallCellX[i], hallCellY[i])]++] = i;
+        }
+    }
+
+    public int size() {
+        return halls.length;
+    }
+
+    public DiningHall getHall(int index) {
+        return halls[index];
+    }
+
+    /**
+     * Returns the index of the hall closest to the given point, or -1 if the index is empty
+     */
+    public int nearest(double latitude, double longitude) {
+        int[] index = new int[1];
+        return kNearest(latitude, longitude, 1, index, null) == 1 ? index[0] : -1;
+    }
+
+    /**
+     * Finds the k halls closest to the given point, nearest first
+     *
+     * @param outIndices Receives hall indices; length must be at least k
+     * @param outDistancesM Receives walking distances in meters (may be null)
+     * @return Number of results written (min(k, size()))
+     */
+    public int kNearest(double latitude, double longitude, int k, int[] outIndices, double[] outDistancesM) {
+        k = Math.min(k, halls.length);
+        if (k <= 0) {
+            return 0;
+        }
+
+        double[] best = new double[k];
+        Arrays.fill(best, Double.MAX_VALUE);
+        int found;
+
+        double ux = projectX(Math.toRadians(longitude));
+        double uy = projectY(Math.toRadians(latitude));
+        if (Math.abs(ux) > LOCAL_RANGE_M || Math.abs(uy) > LOCAL_RANGE_M) {
+            found = kNearestHaversine(latitude, longitude, k, outIndices, best);
+        } else {
+            found = kNearestGrid(ux, uy, k, outIndices, best);
+        }
+
+        if (outDistancesM != null) {
+            for (int i = 0; i < found; i++) {
+                outDistancesM[i] = best[i] * DiningHall.WALKING_MULTIPLIER;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Fills out[i] with the walking distance in meters from the given point to hall i
+     */
+    public void distancesFrom(double latitude, double longitude, double[] out) {
+        double ux = projectX(Math.toRadians(longitude));
+        double uy = projectY(Math.toRadians(latitude));
+        boolean local = Math.abs(ux) <= LOCAL_RANGE_M && Math.abs(uy) <= LOCAL_RANGE_M;
+
+        double userLatRad = Math.toRadians(latitude);
+        double userLonRad = Math.toRadians(longitude);
+        double userCosLat = local ? 0 : Math.cos(userLatRad);
+
+        for (int i = 0; i < halls.length; i++) {
+            double meters;
+            if (local) {
+                double dx = x[i] - ux;
+                double dy = y[i] - uy;
+                meters = Math.sqrt(dx * dx + dy * dy);
+            } else {
+                meters = haversine(userLatRad, userLonRad, userCosLat, i);
+            }
+            out[i] = meters * DiningHall.WALKING_MULTIPLIER;
+        }
+    }
+
+    /**
+     * Fast equirectangular distance between two points, for short (campus-scale) distances
+     *
+     * @return Straight-line distance in meters
+     */
+    public static double approximateDistance(double lat1, double lon1, double lat2, double lon2) {
+        double meanLat = Math.toRadians((lat1 + lat2) / 2);
+        double dx = Math.toRadians(lon2 - lon1) * Math.cos(meanLat);
+        double dy = Math.toRadians(lat2 - lat1);
+        return DiningHall.EARTH_RADIUS_M * Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int kNearestGrid(double ux, double uy, int k, int[] outIndices, double[] best) {
+        int userCellX = cellOf(ux);
+        int userCellY = cellOf(uy);
+        int maxCellX = minCellX + cellsX - 1;
+        int maxCellY = minCellY + cellsY - 1;
+        int maxRing = Math.max(
+                Math.max(Math.abs(userCellX - minCellX), Math.abs(maxCellX - userCellX)),
+                Math.max(Math.abs(userCellY - minCellY), Math.abs(maxCellY - userCellY)));
+        // Rings closer than this lie entirely outside the grid (the user is off it)
+        int firstRing = Math.max(0, Math.max(
+                Math.max(minCellX - userCellX, userCellX - maxCellX),
+                Math.max(minCellY - userCellY, userCellY - maxCellY)));
+
+        int found = 0;
+        for (int ring = firstRing; ring <= maxRing; ring++) {
+            // Anything in this ring is at least (ring - 1) cells away from the user
+            if (found == k && (ring - 1) * CELL_SIZE_M > best[k - 1]) {
+                break;
+            }
+            // Only the part of the ring that overlaps the grid
+            int left = userCellX - ring;
+            int right = userCellX + ring;
+            int fromX = Math.max(left, minCellX);
+            int toX = Math.min(right, maxCellX);
+            int fromY = Math.max(userCellY - ring, minCellY);
+            int toY = Math.min(userCellY + ring, maxCellY);
+            for (int cy = fromY; cy <= toY; cy++) {
+                if (cy == userCellY - ring || cy == userCellY + ring) {
+                    for (int cx = fromX; cx <= toX; cx++) {
+                        found = scanCell(cx, cy, ux, uy, k, found, outIndices, best);
+                    }
+                } else {
+                    if (left >= minCellX) {
+                        found = scanCell(left, cy, ux, uy, k, found, outIndices, best);
+                    }
+                    if (right <= maxCellX) {
+                        found = scanCell(right, cy, ux, uy, k, found, outIndices, best);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int scanCell(int cx, int cy, double ux, double uy, int k, int found, int[] outIndices, double[] best) {
+        int cell = (cy - minCellY) * cellsX + (cx - minCellX);
+        for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+            int hall = cellItems[p];
+            double dx = x[hall] - ux;
+            double dy = y[hall] - uy;
+            found = insertCandidate(hall, Math.sqrt(dx * dx + dy * dy), k, found, outIndices, best);
+        }
+        return found;
+    }
+
+    private int kNearestHaversine(double latitude, double longitude, int k, int[] outIndices, double[] best) {
+        double userLatRad = Math.toRadians(latitude);
+        double userLonRad = Math.toRadians(longitude);
+        double userCosLat = Math.cos(userLatRad);
+
+        int found = 0;
+        for (int i = 0; i < halls.length; i++) {
+            found = insertCandidate(i, haversine(userLatRad, userLonRad, userCosLat, i), k, found, outIndices, best);
+        }
+        return found;
+    }
+
+    /**
+     * Inserts a candidate into the sorted top-k arrays
+     *
+     * @return Updated number of results held
+     */
+    private static int insertCandidate(int hall, double distance, int k, int found, int[] indices, double[] best) {
+        if (found == k && distance >= best[k - 1]) {
+            return found;
+        }
+        int pos = found < k ? found++ : k - 1;
+        while (pos > 0 && best[pos - 1] > distance) {
+            best[pos] = best[pos - 1];
+            indices[pos] = indices[pos - 1];
+            pos--;
+        }
+        best[pos] = distance;
+        indices[pos] = hall;
+        return found;
+    }
+
+    private double haversine(double userLatRad, double userLonRad, double userCosLat, int hall) {
+        double sinHalfLat = Math.sin((latRad[hall] - userLatRad) / 2);
+        double sinHalfLon = Math.sin((lonRad[hall] - userLonRad) / 2);
+        double a = sinHalfLat * sinHalfLat + userCosLat * cosLat[hall] * sinHalfLon * sinHalfLon;
+        return 2 * DiningHall.EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private double projectX(double lonRadians) {
+        return (lonRadians - refLonRad) * refCosLat * DiningHall.EARTH_RADIUS_M;
+    }
+
+    private double projectY(double latRadians) {
+        return (latRadians - refLatRad) * DiningHall.EARTH_RADIUS_M;
+    }
+
+    private static int cellOf(double meters) {
+        return (int) Math.floor(meters / CELL_SIZE_M);
+    }
+
+    private int cellIndex(int cellX, int cellY) {
+        return (cellY - minCellY) * cellsX + (cellX - minCellX);
+    }
+}
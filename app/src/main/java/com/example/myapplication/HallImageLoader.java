@@ -0,0 +1,388 @@
+package com.example.myapplication;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+import androidx.annotation.DrawableRes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HallImageLoader - Downsampled, cached image loading for the dining hall tiles
+ *
+ * The dining hall photos ship as full-resolution drawables that are several times larger
+ * than the tiles they are shown in. This loader decodes them off the UI thread at the size
+ * of the target ImageView and keeps the results so that tile shuffles and rotations are
+ * served from memory instead of re-decoding the originals.
+ *
+ * Cache layers:
+ * 1. Memory: LruCache of decoded bitmaps, sized to 1/8 of the app heap
+ * 2. Reuse pool: evicted bitmaps that no tile is showing become inBitmap targets for new decodes
+ * 3. Disk: pre-scaled variants stored per screen density under cacheDir/hall_images
+ *
+ * Threading: load() and onTrimMemory() must be called on the UI thread. Decoding runs on a
+ * small background pool and results are posted back to the main thread.
+ */
+public class HallImageLoader {
+    private static final String TAG = "HallImageLoader";
+    private static final String DISK_CACHE_DIR = "hall_images";
+
+    // Target sizes are rounded up to this step so small layout differences share one variant
+    private static final int SIZE_BUCKET_PX = 64;
+    private static final int DECODE_THREADS = 2;
+    private static final int MAX_REUSE_POOL_SIZE = 6;
+    private static final int DISK_JPEG_QUALITY = 85;
+
+    private static HallImageLoader instance;
+
+    private final Resources resources;
+    private final File diskCacheDir;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService decodeExecutor;
+    private final Handler mainHandler;
+
+    // Shared with decode threads - always accessed under its own lock
+    private final List<Bitmap> reusePool = new ArrayList<>();
+
+    // UI thread only
+    private final Map<String, Integer> displayCounts = new HashMap<>();
+    private final Map<ImageView, String> displayedKeys = new WeakHashMap<>();
+    private final Map<ImageView, String> requestedKeys = new WeakHashMap<>();
+    private final Set<String> inFlightKeys = new HashSet<>();
+
+    /**
+     * Returns the process-wide loader so the memory cache survives activity recreation
+     *
+     * @param context Any context (the application context is retained)
+     * @return Singleton instance of HallImageLoader
+     */
+    public static synchronized HallImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new HallImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private HallImageLoader(Context context) {
+        this.resources = context.getResources();
+        this.diskCacheDir = new File(context.getCacheDir(),
+                DISK_CACHE_DIR + File.separator + "dpi" + resources.getDisplayMetrics().densityDpi);
+        this.decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+
+        int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                // Only recycle pixels that no tile is currently drawing
+                if (!displayCounts.containsKey(key)) {
+                    offerToReusePool(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Shows the given drawable in the ImageView, decoded at the view's size
+     *
+     * Repeated calls for a view that already shows the same image at the same size are no-ops,
+     * so callers can rebind tiles freely.
+     *
+     * @param imageView Target view
+     * @param resId Drawable resource of the full-size image
+     */
+    public void load(ImageView imageView, @DrawableRes int resId) {
+        load(imageView, resId, false);
+    }
+
+    private void load(ImageView imageView, @DrawableRes int resId, boolean deferred) {
+        int width = imageView.getWidth();
+        int height = imageView.getHeight();
+
+        if (width == 0 || height == 0) {
+            if (!deferred) {
+                // Not laid out yet (first bind from onCreate) - wait one frame for the real size
+                imageView.post(() -> load(imageView, resId, true));
+                return;
+            }
+            // Still unmeasured (e.g. hidden) - fall back to a full-width 2:1 tile
+            width = resources.getDisplayMetrics().widthPixels;
+            height = width / 2;
+        }
+
+        int targetWidth = roundUpToBucket(width);
+        int targetHeight = roundUpToBucket(height);
+        String key = resId + "_" + targetWidth + "x" + targetHeight;
+
+        requestedKeys.put(imageView, key);
+        if (key.equals(displayedKeys.get(imageView))) {
+            return;
+        }
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            bindBitmap(imageView, key, cached);
+            return;
+        }
+
+        if (inFlightKeys.add(key)) {
+            decodeExecutor.execute(() -> {
+                Bitmap bitmap = decodeScaled(resId, targetWidth, targetHeight);
+                mainHandler.post(() -> onDecodeFinished(key, bitmap));
+            });
+        }
+    }
+
+    /**
+     * Releases cached bitmaps when the system is low on memory
+     *
+     * @param level Level passed to Application.onTrimMemory
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            memoryCache.evictAll();
+            synchronized (reusePool) {
+                reusePool.clear();
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    private void onDecodeFinished(String key, Bitmap bitmap) {
+        inFlightKeys.remove(key);
+        if (bitmap == null) {
+            return;
+        }
+
+        memoryCache.put(key, bitmap);
+
+        // Deliver to every view whose most recent request was for this key
+        List<ImageView> targets = new ArrayList<>();
+        for (Map.Entry<ImageView, String> entry : requestedKeys.entrySet()) {
+            if (key.equals(entry.getValue()) && entry.getKey() != null) {
+                targets.add(entry.getKey());
+            }
+        }
+        for (ImageView target : targets) {
+            bindBitmap(target, key, bitmap);
+        }
+    }
+
+    private void bindBitmap(ImageView imageView, String key, Bitmap bitmap) {
+        String previousKey = displayedKeys.get(imageView);
+        Bitmap previousBitmap = currentBitmap(imageView);
+
+        imageView.setImageBitmap(bitmap);
+        displayedKeys.put(imageView, key);
+        displayCounts.put(key, displayCounts.containsKey(key) ? displayCounts.get(key) + 1 : 1);
+
+        if (previousKey != null) {
+            int remaining = displayCounts.containsKey(previousKey) ? displayCounts.get(previousKey) - 1 : 0;
+            if (remaining > 0) {
+                displayCounts.put(previousKey, remaining);
+            } else {
+                displayCounts.remove(previousKey);
+                // Already evicted while on screen - now it can be recycled
+                if (previousBitmap != null && memoryCache.get(previousKey) != previousBitmap) {
+                    offerToReusePool(previousBitmap);
+                }
+            }
+        }
+    }
+
+    private Bitmap currentBitmap(ImageView imageView) {
+        Drawable drawable = imageView.getDrawable();
+        return drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+    }
+
+    /**
+     * Decodes a drawable at (at least) the target size, using the disk cache when possible
+     * Runs on a decode thread.
+     */
+    private Bitmap decodeScaled(@DrawableRes int resId, int targetWidth, int targetHeight) {
+        File cachedFile = null;
+        try {
+            cachedFile = new File(diskCacheDir,
+                    resources.getResourceEntryName(resId) + "_" + targetWidth + "x" + targetHeight);
+            if (cachedFile.exists()) {
+                Bitmap fromDisk = decodeFromDisk(cachedFile);
+                if (fromDisk != null) {
+                    return fromDisk;
+                }
+            }
+        } catch (Resources.NotFoundException e) {
+            Log.w(TAG, "Unknown drawable " + resId, e);
+            return null;
+        }
+
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            options.inScaled = false;
+            BitmapFactory.decodeResource(resources, resId, options);
+
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                    targetWidth, targetHeight);
+            options.inJustDecodeBounds = false;
+            options.inMutable = true;
+
+            Bitmap sampled = decodeResourceWithReuse(resId, options);
+            if (sampled == null) {
+                return null;
+            }
+
+            // Subsampling only works in powers of two - finish with an exact centerCrop-covering scale
+            float scale = Math.max((float) targetWidth / sampled.getWidth(),
+                    (float) targetHeight / sampled.getHeight());
+            Bitmap result = sampled;
+            if (scale < 1f) {
+                result = Bitmap.createScaledBitmap(sampled,
+                        Math.max(1, Math.round(sampled.getWidth() * scale)),
+                        Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+                if (result != sampled) {
+                    offerToReusePool(sampled);
+                }
+            }
+
+            writeToDisk(cachedFile, result);
+            return result;
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "Out of memory decoding drawable " + resId, e);
+            return null;
+        }
+    }
+
+    private Bitmap decodeFromDisk(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = takeFromReusePool(options.outWidth, options.outHeight, 1);
+        try {
+            return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap was not compatible after all - decode into a fresh allocation
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        }
+    }
+
+    private Bitmap decodeResourceWithReuse(@DrawableRes int resId, BitmapFactory.Options options) {
+        options.inBitmap = takeFromReusePool(options.outWidth, options.outHeight, options.inSampleSize);
+        try {
+            return BitmapFactory.decodeResource(resources, resId, options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resId, options);
+        }
+    }
+
+    private void writeToDisk(File file, Bitmap bitmap) {
+        if (file == null) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            return;
+        }
+
+        // Write to a temp file first so a crash never leaves a truncated cache entry
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            Bitmap.CompressFormat format = bitmap.hasAlpha()
+                    ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+            bitmap.compress(format, DISK_JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write disk cache entry " + file.getName(), e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private void offerToReusePool(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        synchronized (reusePool) {
+            if (reusePool.size() >= MAX_REUSE_POOL_SIZE) {
+                reusePool.remove(0);
+            }
+            reusePool.add(bitmap);
+        }
+    }
+
+    /**
+     * Finds a pooled bitmap large enough to hold a decode of the given size, removing it from the pool
+     */
+    private Bitmap takeFromReusePool(int width, int height, int inSampleSize) {
+        int sampleSize = Math.max(1, inSampleSize);
+        long requiredBytes = (long) (width / sampleSize) * (height / sampleSize) * 4;
+
+        synchronized (reusePool) {
+            Bitmap bestFit = null;
+            for (Iterator<Bitmap> it = reusePool.iterator(); it.hasNext(); ) {
+                Bitmap candidate = it.next();
+                if (candidate.isRecycled()) {
+                    it.remove();
+                    continue;
+                }
+                if (candidate.getAllocationByteCount() >= requiredBytes
+                        && (bestFit == null
+                            || candidate.getAllocationByteCount() < bestFit.getAllocationByteCount())) {
+                    bestFit = candidate;
+                }
+            }
+            if (bestFit != null) {
+                reusePool.remove(bestFit);
+            }
+            return bestFit;
+        }
+    }
+
+    private static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= targetWidth && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static int roundUpToBucket(int size) {
+        return ((size + SIZE_BUCKET_PX - 1) / SIZE_BUCKET_PX) * SIZE_BUCKET_PX;
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * HallRankingEngine - Orders dining halls by a weighted sum of pluggable factors
+ *
+ * Every factor scores each hall in [0, 1] (1 = most attractive) and carries a weight.
+ * The engine caches each factor's per-hall scores and the weighted totals:
+ * - When a factor's input changes it calls invalidate(), and only that factor's scores are
+ *   recomputed; totals are adjusted by the difference instead of being summed again
+ * - The ranking is re-sorted lazily with an insertion sort over the previous order, which
+ *   is linear when the order barely changed (the common case for a moving user)
+ *
+ * Built-in factors: DistanceFactor, OccupancyFactor, FavoritesFactor, OpenNowFactor.
+ *
+ * Threading: all methods must be called on the UI thread. Factors that need disk or network
+ * data compute it elsewhere and hand the results over on the UI thread.
+ */
+public class HallRankingEngine {
+
+    /**
+     * One input to the ranking
+     */
+    public interface RankingFactor {
+        float getWeight();
+
+        /**
+         * @return Score of the hall in [0, 1]; 0.5 when the factor knows nothing about it
+         */
+        float score(int hallIndex, DiningHall hall);
+    }
+
+    private final DiningHall[] halls;
+    private final List<RankingFactor> factors = new ArrayList<>();
+    private final List<float[]> factorScores = new ArrayList<>();
+    private final float[] totals;
+    private final int[] ranking;
+    private boolean rankingDirty = true;
+
+    public HallRankingEngine(DiningHall[] halls) {
+        this.halls = halls;
+        this.totals = new float[halls.length];
+        this.ranking = new int[halls.length];
+        for (int i = 0; i < ranking.length; i++) {
+            ranking[i] = i;
+        }
+    }
+
+    public void addFactor(RankingFactor factor) {
+        factors.add(factor);
+        float[] scores = new float[halls.length];
+        factorScores.add(scores);
+        for (int i = 0; i < halls.length; i++) {
+            scores[i] = clamp(factor.score(i, halls[i]));
+            totals[i] += factor.getWeight() * scores[i];
+        }
+        rankingDirty = true;
+    }
+
+    /**
+     * Recomputes one factor's scores for every hall
+     */
+    public void invalidate(RankingFactor factor) {
+        int f = factors.indexOf(factor);
+        if (f < 0) {
+            return;
+        }
+        for (int i = 0; i < halls.length; i++) {
+            rescore(f, i);
+        }
+    }
+
+    /**
+     * Recomputes one factor's score for a single hall
+     */
+    public void invalidate(RankingFactor factor, int hallIndex) {
+        int f = factors.indexOf(factor);
+        if (f >= 0) {
+            rescore(f, hallIndex);
+        }
+    }
+
+    /**
+     * Current order, best hall first. The returned array is owned by the engine and
+     * only valid until the next call that changes scores.
+     */
+    public int[] getRanking() {
+        if (rankingDirty) {
+            // Insertion sort, starting from the previous order
+            for (int i = 1; i < ranking.length; i++) {
+                int hall = ranking[i];
+                int j = i - 1;
+                while (j >= 0 && isBetter(hall, ranking[j])) {
+                    ranking[j + 1] = ranking[j];
+                    j--;
+                }
+                ranking[j + 1] = hall;
+            }
+            rankingDirty = false;
+        }
+        return ranking;
+    }
+
+    public float getScore(int hallIndex) {
+        return totals[hallIndex];
+    }
+
+    public int indexOf(String hallName) {
+        for (int i = 0; i < halls.length; i++) {
+            if (halls[i].getName().equalsIgnoreCase(hallName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void rescore(int f, int hallIndex) {
+        RankingFactor factor = factors.get(f);
+        float[] scores = factorScores.get(f);
+        float updated = clamp(factor.score(hallIndex, halls[hallIndex]));
+        if (updated != scores[hallIndex]) {
+            totals[hallIndex] += factor.getWeight() * (updated - scores[hallIndex]);
+            scores[hallIndex] = updated;
+            rankingDirty = true;
+        }
+    }
+
+    /**
+     * Higher total wins; ties keep the default hall order so tiles do not flicker
+     */
+    private boolean isBetter(int a, int b) {
+        float diff = totals[a] - totals[b];
+        if (Math.abs(diff) > 1e-4f) {
+            return diff > 0;
+        }
+        return a < b;
+    }
+
+    private static float clamp(float score) {
+        return Float.isNaN(score) ? 0.5f : Math.max(0f, Math.min(1f, score));
+    }
+
+    /**
+     * Closer is better: 1 at the door, 0.5 at HALF_SCORE_DISTANCE_M walking distance
+     */
+    public static class DistanceFactor implements RankingFactor {
+        private static final double HALF_SCORE_DISTANCE_M = 400;
+
+        private final float weight;
+        private double[] distances;
+
+        public DistanceFactor(float weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * @param walkingDistancesM Distance per hall index in meters; kept by reference
+         */
+        public void setDistances(double[] walkingDistancesM) {
+            this.distances = walkingDistancesM;
+        }
+
+        @Override
+        public float getWeight() {
+            return weight;
+        }
+
+        @Override
+        public float score(int hallIndex, DiningHall hall) {
+            if (distances == null) {
+                return 0.5f;
+            }
+            return (float) (1.0 / (1.0 + distances[hallIndex] / HALF_SCORE_DISTANCE_M));
+        }
+    }
+
+    /**
+     * Emptier is better. Uses the live seat count when it is recent, the crowd forecast
+     * otherwise.
+     */
+    public static class OccupancyFactor implements RankingFactor {
+        // Live data older than this is treated as stale
+        private static final long LIVE_MAX_AGE_MS = 5 * 60_000L;
+
+        private final float weight;
+        private final CrowdForecaster forecaster;
+        private SeatOccupancyEngine.OccupancySnapshot snapshot;
+
+        public OccupancyFactor(float weight, CrowdForecaster forecaster) {
+            this.weight = weight;
+            this.forecaster = forecaster;
+        }
+
+        public void setSnapshot(SeatOccupancyEngine.OccupancySnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public float getWeight() {
+            return weight;
+        }
+
+        @Override
+        public float score(int hallIndex, DiningHall hall) {
+            long now = System.currentTimeMillis();
+            if (snapshot != null) {
+                SeatOccupancyEngine.HallOccupancy live = snapshot.getHall(hall.getName());
+                if (live != null && now - live.updatedAtMs < LIVE_MAX_AGE_MS && live.getOccupancyRatio() >= 0) {
+                    return 1f - live.getOccupancyRatio();
+                }
+            }
+            float expected = forecaster.expectedOccupancy(hall.getName(), now);
+            return expected >= 0 ? 1f - expected : 0.5f;
+        }
+    }
+
+    /**
+     * Halls serving one of the user's favorite items in the current meal score 1
+     */
+    public static class FavoritesFactor implements RankingFactor {
+        private final float weight;
+        private final boolean[] servesFavorite;
+        private boolean known = false;
+
+        public FavoritesFactor(float weight, int hallCount) {
+            this.weight = weight;
+            this.servesFavorite = new boolean[hallCount];
+        }
+
+        public void setServesFavorite(int hallIndex, boolean serves) {
+            servesFavorite[hallIndex] = serves;
+            known = true;
+        }
+
+        @Override
+        public float getWeight() {
+            return weight;
+        }
+
+        @Override
+        public float score(int hallIndex, DiningHall hall) {
+            if (!known) {
+                return 0.5f;
+            }
+            return servesFavorite[hallIndex] ? 1f : 0f;
+        }
+    }
+
+    /**
+     * Halls open for the current meal score 1, halls known to be closed score 0
+     */
+    public static class OpenNowFactor implements RankingFactor {
+        public static final int UNKNOWN = 0;
+        public static final int OPEN = 1;
+        public static final int CLOSED = 2;
+
+        private final float weight;
+        private final int[] state;
+
+        public OpenNowFactor(float weight, int hallCount) {
+            this.weight = weight;
+            this.state = new int[hallCount];
+        }
+
+        public void setState(int hallIndex, int openState) {
+            state[hallIndex] = openState;
+        }
+
+        @Override
+        public float getWeight() {
+            return weight;
+        }
+
+        @Override
+        public float score(int hallIndex, DiningHall hall) {
+            switch (state[hallIndex]) {
+                case OPEN:
+                    return 1f;
+                case CLOSED:
+                    return 0f;
+                default:
+                    return 0.5f;
+            }
+        }
+
+        /**
+         * Meal being served at the given time of day (MSU residential dining hours), or
+         * null between meals
+         */
+        public static String getMealTime(long timeMs) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(timeMs);
+            int minutes = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+            if (minutes >= 7 * 60 && minutes < 11 * 60) {
+                return "Breakfast";
+            }
+            if (minutes >= 11 * 60 && minutes < 16 * 60 + 30) {
+                return "Lunch";
+            }
+            if (minutes >= 16 * 60 + 30 && minutes < 21 * 60) {
+                return "Dinner";
+            }
+            return null;
+        }
+
+        /**
+         * Milliseconds until the meal period changes (next opening or closing boundary)
+         */
+        public static long millisUntilNextMealBoundary(long timeMs) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(timeMs);
+            int minutes = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+            int[] boundaries = {7 * 60, 11 * 60, 16 * 60 + 30, 21 * 60, 24 * 60 + 7 * 60};
+            for (int boundary : boundaries) {
+                if (boundary > minutes) {
+                    long ms = (boundary - minutes) * 60_000L
+                            - calendar.get(Calendar.SECOND) * 1000L - calendar.get(Calendar.MILLISECOND);
+                    return Math.max(ms, 1000L);
+                }
+            }
+            return 60_000L;
+        }
+    }
+}
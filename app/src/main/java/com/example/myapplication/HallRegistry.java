@@ -0,0 +1,270 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HallRegistry - The one list of MSU dining halls and every name they go by
+ *
+ * Each hall has a dense integer id (usable as an array index or in a switch), the short key
+ * used in published menus and change messages (MenuDocuments), the app's name ("Brody"), the
+ * dining site's name and URL slug, the seat-sharing topic segment, an address and coordinates.
+ * All of it is built once; lookups by any alias are a hash map hit.
+ *
+ * Features:
+ * - find() resolves the app name, display name, menu site name, key or topic segment of a
+ *   hall, in any letter case
+ * - diningHalls() lists the halls with a dining room, in tile order; markets are only in all()
+ * - Adding a hall, or promoting a market to a dining hall, is a change to the table below
+ *   (plus its tile and photo in DiningHall / TileReorganizer)
+ *
+ * Pure Java: the menu service (server module) compiles this class too.
+ *
+ * Threading: immutable; safe to use from any thread.
+ */
+public final class HallRegistry {
+
+    // Hall ids, in tile order for the dining halls
+    public static final int SNYDER_PHILLIPS = 0;
+    public static final int BRODY = 1;
+    public static final int CASE = 2;
+    public static final int OWEN = 3;
+    public static final int SHAW = 4;
+    public static final int AKERS = 5;
+    public static final int LANDON = 6;
+    public static final int HOLDEN = 7;
+    public static final int HOLMES = 8;
+
+    /**
+     * One hall; immutable
+     */
+    public static final class Hall {
+        private final int id;
+        private final String key;
+        private final String name;
+        private final String displayName;
+        private final String menuSiteName;
+        private final String menuSlug;
+        private final String address;
+        private final double latitude;
+        private final double longitude;
+        private final boolean diningHall;
+        private final String topicSegment;
+        private final String[] extraAliases;
+
+        private Hall(int id, String key, String name, String displayName, String menuSiteName, String menuSlug,
+                     String address, double latitude, double longitude, boolean diningHall, String... extraAliases) {
+            this.id = id;
+            this.key = key;
+            this.name = name;
+            this.displayName = displayName;
+            this.menuSiteName = menuSiteName;
+            this.menuSlug = menuSlug;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.diningHall = diningHall;
+            this.topicSegment = name.toLowerCase(Locale.US).replace(' ', '-');
+            this.extraAliases = extraAliases;
+        }
+
+        public int getId() { return id; }
+        /** Short, stable key (e.g. "brody") used by the menu service */
+        public String getKey() { return key; }
+        /** The app's name for the hall (e.g. "Brody") */
+        public String getName() { return name; }
+        public String getDisplayName() { return displayName; }
+        /** Name on the dining site (e.g. "Brody Square") */
+        public String getMenuSiteName() { return menuSiteName; }
+        /** URL-encoded dining site path segment of the hall's menus */
+        public String getMenuSlug() { return menuSlug; }
+        public String getAddress() { return address; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        /** False for markets, which have no tile on the home screen */
+        public boolean isDiningHall() { return diningHall; }
+        /** Segment of the hall in seat-sharing MQTT topics (e.g. "snyder-phillips") */
+        public String getTopicSegment() { return topicSegment; }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final Hall[] HALLS = {
+        new Hall(SNYDER_PHILLIPS, "snyphi", "Snyder-Phillips", "Snyder-Phillips Hall",
+                "Snyder-Phillips (The Gallery)", "The%20Gallery%20at%20Snyder%20Phillips",
+                "362 W Circle Dr, East Lansing, MI 48824",
+                42.73022289349873, -84.47344892521157, true,
+                "The Gallery at Snyder Phillips", "Snyder Phillips", "The Gallery"),
+        new Hall(BRODY, "brody", "Brody", "Brody Dining Hall",
+                "Brody Square", "Brody%20Square",
+                "280 Brody Square, East Lansing, MI 48824",
+                42.731379562909424, -84.49526567905579, true),
+        new Hall(CASE, "case", "Case", "Case Dining Hall",
+                "Case Hall (South Pointe)", "South%20Pointe%20at%20Case",
+                "747 E Shaw Ln, East Lansing, MI 48825",
+                42.724567591646384, -84.48870729559268, true,
+                "South Pointe at Case", "South Pointe"),
+        new Hall(OWEN, "owen", "Owen", "Owen Dining Hall",
+                "Owen Hall (Thrive)", "Thrive%20at%20Owen",
+                "5 Owen Graduate Center, East Lansing, MI 48824",
+                42.72657035421706, -84.47055947007354, true,
+                "Thrive at Owen", "Thrive"),
+        new Hall(SHAW, "shaw", "Shaw", "Shaw Dining Hall",
+                "Shaw Hall (The Vista)", "The%20Vista%20at%20Shaw",
+                "900 W Shaw Ln, East Lansing, MI 48824",
+                42.726786523682144, -84.47529606042431, true,
+                "The Vista at Shaw", "The Vista"),
+        new Hall(AKERS, "akers", "Akers", "Akers Dining Hall",
+                "The Edge at Akers", "The%20Edge%20at%20Akers",
+                "140 Akers Hall, East Lansing, MI 48824",
+                42.72434170664002, -84.46480484532314, true,
+                "The Edge"),
+        new Hall(LANDON, "landon", "Landon", "Landon Dining Hall",
+                "Landon Hall (Heritage Commons)", "Heritage%20Commons%20at%20Landon",
+                "736 E Landon Dr, East Lansing, MI 48824",
+                42.73380788983037, -84.48514502978489, true,
+                "Heritage Commons at Landon", "Heritage Commons"),
+        // Markets: menus are scraped and published, but there is no home screen tile yet
+        new Hall(HOLDEN, "holden", "Holden", "Holden Hall (Sparty's Market)",
+                "Holden Hall (Sparty's Market)", "Sparty%27s%20Market%20at%20Holden",
+                "191 E Holden Hall, East Lansing, MI 48824",
+                42.7208, -84.4886, false,
+                "Sparty's Market at Holden"),
+        new Hall(HOLMES, "holmes", "Holmes", "Holmes Hall (Sparty's Market)",
+                "Holmes Hall (Sparty's Market)", "Sparty%27s%20Market%20at%20Holmes",
+                "919 E Shaw Ln, East Lansing, MI 48825",
+                42.7265, -84.4645, false,
+                "Sparty's Market at Holmes")
+    };
+
+    private static final List<Hall> ALL = Collections.unmodifiableList(Arrays.asList(HALLS));
+    private static final List<Hall> DINING_HALLS;
+    private static final List<String> MENU_SITE_NAMES;
+    // Aliases as written, then lower-cased ones for everything else
+    private static final Map<String, Hall> EXACT_ALIASES = new HashMap<>();
+    private static final Map<String, Hall> FOLDED_ALIASES = new HashMap<>();
+    // Aliases as lower-case words separated by single spaces, for partial matches
+    private static final Map<String, Hall> WORD_ALIASES = new HashMap<>();
+    // Shortest alias a longer name may contain and still resolve ("case", not "a")
+    private static final int MIN_PARTIAL_MATCH_LENGTH = 4;
+
+    static {
+        List<Hall> diningHalls = new ArrayList<>();
+        List<String> siteNames = new ArrayList<>();
+        for (int i = 0; i < HALLS.length; i++) {
+            Hall hall = HALLS[i];
+            if (hall.id != i) {
+                throw new IllegalStateException("Hall ids must match their position: " + hall.name);
+            }
+            if (hall.diningHall) {
+                diningHalls.add(hall);
+            }
+            siteNames.add(hall.menuSiteName);
+            addAlias(hall.key, hall);
+            addAlias(hall.name, hall);
+            addAlias(hall.displayName, hall);
+            addAlias(hall.menuSiteName, hall);
+            addAlias(hall.topicSegment, hall);
+            for (String alias : hall.extraAliases) {
+                addAlias(alias, hall);
+            }
+        }
+        Collections.sort(siteNames);
+        DINING_HALLS = Collections.unmodifiableList(diningHalls);
+        MENU_SITE_NAMES = Collections.unmodifiableList(siteNames);
+    }
+
+    private HallRegistry() {
+    }
+
+    private static void addAlias(String alias, Hall hall) {
+        EXACT_ALIASES.put(alias, hall);
+        Hall previous = FOLDED_ALIASES.put(alias.toLowerCase(Locale.US), hall);
+        if (previous != null && previous != hall) {
+            throw new IllegalStateException("Alias \"" + alias + "\" names both " + previous.name + " and " + hall.name);
+        }
+        WORD_ALIASES.put(words(alias.toLowerCase(Locale.US)), hall);
+    }
+
+    private static String words(String folded) {
+        return folded.replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    /**
+     * @return The hall with that id
+     * @throws IndexOutOfBoundsException If there is no such hall
+     */
+    public static Hall get(int id) {
+        return HALLS[id];
+    }
+
+    /**
+     * @return Every hall, by id
+     */
+    public static List<Hall> all() {
+        return ALL;
+    }
+
+    /**
+     * @return The halls with a dining room, in tile order
+     */
+    public static List<Hall> diningHalls() {
+        return DINING_HALLS;
+    }
+
+    /**
+     * @return The dining site names of all halls, sorted
+     */
+    public static List<String> getMenuSiteNames() {
+        return MENU_SITE_NAMES;
+    }
+
+    /**
+     * Resolves any name of a hall (see class comment). Names that are not a known alias resolve
+     * to the hall whose longest alias they contain as whole words, e.g. "Brody Square Dining" to
+     * Brody; "Showcase" or "a" resolve to nothing.
+     *
+     * @return The hall, or null if the name matches none
+     */
+    public static Hall find(String nameOrAlias) {
+        if (nameOrAlias == null) {
+            return null;
+        }
+        Hall hall = EXACT_ALIASES.get(nameOrAlias);
+        if (hall != null) {
+            return hall;
+        }
+        String folded = nameOrAlias.trim().toLowerCase(Locale.US);
+        hall = FOLDED_ALIASES.get(folded);
+        if (hall != null || folded.isEmpty()) {
+            return hall;
+        }
+        String words = " " + words(folded) + " ";
+        Hall best = null;
+        int bestLength = MIN_PARTIAL_MATCH_LENGTH - 1;
+        for (Map.Entry<String, Hall> alias : WORD_ALIASES.entrySet()) {
+            String aliasWords = alias.getKey();
+            if (aliasWords.length() > bestLength && words.contains(" " + aliasWords + " ")) {
+                best = alias.getValue();
+                bestLength = aliasWords.length();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The key of the named hall (see Hall.getKey), or null if the name matches none
+     */
+    public static String keyOf(String nameOrAlias) {
+        Hall hall = find(nameOrAlias);
+        return hall != null ? hall.key : null;
+    }
+}
@@ -13,6 +13,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.tabs.TabLayout;
@@ -24,10 +26,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 
 public class ImprovedMenuActivity extends AppCompatActivity {
@@ -42,6 +43,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
     private TextView tvMenuDate;
     private TextView tvMenuSummary;
     private FloatingActionButton fabExpandCollapse;
+    private ChipGroup chipGroupDietFilters;
     private MaterialButton btnBack, btnSelectDate, btnDirections, btnSeating;
 
     // Data
@@ -50,12 +52,26 @@ public class ImprovedMenuActivity extends AppCompatActivity {
     private Date selectedDate;
     private DiningHallMenu diningHallMenu;
     private MenuUpdateService menuUpdateService;
-    private Map<String, String> hallAddresses;
     private boolean isLoadingMenu = false;
 
+    // Allergen / diet filtering: unfiltered stations of the current meal + active filter
+    private AllergenIndex allergenIndex;
+    private AllergenIndex.Filter dietFilter = AllergenIndex.Filter.NONE;
+    // Nutrition filters, answered by NutritionIndex; items with unknown values never match
+    private static final float LOW_CALORIE_MAX = 500;
+    private static final float HIGH_PROTEIN_MIN = 20;
+    private NutritionIndex nutritionIndex;
+    private boolean lowCalorie = false;
+    private boolean highProtein = false;
+    private List<MenuStation> currentStations = new ArrayList<>();
+    // True when currentStations is today's fetched menu (not the sample fallback)
+    private boolean showingFetchedMenu = false;
+    private MenuChangeBus.MenuChangeListener menuChangeListener;
+
     // Firebase
     private FirebaseManager firebaseManager;
-    private java.util.Set<String> userFavorites = new java.util.HashSet<>();
+    private FavoritesStore favoritesStore;
+    private FavoritesStore.FavoritesListener favoritesListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -66,10 +82,10 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         firebaseManager = FirebaseManager.getInstance();
 
         extractHallNameFromIntent();
-        initializeHallAddresses();
         initializeViews();
         setupTabLayout();
         setupRecyclerView();
+        setupDietFilters();
         loadUserFavorites();
         setupClickListeners();
         initializeServices();
@@ -83,6 +99,21 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         fetchLatestMenuData();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (favoritesStore != null) {
+            favoritesStore.removeListener(favoritesListener);
+        }
+        if (menuChangeListener != null) {
+            MenuChangeBus.getInstance().removeListener(menuChangeListener);
+            MenuFirestoreSync.getInstance(this).unwatch(hallName);
+        }
+        if (firebaseManager != null) {
+            firebaseManager.flushAnalytics();
+        }
+    }
+
     private void extractHallNameFromIntent() {
         Intent intent = getIntent();
         hallName = intent.getStringExtra(MainActivity.EXTRA_HALL_NAME);
@@ -91,17 +122,6 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         }
     }
 
-    private void initializeHallAddresses() {
-        hallAddresses = new HashMap<>();
-        hallAddresses.put("Brody", "280 Brody Square, East Lansing, MI 48824");
-        hallAddresses.put("Case", "747 E Shaw Ln, East Lansing, MI 48825");
-        hallAddresses.put("Owen", "5 Owen Graduate Center, East Lansing, MI 48824");
-        hallAddresses.put("Shaw", "900 W Shaw Ln, East Lansing, MI 48824");
-        hallAddresses.put("Akers", "140 Akers Hall, East Lansing, MI 48824");
-        hallAddresses.put("Landon", "736 E Landon Dr, East Lansing, MI 48824");
-        hallAddresses.put("Snyder-Phillips", "362 W Circle Dr, East Lansing, MI 48824");
-    }
-
     private void initializeViews() {
         menuTitle = findViewById(R.id.menuTitle);
         tabLayout = findViewById(R.id.tabLayout);
@@ -111,6 +131,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         tvMenuDate = findViewById(R.id.tvMenuDate);
         tvMenuSummary = findViewById(R.id.tvMenuSummary);
         fabExpandCollapse = findViewById(R.id.fabExpandCollapse);
+        chipGroupDietFilters = findViewById(R.id.chipGroupDietFilters);
         btnBack = findViewById(R.id.btnBack);
         btnSelectDate = findViewById(R.id.btnSelectDate);
         btnDirections = findViewById(R.id.btnDirections);
@@ -137,8 +158,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
 
                 // Log menu view analytics
                 if (firebaseManager != null) {
-                    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-                    firebaseManager.logMenuView(hallName, currentMealTime, formatter.format(selectedDate));
+                    firebaseManager.logMenuView(hallName, currentMealTime, selectedDate);
                 }
 
                 loadMenuForMealTime(currentMealTime);
@@ -173,32 +193,72 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Follows the local favorites store; only rows whose star changed are re-bound
+     */
     private void loadUserFavorites() {
-        FirebaseUser user = (firebaseManager != null && firebaseManager.getAuth() != null)
-                ? firebaseManager.getAuth().getCurrentUser()
-                : null;
-
-        if (user != null) {
-            FirebaseFirestore.getInstance()
-                    .collection("users").document(user.getUid())
-                    .collection("favorites")
-                    .get()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful() && task.getResult() != null) {
-                            userFavorites.clear();
-                            for (com.google.firebase.firestore.QueryDocumentSnapshot document : task.getResult()) {
-                                userFavorites.add(document.getId()); // Add item name to the set
-                            }
-                            // Pass the favorites list to the adapter
-                            if (stationAdapter != null) {
-                                stationAdapter.setUserFavorites(userFavorites);
-                            }
-                        } else {
-                            android.util.Log.w("Favorites", "Failed to load user favorites.", task.getException());
-                        }
-                    });
-        }
+        favoritesStore = FavoritesStore.getInstance(this);
+        favoritesListener = changedItems -> {
+            if (stationAdapter != null) {
+                stationAdapter.notifyFavoritesChanged(changedItems);
+            }
+        };
+        favoritesStore.addListener(favoritesListener);
+    }
+    /**
+     * Adds one toggle chip per allergen/diet filter, plus the nutrition filters. Toggles
+     * re-filter the loaded menu from the in-memory AllergenIndex and NutritionIndex, without
+     * touching the database.
+     */
+    private void setupDietFilters() {
+        allergenIndex = AllergenIndex.getInstance(this);
+        addDietFilterChip("No milk", AllergenIndex.MILK, true);
+        addDietFilterChip("No gluten", AllergenIndex.GLUTEN, true);
+        addDietFilterChip("No eggs", AllergenIndex.EGGS, true);
+        addDietFilterChip("No soy", AllergenIndex.SOY, true);
+        addDietFilterChip("No fish", AllergenIndex.FISH | AllergenIndex.SHELLFISH, true);
+        addDietFilterChip("No nuts", AllergenIndex.PEANUTS | AllergenIndex.TREE_NUTS, true);
+        addDietFilterChip("Vegetarian", AllergenIndex.VEGETARIAN, false);
+        addDietFilterChip("Vegan", AllergenIndex.VEGAN, false);
+        nutritionIndex = NutritionIndex.getInstance(this);
+        addNutritionFilterChip("Under " + (int) LOW_CALORIE_MAX + " cal", checked -> lowCalorie = checked);
+        addNutritionFilterChip((int) HIGH_PROTEIN_MIN + "g+ protein", checked -> highProtein = checked);
+
+        // Menus fetched since the index was last built must be indexed before filtering
+        allergenIndex.rebuildAsync(() -> {
+            if (!dietFilter.isEmpty()) {
+                showStations();
+            }
+        });
+    }
+
+    private void addDietFilterChip(String label, int tags, boolean avoid) {
+        Chip chip = new Chip(this);
+        chip.setText(label);
+        chip.setCheckable(true);
+        chip.setOnCheckedChangeListener((button, checked) -> {
+            dietFilter = avoid ? dietFilter.withAvoided(tags, checked) : dietFilter.withRequired(tags, checked);
+            showStations();
+        });
+        chipGroupDietFilters.addView(chip);
+    }
+
+    private void addNutritionFilterChip(String label, Consumer<Boolean> setFilter) {
+        Chip chip = new Chip(this);
+        chip.setText(label);
+        chip.setCheckable(true);
+        chip.setOnCheckedChangeListener((button, checked) -> {
+            setFilter.accept(checked);
+            // The index is built on first use and reloaded after menu changes
+            nutritionIndex.refreshAsync(() -> {
+                if (!isDestroyed()) {
+                    showStations();
+                }
+            });
+        });
+        chipGroupDietFilters.addView(chip);
     }
+
     private void updateFabIcon() {
         if (stationAdapter.areAllExpanded()) {
             fabExpandCollapse.setImageResource(android.R.drawable.arrow_up_float);
@@ -208,6 +268,9 @@ public class ImprovedMenuActivity extends AppCompatActivity {
     }
 
     private void initializeServices() {
+        // Start receiving seat updates early so the seating dialog opens with live data
+        SeatOccupancyEngine.getInstance(this).start();
+
         menuUpdateService = new MenuUpdateService(this);
         menuUpdateService.setMenuUpdateListener(new MenuUpdateService.MenuUpdateListener() {
             @Override
@@ -217,7 +280,11 @@ public class ImprovedMenuActivity extends AppCompatActivity {
                         progressBar.setVisibility(View.GONE);
                         isLoadingMenu = false;
                         if (success) {
-                            loadMenuForMealTime(currentMealTime);
+                            // Today's stations are updated from menu change events; other
+                            // days are stored as a whole menu version
+                            if (!isSelectedDateToday()) {
+                                loadMenuForMealTime(currentMealTime);
+                            }
                             Toast.makeText(ImprovedMenuActivity.this,
                                          "Menu updated from MSU", Toast.LENGTH_SHORT).show();
                         } else {
@@ -233,16 +300,103 @@ public class ImprovedMenuActivity extends AppCompatActivity {
                 // Not used in this activity
             }
         });
+
+        menuChangeListener = (changedHallName, changes) -> {
+            if (changedHallName.equals(hallName) && isSelectedDateToday()) {
+                applyMenuChanges(changes);
+            }
+        };
+        MenuChangeBus.getInstance().addListener(menuChangeListener);
+        // Published menu changes are pushed while the hall is open
+        MenuFirestoreSync.getInstance(this).watch(hallName);
+    }
+
+    /**
+     * Applies added, removed and moved items of the current meal to the shown stations
+     */
+    private void applyMenuChanges(List<MenuDiff.Change> changes) {
+        if (!showingFetchedMenu) {
+            // First fetched menu replaces the sample menu as a whole
+            loadMenuForMealTime(currentMealTime);
+            return;
+        }
+
+        boolean affected = false;
+        for (MenuDiff.Change change : changes) {
+            if (!change.mealTime.equals(currentMealTime)) {
+                continue;
+            }
+            affected = true;
+            if (change.type == MenuDiff.Type.MOVED) {
+                removeStationItem(change.previousStation, change.itemName);
+                addStationItem(change.stationName, change.itemName);
+            } else if (change.type == MenuDiff.Type.ADDED) {
+                addStationItem(change.stationName, change.itemName);
+            } else {
+                removeStationItem(change.stationName, change.itemName);
+            }
+        }
+        if (affected) {
+            showStations();
+        }
+    }
+
+    private void addStationItem(String stationName, String itemName) {
+        MenuStation target = null;
+        for (MenuStation station : currentStations) {
+            if (station.getStationName().equals(stationName)) {
+                target = station;
+                break;
+            }
+        }
+        if (target == null) {
+            target = new MenuStation(stationName);
+            currentStations.add(target);
+        }
+        // Keep the database's alphabetical order
+        List<String> items = target.getItems();
+        int position = 0;
+        while (position < items.size() && items.get(position).compareTo(itemName) < 0) {
+            position++;
+        }
+        items.add(position, itemName);
+    }
+
+    private void removeStationItem(String stationName, String itemName) {
+        for (int i = 0; i < currentStations.size(); i++) {
+            MenuStation station = currentStations.get(i);
+            if (station.getStationName().equals(stationName)) {
+                station.getItems().remove(itemName);
+                if (station.getItemCount() == 0) {
+                    currentStations.remove(i);
+                }
+                return;
+            }
+        }
     }
 
     private void loadMenuForMealTime(String mealTime) {
+        if (!isSelectedDateToday()) {
+            currentStations = getStationsFromMenuVersion(mealTime);
+            showStations();
+            return;
+        }
+
         // Fetch from database
         MenuDatabaseHelper dbHelper = MenuDatabaseHelper.getInstance(this);
-        List<MenuStation> stations = getStationsFromDatabase(dbHelper, mealTime);
+        currentStations = getStationsFromDatabase(dbHelper, mealTime);
+        showStations();
+    }
+
+    /**
+     * Shows the current meal's stations, narrowed by the active allergen/diet filter
+     */
+    private void showStations() {
+        List<MenuStation> stations = applyDietFilter(currentStations);
 
         if (stations.isEmpty()) {
             showNoDataMessage(true);
-            tvMenuSummary.setText("No menu available");
+            tvMenuSummary.setText(currentStations.isEmpty() ? "No menu available" : "No items match the filters");
         } else {
             showNoDataMessage(false);
             stationAdapter.setStations(stations);
@@ -250,6 +404,97 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         }
     }
 
+    private List<MenuStation> applyDietFilter(List<MenuStation> stations) {
+        if (dietFilter.isEmpty() && !lowCalorie && !highProtein) {
+            return stations;
+        }
+
+        Set<String> allowed = dietFilter.isEmpty() ? null : allowedByDiet(stations);
+        if (lowCalorie || highProtein) {
+            Set<String> nutritious = allowedByNutrition();
+            if (allowed == null) {
+                allowed = nutritious;
+            } else {
+                allowed.retainAll(nutritious);
+            }
+        }
+
+        List<MenuStation> filtered = new ArrayList<>();
+        for (MenuStation station : stations) {
+            List<String> items = new ArrayList<>();
+            for (String item : station.getItems()) {
+                if (allowed.contains(item)) {
+                    items.add(item);
+                }
+            }
+            if (!items.isEmpty()) {
+                MenuStation copy = new MenuStation(station.getStationName(), items);
+                copy.setExpanded(station.isExpanded());
+                filtered.add(copy);
+            }
+        }
+        return filtered;
+    }
+
+    private Set<String> allowedByDiet(List<MenuStation> stations) {
+        Set<String> allowed;
+        if (isSelectedDateToday()) {
+            // Today's fetched menu if it is indexed, otherwise the built-in sample menu
+            List<String> matches = allergenIndex.filter(hallName, AllergenIndex.todayKey(), currentMealTime, dietFilter);
+            if (matches == null) {
+                matches = allergenIndex.filter(hallName, AllergenIndex.SAMPLE_DATE, currentMealTime, dietFilter);
+            }
+            allowed = matches != null ? new HashSet<>(matches) : new HashSet<>();
+        } else {
+            // The selected date's menu version, by the tags its items carry on indexed menus
+            List<String> names = new ArrayList<>();
+            for (MenuStation station : stations) {
+                names.addAll(station.getItems());
+            }
+            allowed = allergenIndex.filterItems(names, dietFilter);
+        }
+        return allowed;
+    }
+
+    /**
+     * Items within the active nutrition limits: on today's menu of this hall and meal, or for
+     * other dates by name, on any indexed menu
+     */
+    private Set<String> allowedByNutrition() {
+        NutritionIndex.Query query = new NutritionIndex.Query();
+        if (lowCalorie) {
+            query.atMost(NutritionIndex.Nutrient.CALORIES, LOW_CALORIE_MAX);
+        }
+        if (highProtein) {
+            query.atLeast(NutritionIndex.Nutrient.PROTEIN, HIGH_PROTEIN_MIN);
+        }
+        if (isSelectedDateToday()) {
+            query.hall(hallName).meal(currentMealTime);
+        }
+        Set<String> allowed = new HashSet<>();
+        for (NutritionIndex.Result result : nutritionIndex.query(query)) {
+            allowed.add(result.itemName);
+        }
+        return allowed;
+    }
+
+    /**
+     * Stations of the selected date's stored menu version; empty until that day was fetched
+     */
+    private List<MenuStation> getStationsFromMenuVersion(String mealTime) {
+        showingFetchedMenu = false;
+        String dateKey = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(selectedDate);
+        MenuVersionStore.MenuVersion version = MenuVersionStore.getInstance(this).getMenu(hallName, dateKey);
+
+        List<MenuStation> stations = new ArrayList<>();
+        if (version != null) {
+            for (Map.Entry<String, List<String>> entry : version.getStations(mealTime).entrySet()) {
+                stations.add(new MenuStation(entry.getKey(), new ArrayList<>(entry.getValue())));
+            }
+        }
+        return stations;
+    }
+
     private List<MenuStation> getStationsFromDatabase(MenuDatabaseHelper dbHelper, String mealTime) {
         // Try to get station-based menu data
         Map<String, List<String>> stationItems = dbHelper.getStationMenuItemsForHall(hallName, mealTime);
@@ -259,6 +504,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
             MenuStation station = new MenuStation(entry.getKey(), entry.getValue());
             stations.add(station);
         }
+        showingFetchedMenu = !stations.isEmpty();
 
         // If no dynamic data, fall back to regular menu items
         if (stations.isEmpty()) {
@@ -309,10 +555,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
     }
 
     private void showSeatingOptions() {
-        // TODO: Implement real-time seating availability checking
-        // For now, this is a placeholder for future functionality
-        Toast.makeText(this, "Seating options coming soon for " + hallName + "!",
-                     Toast.LENGTH_SHORT).show();
+        SeatingDialog.show(this, hallName);
     }
 
     private void showDatePicker() {
@@ -329,12 +572,7 @@ public class ImprovedMenuActivity extends AppCompatActivity {
 
             // Log date selection analytics
             if (firebaseManager != null) {
-                Bundle params = new Bundle();
-                params.putString("hall_name", hallName);
-                params.putString("meal_time", currentMealTime);
-                SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-                params.putString("selected_date", formatter.format(selectedDate));
-                firebaseManager.logEvent("date_selected", params);
+                firebaseManager.logDateSelected(hallName, currentMealTime, selectedDate);
             }
 
             // Load menu for the new date
@@ -350,18 +588,21 @@ public class ImprovedMenuActivity extends AppCompatActivity {
         String dateText = formatter.format(selectedDate);
 
         // Check if it's today
-        Calendar today = Calendar.getInstance();
-        Calendar selected = Calendar.getInstance();
-        selected.setTime(selectedDate);
-
-        if (today.get(Calendar.YEAR) == selected.get(Calendar.YEAR) &&
-            today.get(Calendar.DAY_OF_YEAR) == selected.get(Calendar.DAY_OF_YEAR)) {
+        if (isSelectedDateToday()) {
             btnSelectDate.setText("Today");
         } else {
             btnSelectDate.setText(dateText);
         }
     }
 
+    private boolean isSelectedDateToday() {
+        Calendar today = Calendar.getInstance();
+        Calendar selected = Calendar.getInstance();
+        selected.setTime(selectedDate);
+        return today.get(Calendar.YEAR) == selected.get(Calendar.YEAR) &&
+               today.get(Calendar.DAY_OF_YEAR) == selected.get(Calendar.DAY_OF_YEAR);
+    }
+
     private void updateMenuDateDisplay() {
         SimpleDateFormat formatter = new SimpleDateFormat("EEEE, MMMM d", Locale.US);
         tvMenuDate.setText(formatter.format(selectedDate));
@@ -377,15 +618,8 @@ public class ImprovedMenuActivity extends AppCompatActivity {
     }
 
     private void openDirections() {
-        String hallAddress = hallAddresses.get(hallName);
-        if (hallAddress == null) {
-            for (String key : hallAddresses.keySet()) {
-                if (hallName.contains(key)) {
-                    hallAddress = hallAddresses.get(key);
-                    break;
-                }
-            }
-        }
+        HallRegistry.Hall hall = HallRegistry.find(hallName);
+        String hallAddress = hall != null ? hall.getAddress() : null;
 
         if (hallAddress != null) {
             Uri gmmIntentUri = Uri.parse("google.navigation:q=" + Uri.encode(hallAddress));
@@ -0,0 +1,153 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemDetailFetcher - Scrapes nutrition and allergen details of menu items, once per rotation
+ *
+ * The same item is served at many halls, meals and days, so details are cached by content:
+ * the key is the path and sorted query of the item's detail page (MSUMenuScraper.itemDetailKey),
+ * not the hall or date. Fetched details are stored as menu_items rows tagged with that key and
+ * their fetch time, so the cache survives restarts and NutritionEnricher matches fetched menus to them.
+ *
+ * Features:
+ * - Keys fetched within ROTATION_MS are skipped; each distinct item of a menu is requested at
+ *   most once per batch even if it appears at several stations and meals
+ * - Pages are fetched by at most MAX_CONCURRENT_FETCHES threads, and a batch gives up after
+ *   BATCH_TIMEOUT_SECONDS
+ * - Failed pages are not retried before FAILURE_RETRY_MS
+ *
+ * Threading: fetchMissing() blocks, call it from a background thread.
+ */
+public class ItemDetailFetcher {
+    private static final String TAG = "ItemDetailFetcher";
+
+    private static final int MAX_CONCURRENT_FETCHES = 4;
+    private static final long BATCH_TIMEOUT_SECONDS = 60;
+    private static final long ROTATION_MS = 7 * 24 * 60 * 60 * 1000L;
+    private static final long FAILURE_RETRY_MS = 60 * 60 * 1000L;
+
+    private static ItemDetailFetcher instance;
+
+    private final Context context;
+    private final MenuDatabaseHelper dbHelper;
+    private final ExecutorService fetchPool = Executors.newFixedThreadPool(MAX_CONCURRENT_FETCHES);
+    // Detail key -> time of the last successful fetch (loaded from the database on first use)
+    private Map<String, Long> fetchedAt;
+    private final Map<String, Long> failedAt = new HashMap<>();
+
+    public static synchronized ItemDetailFetcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new ItemDetailFetcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ItemDetailFetcher(Context context) {
+        this.context = context;
+        dbHelper = MenuDatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Fetches the details of every item on the menu that has none for the current rotation
+     *
+     * @return Number of items whose details were stored
+     */
+    public synchronized int fetchMissing(MSUMenuScraper.MenuResult result) {
+        if (result == null || !result.success || result.stations == null) {
+            return 0;
+        }
+        if (fetchedAt == null) {
+            fetchedAt = dbHelper.getItemDetailFetchTimes();
+        }
+
+        // Distinct keys to fetch: key -> {url, item name, station}
+        long now = System.currentTimeMillis();
+        Map<String, String[]> wanted = new LinkedHashMap<>();
+        for (MSUMenuScraper.Station station : result.stations) {
+            for (MSUMenuScraper.Meal meal : station.meals) {
+                for (int i = 0; i < meal.items.size() && i < meal.itemDetailUrls.size(); i++) {
+                    String url = meal.itemDetailUrls.get(i);
+                    if (url.isEmpty()) continue;
+                    String key = MSUMenuScraper.itemDetailKey(url);
+                    if (!wanted.containsKey(key) && needsFetch(key, now)) {
+                        wanted.put(key, new String[]{url, meal.items.get(i), station.stationName});
+                    }
+                }
+            }
+        }
+        if (wanted.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = new ArrayList<>(wanted.keySet());
+        List<Callable<MenuItemDetailed>> tasks = new ArrayList<>();
+        for (String key : keys) {
+            String[] item = wanted.get(key);
+            tasks.add(() -> {
+                MenuItemDetailed detail = MSUMenuScraper.fetchItemDetail(item[0], item[1]);
+                if (detail != null) {
+                    detail.setCategory(item[2]);
+                    detail.setAllergenMask(AllergenIndex.parseTags(detail.getAllergens()));
+                }
+                return detail;
+            });
+        }
+
+        List<Future<MenuItemDetailed>> futures;
+        try {
+            futures = fetchPool.invokeAll(tasks, BATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        Map<String, MenuItemDetailed> fetched = new LinkedHashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            MenuItemDetailed detail = null;
+            try {
+                if (!futures.get(i).isCancelled()) {
+                    detail = futures.get(i).get();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to fetch details of " + wanted.get(keys.get(i))[1], e);
+            }
+            if (detail != null) {
+                fetched.put(keys.get(i), detail);
+            } else {
+                failedAt.put(keys.get(i), now);
+            }
+        }
+
+        if (!fetched.isEmpty()) {
+            dbHelper.upsertFetchedItems(fetched, now);
+            for (String key : fetched.keySet()) {
+                fetchedAt.put(key, now);
+            }
+            NutritionEnricher.getInstance(context).onCatalogChanged();
+        }
+        Log.d(TAG, result.hallName + ": fetched details of " + fetched.size() + "/" + wanted.size() + " items");
+        return fetched.size();
+    }
+
+    private boolean needsFetch(String key, long now) {
+        Long fetched = fetchedAt.get(key);
+        if (fetched != null && now - fetched < ROTATION_MS) {
+            return false;
+        }
+        Long failed = failedAt.get(key);
+        return failed == null || now - failed >= FAILURE_RETRY_MS;
+    }
+}
@@ -13,28 +13,38 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MSUMenuScraper - Scrapes hall menus and item detail pages from eatatstate.msu.edu
+ *
+ * Uses no Android API apart from android.util.Log, so the menu service (server module) compiles
+ * this class from the app's sources and scrapes exactly like the app. Halls and their menu URLs
+ * come from HallRegistry.
+ */
 public class MSUMenuScraper {
     private static final String TAG = "MSUMenuScraper";
     private static final String BASE_URL = "https://eatatstate.msu.edu/menu/";
 
-    private static final Map<String, String[]> DINING_HALLS_MAP = new HashMap<>();
-
-    static {
-        DINING_HALLS_MAP.put("akers", new String[]{"The Edge at Akers", "The%20Edge%20at%20Akers"});
-        DINING_HALLS_MAP.put("brody", new String[]{"Brody Square", "Brody%20Square"});
-        DINING_HALLS_MAP.put("case", new String[]{"Case Hall (South Pointe)", "South%20Pointe%20at%20Case"});
-        DINING_HALLS_MAP.put("holden", new String[]{"Holden Hall (Sparty's Market)", "Sparty%27s%20Market%20at%20Holden"});
-        DINING_HALLS_MAP.put("holmes", new String[]{"Holmes Hall (Sparty's Market)", "Sparty%27s%20Market%20at%20Holmes"});
-        DINING_HALLS_MAP.put("landon", new String[]{"Landon Hall (Heritage Commons)", "Heritage%20Commons%20at%20Landon"});
-        DINING_HALLS_MAP.put("owen", new String[]{"Owen Hall (Thrive)", "Thrive%20at%20Owen"});
-        DINING_HALLS_MAP.put("shaw", new String[]{"Shaw Hall (The Vista)", "The%20Vista%20at%20Shaw"});
-        DINING_HALLS_MAP.put("snyphi", new String[]{"Snyder-Phillips (The Gallery)", "The%20Gallery%20at%20Snyder%20Phillips"});
-    }
-
+    // Nutrition facts on an item's detail page, e.g. "Total Fat 12g"
+    private static final Pattern CALORIES = Pattern.compile("Calories\\s*:?\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FAT = nutrientPattern("Total Fat");
+    private static final Pattern PROTEIN = nutrientPattern("Protein");
+    private static final Pattern CARBS = nutrientPattern("Total Carbohydrates?");
+    private static final Pattern FIBER = nutrientPattern("Dietary Fiber");
+    private static final Pattern SUGAR = nutrientPattern("(?:Total )?Sugars?");
+    private static final Pattern INGREDIENTS = Pattern.compile(
+            "Ingredients\\s*:?\\s*(.+?)\\s*(?:Allergens|Contains|$)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALLERGENS = Pattern.compile(
+            "(?:Allergens|Contains)\\s*:?\\s*([^.]+)", Pattern.CASE_INSENSITIVE);
+
+    // Block holding a menu item's (or detail page's) allergen and diet icons
+    private static final String ALLERGEN_BLOCK = "[class*=allergen], [class*=dietary], [class*=trait]";
     private static final Map<String, Integer> MEAL_SORT_ORDER = new HashMap<>();
     static {
         MEAL_SORT_ORDER.put("Breakfast", 0);
@@ -55,6 +65,10 @@ public class MSUMenuScraper {
     public static class Meal {
         public String mealName;
         public List<String> items = new ArrayList<>();
+        // Allergen/diet tags per item, parallel to items ("" when the page shows none)
+        public List<String> itemTags = new ArrayList<>();
+        // Absolute URL of each item's detail page, parallel to items ("" when not linked)
+        public List<String> itemDetailUrls = new ArrayList<>();
 
         public Meal(String name) {
             this.mealName = name;
@@ -88,30 +102,15 @@ public class MSUMenuScraper {
         }
     }
 
-    public static String getHallSlugFromName(String hallName) {
-        for (Map.Entry<String, String[]> entry : DINING_HALLS_MAP.entrySet()) {
-            if (entry.getValue()[0].contains(hallName) ||
-                hallName.toLowerCase().contains(entry.getKey())) {
-                return entry.getValue()[1];
-            }
-        }
-
-        if (hallName.equalsIgnoreCase("Snyder-Phillips")) {
-            return DINING_HALLS_MAP.get("snyphi")[1];
-        }
-
-        return null;
-    }
-
     public static MenuResult fetchMenuData(String hallName, Date date) {
-        String hallSlug = getHallSlugFromName(hallName);
-        if (hallSlug == null) {
+        HallRegistry.Hall hall = HallRegistry.find(hallName);
+        if (hall == null) {
             return MenuResult.error("Unknown dining hall: " + hallName, hallName,
                                    new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date));
         }
 
         String dateStr = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date);
-        String url = BASE_URL + hallSlug + "/all/" + dateStr;
+        String url = BASE_URL + hall.getMenuSlug() + "/all/" + dateStr;
 
         Log.d(TAG, "Fetching menu from: " + url);
 
@@ -153,6 +152,10 @@ public class MSUMenuScraper {
                             Element itemTitleTag = item.selectFirst("div.meal-title");
                             if (itemTitleTag != null) {
                                 meal.items.add(itemTitleTag.text().trim());
+                                Element allergenBlock = item.selectFirst(ALLERGEN_BLOCK);
+                                meal.itemTags.add(allergenBlock != null ? extractItemTags(allergenBlock) : "");
+                                Element link = item.selectFirst("a[href]");
+                                meal.itemDetailUrls.add(link != null ? link.attr("abs:href") : "");
                             }
                         }
                     }
@@ -187,6 +190,140 @@ public class MSUMenuScraper {
         }
     }
 
+    /**
+     * Collects the allergen/diet icons of an allergen block (their alt or title text) as a
+     * comma separated string for AllergenIndex.parseTags. Only the block is scanned, so
+     * titles of links or photos elsewhere in the item are not taken for allergens.
+     */
+    private static String extractItemTags(Element allergenBlock) {
+        StringBuilder tags = new StringBuilder();
+        for (Element icon : allergenBlock.select("img[alt], [title]")) {
+            String text = icon.hasAttr("alt") ? icon.attr("alt") : icon.attr("title");
+            text = text.trim();
+            if (!text.isEmpty()) {
+                if (tags.length() > 0) tags.append(", ");
+                tags.append(text);
+            }
+        }
+        return tags.toString();
+    }
+
+    /**
+     * Fetches and parses an item's detail page
+     *
+     * @param itemName Name shown on the menu, used as the record's name
+     * @return The item's nutrition, allergens and ingredients, or null if the page has no
+     *         nutrition facts
+     * @throws IOException On network errors
+     */
+    public static MenuItemDetailed fetchItemDetail(String url, String itemName) throws IOException {
+        Document doc = Jsoup.connect(url)
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                .timeout(10000)
+                .get();
+        return parseItemDetail(doc, itemName);
+    }
+
+    static MenuItemDetailed parseItemDetail(Document doc, String itemName) {
+        String text = doc.body() != null ? doc.body().text() : "";
+        Matcher calories = CALORIES.matcher(text);
+        if (!calories.find()) {
+            return null;
+        }
+
+        MenuItemDetailed item = new MenuItemDetailed();
+        item.setName(itemName);
+        item.setDescription("");
+        item.setCalories(Integer.parseInt(calories.group(1)));
+        item.setFat(findNutrient(FAT, text));
+        item.setProtein(findNutrient(PROTEIN, text));
+        item.setCarbs(findNutrient(CARBS, text));
+        item.setFiber(findNutrient(FIBER, text));
+        item.setSugar(findNutrient(SUGAR, text));
+
+        Matcher ingredients = INGREDIENTS.matcher(text);
+        item.setIngredients(ingredients.find() ? ingredients.group(1).trim() : "");
+
+        // Icons in the allergen block first, then a written "Allergens:"/"Contains" line
+        Element allergenBlock = doc.selectFirst(ALLERGEN_BLOCK);
+        String allergens = allergenBlock != null ? extractItemTags(allergenBlock) : "";
+        if (allergens.isEmpty()) {
+            Matcher written = ALLERGENS.matcher(text);
+            allergens = written.find() ? written.group(1).trim() : "";
+        }
+        // The allergen mask is left to the caller (AllergenIndex.parseTags)
+        item.setAllergens(allergens);
+        item.setImagePath("");
+        return item;
+    }
+
+    /**
+     * Stable identity of an item across halls and days: the path of its detail page plus its
+     * query parameters (which may identify the item), sorted so their order does not matter
+     */
+    public static String itemDetailKey(String url) {
+        String key = url.replaceFirst("^[a-zA-Z]+://[^/]+", "");
+        int fragment = key.indexOf('#');
+        if (fragment >= 0) {
+            key = key.substring(0, fragment);
+        }
+        int query = key.indexOf('?');
+        if (query < 0) {
+            return key.toLowerCase(Locale.US);
+        }
+        List<String> params = new ArrayList<>();
+        for (String param : key.substring(query + 1).split("&")) {
+            if (!param.isEmpty()) {
+                params.add(param);
+            }
+        }
+        Collections.sort(params);
+        String path = key.substring(0, query).toLowerCase(Locale.US);
+        return params.isEmpty() ? path : path + '?' + String.join("&", params);
+    }
+
+    private static Pattern nutrientPattern(String label) {
+        return Pattern.compile(label + "\\s*:?\\s*(\\d+(?:\\.\\d+)?)\\s*g", Pattern.CASE_INSENSITIVE);
+    }
+
+    // NaN when the page does not list the nutrient; 0 would claim the item has none
+    private static double findNutrient(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+    }
+
+    /**
+     * Builds a menu from flat {meal, station, item, tags, detail URL} entries (tags and URL
+     * optional), grouping stations and meals in the order they first appear
+     */
+    public static MenuResult menuFromEntries(String hallName, String date, List<String[]> entries) {
+        MenuResult result = MenuResult.success();
+        result.hallName = hallName;
+        result.date = date;
+
+        Map<String, Station> stations = new LinkedHashMap<>();
+        Map<String, Meal> meals = new HashMap<>();
+        for (String[] entry : entries) {
+            Station station = stations.get(entry[1]);
+            if (station == null) {
+                station = new Station(entry[1]);
+                stations.put(entry[1], station);
+            }
+            String mealKey = entry[1] + '\n' + entry[0];
+            Meal meal = meals.get(mealKey);
+            if (meal == null) {
+                meal = new Meal(entry[0]);
+                meals.put(mealKey, meal);
+                station.meals.add(meal);
+            }
+            meal.items.add(entry[2]);
+            meal.itemTags.add(entry.length > 3 ? entry[3] : "");
+            meal.itemDetailUrls.add(entry.length > 4 ? entry[4] : "");
+        }
+        result.stations.addAll(stations.values());
+        return result;
+    }
+
     public static List<String> getAllItemsForMealTime(MenuResult menuResult, String mealTime) {
         List<String> allItems = new ArrayList<>();
         if (menuResult.success && menuResult.stations != null) {
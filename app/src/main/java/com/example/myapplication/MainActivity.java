@@ -1,8 +1,6 @@
 package com.example.myapplication;
 
 import android.Manifest;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
@@ -12,6 +10,7 @@ import android.location.LocationManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
 import android.widget.Button;
 import android.widget.FrameLayout;
@@ -40,13 +39,20 @@ import android.os.Bundle;
 // import com.google.android.gms.tasks.OnSuccessListener;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * MainActivity - Landing page for Sparty's Spreads app
  *
  * This activity displays the main screen with MSU dining halls in a smart layout:
- * - Featured dining hall at the top (full width) - shows the CLOSEST hall to user
- * - Remaining 6 dining halls in a 3x2 grid below in default order
+ * - Featured dining hall at the top (full width) - shows the best-ranked hall
+ * - Remaining 6 dining halls in a 3x2 grid below in rank order
+ *
+ * Ranking (HallRankingEngine) weighs walking distance, whether the hall is open for the
+ * current meal, live or forecast occupancy, and whether it serves one of the user's favorites.
  *
  * Users can tap on any dining hall to navigate to its specific menu.
  * Also includes login functionality and location-based featured hall switching.
@@ -57,7 +63,7 @@ import java.util.Comparator;
  * Location: Uses Android LocationManager (no Google Play Services) - closest hall featured
  *
  * Dining Halls Supported:
- * - Featured position: Dynamically shows closest hall (image + text update)
+ * - Featured position: Dynamically shows the top-ranked hall (image + text update)
  * - Grid positions: Snyder-Phillips, Brody, Case, Owen, Shaw, Akers, Landon (excluding featured)
  */
 public class MainActivity extends AppCompatActivity {
@@ -83,13 +89,41 @@ public class MainActivity extends AppCompatActivity {
     // Firebase
     private FirebaseManager firebaseManager;
 
+    // Downsampled, cached tile images
+    private HallImageLoader imageLoader;
+
     // Location services using Android LocationManager (no Google Play Services)
     private LocationManager locationManager;
     private LocationListener locationListener;
     private DiningHall[] diningHalls;
-    private boolean isReorganizing = false;
-    private double lastLatitude = 0.0;
-    private double lastLongitude = 0.0;
+
+    // Single engine for throttled, incremental tile reorganization
+    private TileReorganizer tileReorganizer;
+
+    // Hall ranking: weighted factors decide which hall is featured and the grid order
+    private static final float RANK_WEIGHT_DISTANCE = 0.4f;
+    private static final float RANK_WEIGHT_OPEN_NOW = 0.3f;
+    private static final float RANK_WEIGHT_OCCUPANCY = 0.2f;
+    private static final float RANK_WEIGHT_FAVORITES = 0.1f;
+    private HallRankingEngine rankingEngine;
+    private HallRankingEngine.OccupancyFactor occupancyFactor;
+    private HallRankingEngine.FavoritesFactor favoritesFactor;
+    private HallRankingEngine.OpenNowFactor openNowFactor;
+    private SeatOccupancyEngine.OccupancyListener occupancyListener;
+    private final ExecutorService rankingExecutor = Executors.newSingleThreadExecutor();
+    private final Handler rankingHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshMenuSignalsTask = this::refreshMenuSignals;
+    // Forecasts move with the clock and live data goes stale, so occupancy is re-scored periodically
+    private static final long OCCUPANCY_RESCORE_INTERVAL_MS = 60_000;
+    private final Runnable rescoreOccupancyTask = this::rescoreOccupancy;
+    // The "Featured" toast is shown at most this often
+    private static final long FEATURED_TOAST_INTERVAL_MS = 5 * 60_000L;
+    private long featuredToastAtMs = -FEATURED_TOAST_INTERVAL_MS;
+    private FavoritesStore.FavoritesListener favoritesListener;
+    private MenuUpdateService menuUpdateService;
+
+    // Minimum movement before the platform delivers another fix (the tile engine throttles further)
+    private static final float LOCATION_MIN_DISTANCE_M = 10f;
 
     // Debug flag - set to false to disable reorganization temporarily
     private static final boolean ENABLE_LOCATION_REORGANIZATION = true;
@@ -145,10 +179,16 @@ public class MainActivity extends AppCompatActivity {
             diningHallGrid = findViewById(R.id.diningHallGrid);
             android.util.Log.d("MainActivity", "Basic UI components found");
 
+            // Decode tile photos off the UI thread at tile size
+            imageLoader = HallImageLoader.getInstance(this);
+
             // Initialize dining halls data
             initializeDiningHalls();
             android.util.Log.d("MainActivity", "Dining halls initialized");
 
+            // Set up tile engine (also installs the dining hall click listeners)
+            initializeTileReorganizer();
+
             // Set up basic click listeners (no complex features)
             if (btnLogin != null) {
                 btnLogin.setOnClickListener(v -> onLoginButtonClick());
@@ -157,9 +197,6 @@ public class MainActivity extends AppCompatActivity {
                 imgSpartanLogo.setOnClickListener(v -> onSpartanLogoClick());
             }
 
-            // Set up dining hall click listeners
-            setupBasicClickListeners();
-
             // Update login button state
             updateLoginButtonState();
 
@@ -180,59 +217,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Sets up basic click listeners without complex initialization
-     */
-    private void setupBasicClickListeners() {
-        try {
-            // Snyder-Phillips
-            FrameLayout boxSnyderPhillips = findViewById(R.id.boxSnyderPhillips);
-            if (boxSnyderPhillips != null) {
-                boxSnyderPhillips.setOnClickListener(v -> onDiningHallClick("Snyder-Phillips"));
-            }
-
-            // Brody
-            FrameLayout boxBrody = findViewById(R.id.boxBrody);
-            if (boxBrody != null) {
-                boxBrody.setOnClickListener(v -> onDiningHallClick("Brody"));
-            }
-
-            // Case
-            FrameLayout boxCase = findViewById(R.id.boxCase);
-            if (boxCase != null) {
-                boxCase.setOnClickListener(v -> onDiningHallClick("Case"));
-            }
-
-            // Owen
-            FrameLayout boxOwen = findViewById(R.id.boxOwen);
-            if (boxOwen != null) {
-                boxOwen.setOnClickListener(v -> onDiningHallClick("Owen"));
-            }
-
-            // Shaw
-            FrameLayout boxShaw = findViewById(R.id.boxShaw);
-            if (boxShaw != null) {
-                boxShaw.setOnClickListener(v -> onDiningHallClick("Shaw"));
-            }
-
-            // Akers
-            FrameLayout boxAkers = findViewById(R.id.boxAkers);
-            if (boxAkers != null) {
-                boxAkers.setOnClickListener(v -> onDiningHallClick("Akers"));
-            }
-
-            // Landon
-            FrameLayout boxLandon = findViewById(R.id.boxLandon);
-            if (boxLandon != null) {
-                boxLandon.setOnClickListener(v -> onDiningHallClick("Landon"));
-            }
-
-            android.util.Log.d("MainActivity", "Basic click listeners set up successfully");
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Failed to set up basic click listeners", e);
-        }
-    }
-
     /**
      * Initializes UI components
      */
@@ -308,6 +292,22 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (tileReorganizer != null) {
+            tileReorganizer.release();
+        }
+        if (menuUpdateService != null) {
+            // Listeners run on the main thread, so a refresh still in flight cannot call back now
+            menuUpdateService.setMenuUpdateListener(null);
+            menuUpdateService.shutdown();
+        }
+        rankingHandler.removeCallbacksAndMessages(null);
+        rankingExecutor.shutdown();
+        if (occupancyListener != null) {
+            SeatOccupancyEngine.getInstance(this).removeListener(occupancyListener);
+        }
+        if (favoritesListener != null) {
+            FavoritesStore.getInstance(this).removeListener(favoritesListener);
+        }
         // Stop location updates
         if (locationManager != null && locationListener != null) {
             try {
@@ -319,28 +319,18 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Sets up click listeners for all 7 dining hall boxes
+     * Sets up click listeners for all dining hall boxes
      * Each box navigates to MenuActivity with the corresponding hall name
      */
     private void setupClickListeners() {
-        // Find all dining hall box views
-        FrameLayout boxSnyderPhillips = findViewById(R.id.boxSnyderPhillips);
-        FrameLayout boxBrody = findViewById(R.id.boxBrody);
-        FrameLayout boxCase = findViewById(R.id.boxCase);
-        FrameLayout boxOwen = findViewById(R.id.boxOwen);
-        FrameLayout boxShaw = findViewById(R.id.boxShaw);
-        FrameLayout boxAkers = findViewById(R.id.boxAkers);
-        FrameLayout boxLandon = findViewById(R.id.boxLandon);
-
-        // Set click listeners for each dining hall
-        // Lambda expressions used for cleaner code
-        boxSnyderPhillips.setOnClickListener(v -> onDiningHallClick("Snyder-Phillips"));
-        boxBrody.setOnClickListener(v -> onDiningHallClick("Brody"));
-        boxCase.setOnClickListener(v -> onDiningHallClick("Case"));
-        boxOwen.setOnClickListener(v -> onDiningHallClick("Owen"));
-        boxShaw.setOnClickListener(v -> onDiningHallClick("Shaw"));
-        boxAkers.setOnClickListener(v -> onDiningHallClick("Akers"));
-        boxLandon.setOnClickListener(v -> onDiningHallClick("Landon"));
+        // Set click listeners for each dining hall box in HallRegistry
+        for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
+            int viewId = DiningHall.getViewIdForHall(hall.getId());
+            if (viewId != 0) {
+                String hallName = hall.getName();
+                findViewById(viewId).setOnClickListener(v -> onDiningHallClick(hallName));
+            }
+        }
 
         // Set click listener for login button
         btnLogin.setOnClickListener(v -> onLoginButtonClick());
@@ -376,10 +366,7 @@ public class MainActivity extends AppCompatActivity {
     private void onDiningHallClick(String diningHallName) {
         // Log analytics event for dining hall selection
         if (firebaseManager != null) {
-            Bundle params = new Bundle();
-            params.putString("hall_name", diningHallName);
-            params.putString("source", "main_activity");
-            firebaseManager.logEvent("dining_hall_selected", params);
+            firebaseManager.logHallSelected(diningHallName, "main_activity");
         }
 
         Intent intent = new Intent(this, ImprovedMenuActivity.class);
@@ -457,12 +444,149 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Creates the tile engine and binds the default hall to every tile
+     */
+    private void initializeTileReorganizer() {
+        rankingEngine = new HallRankingEngine(diningHalls);
+        HallRankingEngine.DistanceFactor distanceFactor = new HallRankingEngine.DistanceFactor(RANK_WEIGHT_DISTANCE);
+        occupancyFactor = new HallRankingEngine.OccupancyFactor(RANK_WEIGHT_OCCUPANCY, CrowdForecaster.getInstance(this));
+        favoritesFactor = new HallRankingEngine.FavoritesFactor(RANK_WEIGHT_FAVORITES, diningHalls.length);
+        openNowFactor = new HallRankingEngine.OpenNowFactor(RANK_WEIGHT_OPEN_NOW, diningHalls.length);
+        rankingEngine.addFactor(distanceFactor);
+        rankingEngine.addFactor(occupancyFactor);
+        rankingEngine.addFactor(favoritesFactor);
+        rankingEngine.addFactor(openNowFactor);
+
+        tileReorganizer = new TileReorganizer(this, diningHalls, imageLoader, rankingEngine, distanceFactor, new TileReorganizer.Listener() {
+            @Override
+            public void onHallClick(String hallName) {
+                onDiningHallClick(hallName);
+            }
+
+            @Override
+            public void onTilesReorganized(DiningHall featuredHall, boolean featuredChanged,
+                                           double userLatitude, double userLongitude) {
+                // Persist last known nearest hall + location locally
+                try {
+                    Location snap = new Location(LocationManager.PASSIVE_PROVIDER);
+                    snap.setLatitude(userLatitude);
+                    snap.setLongitude(userLongitude);
+                    snap.setAccuracy(50f);
+                    saveLocalState(featuredHall.getName(), snap);
+                } catch (Exception ignore) {}
+
+                long nowMs = SystemClock.elapsedRealtime();
+                if (featuredChanged && nowMs - featuredToastAtMs >= FEATURED_TOAST_INTERVAL_MS) {
+                    featuredToastAtMs = nowMs;
+                    Toast.makeText(MainActivity.this,
+                        String.format("Featured: %s (%.0fm away)",
+                            featuredHall.getName(), featuredHall.getDistanceFromUser()),
+                        Toast.LENGTH_LONG).show();
+                }
+            }
+        });
+        tileReorganizer.bindDefaultArrangement();
+
+        // Live occupancy re-ranks the tiles as it changes
+        SeatOccupancyEngine seatEngine = SeatOccupancyEngine.getInstance(this);
+        occupancyListener = snapshot -> {
+            occupancyFactor.setSnapshot(snapshot);
+            rankingEngine.invalidate(occupancyFactor);
+            tileReorganizer.refreshRanking();
+        };
+        seatEngine.addListener(occupancyListener);
+        seatEngine.start();
+
+        loadFavoritesForRanking();
+        refreshMenuSignals();
+        rankingHandler.postDelayed(rescoreOccupancyTask, OCCUPANCY_RESCORE_INTERVAL_MS);
+    }
+
+    /**
+     * Re-scores occupancy without new live data, so forecasts follow the clock and stale
+     * live readings fall back to them
+     */
+    private void rescoreOccupancy() {
+        rankingEngine.invalidate(occupancyFactor);
+        tileReorganizer.refreshRanking();
+        rankingHandler.postDelayed(rescoreOccupancyTask, OCCUPANCY_RESCORE_INTERVAL_MS);
+    }
+
+    /**
+     * Re-evaluates the favorites ranking factor whenever the user's favorites change
+     */
+    private void loadFavoritesForRanking() {
+        favoritesListener = changedItems -> refreshMenuSignals();
+        FavoritesStore.getInstance(this).addListener(favoritesListener);
+    }
+
+    /**
+     * Recomputes the menu-based ranking inputs (open for the current meal, serving a favorite)
+     * off the UI thread, and again at the next meal boundary
+     */
+    private void refreshMenuSignals() {
+        rankingHandler.removeCallbacks(refreshMenuSignalsTask);
+        if (isDestroyed() || rankingExecutor.isShutdown()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String mealTime = HallRankingEngine.OpenNowFactor.getMealTime(now);
+        // Kept compiled with the current favorites by FavoritesStore; matches whole words
+        FavoritesMatcher favoritesMatcher = FavoritesMatcher.getInstance();
+        MenuDatabaseHelper dbHelper = MenuDatabaseHelper.getInstance(this);
+
+        rankingExecutor.execute(() -> {
+            int[] openStates = new int[diningHalls.length];
+            boolean[] servesFavorite = new boolean[diningHalls.length];
+            for (int i = 0; i < diningHalls.length; i++) {
+                String hall = diningHalls[i].getName();
+                if (mealTime == null) {
+                    openStates[i] = HallRankingEngine.OpenNowFactor.CLOSED;
+                    continue;
+                }
+                Map<String, List<String>> stations = dbHelper.getStationMenuItemsForHall(hall, mealTime);
+                if (!stations.isEmpty()) {
+                    openStates[i] = HallRankingEngine.OpenNowFactor.OPEN;
+                } else if (dbHelper.hasDynamicMenuForToday(hall)) {
+                    // Today's menu is known and does not include this meal
+                    openStates[i] = HallRankingEngine.OpenNowFactor.CLOSED;
+                } else {
+                    openStates[i] = HallRankingEngine.OpenNowFactor.UNKNOWN;
+                }
+                for (List<String> items : stations.values()) {
+                    if (favoritesMatcher.matchesAny(items)) {
+                        servesFavorite[i] = true;
+                        break;
+                    }
+                }
+            }
+
+            rankingHandler.post(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                for (int i = 0; i < diningHalls.length; i++) {
+                    openNowFactor.setState(i, openStates[i]);
+                    favoritesFactor.setServesFavorite(i, servesFavorite[i]);
+                }
+                rankingEngine.invalidate(openNowFactor);
+                rankingEngine.invalidate(favoritesFactor);
+                tileReorganizer.refreshRanking();
+            });
+        });
+
+        rankingHandler.postDelayed(refreshMenuSignalsTask,
+                HallRankingEngine.OpenNowFactor.millisUntilNextMealBoundary(now));
+    }
+
     /**
      * Initialize menu update service to fetch menus in the background
      */
     private void initializeMenuUpdateService() {
         try {
             MenuUpdateService menuService = new MenuUpdateService(this);
+            menuUpdateService = menuService;
             menuService.setMenuUpdateListener(new MenuUpdateService.MenuUpdateListener() {
                 @Override
                 public void onMenuUpdated(String hallName, boolean success, String message) {
@@ -473,6 +597,7 @@ public class MainActivity extends AppCompatActivity {
                 public void onAllMenusUpdated() {
                     runOnUiThread(() -> {
                         Toast.makeText(MainActivity.this, "All menus updated", Toast.LENGTH_SHORT).show();
+                        refreshMenuSignals();
                     });
                 }
             });
@@ -557,26 +682,10 @@ public class MainActivity extends AppCompatActivity {
                         android.util.Log.d("LocationUpdate",
                             String.format("New location: %.6f, %.6f", newLatitude, newLongitude));
 
-                        // Check if location has changed significantly (more than ~10 meters for responsive updates)
-                        double distance = DiningHall.calculateDistance(
-                                lastLatitude, lastLongitude, newLatitude, newLongitude);
-
-                        if (distance > 10 || (lastLatitude == 0.0 && lastLongitude == 0.0)) {
-                            lastLatitude = newLatitude;
-                            lastLongitude = newLongitude;
-
-                            android.util.Log.d("LocationUpdate",
-                                String.format("Significant location change: %.0fm, reorganizing tiles", distance));
-
-                            Toast.makeText(MainActivity.this,
-                                    String.format("Location updated: %.4f, %.4f", newLatitude, newLongitude),
-                                    Toast.LENGTH_SHORT).show();
-
-                            // Reorganize tiles based on new location
-                            reorganizeTilesByDistanceSafely(newLatitude, newLongitude);
-                        } else {
-                            android.util.Log.d("LocationUpdate",
-                                String.format("Minor location change: %.0fm, skipping reorganization", distance));
+                        // Distance/time throttling happens in the tile engine, so GPS jitter is dropped there
+                        if (tileReorganizer != null
+                                && !tileReorganizer.onLocationChanged(newLatitude, newLongitude)) {
+                            android.util.Log.d("LocationUpdate", "Location change throttled, skipping reorganization");
                         }
                     } catch (Exception e) {
                         android.util.Log.e("LocationUpdate", "Error processing location change", e);
@@ -656,8 +765,6 @@ public class MainActivity extends AppCompatActivity {
                 double lon = lastKnownLocation.getLongitude();
                 android.util.Log.d("LocationStart", String.format("Using last known location: %.6f, %.6f", lat, lon));
 
-                lastLatitude = lat;
-                lastLongitude = lon;
                 reorganizeTilesByDistanceSafely(lat, lon);
             }
 
@@ -666,20 +773,20 @@ public class MainActivity extends AppCompatActivity {
                 if (locationManager.isProviderEnabled(android.location.LocationManager.GPS_PROVIDER)) {
                     locationManager.requestLocationUpdates(
                         android.location.LocationManager.GPS_PROVIDER,
-                        2000, // 2 seconds (faster for emulator testing)
-                        5,    // 5 meters (more sensitive)
+                        TileReorganizer.MIN_UPDATE_INTERVAL_MS,
+                        LOCATION_MIN_DISTANCE_M,
                         locationListener
                     );
-                    android.util.Log.d("LocationStart", "GPS location updates started (2s/5m)");
+                    android.util.Log.d("LocationStart", "GPS location updates started");
                 }
                 if (locationManager.isProviderEnabled(android.location.LocationManager.NETWORK_PROVIDER)) {
                     locationManager.requestLocationUpdates(
                         android.location.LocationManager.NETWORK_PROVIDER,
-                        3000, // 3 seconds (faster for emulator testing)
-                        5,    // 5 meters (more sensitive)
+                        TileReorganizer.MIN_UPDATE_INTERVAL_MS,
+                        LOCATION_MIN_DISTANCE_M,
                         locationListener
                     );
-                    android.util.Log.d("LocationStart", "Network location updates started (3s/5m)");
+                    android.util.Log.d("LocationStart", "Network location updates started");
                 }
 
                 Toast.makeText(this, "Location tracking started", Toast.LENGTH_SHORT).show();
@@ -774,10 +881,6 @@ public class MainActivity extends AppCompatActivity {
                 // Organize halls based on actual device location
                 reorganizeTilesByDistanceSafely(lat, lon);
 
-                // Store this location for future updates
-                lastLatitude = lat;
-                lastLongitude = lon;
-
                 // Start location updates for future changes
                 startLocationUpdatesSafely();
             } else {
@@ -959,98 +1062,20 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Safely finds the closest dining hall
-     */
-    private DiningHall findClosestHallSafely(double userLat, double userLon) {
-        try {
-            DiningHall[] halls = DiningHall.getAllDiningHalls();
-            if (halls == null || halls.length == 0) {
-                return null;
-            }
-
-            DiningHall closest = halls[0];
-            double shortestDistance = DiningHall.calculateDistance(
-                userLat, userLon, closest.getLatitude(), closest.getLongitude());
-
-            for (DiningHall hall : halls) {
-                double distance = DiningHall.calculateDistance(
-                    userLat, userLon, hall.getLatitude(), hall.getLongitude());
-                if (distance < shortestDistance) {
-                    shortestDistance = distance;
-                    closest = hall;
-                }
-            }
-
-            android.util.Log.d("MainActivity",
-                String.format("Closest hall to %.6f,%.6f is %s (%.0fm)",
-                    userLat, userLon, closest.getName(), shortestDistance));
-
-            return closest;
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error finding closest hall safely", e);
-            return null;
-        }
-    }
-
     /**
      * Safely reorganizes tiles by distance without breaking the layout
+     * Bypasses the location throttle - used for initial, manual and test locations
      */
     private void reorganizeTilesByDistanceSafely(double userLatitude, double userLongitude) {
         try {
             android.util.Log.d("SafeReorganize",
                 String.format("Reorganizing for location: %.6f, %.6f", userLatitude, userLongitude));
 
-            // Get all dining halls and calculate distances
-            DiningHall[] allHalls = DiningHall.getAllDiningHalls();
-            if (allHalls == null || allHalls.length == 0) {
-                android.util.Log.e("SafeReorganize", "No dining halls available");
+            if (tileReorganizer == null) {
+                android.util.Log.e("SafeReorganize", "Tile engine not initialized");
                 return;
             }
-
-            // Calculate distances for all halls
-            for (DiningHall hall : allHalls) {
-                double distance = DiningHall.calculateDistance(
-                    userLatitude, userLongitude,
-                    hall.getLatitude(), hall.getLongitude()
-                );
-                hall.setDistanceFromUser(distance);
-
-                android.util.Log.d("SafeReorganize",
-                    String.format("%s: %.0fm away", hall.getName(), distance));
-            }
-
-            // Find the closest hall
-            DiningHall closestHall = allHalls[0];
-            for (DiningHall hall : allHalls) {
-                if (hall.getDistanceFromUser() < closestHall.getDistanceFromUser()) {
-                    closestHall = hall;
-                }
-            }
-
-            android.util.Log.d("SafeReorganize", "Closest hall: " + closestHall.getName());
-
-            // --- Persist last known nearest hall + location locally ---
-            try {
-                Location snap = new Location(LocationManager.PASSIVE_PROVIDER);
-                snap.setLatitude(userLatitude);
-                snap.setLongitude(userLongitude);
-                // If you have a computed distance threshold, you can set a rough accuracy; otherwise pick a sane default
-                snap.setAccuracy(50f);
-                saveLocalState(closestHall.getName(), snap);
-            } catch (Exception ignore) {}
-
-            // Update the featured tile with the closest hall
-            updateFeaturedHallContent(closestHall);
-
-            // Update the grid with the remaining 6 halls
-            updateGridContent(closestHall, allHalls);
-
-            // Show feedback
-            Toast.makeText(this,
-                String.format("Featured: %s (%.0fm away)",
-                    closestHall.getName(), closestHall.getDistanceFromUser()),
-                Toast.LENGTH_LONG).show();
+            tileReorganizer.reorganize(userLatitude, userLongitude);
 
         } catch (Exception e) {
             android.util.Log.e("SafeReorganize", "Error in safe reorganization", e);
@@ -1058,217 +1083,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Updates the grid content with proper hall swapping
-     */
-    private void updateGridContent(DiningHall newFeaturedHall, DiningHall[] allHalls) {
-        try {
-            android.util.Log.d("GridSwap", "Starting grid swap for new featured: " + newFeaturedHall.getName());
-
-            // Map of view IDs to their default hall names
-            // IMPORTANT: All 7 halls must be represented (6 in grid + 1 featured)
-            int[] gridViewIds = {
-                R.id.boxBrody, R.id.boxCase, R.id.boxOwen,
-                R.id.boxShaw, R.id.boxAkers, R.id.boxLandon
-            };
-
-            String[] defaultGridHallNames = {
-                "Brody", "Case", "Owen", "Shaw", "Akers", "Landon"
-            };
-
-            // All 7 halls including Snyder-Phillips
-            String[] allHallNames = {
-                "Snyder-Phillips", "Brody", "Case", "Owen", "Shaw", "Akers", "Landon"
-            };
-
-            // Find what was previously featured (get current featured hall name from UI)
-            TextView currentFeaturedText = findViewById(R.id.txtSnyderPhillips);
-            String previousFeaturedHallName = currentFeaturedText != null ?
-                extractHallNameFromDisplayText(currentFeaturedText.getText().toString()) : "Snyder-Phillips";
-
-            android.util.Log.d("GridSwap",
-                String.format("Previous featured: %s, New featured: %s",
-                    previousFeaturedHallName, newFeaturedHall.getName()));
-
-            // Find which grid position the new featured hall should vacate
-            int vacatedGridPosition = -1;
-            for (int i = 0; i < defaultGridHallNames.length; i++) {
-                if (defaultGridHallNames[i].equals(newFeaturedHall.getName())) {
-                    vacatedGridPosition = i;
-                    break;
-                }
-            }
-
-            android.util.Log.d("GridSwap",
-                String.format("New featured hall %s vacated grid position %d",
-                    newFeaturedHall.getName(), vacatedGridPosition));
-
-            // Create a list of all halls that need to be in the grid (exclude the featured hall)
-            java.util.List<String> hallsNeededInGrid = new java.util.ArrayList<>();
-            for (String hall : allHallNames) {
-                if (!hall.equals(newFeaturedHall.getName())) {
-                    hallsNeededInGrid.add(hall);
-                }
-            }
-
-            android.util.Log.d("GridSwap",
-                String.format("Halls needed in grid (6): %s", String.join(", ", hallsNeededInGrid)));
-
-            // Update each grid position with the 6 non-featured halls
-            for (int i = 0; i < gridViewIds.length; i++) {
-                FrameLayout gridFrame = findViewById(gridViewIds[i]);
-                if (gridFrame != null && i < hallsNeededInGrid.size()) {
-
-                    String hallNameForPosition = hallsNeededInGrid.get(i);
-                    DiningHall hallForThisPosition = findHallByName(allHalls, hallNameForPosition);
-
-                    android.util.Log.d("GridSwap",
-                        String.format("Position %d: Assigning %s", i, hallNameForPosition));
-
-                    if (hallForThisPosition != null) {
-                        updateGridTileContent(gridFrame, hallForThisPosition, gridViewIds[i]);
-                        android.util.Log.d("GridSwap",
-                            String.format("FINAL Position %d: %s", i, hallForThisPosition.getName()));
-                    }
-                }
-            }
-
-        } catch (Exception e) {
-            android.util.Log.e("GridSwap", "Error in grid swap logic", e);
-        }
-    }
-
-    /**
-     * Helper method to find a hall by name
-     */
-    private DiningHall findHallByName(DiningHall[] halls, String name) {
-        for (DiningHall hall : halls) {
-            if (hall.getName().equals(name)) {
-                return hall;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Helper method to extract hall name from display text
-     */
-    private String extractHallNameFromDisplayText(String displayText) {
-        // Convert display names back to hall names
-        if (displayText.contains("Snyder-Phillips")) return "Snyder-Phillips";
-        if (displayText.contains("Brody")) return "Brody";
-        if (displayText.contains("Case")) return "Case";
-        if (displayText.contains("Owen")) return "Owen";
-        if (displayText.contains("Shaw")) return "Shaw";
-        if (displayText.contains("Akers")) return "Akers";
-        if (displayText.contains("Landon")) return "Landon";
-        return "Snyder-Phillips"; // Default fallback
-    }
-
-    /**
-     * Updates a single grid tile with the appropriate content
-     */
-    private void updateGridTileContent(FrameLayout frameLayout, DiningHall hall, int viewId) {
-        try {
-            // Find the ImageView and TextView within this frame
-            ImageView imageView = null;
-            TextView textView = null;
-
-            // Map view IDs to their child ImageView and TextView IDs using if-else
-            if (viewId == R.id.boxBrody) {
-                imageView = findViewById(R.id.imgBrody);
-                textView = findViewById(R.id.txtBrody);
-            } else if (viewId == R.id.boxCase) {
-                imageView = findViewById(R.id.imgCase);
-                textView = findViewById(R.id.txtCase);
-            } else if (viewId == R.id.boxOwen) {
-                imageView = findViewById(R.id.imgOwen);
-                textView = findViewById(R.id.txtOwen);
-            } else if (viewId == R.id.boxShaw) {
-                imageView = findViewById(R.id.imgShaw);
-                textView = findViewById(R.id.txtShaw);
-            } else if (viewId == R.id.boxAkers) {
-                imageView = findViewById(R.id.imgAkers);
-                textView = findViewById(R.id.txtAkers);
-            } else if (viewId == R.id.boxLandon) {
-                imageView = findViewById(R.id.imgLandon);
-                textView = findViewById(R.id.txtLandon);
-            }
-
-            if (imageView != null && textView != null) {
-                // Ensure grid updates happen on UI thread
-                final ImageView finalImageView = imageView;
-                final TextView finalTextView = textView;
-
-                runOnUiThread(() -> {
-                    try {
-                        // Update the content to show this hall
-                        finalTextView.setText(hall.getDisplayName());
-                        updateImageForHall(finalImageView, hall.getName());
-
-                        // Force refresh
-                        finalTextView.invalidate();
-                        finalImageView.invalidate();
-                        frameLayout.invalidate();
-                        frameLayout.requestLayout();
-
-                        android.util.Log.d("GridTile",
-                            String.format("UI updated for tile %d with %s", viewId, hall.getName()));
-
-                    } catch (Exception e) {
-                        android.util.Log.e("GridTile", "Error updating grid tile UI", e);
-                    }
-                });
-
-                // Update click listener
-                frameLayout.setOnClickListener(v -> onDiningHallClick(hall.getName()));
-
-                android.util.Log.d("GridTile",
-                    String.format("Updated tile %d with %s", viewId, hall.getName()));
-            }
-
-        } catch (Exception e) {
-            android.util.Log.e("GridTile", "Error updating grid tile content", e);
-        }
-    }
-
-    /**
-     * Updates an ImageView with the correct image for a dining hall
-     */
-    private void updateImageForHall(ImageView imageView, String hallName) {
-        try {
-            switch (hallName.toLowerCase()) {
-                case "snyder-phillips":
-                    imageView.setImageResource(R.drawable.sny_phi);
-                    break;
-                case "brody":
-                    imageView.setImageResource(R.drawable.brody);
-                    break;
-                case "case":
-                    imageView.setImageResource(R.drawable.casehall);
-                    break;
-                case "owen":
-                    imageView.setImageResource(R.drawable.owen);
-                    break;
-                case "shaw":
-                    imageView.setImageResource(R.drawable.shaw);
-                    break;
-                case "akers":
-                    imageView.setImageResource(R.drawable.akers);
-                    break;
-                case "landon":
-                    imageView.setImageResource(R.drawable.landon);
-                    break;
-                default:
-                    // Fallback to Snyder-Phillips image
-                    imageView.setImageResource(R.drawable.sny_phi);
-                    break;
-            }
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error updating image for " + hallName, e);
-        }
-    }
-
     /**
      * Safely links dining hall objects to their UI components
      */
@@ -1296,73 +1110,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Sets up location services using Android LocationManager
-     */
-    private void setupLocationServices() {
-        // Initialize LocationManager
-        locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
-
-        // Create location listener
-        locationListener = new LocationListener() {
-            @Override
-            public void onLocationChanged(@NonNull Location location) {
-                double newLatitude = location.getLatitude();
-                double newLongitude = location.getLongitude();
-
-                // Check if location has changed significantly (more than ~50 meters)
-                double distance = DiningHall.calculateDistance(
-                        lastLatitude, lastLongitude, newLatitude, newLongitude);
-
-                if (distance > 50 || (lastLatitude == 0.0 && lastLongitude == 0.0)) {
-                    lastLatitude = newLatitude;
-                    lastLongitude = newLongitude;
-
-                    Toast.makeText(MainActivity.this,
-                            String.format("Location updated: %.4f, %.4f", newLatitude, newLongitude),
-                            Toast.LENGTH_SHORT).show();
-
-                    reorganizeTilesByDistanceSafely(newLatitude, newLongitude);
-                }
-            }
-
-            @Override
-            public void onStatusChanged(String provider, int status, Bundle extras) {}
-
-            @Override
-            public void onProviderEnabled(@NonNull String provider) {}
-
-            @Override
-            public void onProviderDisabled(@NonNull String provider) {}
-        };
-    }
-
-    /**
-     * Requests location permission and reorganizes tiles based on distance
-     */
-    private void requestLocationAndReorganize() {
-        // Ensure all FrameLayouts are properly linked before proceeding
-        boolean allViewsLinked = true;
-        for (DiningHall hall : diningHalls) {
-            if (hall.getFrameLayout() == null) {
-                allViewsLinked = false;
-                break;
-            }
-        }
-
-        if (!allViewsLinked) {
-            // Try again after a short delay
-            diningHallGrid.postDelayed(this::requestLocationAndReorganize, 100);
-            return;
-        }
-
-        if (hasLocationPermission()) {
-            getCurrentLocationAndReorganize();
-        } else {
-            requestLocationPermission();
-        }
-    }
-
     /**
      * Checks if location permission is granted
      */
@@ -1414,8 +1161,6 @@ public class MainActivity extends AppCompatActivity {
             }
 
             if (lastKnownLocation != null) {
-                lastLatitude = lastKnownLocation.getLatitude();
-                lastLongitude = lastKnownLocation.getLongitude();
                 reorganizeTilesByDistanceSafely(lastKnownLocation.getLatitude(), lastKnownLocation.getLongitude());
             } else {
                 Toast.makeText(this, "Getting current location...", Toast.LENGTH_SHORT).show();
@@ -1434,280 +1179,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Reorganizes dining hall tiles - puts closest hall in featured position, rest in default order
-     */
-    private void reorganizeTilesByDistance(double userLatitude, double userLongitude) {
-        if (isReorganizing) {
-            return; // Prevent multiple simultaneous reorganizations
-        }
-
-        isReorganizing = true;
-
-        // Calculate distances for all dining halls
-        for (DiningHall hall : diningHalls) {
-            double distance = DiningHall.calculateDistance(
-                    userLatitude, userLongitude,
-                    hall.getLatitude(), hall.getLongitude()
-            );
-            hall.setDistanceFromUser(distance);
-
-            // Enhanced debug logging
-            android.util.Log.d("DiningHallDistance",
-                String.format("%s: %.0fm (hall coords: %.6f, %.6f)",
-                    hall.getName(), distance, hall.getLatitude(), hall.getLongitude()));
-        }
-
-        // Find the closest dining hall
-        DiningHall closestHall = diningHalls[0];
-        for (DiningHall hall : diningHalls) {
-            if (hall.getDistanceFromUser() < closestHall.getDistanceFromUser()) {
-                closestHall = hall;
-            }
-        }
-
-        // Create new arrangement: closest hall first, others in original order
-        DiningHall[] newArrangement = new DiningHall[diningHalls.length];
-        newArrangement[0] = closestHall; // Featured position
-
-        // Fill remaining positions with other halls in default order, skipping the closest
-        int gridIndex = 1;
-        DiningHall[] originalOrder = DiningHall.getAllDiningHalls();
-        for (DiningHall hall : originalOrder) {
-            if (!hall.getName().equals(closestHall.getName()) && gridIndex < diningHalls.length) {
-                // Find the actual hall object with distance data
-                for (DiningHall calculatedHall : diningHalls) {
-                    if (calculatedHall.getName().equals(hall.getName())) {
-                        newArrangement[gridIndex++] = calculatedHall;
-                        break;
-                    }
-                }
-            }
-        }
-
-        // Update the diningHalls array
-        diningHalls = newArrangement;
-
-        // Enhanced debug: Show current location and arrangement
-        android.util.Log.d("UserLocation",
-            String.format("User at: %.6f, %.6f", userLatitude, userLongitude));
-
-        android.util.Log.d("NewArrangement",
-            String.format("Featured: %s (%.0fm), Grid order: %s, %s, %s...",
-                diningHalls[0].getName(), diningHalls[0].getDistanceFromUser(),
-                diningHalls[1].getName(), diningHalls[2].getName(), diningHalls[3].getName()));
-
-        // Show user feedback with closest hall
-        String closestHallName = closestHall.getName();
-        double closestDistance = closestHall.getDistanceFromUser();
-        Toast.makeText(this,
-            String.format("Featured: %s (%.0fm away)", closestHallName, closestDistance),
-            Toast.LENGTH_LONG).show();
-
-        // Animate tiles to new positions
-        animateTileReorganization();
-    }
-
-    /**
-     * Animates the reorganization of tiles and updates content
-     * Featured position gets the closest hall's content, grid gets the rest
-     */
-    private void animateTileReorganization() {
-        // Update the featured position content with closest hall
-        updateFeaturedHallContent(diningHalls[0]);
-
-        // Clear the grid and rebuild with remaining halls
-        diningHallGrid.removeAllViews();
-
-        // Add halls 1-6 to the grid layout (skip index 0 which is the featured hall)
-        for (int i = 1; i < diningHalls.length; i++) {
-            final DiningHall hall = diningHalls[i];
-            final FrameLayout frameLayout = hall.getFrameLayout();
-
-            // Calculate grid position (i-1 because we skip index 0)
-            int gridIndex = i - 1;
-            GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-            params.rowSpec = GridLayout.spec(gridIndex / 2, 1f);
-            params.columnSpec = GridLayout.spec(gridIndex % 2, 1f);
-
-            // Set margins to match original layout
-            int marginPx = (int) (8 * getResources().getDisplayMetrics().density);
-            params.setMargins(marginPx, marginPx, marginPx, marginPx);
-
-            // Set width and height to 0dp with weight 1 for proper grid behavior
-            params.width = 0;
-            params.height = 0;
-
-            frameLayout.setLayoutParams(params);
-
-            // Start with invisible and scale down
-            frameLayout.setAlpha(0f);
-            frameLayout.setScaleX(0.8f);
-            frameLayout.setScaleY(0.8f);
-
-            // Add to grid
-            diningHallGrid.addView(frameLayout);
-
-            // Animate in with delay based on position
-            final int animationIndex = i;
-            frameLayout.postDelayed(() -> {
-                ObjectAnimator alphaAnimator = ObjectAnimator.ofFloat(frameLayout, "alpha", 0f, 1f);
-                ObjectAnimator scaleXAnimator = ObjectAnimator.ofFloat(frameLayout, "scaleX", 0.8f, 1f);
-                ObjectAnimator scaleYAnimator = ObjectAnimator.ofFloat(frameLayout, "scaleY", 0.8f, 1f);
-
-                alphaAnimator.setDuration(300);
-                scaleXAnimator.setDuration(300);
-                scaleYAnimator.setDuration(300);
-
-                AnimatorSet animatorSet = new AnimatorSet();
-                animatorSet.playTogether(alphaAnimator, scaleXAnimator, scaleYAnimator);
-                animatorSet.start();
-            }, animationIndex * 100); // Stagger animations
-        }
-
-        // Animate the featured hall with a special highlight effect
-        FrameLayout featuredFrame = findViewById(R.id.boxSnyderPhillips);
-        featuredFrame.postDelayed(() -> {
-            // Pulse animation for the featured hall
-            ObjectAnimator pulseAnimator = ObjectAnimator.ofFloat(featuredFrame, "scaleX", 1f, 1.05f, 1f);
-            ObjectAnimator pulseAnimatorY = ObjectAnimator.ofFloat(featuredFrame, "scaleY", 1f, 1.05f, 1f);
-
-            pulseAnimator.setDuration(600);
-            pulseAnimatorY.setDuration(600);
-
-            AnimatorSet pulseSet = new AnimatorSet();
-            pulseSet.playTogether(pulseAnimator, pulseAnimatorY);
-            pulseSet.start();
-        }, 200);
-
-        // Show completion message after all animations
-        diningHallGrid.postDelayed(() -> {
-            String featuredHallName = diningHalls[0].getDisplayName();
-            Toast.makeText(this,
-                String.format("Featured: %s (closest to you)", featuredHallName),
-                Toast.LENGTH_LONG).show();
-            isReorganizing = false;
-        }, diningHalls.length * 100 + 600);
-    }
-
-    /**
-     * Updates the featured hall position with the content of the closest dining hall
-     */
-    private void updateFeaturedHallContent(DiningHall closestHall) {
-        try {
-            android.util.Log.d("FeaturedUpdate",
-                String.format("STARTING updateFeaturedHallContent with %s", closestHall.getName()));
-
-            // Find the featured frame and its child components directly
-            FrameLayout featuredFrame = findViewById(R.id.boxSnyderPhillips);
-            ImageView featuredImage = findViewById(R.id.imgSnyderPhillips);
-            TextView featuredText = findViewById(R.id.txtSnyderPhillips);
-
-            android.util.Log.d("FeaturedUpdate",
-                String.format("UI components found - Frame: %s, Image: %s, Text: %s",
-                    (featuredFrame != null), (featuredImage != null), (featuredText != null)));
-
-            if (featuredFrame != null && featuredImage != null && featuredText != null) {
-                // Get current values for debugging
-                String currentText = featuredText.getText().toString();
-                android.util.Log.d("FeaturedUpdate",
-                    String.format("Current text: '%s', Changing to: '%s'",
-                        currentText, closestHall.getDisplayName()));
-
-                // Ensure UI updates happen on main thread
-                runOnUiThread(() -> {
-                    try {
-                        // Update text to show the closest hall name
-                        featuredText.setText(closestHall.getDisplayName());
-
-                        // Update image based on the hall name
-                        android.util.Log.d("FeaturedUpdate",
-                            String.format("Updating image from current to %s", closestHall.getName()));
-                        updateFeaturedImage(featuredImage, closestHall.getName());
-
-                        // Force the views to refresh
-                        featuredText.invalidate();
-                        featuredImage.invalidate();
-                        featuredFrame.invalidate();
-
-                        // Request layout in case dimensions changed
-                        featuredFrame.requestLayout();
-
-                        // Add a brief animation to make the change visible
-                        featuredFrame.setAlpha(0.3f);
-                        featuredFrame.animate()
-                            .alpha(1.0f)
-                            .setDuration(300)
-                            .start();
-
-                        android.util.Log.d("FeaturedUpdate", "UI refresh commands sent with animation");
-
-                    } catch (Exception e) {
-                        android.util.Log.e("FeaturedUpdate", "Error in UI thread update", e);
-                    }
-                });
-
-                // Update click listener to navigate to the closest hall
-                featuredFrame.setOnClickListener(v -> onDiningHallClick(closestHall.getName()));
-
-                // Verify the change took effect
-                String newText = featuredText.getText().toString();
-                android.util.Log.d("FeaturedUpdate",
-                    String.format("COMPLETED updateFeaturedHallContent - Final text: '%s'", newText));
-
-                // Show a toast to confirm the change
-                Toast.makeText(this,
-                    String.format("Featured tile updated to: %s", closestHall.getName()),
-                    Toast.LENGTH_SHORT).show();
-
-            } else {
-                android.util.Log.e("FeaturedUpdate", "Could not find featured hall UI components");
-                android.util.Log.e("FeaturedUpdate",
-                    String.format("Missing components - Frame: %s, Image: %s, Text: %s",
-                        (featuredFrame == null ? "NULL" : "OK"),
-                        (featuredImage == null ? "NULL" : "OK"),
-                        (featuredText == null ? "NULL" : "OK")));
-            }
-        } catch (Exception e) {
-            android.util.Log.e("FeaturedUpdate", "Error updating featured hall content", e);
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Updates the featured hall image based on the dining hall name
-     */
-    private void updateFeaturedImage(ImageView imageView, String hallName) {
-        // Map dining hall names to their images
-        switch (hallName.toLowerCase()) {
-            case "snyder-phillips":
-                imageView.setImageResource(R.drawable.sny_phi);
-                break;
-            case "brody":
-                imageView.setImageResource(R.drawable.brody);
-                break;
-            case "case":
-                imageView.setImageResource(R.drawable.casehall);
-                break;
-            case "owen":
-                imageView.setImageResource(R.drawable.owen);
-                break;
-            case "shaw":
-                imageView.setImageResource(R.drawable.shaw);
-                break;
-            case "akers":
-                imageView.setImageResource(R.drawable.akers);
-                break;
-            case "landon":
-                imageView.setImageResource(R.drawable.landon);
-                break;
-            default:
-                // Fallback to a default image
-                imageView.setImageResource(R.drawable.sny_phi);
-                break;
-        }
-    }
-
     /**
      * Handles permission request results
      */
@@ -1755,78 +1226,7 @@ public class MainActivity extends AppCompatActivity {
                 testHall.getName(), testHall.getLatitude(), testHall.getLongitude()));
 
         // Use the dining hall's coordinates as test location
-        reorganizeTilesByDistance(testHall.getLatitude(), testHall.getLongitude());
-    }
-
-    /**
-     * Safe manual testing of closest hall feature (no location permissions needed)
-     */
-    private void testClosestHallManually() {
-        try {
-            // Get all dining hall coordinates
-            DiningHall[] testHalls = DiningHall.getAllDiningHalls();
-
-            // Cycle through different test locations every 3 seconds
-            int testIndex = (int) (System.currentTimeMillis() / 3000) % testHalls.length;
-            DiningHall testLocation = testHalls[testIndex];
-
-            android.util.Log.d("ManualTest",
-                String.format("Testing from %s at coordinates: %.6f, %.6f",
-                    testLocation.getName(), testLocation.getLatitude(), testLocation.getLongitude()));
-
-            Toast.makeText(this,
-                String.format("Testing from %s\nFinding closest hall...", testLocation.getName()),
-                Toast.LENGTH_SHORT).show();
-
-            // Find which hall would be closest from this test location
-            DiningHall closestHall = findClosestHall(testLocation.getLatitude(), testLocation.getLongitude());
-
-            if (closestHall != null) {
-                android.util.Log.d("ManualTest",
-                    String.format("Closest hall to %s is %s",
-                        testLocation.getName(), closestHall.getName()));
-
-                // Update the featured hall content manually
-                updateFeaturedHallContent(closestHall);
-
-                // Show results with more detail
-                Toast.makeText(this,
-                    String.format("From %s location:\nClosest hall is %s\nFeatured tile should now show %s",
-                        testLocation.getName(), closestHall.getName(), closestHall.getDisplayName()),
-                    Toast.LENGTH_LONG).show();
-            } else {
-                android.util.Log.e("ManualTest", "findClosestHall returned null");
-                Toast.makeText(this, "Failed to find closest hall", Toast.LENGTH_SHORT).show();
-            }
-
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error in manual testing", e);
-            Toast.makeText(this, "Testing failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
-    }
-
-    /**
-     * Find the closest dining hall to given coordinates (safe version)
-     */
-    private DiningHall findClosestHall(double userLat, double userLon) {
-        try {
-            DiningHall[] halls = DiningHall.getAllDiningHalls();
-            DiningHall closest = halls[0];
-            double shortestDistance = DiningHall.calculateDistance(userLat, userLon, closest.getLatitude(), closest.getLongitude());
-
-            for (DiningHall hall : halls) {
-                double distance = DiningHall.calculateDistance(userLat, userLon, hall.getLatitude(), hall.getLongitude());
-                if (distance < shortestDistance) {
-                    shortestDistance = distance;
-                    closest = hall;
-                }
-            }
-
-            return closest;
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error finding closest hall", e);
-            return null;
-        }
+        reorganizeTilesByDistanceSafely(testHall.getLatitude(), testHall.getLongitude());
     }
 
     /**
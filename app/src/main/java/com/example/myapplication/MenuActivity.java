@@ -12,9 +12,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import com.example.myapplication.MenuCache;
 
 
@@ -26,7 +24,7 @@ import com.example.myapplication.MenuCache;
  * - View menu items in a scrollable list
  * - Navigate back to MainActivity
  * - Get directions to the dining hall via Google Maps
- * - Access seating options (future feature)
+ * - View live seating availability
  *
  * State Management:
  * - Preserves selected meal time during orientation changes
@@ -49,7 +47,6 @@ public class MenuActivity extends AppCompatActivity {
     // Data and State
     private String hallName;
     private String currentMealTime = "Breakfast";
-    private Map<String, String> hallAddresses;
     private MenuDatabaseHelper dbHelper;
     private MenuUpdateService menuUpdateService;
     private boolean isLoadingMenu = false;
@@ -74,7 +71,6 @@ public class MenuActivity extends AppCompatActivity {
         restoreInstanceState(savedInstanceState);
 
         // Initialize components in order
-        initializeHallAddresses();
         initializeDatabase();
         initializeViews();
         setupRecyclerView();
@@ -157,24 +153,6 @@ public class MenuActivity extends AppCompatActivity {
         setupOtherButtons();
     }
 
-    /**
-     * Initializes the mapping of dining hall names to their physical addresses
-     * Used for Google Maps navigation integration
-     */
-    private void initializeHallAddresses() {
-        hallAddresses = new HashMap<>();
-
-        // MSU Dining Hall addresses for Google Maps navigation
-        hallAddresses.put("Brody", "280 Brody Square, East Lansing, MI 48824");
-        hallAddresses.put("Case", "747 E Shaw Ln, East Lansing, MI 48825");
-        hallAddresses.put("Owen", "5 Owen Graduate Center, East Lansing, MI 48824");
-        hallAddresses.put("Shaw", "900 W Shaw Ln, East Lansing, MI 48824");
-        hallAddresses.put("Akers", "140 Akers Hall, East Lansing, MI 48824");
-        hallAddresses.put("Landon", "736 E Landon Dr, East Lansing, MI 48824");
-        hallAddresses.put("Holden", "191 E Holden Hall, East Lansing, MI 48824");
-        hallAddresses.put("Hubbard", "435 E Grand River Ave, East Lansing, MI 48823");
-    }
-
     /**
      * Initializes all view components by finding them in the layout
      */
@@ -251,13 +229,10 @@ public class MenuActivity extends AppCompatActivity {
     }
 
     /**
-     * Placeholder method for future seating options functionality
-     * TODO: Implement real-time seating availability checking
+     * Shows live seat availability for this hall
      */
     private void showSeatingOptions() {
-        // TODO: Implement seating options functionality
-        // For now, this is a placeholder for future functionality
-        Toast.makeText(this, "Seating options coming soon!", Toast.LENGTH_SHORT).show();
+        SeatingDialog.show(this, hallName);
     }
 
     /**
@@ -265,7 +240,8 @@ public class MenuActivity extends AppCompatActivity {
      * Falls back to web browser if Google Maps app is not installed
      */
     private void showDirections() {
-        String hallAddress = hallAddresses.get(hallName);
+        HallRegistry.Hall hall = HallRegistry.find(hallName);
+        String hallAddress = hall != null ? hall.getAddress() : null;
 
         if (hallAddress != null) {
             // Create Google Maps navigation intent
@@ -0,0 +1,70 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MenuChangeBus - In-process publish/subscribe for menu changes
+ *
+ * MenuUpdateService publishes the item-level changes of every menu refresh that changed
+ * something (see MenuDiff), after the database and the menu indexes are up to date.
+ * Refreshes that change nothing publish nothing, so subscribers can update incrementally
+ * instead of reloading on every fetch.
+ *
+ * Threading: publish() may be called from any thread; listeners are called on the UI thread.
+ */
+public class MenuChangeBus {
+
+    private static MenuChangeBus instance;
+
+    public interface MenuChangeListener {
+        /**
+         * @param hallName Hall whose menu for today changed
+         * @param changes Added, removed and moved items, never empty
+         */
+        void onMenuChanged(String hallName, List<MenuDiff.Change> changes);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<MenuChangeListener> listeners = new ArrayList<>();
+
+    public static synchronized MenuChangeBus getInstance() {
+        if (instance == null) {
+            instance = new MenuChangeBus();
+        }
+        return instance;
+    }
+
+    private MenuChangeBus() {
+    }
+
+    public synchronized void addListener(MenuChangeListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public synchronized void removeListener(MenuChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(String hallName, List<MenuDiff.Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<MenuDiff.Change> snapshot = Collections.unmodifiableList(new ArrayList<>(changes));
+        mainHandler.post(() -> {
+            List<MenuChangeListener> current;
+            synchronized (this) {
+                current = new ArrayList<>(listeners);
+            }
+            for (MenuChangeListener listener : current) {
+                listener.onMenuChanged(hallName, snapshot);
+            }
+        });
+    }
+}
@@ -24,10 +24,9 @@ public class MenuDatabase {
         menuData = new HashMap<>();
 
         // Initialize menus for all halls
-        String[] halls = {"Brody", "Case", "Owen", "Shaw", "Akers", "Landon", "Holden", "Hubbard"};
         String[] mealTimes = {"Breakfast", "Lunch", "Dinner"};
 
-        for (String hall : halls) {
+        for (HallRegistry.Hall hall : HallRegistry.all()) {
             Map<String, List<MenuItem>> hallMenus = new HashMap<>();
 
             for (String mealTime : mealTimes) {
@@ -35,11 +34,11 @@ public class MenuDatabase {
                 hallMenus.put(mealTime, items);
             }
 
-            menuData.put(hall, hallMenus);
+            menuData.put(hall.getName(), hallMenus);
         }
     }
 
-    private List<MenuItem> createSampleMenu(String hall, String mealTime) {
+    private List<MenuItem> createSampleMenu(HallRegistry.Hall hall, String mealTime) {
         List<MenuItem> items = new ArrayList<>();
 
         switch (mealTime) {
@@ -50,9 +49,9 @@ public class MenuDatabase {
                 items.add(new MenuItem("Fresh Fruit", "Seasonal fresh fruit selection", "Healthy"));
                 items.add(new MenuItem("Coffee", "Freshly brewed coffee", "Beverage"));
                 items.add(new MenuItem("Orange Juice", "100% pure orange juice", "Beverage"));
-                if (hall.equals("Brody")) {
+                if (hall.getId() == HallRegistry.BRODY) {
                     items.add(new MenuItem("Belgian Waffles", "Authentic Belgian waffles with syrup", "Specialty"));
-                } else if (hall.equals("Case")) {
+                } else if (hall.getId() == HallRegistry.CASE) {
                     items.add(new MenuItem("Breakfast Burrito", "Eggs, cheese, and potato burrito", "Specialty"));
                 }
                 break;
@@ -64,9 +63,9 @@ public class MenuDatabase {
                 items.add(new MenuItem("French Fries", "Golden crispy french fries", "Side"));
                 items.add(new MenuItem("Soup of the Day", "Chef's daily soup selection", "Soup"));
                 items.add(new MenuItem("Iced Tea", "Refreshing iced tea", "Beverage"));
-                if (hall.equals("Owen")) {
+                if (hall.getId() == HallRegistry.OWEN) {
                     items.add(new MenuItem("Sushi Bar", "Fresh sushi and sashimi selection", "Specialty"));
-                } else if (hall.equals("Shaw")) {
+                } else if (hall.getId() == HallRegistry.SHAW) {
                     items.add(new MenuItem("Taco Bar", "Build your own tacos", "Specialty"));
                 }
                 break;
@@ -78,9 +77,9 @@ public class MenuDatabase {
                 items.add(new MenuItem("Steamed Broccoli", "Fresh steamed broccoli", "Vegetable"));
                 items.add(new MenuItem("Dinner Rolls", "Warm dinner rolls with butter", "Bread"));
                 items.add(new MenuItem("Chocolate Cake", "Rich chocolate layer cake", "Dessert"));
-                if (hall.equals("Akers")) {
+                if (hall.getId() == HallRegistry.AKERS) {
                     items.add(new MenuItem("Prime Rib", "Slow-roasted prime rib", "Specialty"));
-                } else if (hall.equals("Landon")) {
+                } else if (hall.getId() == HallRegistry.LANDON) {
                     items.add(new MenuItem("Pasta Station", "Made-to-order pasta dishes", "Specialty"));
                 }
                 break;
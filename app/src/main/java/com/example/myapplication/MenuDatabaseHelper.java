@@ -3,12 +3,23 @@ package com.example.myapplication;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * MenuDatabaseHelper - SQLite database manager for Sparty's Spreads menu data
@@ -19,12 +30,32 @@ import java.util.Map;
  * - Sample data for all 8 MSU dining halls
  *
  * Database Schema:
- * 1. menu_items table: Core food items with nutrition, allergen, and price data
+ * 1. menu_items table: Core food items with nutrition, allergen, and price data; the sample
+ *    items (source_key "seed:<seed key>") plus the items whose details were scraped (keyed by
+ *    source_key)
  * 2. hall_menus table: Junction table linking halls + meal times to menu items
+ * 3. dynamic_menus table: Menus fetched from MSU, per hall, meal and station, linked to the
+ *    menu_items record holding their nutrition (menu_item_id, filled by NutritionEnricher)
+ * 4. nutrition_resolution table: Cached outcome of matching a normalized scraped name to
+ *    menu_items, including misses
+ * 5. menu_versions / menu_version_items tables: Content-addressed menus, each distinct set of
+ *    (meal, station, item) entries stored once under the hash of its canonical form
+ * 6. hall_menu_days table: The menu version a hall served on a date (see MenuVersionStore)
+ * 7. seed_info table: Version of the seed catalog copied into menu_items and hall_menus
+ *
+ * Seed catalog: the sample items and hall menus ship as a prebuilt database
+ * (assets/seed_catalog.db, built by tools/build_seed_db.py). The first time the database is
+ * opened by a process, a catalog older than SEED_VERSION is attached and copied with one
+ * INSERT ... SELECT per table in a single transaction; afterwards the check is one field read.
+ * Seed items are matched by their stable seed key, never by row id, so they cannot collide with
+ * scraped items, which take the next AUTOINCREMENT ids.
+ *
+ * Allergen and diet tags are also stored normalized as a bitmask (allergen_mask, see
+ * AllergenIndex) so menus can be filtered without parsing the free-text allergens.
  *
  * Features:
  * - Singleton pattern for efficient database access
- * - Automatic sample data population
+ * - Sample data copied from the prebuilt seed catalog, upgraded when its version changes
  * - Support for Breakfast, Lunch, and Dinner menus
  * - Hall-specific specialty items and menu variations
  *
@@ -35,7 +66,18 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
 
     // Database Configuration
     private static final String DATABASE_NAME = "MenuDatabase.db";
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 9;
+    private static final String TAG = "MenuDatabaseHelper";
+
+    // Seed catalog asset; SEED_VERSION must equal its PRAGMA user_version
+    private static final String SEED_ASSET = "seed_catalog.db";
+    private static final int SEED_VERSION = 1;
+    private static final String SEED_SCHEMA = "seed";
+    // Seed asset columns: stable item key, and the item a hall menu row refers to
+    private static final String COLUMN_SEED_KEY = "seed_key";
+    private static final String COLUMN_ITEM_SEED_KEY = "item_seed_key";
+    // source_key of a seed item: this prefix and its seed key
+    private static final String SEED_KEY_PREFIX = "seed:";
 
     // MenuItems Table Schema
     private static final String TABLE_MENU_ITEMS = "menu_items";
@@ -53,6 +95,11 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_INGREDIENTS = "ingredients";
     private static final String COLUMN_IMAGE_PATH = "image_path";
     private static final String COLUMN_PRICE = "price";
+    private static final String COLUMN_ALLERGEN_MASK = "allergen_mask";
+    // Set on items scraped by ItemDetailFetcher: detail page key and fetch time. Seed items
+    // have a source_key too (SEED_KEY_PREFIX), but no fetch time
+    private static final String COLUMN_SOURCE_KEY = "source_key";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
 
     // HallMenus Table Schema
     private static final String TABLE_HALL_MENUS = "hall_menus";
@@ -66,9 +113,39 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_ITEM_NAME = "item_name";
     private static final String COLUMN_DATE_FETCHED = "date_fetched";
 
+    // Nutrition Resolution Table Schema
+    private static final String TABLE_NUTRITION_RESOLUTION = "nutrition_resolution";
+    private static final String COLUMN_NORMALIZED_NAME = "normalized_name";
+    private static final String COLUMN_SCORE = "score";
+    private static final String COLUMN_RESOLVED_AT = "resolved_at";
+
+    // Menu History Table Schema (version 7, replaced by menu versions)
+    private static final String TABLE_MENU_HISTORY = "menu_history";
+    private static final String COLUMN_SERVED_DATE = "served_date";
+
+    // Menu Versions Table Schema
+    private static final String TABLE_MENU_VERSIONS = "menu_versions";
+    private static final String TABLE_MENU_VERSION_ITEMS = "menu_version_items";
+    private static final String TABLE_HALL_MENU_DAYS = "hall_menu_days";
+    private static final String COLUMN_HASH = "hash";
+    private static final String COLUMN_ITEM_COUNT = "item_count";
+    private static final String COLUMN_VERSION_ID = "version_id";
+    private static final String COLUMN_MENU_DATE = "menu_date";
+
+    // Seed Info Table Schema
+    private static final String TABLE_SEED_INFO = "seed_info";
+    private static final String COLUMN_SEED_VERSION = "seed_version";
+
+    // SQLite's default limit on bound parameters per statement
+    private static final int MAX_SQL_PARAMS = 999;
+
     // Singleton instance
     private static MenuDatabaseHelper instance;
 
+    private final Context context;
+    // Set once the seed catalog has been checked in this process
+    private volatile boolean seedChecked = false;
+
     /**
      * Returns the singleton instance of MenuDatabaseHelper
      * Thread-safe implementation using synchronized keyword
@@ -90,6 +167,31 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
      */
     private MenuDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        SQLiteDatabase db = super.getWritableDatabase();
+        if (!seedChecked) {
+            ensureSeedCatalog(db);
+        }
+        return db;
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        if (!seedChecked) {
+            // Seeding writes, so the first open is always a writable one
+            return getWritableDatabase();
+        }
+        return super.getReadableDatabase();
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Takes effect for new databases; older ones are converted by reclaimFreePages()
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
     }
 
     @Override
@@ -109,9 +211,13 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_ALLERGENS + " TEXT, " +
                 COLUMN_INGREDIENTS + " TEXT, " +
                 COLUMN_IMAGE_PATH + " TEXT, " +
-                COLUMN_PRICE + " REAL" +
+                COLUMN_PRICE + " REAL, " +
+                COLUMN_ALLERGEN_MASK + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SOURCE_KEY + " TEXT, " +
+                COLUMN_FETCHED_AT + " INTEGER" +
                 ")";
         db.execSQL(createMenuItemsTable);
+        createSourceKeyIndex(db);
 
         // Create HallMenus table
         String createHallMenusTable = "CREATE TABLE " + TABLE_HALL_MENUS + " (" +
@@ -130,12 +236,17 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_MEAL_TIME + " TEXT, " +
                 COLUMN_STATION_NAME + " TEXT, " +
                 COLUMN_ITEM_NAME + " TEXT, " +
-                COLUMN_DATE_FETCHED + " INTEGER" +
+                COLUMN_DATE_FETCHED + " INTEGER, " +
+                COLUMN_ALLERGEN_MASK + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_MENU_ITEM_ID + " INTEGER" +
                 ")";
         db.execSQL(createDynamicMenusTable);
-
-        // Populate with sample data
-        populateSampleData(db);
+        createNutritionResolutionTable(db);
+        createMenuVersionTables(db);
+        createDateFetchedIndex(db);
+        createIndexes(db);
+        createSeedInfoTable(db, 0);
+        // The seed catalog is copied in by ensureSeedCatalog() once the database is open
     }
 
     @Override
@@ -152,93 +263,280 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
                     ")";
             db.execSQL(createDynamicMenusTable);
         }
+        if (oldVersion < 3) {
+            // Normalized allergen/diet bitmask in version 3
+            db.execSQL("ALTER TABLE " + TABLE_MENU_ITEMS + " ADD COLUMN " +
+                    COLUMN_ALLERGEN_MASK + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_DYNAMIC_MENUS + " ADD COLUMN " +
+                    COLUMN_ALLERGEN_MASK + " INTEGER NOT NULL DEFAULT 0");
+
+            Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_ALLERGENS +
+                    " FROM " + TABLE_MENU_ITEMS, null);
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_ALLERGEN_MASK, AllergenIndex.parseTags(cursor.getString(1)));
+                db.update(TABLE_MENU_ITEMS, values, COLUMN_ID + " = ?",
+                        new String[]{String.valueOf(cursor.getLong(0))});
+            }
+            cursor.close();
+
+            // Fetched items only get tags when they match a known item by name
+            db.execSQL("UPDATE " + TABLE_DYNAMIC_MENUS + " SET " + COLUMN_ALLERGEN_MASK + " = " +
+                    "COALESCE((SELECT mi." + COLUMN_ALLERGEN_MASK + " FROM " + TABLE_MENU_ITEMS + " mi" +
+                    " WHERE mi." + COLUMN_NAME + " = " + TABLE_DYNAMIC_MENUS + "." + COLUMN_ITEM_NAME +
+                    " COLLATE NOCASE LIMIT 1), 0)");
+        }
+        if (oldVersion < 4) {
+            createIndexes(db);
+        }
+        if (oldVersion < 5) {
+            // Fetched items linked to their nutrition record in version 5
+            db.execSQL("ALTER TABLE " + TABLE_DYNAMIC_MENUS + " ADD COLUMN " + COLUMN_MENU_ITEM_ID + " INTEGER");
+            createNutritionResolutionTable(db);
+        }
+        if (oldVersion < 6) {
+            // Scraped item details in version 6
+            db.execSQL("ALTER TABLE " + TABLE_MENU_ITEMS + " ADD COLUMN " + COLUMN_SOURCE_KEY + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_MENU_ITEMS + " ADD COLUMN " + COLUMN_FETCHED_AT + " INTEGER");
+            createSourceKeyIndex(db);
+        }
+        if (oldVersion < 7) {
+            // Compacted menu history in version 7 (its table is migrated away in version 8)
+            createDateFetchedIndex(db);
+        }
+        if (oldVersion < 8) {
+            // Content-addressed menu versions in version 8
+            createMenuVersionTables(db);
+            migrateMenuHistory(db);
+        }
+        if (oldVersion < 9) {
+            // Seed catalog versioning in version 9; older databases hold the version 1 catalog
+            createSeedInfoTable(db, 1);
+        }
     }
 
-    private void populateSampleData(SQLiteDatabase db) {
-        // Insert sample menu items
-        insertMenuItem(db, "Scrambled Eggs", "Fresh scrambled eggs with herbs", "Main", 155, 10.6, 13.6, 1.1, 0.0, 1.1, "Eggs", "Eggs, butter, milk, salt, pepper, herbs", "placeholder_eggs.jpg", 3.50);
-        insertMenuItem(db, "Pancakes", "Fluffy buttermilk pancakes", "Main", 227, 9.0, 6.0, 28.0, 1.4, 5.0, "Gluten, Eggs, Milk", "Flour, eggs, milk, butter, baking powder, sugar", "placeholder_pancakes.jpg", 4.25);
-        insertMenuItem(db, "Bacon", "Crispy bacon strips", "Protein", 43, 3.3, 3.0, 0.1, 0.0, 0.0, "None", "Pork belly, salt, sodium nitrite", "placeholder_bacon.jpg", 2.75);
-        insertMenuItem(db, "Fresh Fruit", "Seasonal fresh fruit selection", "Healthy", 62, 0.2, 0.9, 15.6, 2.4, 12.2, "None", "Mixed seasonal fruits", "placeholder_fruit.jpg", 2.50);
+    private void createDateFetchedIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_DYNAMIC_MENUS + "_" + COLUMN_DATE_FETCHED +
+                " ON " + TABLE_DYNAMIC_MENUS + "(" + COLUMN_DATE_FETCHED + ")");
+    }
 
-        insertMenuItem(db, "Grilled Chicken", "Herb-seasoned grilled chicken breast", "Main", 231, 5.0, 43.5, 0.0, 0.0, 0.0, "None", "Chicken breast, olive oil, herbs, spices", "placeholder_chicken.jpg", 6.75);
-        insertMenuItem(db, "Caesar Salad", "Crisp romaine with Caesar dressing", "Salad", 470, 40.0, 10.0, 15.0, 3.0, 4.0, "Eggs, Fish, Milk", "Romaine lettuce, parmesan, croutons, caesar dressing", "placeholder_salad.jpg", 5.25);
-        insertMenuItem(db, "Pizza", "Fresh made pizza with various toppings", "Main", 285, 10.4, 12.2, 35.6, 2.3, 3.8, "Gluten, Milk", "Pizza dough, tomato sauce, mozzarella, toppings", "placeholder_pizza.jpg", 4.50);
+    private void createMenuVersionTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MENU_VERSIONS + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_HASH + " TEXT NOT NULL UNIQUE, " +
+                COLUMN_ITEM_COUNT + " INTEGER NOT NULL" +
+                ")");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MENU_VERSION_ITEMS + " (" +
+                COLUMN_VERSION_ID + " INTEGER NOT NULL, " +
+                COLUMN_MEAL_TIME + " TEXT NOT NULL, " +
+                COLUMN_STATION_NAME + " TEXT NOT NULL, " +
+                COLUMN_ITEM_NAME + " TEXT NOT NULL, " +
+                "PRIMARY KEY (" + COLUMN_VERSION_ID + ", " + COLUMN_MEAL_TIME + ", " +
+                COLUMN_STATION_NAME + ", " + COLUMN_ITEM_NAME + ")" +
+                ") WITHOUT ROWID");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HALL_MENU_DAYS + " (" +
+                COLUMN_HALL_NAME + " TEXT NOT NULL, " +
+                COLUMN_MENU_DATE + " TEXT NOT NULL, " +
+                COLUMN_VERSION_ID + " INTEGER NOT NULL, " +
+                "PRIMARY KEY (" + COLUMN_HALL_NAME + ", " + COLUMN_MENU_DATE + ")" +
+                ") WITHOUT ROWID");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_HALL_MENU_DAYS + "_" + COLUMN_MENU_DATE +
+                " ON " + TABLE_HALL_MENU_DAYS + "(" + COLUMN_MENU_DATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_HALL_MENU_DAYS + "_" + COLUMN_VERSION_ID +
+                " ON " + TABLE_HALL_MENU_DAYS + "(" + COLUMN_VERSION_ID + ")");
+    }
 
-        insertMenuItem(db, "Grilled Salmon", "Atlantic salmon with lemon herbs", "Main", 231, 11.0, 31.0, 0.0, 0.0, 0.0, "Fish", "Salmon fillet, lemon, herbs, olive oil", "placeholder_salmon.jpg", 8.75);
-        insertMenuItem(db, "Beef Stir Fry", "Tender beef with mixed vegetables", "Main", 250, 12.0, 26.0, 8.0, 3.0, 5.0, "Soy", "Beef strips, mixed vegetables, soy sauce, garlic", "placeholder_stirfry.jpg", 7.25);
-        insertMenuItem(db, "Chocolate Cake", "Rich chocolate layer cake", "Dessert", 352, 14.0, 5.0, 56.0, 3.0, 45.0, "Gluten, Eggs, Milk", "Flour, cocoa, eggs, butter, sugar, milk", "placeholder_cake.jpg", 3.75);
+    /**
+     * Turns version 7 menu_history (item names per hall and date, without meal or station) into
+     * menu versions with an empty meal and station, then drops it
+     */
+    private void migrateMenuHistory(SQLiteDatabase db) {
+        Cursor exists = db.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{TABLE_MENU_HISTORY});
+        boolean hasHistory = exists.moveToFirst();
+        exists.close();
+        if (!hasHistory) {
+            return;
+        }
 
-        // Specialty items for specific halls
-        insertMenuItem(db, "Belgian Waffles", "Authentic Belgian waffles with syrup", "Specialty", 310, 12.0, 8.0, 44.0, 2.0, 15.0, "Gluten, Eggs, Milk", "Waffle batter, maple syrup", "placeholder_waffles.jpg", 5.50);
-        insertMenuItem(db, "Breakfast Burrito", "Eggs, cheese, and potato burrito", "Specialty", 380, 18.0, 16.0, 38.0, 4.0, 2.0, "Gluten, Eggs, Milk", "Tortilla, eggs, cheese, potatoes, peppers", "placeholder_burrito.jpg", 4.75);
-        insertMenuItem(db, "Sushi Bar", "Fresh sushi and sashimi selection", "Specialty", 200, 2.0, 20.0, 30.0, 1.0, 5.0, "Fish, Soy", "Sushi rice, nori, fresh fish, wasabi", "placeholder_sushi.jpg", 12.50);
-        insertMenuItem(db, "Taco Bar", "Build your own tacos", "Specialty", 320, 15.0, 18.0, 28.0, 5.0, 3.0, "Gluten, Milk", "Tortillas, meat, cheese, lettuce, tomatoes", "placeholder_tacos.jpg", 6.25);
+        Map<String, List<String[]>> days = new LinkedHashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_HALL_NAME + ", " + COLUMN_SERVED_DATE + ", " +
+                COLUMN_ITEM_NAME + " FROM " + TABLE_MENU_HISTORY, null);
+        while (cursor.moveToNext()) {
+            String day = cursor.getString(0) + '\n' + cursor.getString(1);
+            List<String[]> entries = days.get(day);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                days.put(day, entries);
+            }
+            entries.add(new String[]{"", "", cursor.getString(2)});
+        }
+        cursor.close();
 
-        // Now populate hall menus
-        populateHallMenus(db);
+        for (Map.Entry<String, List<String[]>> day : days.entrySet()) {
+            String[] key = day.getKey().split("\n", 2);
+            List<String[]> canonical = MenuVersionStore.canonicalize(day.getValue());
+            storeMenuDay(db, key[0], key[1], MenuVersionStore.hash(canonical), canonical);
+        }
+        db.execSQL("DROP TABLE " + TABLE_MENU_HISTORY);
     }
 
-    private void insertMenuItem(SQLiteDatabase db, String name, String description, String category,
-                               int calories, double fat, double protein, double carbs, double fiber,
-                               double sugar, String allergens, String ingredients, String imagePath, double price) {
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME, name);
-        values.put(COLUMN_DESCRIPTION, description);
-        values.put(COLUMN_CATEGORY, category);
-        values.put(COLUMN_CALORIES, calories);
-        values.put(COLUMN_FAT, fat);
-        values.put(COLUMN_PROTEIN, protein);
-        values.put(COLUMN_CARBS, carbs);
-        values.put(COLUMN_FIBER, fiber);
-        values.put(COLUMN_SUGAR, sugar);
-        values.put(COLUMN_ALLERGENS, allergens);
-        values.put(COLUMN_INGREDIENTS, ingredients);
-        values.put(COLUMN_IMAGE_PATH, imagePath);
-        values.put(COLUMN_PRICE, price);
-        db.insert(TABLE_MENU_ITEMS, null, values);
+    private void createSourceKeyIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_" + TABLE_MENU_ITEMS + "_" + COLUMN_SOURCE_KEY +
+                " ON " + TABLE_MENU_ITEMS + "(" + COLUMN_SOURCE_KEY + ")");
     }
 
-    private void populateHallMenus(SQLiteDatabase db) {
-        String[] halls = {"Snyder-Phillips", "Brody", "Case", "Owen", "Shaw", "Akers", "Landon"};
+    private void createNutritionResolutionTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NUTRITION_RESOLUTION + " (" +
+                COLUMN_NORMALIZED_NAME + " TEXT PRIMARY KEY, " +
+                COLUMN_MENU_ITEM_ID + " INTEGER, " +
+                COLUMN_SCORE + " REAL, " +
+                COLUMN_RESOLVED_AT + " INTEGER" +
+                ")");
+    }
 
-        // Breakfast items (IDs 1-4 + specialty items)
-        for (String hall : halls) {
-            insertHallMenu(db, hall, "Breakfast", 1); // Scrambled Eggs
-            insertHallMenu(db, hall, "Breakfast", 2); // Pancakes
-            insertHallMenu(db, hall, "Breakfast", 3); // Bacon
-            insertHallMenu(db, hall, "Breakfast", 4); // Fresh Fruit
+    /**
+     * Indexes for nutrition range queries and for joining fetched items to known items (v4)
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        String[] nutritionColumns = {COLUMN_CALORIES, COLUMN_FAT, COLUMN_PROTEIN, COLUMN_CARBS, COLUMN_FIBER, COLUMN_SUGAR};
+        for (String column : nutritionColumns) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_MENU_ITEMS + "_" + column +
+                    " ON " + TABLE_MENU_ITEMS + "(" + column + ")");
         }
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_MENU_ITEMS + "_name_nocase" +
+                " ON " + TABLE_MENU_ITEMS + "(" + COLUMN_NAME + " COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_" + TABLE_DYNAMIC_MENUS + "_hall_date" +
+                " ON " + TABLE_DYNAMIC_MENUS + "(" + COLUMN_HALL_NAME + ", " + COLUMN_DATE_FETCHED + ")");
+    }
 
-        // Specialty breakfast items
-        insertHallMenu(db, "Brody", "Breakfast", 11); // Belgian Waffles
-        insertHallMenu(db, "Case", "Breakfast", 12); // Breakfast Burrito
+    private void createSeedInfoTable(SQLiteDatabase db, int seedVersion) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SEED_INFO + " (" +
+                COLUMN_SEED_VERSION + " INTEGER NOT NULL)");
+        db.execSQL("DELETE FROM " + TABLE_SEED_INFO);
+        db.execSQL("INSERT INTO " + TABLE_SEED_INFO + " VALUES (" + seedVersion + ")");
+    }
 
-        // Lunch items (IDs 5-7 + specialty)
-        for (String hall : halls) {
-            insertHallMenu(db, hall, "Lunch", 5); // Grilled Chicken
-            insertHallMenu(db, hall, "Lunch", 6); // Caesar Salad
-            insertHallMenu(db, hall, "Lunch", 7); // Pizza
+    /**
+     * Copies the seed catalog into the database unless its current version is already there
+     */
+    private synchronized void ensureSeedCatalog(SQLiteDatabase db) {
+        if (seedChecked) {
+            return;
         }
+        try {
+            long applied = DatabaseUtils.longForQuery(db,
+                    "SELECT " + COLUMN_SEED_VERSION + " FROM " + TABLE_SEED_INFO, null);
+            if (applied != SEED_VERSION) {
+                activateSeedCatalog(db, applied);
+            }
+        } catch (Exception e) {
+            // Not retried in this process; the app still works on fetched menus
+            Log.e(TAG, "Error applying seed catalog", e);
+        }
+        seedChecked = true;
+    }
 
-        // Specialty lunch items
-        insertHallMenu(db, "Owen", "Lunch", 13); // Sushi Bar
-        insertHallMenu(db, "Shaw", "Lunch", 14); // Taco Bar
+    private void activateSeedCatalog(SQLiteDatabase db, long appliedVersion) throws IOException {
+        long start = System.currentTimeMillis();
+        File seedFile = copySeedAsset();
+        db.execSQL("ATTACH DATABASE ? AS " + SEED_SCHEMA, new Object[]{seedFile.getPath()});
+        try {
+            long assetVersion = DatabaseUtils.longForQuery(db, "PRAGMA " + SEED_SCHEMA + ".user_version", null);
+            if (assetVersion != SEED_VERSION) {
+                throw new IOException("Seed catalog asset has version " + assetVersion + ", expected " + SEED_VERSION);
+            }
 
-        // Dinner items (IDs 8-10)
-        for (String hall : halls) {
-            insertHallMenu(db, hall, "Dinner", 8); // Grilled Salmon
-            insertHallMenu(db, hall, "Dinner", 9); // Beef Stir Fry
-            insertHallMenu(db, hall, "Dinner", 10); // Chocolate Cake
+            String itemColumns = COLUMN_NAME + ", " + COLUMN_DESCRIPTION + ", " +
+                    COLUMN_CATEGORY + ", " + COLUMN_CALORIES + ", " + COLUMN_FAT + ", " + COLUMN_PROTEIN + ", " +
+                    COLUMN_CARBS + ", " + COLUMN_FIBER + ", " + COLUMN_SUGAR + ", " + COLUMN_ALLERGENS + ", " +
+                    COLUMN_INGREDIENTS + ", " + COLUMN_IMAGE_PATH + ", " + COLUMN_PRICE;
+            String seedItems = SEED_SCHEMA + "." + TABLE_MENU_ITEMS;
+            String seedSourceKey = "'" + SEED_KEY_PREFIX + "' || " + COLUMN_SEED_KEY;
+
+            db.beginTransaction();
+            try {
+                if (appliedVersion > 0) {
+                    // Catalogs before seed keys were copied with the key as row id and no source_key
+                    db.execSQL("UPDATE " + TABLE_MENU_ITEMS + " SET " + COLUMN_SOURCE_KEY + " = '" +
+                            SEED_KEY_PREFIX + "' || " + COLUMN_ID +
+                            " WHERE " + COLUMN_SOURCE_KEY + " IS NULL AND EXISTS (SELECT 1 FROM " + seedItems + " s" +
+                            " WHERE s." + COLUMN_SEED_KEY + " = " + TABLE_MENU_ITEMS + "." + COLUMN_ID +
+                            " AND s." + COLUMN_NAME + " = " + TABLE_MENU_ITEMS + "." + COLUMN_NAME + ")");
+                }
+
+                // Seed items keep their row across catalog versions, so changed items are
+                // updated in place and references to them stay valid; new ones get fresh ids
+                db.execSQL("UPDATE " + TABLE_MENU_ITEMS + " SET (" + itemColumns + ") =" +
+                        " (SELECT " + itemColumns + " FROM " + seedItems + " s" +
+                        " WHERE " + TABLE_MENU_ITEMS + "." + COLUMN_SOURCE_KEY + " = '" + SEED_KEY_PREFIX +
+                        "' || s." + COLUMN_SEED_KEY + ")" +
+                        " WHERE " + COLUMN_SOURCE_KEY + " IN (SELECT " + seedSourceKey + " FROM " + seedItems + ")");
+                db.execSQL("INSERT INTO " + TABLE_MENU_ITEMS + " (" + itemColumns + ", " + COLUMN_SOURCE_KEY + ")" +
+                        " SELECT " + itemColumns + ", " + seedSourceKey + " FROM " + seedItems +
+                        " WHERE " + seedSourceKey + " NOT IN (SELECT " + COLUMN_SOURCE_KEY + " FROM " +
+                        TABLE_MENU_ITEMS + " WHERE " + COLUMN_SOURCE_KEY + " IS NOT NULL)");
+                updateSeedAllergenMasks(db);
+
+                db.execSQL("DELETE FROM " + TABLE_HALL_MENUS);
+                db.execSQL("INSERT INTO " + TABLE_HALL_MENUS + " (" + COLUMN_HALL_NAME + ", " + COLUMN_MEAL_TIME +
+                        ", " + COLUMN_MENU_ITEM_ID + ")" +
+                        " SELECT h." + COLUMN_HALL_NAME + ", h." + COLUMN_MEAL_TIME + ", mi." + COLUMN_ID +
+                        " FROM " + SEED_SCHEMA + "." + TABLE_HALL_MENUS + " h" +
+                        " INNER JOIN " + TABLE_MENU_ITEMS + " mi ON mi." + COLUMN_SOURCE_KEY + " = '" +
+                        SEED_KEY_PREFIX + "' || h." + COLUMN_ITEM_SEED_KEY);
+
+                if (appliedVersion > 0) {
+                    // Name matches against the previous catalog may no longer hold
+                    db.execSQL("DELETE FROM " + TABLE_NUTRITION_RESOLUTION);
+                }
+                db.execSQL("UPDATE " + TABLE_SEED_INFO + " SET " + COLUMN_SEED_VERSION + " = " + SEED_VERSION);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("DETACH DATABASE " + SEED_SCHEMA);
+            seedFile.delete();
+        }
+        Log.d(TAG, "Applied seed catalog version " + SEED_VERSION + " (was " + appliedVersion + ") in " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Derives allergen_mask for the seed items; the asset only carries the allergen text
+     */
+    private void updateSeedAllergenMasks(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_MENU_ITEMS +
+                " SET " + COLUMN_ALLERGEN_MASK + " = ? WHERE " + COLUMN_SOURCE_KEY + " = ?");
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_SEED_KEY + ", " + COLUMN_ALLERGENS +
+                " FROM " + SEED_SCHEMA + "." + TABLE_MENU_ITEMS, null);
+        try {
+            while (cursor.moveToNext()) {
+                update.bindLong(1, AllergenIndex.parseTags(cursor.getString(1)));
+                update.bindString(2, SEED_KEY_PREFIX + cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
         }
     }
 
-    private void insertHallMenu(SQLiteDatabase db, String hallName, String mealTime, int menuItemId) {
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_HALL_NAME, hallName);
-        values.put(COLUMN_MEAL_TIME, mealTime);
-        values.put(COLUMN_MENU_ITEM_ID, menuItemId);
-        db.insert(TABLE_HALL_MENUS, null, values);
+    /**
+     * ATTACH needs a file, so the asset is copied to the cache directory first
+     */
+    private File copySeedAsset() throws IOException {
+        File file = new File(context.getCacheDir(), SEED_ASSET);
+        try (InputStream in = context.getAssets().open(SEED_ASSET);
+             OutputStream out = new FileOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return file;
     }
 
     public List<MenuItem> getMenuItemsForHall(String hallName, String mealTime) {
@@ -273,70 +571,585 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
         Cursor cursor = db.rawQuery(query, new String[]{itemName});
 
         if (cursor.moveToFirst()) {
-            item = new MenuItemDetailed(
+            item = readMenuItemDetails(cursor);
+        }
+
+        cursor.close();
+        return item;
+    }
+
+    /**
+     * Every menu item with its nutrition, in one query (used to fill NutritionEnricher's cache)
+     */
+    public List<MenuItemDetailed> getAllMenuItemDetails() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<MenuItemDetailed> items = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_MENU_ITEMS + " ORDER BY " + COLUMN_ID, null);
+        while (cursor.moveToNext()) {
+            items.add(readMenuItemDetails(cursor));
+        }
+        cursor.close();
+        return items;
+    }
+
+    private static MenuItemDetailed readMenuItemDetails(Cursor cursor) {
+        MenuItemDetailed item = new MenuItemDetailed(
                 cursor.getInt(0),      // id
                 cursor.getString(1),   // name
                 cursor.getString(2),   // description
                 cursor.getString(3),   // category
                 cursor.getInt(4),      // calories
-                cursor.getDouble(5),   // fat
-                cursor.getDouble(6),   // protein
-                cursor.getDouble(7),   // carbs
-                cursor.getDouble(8),   // fiber
-                cursor.getDouble(9),   // sugar
+                readNutrient(cursor, 5),   // fat
+                readNutrient(cursor, 6),   // protein
+                readNutrient(cursor, 7),   // carbs
+                readNutrient(cursor, 8),   // fiber
+                readNutrient(cursor, 9),   // sugar
                 cursor.getString(10),  // allergens
                 cursor.getString(11),  // ingredients
                 cursor.getString(12),  // imagePath
                 cursor.getDouble(13)   // price
-            );
-        }
-
-        cursor.close();
+        );
+        item.setAllergenMask(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ALLERGEN_MASK)));
         return item;
     }
 
-    public void updateDynamicMenu(String hallName, MSUMenuScraper.MenuResult menuResult) {
+    /**
+     * Brings today's stored menu of the hall up to date with a fetched one. Only the difference
+     * is written: added items are inserted, removed ones deleted, and items that switched
+     * stations keep their row (with its nutrition link) under the new station. An unchanged
+     * menu writes nothing.
+     *
+     * @return The item-level changes, empty if the menu is unchanged or the fetch failed
+     */
+    public List<MenuDiff.Change> updateDynamicMenu(String hallName, MSUMenuScraper.MenuResult menuResult) {
         if (!menuResult.success || menuResult.stations == null) {
-            return;
+            return new ArrayList<>();
         }
 
         SQLiteDatabase db = this.getWritableDatabase();
+        MenuDiff diff = MenuDiff.compute(getStoredMenuRows(db, hallName), menuResult);
+        if (diff.isEmpty()) {
+            return new ArrayList<>();
+        }
+
         db.beginTransaction();
         try {
-            String deleteQuery = "DELETE FROM " + TABLE_DYNAMIC_MENUS +
-                               " WHERE " + COLUMN_HALL_NAME + " = ? AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')";
-            db.execSQL(deleteQuery, new String[]{hallName});
-
             long currentTime = System.currentTimeMillis();
-
-            for (MSUMenuScraper.Station station : menuResult.stations) {
-                for (MSUMenuScraper.Meal meal : station.meals) {
-                    for (String item : meal.items) {
+            for (MenuDiff.Change change : diff.getChanges()) {
+                switch (change.type) {
+                    case ADDED: {
                         ContentValues values = new ContentValues();
                         values.put(COLUMN_HALL_NAME, hallName);
-                        values.put(COLUMN_MEAL_TIME, meal.mealName);
-                        values.put(COLUMN_STATION_NAME, station.stationName);
-                        values.put(COLUMN_ITEM_NAME, item);
+                        values.put(COLUMN_MEAL_TIME, change.mealTime);
+                        values.put(COLUMN_STATION_NAME, change.stationName);
+                        values.put(COLUMN_ITEM_NAME, change.itemName);
                         values.put(COLUMN_DATE_FETCHED, currentTime);
+                        // Tags scraped with the item win; NutritionEnricher fills the rest
+                        values.put(COLUMN_ALLERGEN_MASK, AllergenIndex.parseTags(change.tags));
                         db.insert(TABLE_DYNAMIC_MENUS, null, values);
+                        break;
                     }
+                    case MOVED: {
+                        ContentValues values = new ContentValues();
+                        values.put(COLUMN_STATION_NAME, change.stationName);
+                        db.update(TABLE_DYNAMIC_MENUS, values, COLUMN_ID + " = ?",
+                                new String[]{String.valueOf(change.rowId)});
+                        break;
+                    }
+                    case REMOVED:
+                        db.delete(TABLE_DYNAMIC_MENUS, COLUMN_ID + " = ?", new String[]{String.valueOf(change.rowId)});
+                        break;
                 }
             }
+            for (long rowId : diff.getRedundantRowIds()) {
+                db.delete(TABLE_DYNAMIC_MENUS, COLUMN_ID + " = ?", new String[]{String.valueOf(rowId)});
+            }
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
+        return new ArrayList<>(diff.getChanges());
+    }
+
+    private List<MenuDiff.StoredRow> getStoredMenuRows(SQLiteDatabase db, String hallName) {
+        List<MenuDiff.StoredRow> rows = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_MEAL_TIME + ", " + COLUMN_STATION_NAME +
+                ", " + COLUMN_ITEM_NAME + " FROM " + TABLE_DYNAMIC_MENUS +
+                " WHERE " + COLUMN_HALL_NAME + " = ? AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')" +
+                " ORDER BY " + COLUMN_ID, new String[]{hallName});
+        while (cursor.moveToNext()) {
+            rows.add(new MenuDiff.StoredRow(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3)));
+        }
+        cursor.close();
+        return rows;
+    }
+
+    /**
+     * @return Meal, station, item of every fetched menu row older than the cutoff, keyed by
+     *         "hall\ndate" with the UTC date the row was fetched on
+     */
+    public Map<String, List<String[]>> getMenuRowsBefore(long cutoffMs) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<String, List<String[]>> days = new LinkedHashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_HALL_NAME + ", date(" + COLUMN_DATE_FETCHED +
+                "/1000, 'unixepoch'), IFNULL(" + COLUMN_MEAL_TIME + ", ''), IFNULL(" + COLUMN_STATION_NAME + ", ''), " +
+                "IFNULL(" + COLUMN_ITEM_NAME + ", '')" +
+                " FROM " + TABLE_DYNAMIC_MENUS + " WHERE " + COLUMN_DATE_FETCHED + " < ?",
+                new String[]{String.valueOf(cutoffMs)});
+        while (cursor.moveToNext()) {
+            String day = cursor.getString(0) + '\n' + cursor.getString(1);
+            List<String[]> entries = days.get(day);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                days.put(day, entries);
+            }
+            entries.add(new String[]{cursor.getString(2), cursor.getString(3), cursor.getString(4)});
+        }
+        cursor.close();
+        return days;
+    }
+
+    /**
+     * @return Number of fetched menu rows older than the cutoff that were deleted
+     */
+    public int deleteMenuRowsBefore(long cutoffMs) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        return db.delete(TABLE_DYNAMIC_MENUS, COLUMN_DATE_FETCHED + " < ?", new String[]{String.valueOf(cutoffMs)});
+    }
+
+    /**
+     * @return Id of the menu version the hall served on the date, or -1 if none is stored
+     */
+    public long getMenuDayVersion(String hallName, String menuDate) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_VERSION_ID + " FROM " + TABLE_HALL_MENU_DAYS +
+                " WHERE " + COLUMN_HALL_NAME + " = ? AND " + COLUMN_MENU_DATE + " = ?",
+                new String[]{hallName, menuDate});
+        long id = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        cursor.close();
+        return id;
+    }
+
+    /**
+     * @return Hash of the menu version, or null if it does not exist
+     */
+    public String getMenuVersionHash(long versionId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_HASH + " FROM " + TABLE_MENU_VERSIONS +
+                " WHERE " + COLUMN_ID + " = ?", new String[]{String.valueOf(versionId)});
+        String hash = cursor.moveToFirst() ? cursor.getString(0) : null;
+        cursor.close();
+        return hash;
+    }
+
+    /**
+     * @return Meal, station, item entries of the menu version in canonical order
+     */
+    public List<String[]> readMenuVersionEntries(long versionId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<String[]> entries = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_MEAL_TIME + ", " + COLUMN_STATION_NAME + ", " +
+                COLUMN_ITEM_NAME + " FROM " + TABLE_MENU_VERSION_ITEMS + " WHERE " + COLUMN_VERSION_ID + " = ?" +
+                " ORDER BY " + COLUMN_MEAL_TIME + ", " + COLUMN_STATION_NAME + ", " + COLUMN_ITEM_NAME,
+                new String[]{String.valueOf(versionId)});
+        while (cursor.moveToNext()) {
+            entries.add(new String[]{cursor.getString(0), cursor.getString(1), cursor.getString(2)});
+        }
+        cursor.close();
+        return entries;
+    }
+
+    /**
+     * Points the hall's date at the version with the given hash, storing the canonical entries
+     * as a new version only if no menu with that hash exists yet
+     *
+     * @return Id of the version
+     */
+    public long storeMenuDay(String hallName, String menuDate, String hash, List<String[]> canonical) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long id = storeMenuDay(db, hallName, menuDate, hash, canonical);
+            db.setTransactionSuccessful();
+            return id;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private long storeMenuDay(SQLiteDatabase db, String hallName, String menuDate, String hash, List<String[]> canonical) {
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + " FROM " + TABLE_MENU_VERSIONS +
+                " WHERE " + COLUMN_HASH + " = ?", new String[]{hash});
+        long id = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        cursor.close();
+
+        if (id < 0) {
+            ContentValues version = new ContentValues();
+            version.put(COLUMN_HASH, hash);
+            version.put(COLUMN_ITEM_COUNT, canonical.size());
+            id = db.insertOrThrow(TABLE_MENU_VERSIONS, null, version);
+            for (String[] entry : canonical) {
+                ContentValues item = new ContentValues();
+                item.put(COLUMN_VERSION_ID, id);
+                item.put(COLUMN_MEAL_TIME, entry[0]);
+                item.put(COLUMN_STATION_NAME, entry[1]);
+                item.put(COLUMN_ITEM_NAME, entry[2]);
+                db.insertWithOnConflict(TABLE_MENU_VERSION_ITEMS, null, item, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+        }
+
+        ContentValues day = new ContentValues();
+        day.put(COLUMN_HALL_NAME, hallName);
+        day.put(COLUMN_MENU_DATE, menuDate);
+        day.put(COLUMN_VERSION_ID, id);
+        db.insertWithOnConflict(TABLE_HALL_MENU_DAYS, null, day, SQLiteDatabase.CONFLICT_REPLACE);
+        return id;
+    }
+
+    /**
+     * Deletes the menus of dates before the given date (yyyy-MM-dd) and the versions no longer
+     * served on any remaining date
+     *
+     * @return Number of hall menu days removed
+     */
+    public int pruneMenuDays(String beforeDate) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int deleted = db.delete(TABLE_HALL_MENU_DAYS, COLUMN_MENU_DATE + " < ?", new String[]{beforeDate});
+            if (deleted > 0) {
+                String unreferenced = " NOT IN (SELECT " + COLUMN_VERSION_ID + " FROM " + TABLE_HALL_MENU_DAYS + ")";
+                db.delete(TABLE_MENU_VERSION_ITEMS, COLUMN_VERSION_ID + unreferenced, null);
+                db.delete(TABLE_MENU_VERSIONS, COLUMN_ID + unreferenced, null);
+            }
+            db.setTransactionSuccessful();
+            return deleted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @return The oldest date with a stored menu version, or null if there is none
+     */
+    public String getOldestMenuDayDate() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT MIN(" + COLUMN_MENU_DATE + ") FROM " + TABLE_HALL_MENU_DAYS, null);
+        String oldest = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getString(0) : null;
+        cursor.close();
+        return oldest;
+    }
+
+    /**
+     * @return Size of the database file in bytes (excluding the write-ahead log)
+     */
+    public long getDatabaseSizeBytes() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return pragmaLong(db, "page_count") * pragmaLong(db, "page_size");
+    }
+
+    /**
+     * Returns free pages to the file system and refreshes the query planner statistics.
+     * A database created before incremental auto-vacuum was enabled is converted once with a
+     * full VACUUM.
+     */
+    public void reclaimFreePages() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        if (pragmaLong(db, "auto_vacuum") != 2) {
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        }
+        // These pragmas return rows; the work is done while stepping through them
+        drain(db.rawQuery("PRAGMA incremental_vacuum", null));
+        drain(db.rawQuery("PRAGMA optimize", null));
+    }
+
+    private static long pragmaLong(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        long value = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return value;
+    }
+
+    private static void drain(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            // Nothing to read
+        }
+        cursor.close();
+    }
+
+    /**
+     * Detail key -> fetch time of every scraped item (see ItemDetailFetcher)
+     */
+    public Map<String, Long> getItemDetailFetchTimes() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<String, Long> times = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_SOURCE_KEY + ", " + COLUMN_FETCHED_AT +
+                " FROM " + TABLE_MENU_ITEMS + " WHERE " + COLUMN_FETCHED_AT + " IS NOT NULL", null);
+        while (cursor.moveToNext()) {
+            times.put(cursor.getString(0), cursor.getLong(1));
+        }
+        cursor.close();
+        return times;
+    }
+
+    /**
+     * Inserts scraped item details, or refreshes the row already stored under the same key
+     *
+     * @param items Detail key -> scraped details
+     */
+    public void upsertFetchedItems(Map<String, MenuItemDetailed> items, long fetchedAt) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, MenuItemDetailed> entry : items.entrySet()) {
+                MenuItemDetailed item = entry.getValue();
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NAME, item.getName());
+                values.put(COLUMN_DESCRIPTION, item.getDescription());
+                values.put(COLUMN_CATEGORY, item.getCategory());
+                values.put(COLUMN_CALORIES, item.getCalories());
+                putNutrient(values, COLUMN_FAT, item.getFat());
+                putNutrient(values, COLUMN_PROTEIN, item.getProtein());
+                putNutrient(values, COLUMN_CARBS, item.getCarbs());
+                putNutrient(values, COLUMN_FIBER, item.getFiber());
+                putNutrient(values, COLUMN_SUGAR, item.getSugar());
+                values.put(COLUMN_ALLERGENS, item.getAllergens());
+                values.put(COLUMN_INGREDIENTS, item.getIngredients());
+                values.put(COLUMN_IMAGE_PATH, item.getImagePath());
+                values.put(COLUMN_PRICE, item.getPrice());
+                values.put(COLUMN_ALLERGEN_MASK, item.getAllergenMask());
+                values.put(COLUMN_SOURCE_KEY, entry.getKey());
+                values.put(COLUMN_FETCHED_AT, fetchedAt);
+                int updated = db.update(TABLE_MENU_ITEMS, values, COLUMN_SOURCE_KEY + " = ?",
+                        new String[]{entry.getKey()});
+                if (updated == 0) {
+                    db.insert(TABLE_MENU_ITEMS, null, values);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Forgets cached misses and fuzzy matches so they are resolved again against a changed catalog
+     */
+    public void clearWeakNutritionResolutions() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_NUTRITION_RESOLUTION, COLUMN_MENU_ITEM_ID + " IS NULL OR " + COLUMN_SCORE + " < 1", null);
+    }
+
+    /**
+     * Distinct item names of the hall's menu fetched today that are not linked to a nutrition record
+     */
+    public List<String> getUnlinkedItemNamesForToday(String hallName) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<String> names = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_ITEM_NAME + " FROM " + TABLE_DYNAMIC_MENUS +
+                " WHERE " + COLUMN_HALL_NAME + " = ? AND " + COLUMN_MENU_ITEM_ID + " IS NULL" +
+                " AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')", new String[]{hallName});
+        while (cursor.moveToNext()) {
+            names.add(cursor.getString(0));
+        }
+        cursor.close();
+        return names;
+    }
+
+    /**
+     * Cached resolutions for the given normalized names; names never resolved are absent
+     */
+    public Map<String, NutritionEnricher.Resolution> getNutritionResolutions(Set<String> normalizedNames) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<String, NutritionEnricher.Resolution> resolutions = new HashMap<>();
+        List<String> names = new ArrayList<>(normalizedNames);
+        for (int from = 0; from < names.size(); from += MAX_SQL_PARAMS) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + MAX_SQL_PARAMS));
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            Cursor cursor = db.rawQuery("SELECT " + COLUMN_NORMALIZED_NAME + ", " + COLUMN_MENU_ITEM_ID +
+                    ", " + COLUMN_SCORE + ", " + COLUMN_RESOLVED_AT + " FROM " + TABLE_NUTRITION_RESOLUTION +
+                    " WHERE " + COLUMN_NORMALIZED_NAME + " IN (" + placeholders + ")", chunk.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                long menuItemId = cursor.isNull(1) ? -1 : cursor.getLong(1);
+                resolutions.put(cursor.getString(0), new NutritionEnricher.Resolution(
+                        cursor.getString(0), menuItemId, cursor.getFloat(2), cursor.getLong(3)));
+            }
+            cursor.close();
+        }
+        return resolutions;
+    }
+
+    /**
+     * Stores new resolutions and links today's rows of the hall to their nutrition record in one
+     * transaction. Rows without scraped tags take the allergen mask of the linked record.
+     *
+     * @param fresh Resolutions to insert or replace in the cache
+     * @param idsByName Scraped item name -> menu_items id
+     */
+    public void applyNutritionResolutions(String hallName, List<NutritionEnricher.Resolution> fresh,
+                                          Map<String, Long> idsByName) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (NutritionEnricher.Resolution resolution : fresh) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NORMALIZED_NAME, resolution.normalizedName);
+                if (resolution.menuItemId >= 0) {
+                    values.put(COLUMN_MENU_ITEM_ID, resolution.menuItemId);
+                } else {
+                    values.putNull(COLUMN_MENU_ITEM_ID);
+                }
+                values.put(COLUMN_SCORE, resolution.score);
+                values.put(COLUMN_RESOLVED_AT, resolution.resolvedAtMs);
+                db.insertWithOnConflict(TABLE_NUTRITION_RESOLUTION, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            String linkQuery = "UPDATE " + TABLE_DYNAMIC_MENUS + " SET " + COLUMN_MENU_ITEM_ID + " = ?, " +
+                    COLUMN_ALLERGEN_MASK + " = CASE WHEN " + COLUMN_ALLERGEN_MASK + " = 0 THEN" +
+                    " COALESCE((SELECT " + COLUMN_ALLERGEN_MASK + " FROM " + TABLE_MENU_ITEMS +
+                    " WHERE " + COLUMN_ID + " = ?), 0) ELSE " + COLUMN_ALLERGEN_MASK + " END" +
+                    " WHERE " + COLUMN_HALL_NAME + " = ? AND " + COLUMN_ITEM_NAME + " = ?" +
+                    " AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')";
+            for (Map.Entry<String, Long> entry : idsByName.entrySet()) {
+                db.execSQL(linkQuery, new Object[]{entry.getValue(), entry.getValue(), hallName, entry.getKey()});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Today's fetched item names that are linked to a nutrition record, with the record's id
+     */
+    public Map<String, Long> getResolvedDynamicItems() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<String, Long> ids = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_ITEM_NAME + ", " + COLUMN_MENU_ITEM_ID +
+                " FROM " + TABLE_DYNAMIC_MENUS + " WHERE " + COLUMN_MENU_ITEM_ID + " IS NOT NULL" +
+                " AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')", null);
+        while (cursor.moveToNext()) {
+            ids.put(cursor.getString(0), cursor.getLong(1));
+        }
+        cursor.close();
+        return ids;
+    }
+
+    /**
+     * Streams every menu row with its allergen mask into the sink: fetched menus of the last
+     * 'days' days (dated by their UTC fetch date) and the built-in sample menus
+     * (dated AllergenIndex.SAMPLE_DATE)
+     */
+    public void readAllergenMasks(int days, AllergenIndex.RowSink sink) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long since = System.currentTimeMillis() - days * 24L * 60 * 60 * 1000;
+
+        String dynamicQuery = "SELECT " + COLUMN_HALL_NAME + ", date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch')" +
+                ", " + COLUMN_MEAL_TIME + ", " + COLUMN_STATION_NAME + ", " + COLUMN_ITEM_NAME + ", " + COLUMN_ALLERGEN_MASK +
+                " FROM " + TABLE_DYNAMIC_MENUS +
+                " WHERE " + COLUMN_DATE_FETCHED + " >= ?" +
+                " ORDER BY " + COLUMN_STATION_NAME + ", " + COLUMN_ITEM_NAME;
+        Cursor cursor = db.rawQuery(dynamicQuery, new String[]{String.valueOf(since)});
+        while (cursor.moveToNext()) {
+            sink.add(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3), cursor.getString(4), cursor.getInt(5));
+        }
+        cursor.close();
+
+        String sampleQuery = "SELECT hm." + COLUMN_HALL_NAME + ", hm." + COLUMN_MEAL_TIME +
+                ", mi." + COLUMN_CATEGORY + ", mi." + COLUMN_NAME + ", mi." + COLUMN_ALLERGEN_MASK +
+                " FROM " + TABLE_MENU_ITEMS + " mi " +
+                "INNER JOIN " + TABLE_HALL_MENUS + " hm ON mi." + COLUMN_ID + " = hm." + COLUMN_MENU_ITEM_ID;
+        cursor = db.rawQuery(sampleQuery, null);
+        while (cursor.moveToNext()) {
+            sink.add(cursor.getString(0), AllergenIndex.SAMPLE_DATE, cursor.getString(1),
+                    cursor.getString(2), cursor.getString(3), cursor.getInt(4));
+        }
+        cursor.close();
+    }
+
+    /**
+     * Streams the nutrition of every hall's current menu into the sink: today's fetched menu
+     * where there is one (items linked to their nutrition record by NutritionEnricher), the sample menu otherwise.
+     * Values are passed in NutritionIndex.Nutrient order.
+     */
+    public void readCurrentNutrition(NutritionIndex.RowSink sink) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String nutritionColumns = "mi." + COLUMN_CALORIES + ", mi." + COLUMN_FAT + ", mi." + COLUMN_PROTEIN +
+                ", mi." + COLUMN_CARBS + ", mi." + COLUMN_FIBER + ", mi." + COLUMN_SUGAR;
+
+        Set<String> hallsWithMenu = new HashSet<>();
+        String dynamicQuery = "SELECT d." + COLUMN_HALL_NAME + ", d." + COLUMN_MEAL_TIME + ", d." + COLUMN_STATION_NAME +
+                ", d." + COLUMN_ITEM_NAME + ", " + nutritionColumns +
+                " FROM " + TABLE_DYNAMIC_MENUS + " d" +
+                " INNER JOIN " + TABLE_MENU_ITEMS + " mi ON mi." + COLUMN_ID + " = d." + COLUMN_MENU_ITEM_ID +
+                " WHERE date(d." + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')";
+        Cursor cursor = db.rawQuery(dynamicQuery, null);
+        while (cursor.moveToNext()) {
+            hallsWithMenu.add(cursor.getString(0));
+            sink.add(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                    readNutrition(cursor, 4));
+        }
+        cursor.close();
+
+        // A fetched menu with no known items still replaces the sample menu
+        cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_HALL_NAME + " FROM " + TABLE_DYNAMIC_MENUS +
+                " WHERE date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')", null);
+        while (cursor.moveToNext()) {
+            hallsWithMenu.add(cursor.getString(0));
+        }
+        cursor.close();
+
+        String sampleQuery = "SELECT hm." + COLUMN_HALL_NAME + ", hm." + COLUMN_MEAL_TIME + ", mi." + COLUMN_CATEGORY +
+                ", mi." + COLUMN_NAME + ", " + nutritionColumns +
+                " FROM " + TABLE_MENU_ITEMS + " mi " +
+                "INNER JOIN " + TABLE_HALL_MENUS + " hm ON mi." + COLUMN_ID + " = hm." + COLUMN_MENU_ITEM_ID;
+        cursor = db.rawQuery(sampleQuery, null);
+        while (cursor.moveToNext()) {
+            if (!hallsWithMenu.contains(cursor.getString(0))) {
+                sink.add(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                        readNutrition(cursor, 4));
+            }
+        }
+        cursor.close();
+    }
+
+    private static float[] readNutrition(Cursor cursor, int firstColumn) {
+        float[] values = new float[6];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) readNutrient(cursor, firstColumn + i);
+        }
+        return values;
+    }
+
+    // Unknown nutrients are stored as NULL and read as NaN, never as 0
+    private static double readNutrient(Cursor cursor, int column) {
+        return cursor.isNull(column) ? Double.NaN : cursor.getDouble(column);
+    }
+
+    private static void putNutrient(ContentValues values, String column, double value) {
+        if (Double.isNaN(value)) {
+            values.putNull(column);
+        } else {
+            values.put(column, value);
+        }
     }
 
     public List<MenuItem> getDynamicMenuItemsForHall(String hallName, String mealTime) {
         List<MenuItem> menuItems = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
-        String query = "SELECT DISTINCT " + COLUMN_ITEM_NAME + ", " + COLUMN_STATION_NAME +
-                      " FROM " + TABLE_DYNAMIC_MENUS +
-                      " WHERE " + COLUMN_HALL_NAME + " = ? AND " + COLUMN_MEAL_TIME + " = ?" +
-                      " AND date(" + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')" +
-                      " ORDER BY " + COLUMN_STATION_NAME + ", " + COLUMN_ITEM_NAME;
+        String query = "SELECT DISTINCT d." + COLUMN_ITEM_NAME + ", d." + COLUMN_STATION_NAME + ", mi." + COLUMN_CALORIES +
+                      " FROM " + TABLE_DYNAMIC_MENUS + " d" +
+                      " LEFT JOIN " + TABLE_MENU_ITEMS + " mi ON mi." + COLUMN_ID + " = d." + COLUMN_MENU_ITEM_ID +
+                      " WHERE d." + COLUMN_HALL_NAME + " = ? AND d." + COLUMN_MEAL_TIME + " = ?" +
+                      " AND date(d." + COLUMN_DATE_FETCHED + "/1000, 'unixepoch') = date('now')" +
+                      " ORDER BY d." + COLUMN_STATION_NAME + ", d." + COLUMN_ITEM_NAME;
 
         Cursor cursor = db.rawQuery(query, new String[]{hallName, mealTime});
 
@@ -344,7 +1157,11 @@ public class MenuDatabaseHelper extends SQLiteOpenHelper {
             do {
                 String name = cursor.getString(0);
                 String station = cursor.getString(1);
-                menuItems.add(new MenuItem(name, "Fresh from " + station, station));
+                String description = "Fresh from " + station;
+                if (!cursor.isNull(2)) {
+                    description += " - " + cursor.getInt(2) + " cal";
+                }
+                menuItems.add(new MenuItem(name, description, station));
             } while (cursor.moveToNext());
         }
 
@@ -0,0 +1,175 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MenuDiff - Difference between a hall's stored menu for today and a freshly scraped one
+ *
+ * An item is identified by its meal and name; its station is what may change. For every item:
+ * - Stations only in the new menu are ADDED, stations only in the stored menu are REMOVED
+ * - A removed and an added station of the same item pair up into one MOVED change, so an item
+ *   that switched stations keeps its stored row (and its nutrition link)
+ *
+ * Stored rows that repeat a (meal, item, station) are reported separately as redundant; they
+ * are deleted without an event.
+ */
+public final class MenuDiff {
+
+    public enum Type {
+        ADDED, REMOVED, MOVED
+    }
+
+    /**
+     * One item-level change of a hall's menu
+     */
+    public static final class Change {
+        public final Type type;
+        public final String mealTime;
+        public final String itemName;
+        // Station the item is at now (the one it left for REMOVED)
+        public final String stationName;
+        // Station the item left, only for MOVED
+        public final String previousStation;
+        // Stored row affected by REMOVED and MOVED; -1 for ADDED
+        final long rowId;
+        // Scraped allergen/diet tags of ADDED items
+        final String tags;
+
+        Change(Type type, String mealTime, String itemName, String stationName, String previousStation,
+               long rowId, String tags) {
+            this.type = type;
+            this.mealTime = mealTime;
+            this.itemName = itemName;
+            this.stationName = stationName;
+            this.previousStation = previousStation;
+            this.rowId = rowId;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * One row of the stored menu
+     */
+    public static final class StoredRow {
+        final long id;
+        final String mealTime;
+        final String stationName;
+        final String itemName;
+
+        public StoredRow(long id, String mealTime, String stationName, String itemName) {
+            this.id = id;
+            this.mealTime = mealTime;
+            this.stationName = stationName;
+            this.itemName = itemName;
+        }
+    }
+
+    private final List<Change> changes;
+    private final List<Long> redundantRowIds;
+
+    private MenuDiff(List<Change> changes, List<Long> redundantRowIds) {
+        this.changes = changes;
+        this.redundantRowIds = redundantRowIds;
+    }
+
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    List<Long> getRedundantRowIds() {
+        return redundantRowIds;
+    }
+
+    /**
+     * @return True if writing the new menu would not change the stored rows
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty() && redundantRowIds.isEmpty();
+    }
+
+    public static MenuDiff compute(List<StoredRow> stored, MSUMenuScraper.MenuResult result) {
+        // (meal, item) -> station -> stored row id / scraped tags, in menu order
+        Map<String, Map<String, Long>> before = new LinkedHashMap<>();
+        Map<String, String[]> names = new LinkedHashMap<>();
+        List<Long> redundant = new ArrayList<>();
+        for (StoredRow row : stored) {
+            String key = key(row.mealTime, row.itemName);
+            names.put(key, new String[]{row.mealTime, row.itemName});
+            Map<String, Long> stations = before.get(key);
+            if (stations == null) {
+                stations = new LinkedHashMap<>();
+                before.put(key, stations);
+            }
+            if (stations.containsKey(row.stationName)) {
+                redundant.add(row.id);
+            } else {
+                stations.put(row.stationName, row.id);
+            }
+        }
+
+        Map<String, Map<String, String>> after = new LinkedHashMap<>();
+        if (result != null && result.stations != null) {
+            for (MSUMenuScraper.Station station : result.stations) {
+                for (MSUMenuScraper.Meal meal : station.meals) {
+                    for (int i = 0; i < meal.items.size(); i++) {
+                        String item = meal.items.get(i);
+                        String key = key(meal.mealName, item);
+                        names.put(key, new String[]{meal.mealName, item});
+                        Map<String, String> stations = after.get(key);
+                        if (stations == null) {
+                            stations = new LinkedHashMap<>();
+                            after.put(key, stations);
+                        }
+                        if (!stations.containsKey(station.stationName)) {
+                            stations.put(station.stationName, i < meal.itemTags.size() ? meal.itemTags.get(i) : null);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : names.entrySet()) {
+            Map<String, Long> oldStations = before.get(entry.getKey());
+            Map<String, String> newStations = after.get(entry.getKey());
+            String mealTime = entry.getValue()[0];
+            String itemName = entry.getValue()[1];
+
+            List<String> gone = new ArrayList<>();
+            if (oldStations != null) {
+                for (String station : oldStations.keySet()) {
+                    if (newStations == null || !newStations.containsKey(station)) gone.add(station);
+                }
+            }
+            List<String> came = new ArrayList<>();
+            if (newStations != null) {
+                for (String station : newStations.keySet()) {
+                    if (oldStations == null || !oldStations.containsKey(station)) came.add(station);
+                }
+            }
+
+            int moved = Math.min(gone.size(), came.size());
+            for (int i = 0; i < moved; i++) {
+                changes.add(new Change(Type.MOVED, mealTime, itemName, came.get(i), gone.get(i),
+                        oldStations.get(gone.get(i)), null));
+            }
+            for (int i = moved; i < came.size(); i++) {
+                changes.add(new Change(Type.ADDED, mealTime, itemName, came.get(i), null,
+                        -1, newStations.get(came.get(i))));
+            }
+            for (int i = moved; i < gone.size(); i++) {
+                changes.add(new Change(Type.REMOVED, mealTime, itemName, gone.get(i), null,
+                        oldStations.get(gone.get(i)), null));
+            }
+        }
+        return new MenuDiff(changes, redundant);
+    }
+
+    private static String key(String mealTime, String itemName) {
+        return mealTime + '\n' + itemName;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.myapplication;
+
+/**
+ * MenuDocuments - Layout of the published menus in Firestore
+ *
+ * The menu service (server module) publishes every scraped menu; the app only reads them
+ * (MenuFirestoreSync). Both compile this class, so they agree on the layout:
+ *
+ * menus/{hallKey}_{yyyy-MM-dd}                 hall, date, version, meals, updatedAt
+ * menus/{hallKey}_{yyyy-MM-dd}/meals/{meal}    meal, version, entries
+ *
+ * Each meal is its own document (shard), so a change to one meal pushes only that meal to
+ * listening clients. An entry is a map {station, item, tags, detailUrl}. The version fields are
+ * content hashes: a shard is rewritten only when its version changes.
+ *
+ * Every published change is also announced as an FCM data message {hall, date, version} on
+ * TOPIC_MENU_UPDATES, where hall is the hall key (see MenuInvalidator).
+ */
+public final class MenuDocuments {
+
+    public static final String COLLECTION_MENUS = "menus";
+    public static final String COLLECTION_MEALS = "meals";
+
+    public static final String FIELD_HALL = "hall";
+    public static final String FIELD_DATE = "date";
+    public static final String FIELD_VERSION = "version";
+    public static final String FIELD_MEALS = "meals";
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+    public static final String FIELD_MEAL = "meal";
+    public static final String FIELD_ENTRIES = "entries";
+
+    public static final String ENTRY_STATION = "station";
+    public static final String ENTRY_ITEM = "item";
+    public static final String ENTRY_TAGS = "tags";
+    public static final String ENTRY_DETAIL_URL = "detailUrl";
+
+    public static final String TOPIC_MENU_UPDATES = "menu-updates";
+    public static final String MESSAGE_HALL = "hall";
+    public static final String MESSAGE_DATE = "date";
+    public static final String MESSAGE_VERSION = "version";
+
+    private MenuDocuments() {
+    }
+
+    /**
+     * @param hallKey HallRegistry key of the hall
+     * @param dateKey Menu date (yyyy-MM-dd)
+     */
+    public static String menuDocumentId(String hallKey, String dateKey) {
+        return hallKey + "_" + dateKey;
+    }
+}
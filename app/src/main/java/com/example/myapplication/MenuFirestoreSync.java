@@ -0,0 +1,177 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MenuFirestoreSync - Follows the menus the menu service publishes to Firestore
+ *
+ * The menu service scrapes each hall once and publishes today's menu as one document per meal
+ * (see MenuDocuments). While a hall is watched, a snapshot listener on its meal documents
+ * receives only the meals that changed; the merged menu is stored through MenuUpdateService,
+ * which diffs it against the stored menu and publishes item changes on MenuChangeBus.
+ *
+ * Features:
+ * - Firestore's persistent cache (configured in FirebaseManager) answers the first snapshot,
+ *   so reopening a hall does not wait for the network
+ * - watch()/unwatch() are counted, so several screens can watch the same hall
+ * - hasLiveMenu() tells MenuUpdateService that a hall needs no scraping: its menu arrived from
+ *   the server and further changes are pushed
+ *
+ * Threading: all methods are thread-safe; snapshot listeners run on the UI thread.
+ */
+public class MenuFirestoreSync {
+    private static final String TAG = "MenuFirestoreSync";
+
+    private static MenuFirestoreSync instance;
+
+    /**
+     * Listener and merged meal shards of one watched hall
+     */
+    private static final class Watch {
+        final String dateKey;
+        ListenerRegistration registration;
+        int watchers;
+        // Meal document id -> {meal, station, item, tags, detail URL} entries
+        final Map<String, List<String[]>> meals = new LinkedHashMap<>();
+        volatile boolean live;
+
+        Watch(String dateKey) {
+            this.dateKey = dateKey;
+        }
+    }
+
+    private final MenuUpdateService menuUpdateService;
+    private final Map<String, Watch> watches = new HashMap<>();
+
+    public static synchronized MenuFirestoreSync getInstance(Context context) {
+        if (instance == null) {
+            instance = new MenuFirestoreSync(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MenuFirestoreSync(Context context) {
+        menuUpdateService = new MenuUpdateService(context);
+    }
+
+    /**
+     * Starts following today's published menu of the hall
+     */
+    public synchronized void watch(String hallName) {
+        String hallKey = HallRegistry.keyOf(hallName);
+        if (hallKey == null) {
+            return;
+        }
+        String dateKey = todayKey();
+        Watch watch = watches.get(hallName);
+        if (watch != null && !watch.dateKey.equals(dateKey)) {
+            // The day changed while watching; follow the new day's document
+            watch.registration.remove();
+            watches.remove(hallName);
+            watch = null;
+        }
+        if (watch == null) {
+            Watch created = new Watch(dateKey);
+            created.registration = FirebaseFirestore.getInstance()
+                    .collection(MenuDocuments.COLLECTION_MENUS)
+                    .document(MenuDocuments.menuDocumentId(hallKey, dateKey))
+                    .collection(MenuDocuments.COLLECTION_MEALS)
+                    .addSnapshotListener((snapshots, error) -> {
+                        if (error != null) {
+                            Log.w(TAG, "Menu listener for " + hallName + " failed", error);
+                            return;
+                        }
+                        if (snapshots != null) {
+                            onMealsChanged(hallName, created, snapshots.getDocumentChanges(),
+                                    snapshots.getMetadata().isFromCache());
+                        }
+                    });
+            watch = created;
+            watches.put(hallName, watch);
+        }
+        watch.watchers++;
+    }
+
+    public synchronized void unwatch(String hallName) {
+        Watch watch = watches.get(hallName);
+        if (watch == null || --watch.watchers > 0) {
+            return;
+        }
+        watch.registration.remove();
+        watches.remove(hallName);
+    }
+
+    /**
+     * @return True if today's menu of the hall arrived from Firestore and is being followed
+     */
+    public synchronized boolean hasLiveMenu(String hallName) {
+        Watch watch = watches.get(hallName);
+        return watch != null && watch.live && watch.dateKey.equals(todayKey());
+    }
+
+    private void onMealsChanged(String hallName, Watch watch, List<DocumentChange> changes, boolean fromCache) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (DocumentChange change : changes) {
+            DocumentSnapshot document = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                watch.meals.remove(document.getId());
+            } else {
+                watch.meals.put(document.getId(), readEntries(document));
+            }
+        }
+        watch.live = !fromCache && !watch.meals.isEmpty();
+        Log.d(TAG, hallName + ": " + changes.size() + " meal(s) changed" + (fromCache ? " (cached)" : ""));
+
+        List<String[]> entries = new ArrayList<>();
+        for (List<String[]> meal : watch.meals.values()) {
+            entries.addAll(meal);
+        }
+        MSUMenuScraper.MenuResult result = MSUMenuScraper.menuFromEntries(hallName, watch.dateKey, entries);
+        if (!result.stations.isEmpty()) {
+            menuUpdateService.storePublishedMenu(hallName, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String[]> readEntries(DocumentSnapshot document) {
+        String meal = document.getString(MenuDocuments.FIELD_MEAL);
+        Object value = document.get(MenuDocuments.FIELD_ENTRIES);
+        List<String[]> entries = new ArrayList<>();
+        if (meal == null || !(value instanceof List)) {
+            return entries;
+        }
+        for (Object element : (List<Object>) value) {
+            if (!(element instanceof Map)) continue;
+            Map<String, Object> entry = (Map<String, Object>) element;
+            Object station = entry.get(MenuDocuments.ENTRY_STATION);
+            Object item = entry.get(MenuDocuments.ENTRY_ITEM);
+            if (station == null || item == null) continue;
+            Object tags = entry.get(MenuDocuments.ENTRY_TAGS);
+            Object detailUrl = entry.get(MenuDocuments.ENTRY_DETAIL_URL);
+            entries.add(new String[]{meal, station.toString(), item.toString(),
+                    tags != null ? tags.toString() : "", detailUrl != null ? detailUrl.toString() : ""});
+        }
+        return entries;
+    }
+
+    private static String todayKey() {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MenuHistoryCompactor - Keeps the fetched menu history from growing without bound
+ *
+ * Menus are refreshed hourly for every hall, so dynamic_menus would grow all year. Once a day:
+ * 1. Rows older than the full-detail window (default: the AllergenIndex window) are folded
+ *    into MenuVersionStore, one menu version per hall and date (kept if that day already has
+ *    one), and deleted
+ * 2. Menu days older than the history window are dropped, with the versions no longer served
+ * 3. Free pages are returned to the file system (incremental vacuum) and the query planner
+ *    statistics are refreshed
+ * 4. While the database file is over the size budget, the oldest history is dropped a month at
+ *    a time, and then the full-detail window is narrowed down to MIN_FULL_DETAIL_DAYS
+ *
+ * Retention and budget are configurable and persisted. Dates are UTC days, like the
+ * date('now') filters of MenuDatabaseHelper.
+ *
+ * Threading: compact() blocks and must run in the background; compactIfDue() schedules it.
+ */
+public class MenuHistoryCompactor {
+    private static final String TAG = "MenuHistoryCompactor";
+
+    private static final String PREFS_NAME = "MenuHistoryCompactor";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final String KEY_FULL_DETAIL_DAYS = "full_detail_days";
+    private static final String KEY_HISTORY_DAYS = "history_days";
+    private static final String KEY_SIZE_BUDGET = "size_budget_bytes";
+
+    private static final int DEFAULT_FULL_DETAIL_DAYS = AllergenIndex.INDEX_DAYS;
+    private static final int MIN_FULL_DETAIL_DAYS = 2;
+    private static final int DEFAULT_HISTORY_DAYS = 400;
+    private static final long DEFAULT_SIZE_BUDGET_BYTES = 16L * 1024 * 1024;
+    private static final int HISTORY_TRIM_STEP_DAYS = 30;
+    private static final long COMPACTION_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private static MenuHistoryCompactor instance;
+
+    private final MenuDatabaseHelper dbHelper;
+    private final MenuVersionStore versionStore;
+    private final SharedPreferences prefs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public static synchronized MenuHistoryCompactor getInstance(Context context) {
+        if (instance == null) {
+            instance = new MenuHistoryCompactor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MenuHistoryCompactor(Context context) {
+        dbHelper = MenuDatabaseHelper.getInstance(context);
+        versionStore = MenuVersionStore.getInstance(context);
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @param fullDetailDays Days of fetched menus kept row by row (at least MIN_FULL_DETAIL_DAYS)
+     * @param historyDays Days of menu versions kept after that
+     */
+    public void setRetention(int fullDetailDays, int historyDays) {
+        prefs.edit()
+                .putInt(KEY_FULL_DETAIL_DAYS, Math.max(MIN_FULL_DETAIL_DAYS, fullDetailDays))
+                .putInt(KEY_HISTORY_DAYS, Math.max(0, historyDays))
+                .apply();
+    }
+
+    public void setSizeBudgetBytes(long budgetBytes) {
+        prefs.edit().putLong(KEY_SIZE_BUDGET, budgetBytes).apply();
+    }
+
+    /**
+     * Runs compact() in the background if the last run is more than a day ago
+     */
+    public void compactIfDue() {
+        long lastRun = prefs.getLong(KEY_LAST_RUN, 0);
+        if (System.currentTimeMillis() - lastRun < COMPACTION_INTERVAL_MS) {
+            return;
+        }
+        executor.execute(this::compact);
+    }
+
+    public synchronized void compact() {
+        long start = System.currentTimeMillis();
+        int fullDetailDays = prefs.getInt(KEY_FULL_DETAIL_DAYS, DEFAULT_FULL_DETAIL_DAYS);
+        int historyDays = prefs.getInt(KEY_HISTORY_DAYS, DEFAULT_HISTORY_DAYS);
+        long budget = prefs.getLong(KEY_SIZE_BUDGET, DEFAULT_SIZE_BUDGET_BYTES);
+
+        try {
+            int folded = foldMenuRows(dayStartMs(start, fullDetailDays));
+            int pruned = dbHelper.pruneMenuDays(dateKey(start, fullDetailDays + historyDays));
+            dbHelper.reclaimFreePages();
+
+            // Size budget: oldest history first, then the full-detail window
+            long size = dbHelper.getDatabaseSizeBytes();
+            while (size > budget) {
+                String oldest = dbHelper.getOldestMenuDayDate();
+                if (oldest != null && oldest.compareTo(dateKey(start, fullDetailDays)) < 0) {
+                    pruned += dbHelper.pruneMenuDays(min(addDays(oldest, HISTORY_TRIM_STEP_DAYS),
+                            dateKey(start, fullDetailDays)));
+                } else if (fullDetailDays > MIN_FULL_DETAIL_DAYS) {
+                    fullDetailDays--;
+                    folded += foldMenuRows(dayStartMs(start, fullDetailDays));
+                    // Folded rows only moved into versions; drop those too
+                    pruned += dbHelper.pruneMenuDays(dateKey(start, fullDetailDays));
+                } else {
+                    Log.w(TAG, "Database is " + size + " bytes, over the " + budget + " byte budget");
+                    break;
+                }
+                dbHelper.reclaimFreePages();
+                size = dbHelper.getDatabaseSizeBytes();
+            }
+
+            if (pruned > 0) {
+                versionStore.invalidateDays();
+            }
+            prefs.edit().putLong(KEY_LAST_RUN, start).apply();
+            Log.d(TAG, "Folded " + folded + " menu rows, pruned " + pruned + " menu days, database is "
+                    + size + " bytes (" + (System.currentTimeMillis() - start) + "ms)");
+        } catch (Exception e) {
+            Log.e(TAG, "Menu history compaction failed", e);
+        }
+    }
+
+    /**
+     * Stores fetched menu rows older than the cutoff as menu versions and deletes them
+     *
+     * @return Number of rows deleted
+     */
+    private int foldMenuRows(long cutoffMs) {
+        Map<String, List<String[]>> days = dbHelper.getMenuRowsBefore(cutoffMs);
+        for (Map.Entry<String, List<String[]>> day : days.entrySet()) {
+            String[] key = day.getKey().split("\n", 2);
+            // A day recorded when it was fetched has the complete menu; keep it
+            versionStore.record(key[0], key[1], day.getValue(), false);
+        }
+        return days.isEmpty() ? 0 : dbHelper.deleteMenuRowsBefore(cutoffMs);
+    }
+
+    private static String min(String a, String b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * UTC midnight that starts a window of 'days' days ending today (1 = today only)
+     */
+    private static long dayStartMs(long nowMs, int days) {
+        return (nowMs / DAY_MS - (days - 1)) * DAY_MS;
+    }
+
+    private static String dateKey(long nowMs, int days) {
+        return utcFormat().format(new Date(dayStartMs(nowMs, days)));
+    }
+
+    private static String addDays(String dateKey, int days) {
+        try {
+            return utcFormat().format(new Date(utcFormat().parse(dateKey).getTime() + days * DAY_MS));
+        } catch (ParseException e) {
+            return dateKey;
+        }
+    }
+
+    private static SimpleDateFormat utcFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MenuInvalidator - Refreshes exactly the menus the menu service announces as changed
+ *
+ * The menu service sends an FCM data message {hall, date, version} for every menu it publishes
+ * (see MenuDocuments, MenuMessagingService). Instead of polling every hall, the app refreshes
+ * only that hall and date.
+ *
+ * Features:
+ * - Messages are collected for DEBOUNCE_MS, so a burst (several halls, or several versions of
+ *   one menu) costs one refresh per hall and date, with the latest version
+ * - Versions that were already refreshed are ignored, as are today's menus that
+ *   MenuFirestoreSync already receives live. A version counts as refreshed only once its menu
+ *   was fetched and stored, so a failed refresh is retried by the next message
+ * - isPushActive() lets MenuUpdateService fall back from hourly polling to a long safety
+ *   interval, while subscribed to the topic and either a menu service is configured or a
+ *   change message arrived within the last safety interval
+ *
+ * Threading: invalidate() may be called from any thread; refreshes run on MenuUpdateService's
+ * background thread.
+ */
+public class MenuInvalidator {
+    private static final String TAG = "MenuInvalidator";
+
+    private static final String PREFS_NAME = "MenuInvalidator";
+    private static final String KEY_SUBSCRIBED = "subscribed";
+    private static final String KEY_LAST_MESSAGE_MS = "last_message_ms";
+    private static final long DEBOUNCE_MS = 3000;
+    private static final int MAX_APPLIED_VERSIONS = 64;
+
+    private static MenuInvalidator instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final MenuUpdateService menuUpdateService;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    // "hallKey\ndate" -> latest announced version, in arrival order
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    // "hallKey\ndate" -> version last refreshed
+    private final Map<String, String> applied = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_APPLIED_VERSIONS;
+        }
+    };
+    private boolean flushScheduled = false;
+
+    public static synchronized MenuInvalidator getInstance(Context context) {
+        if (instance == null) {
+            instance = new MenuInvalidator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MenuInvalidator(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        menuUpdateService = new MenuUpdateService(context);
+    }
+
+    /**
+     * @return True while the device receives menu change messages: it is subscribed, and a menu
+     *         service that sends them is configured (R.string.menu_service_url) or one arrived
+     *         within the last PUSH_SAFETY_INTERVAL_MS
+     */
+    public boolean isPushActive() {
+        if (!prefs.getBoolean(KEY_SUBSCRIBED, false)) {
+            return false;
+        }
+        if (!context.getString(R.string.menu_service_url).trim().isEmpty()) {
+            return true;
+        }
+        long sinceLastMessage = System.currentTimeMillis() - prefs.getLong(KEY_LAST_MESSAGE_MS, 0);
+        return sinceLastMessage >= 0 && sinceLastMessage < MenuUpdateService.PUSH_SAFETY_INTERVAL_MS;
+    }
+
+    /**
+     * @param subscribed Whether the subscription to the change message topic succeeded
+     */
+    public void setSubscribed(boolean subscribed) {
+        prefs.edit().putBoolean(KEY_SUBSCRIBED, subscribed).apply();
+    }
+
+    /**
+     * @param hallKey HallRegistry key of the changed hall
+     * @param dateKey Menu date (yyyy-MM-dd)
+     * @param version Content version of the new menu
+     */
+    public synchronized void invalidate(String hallKey, String dateKey, String version) {
+        prefs.edit().putLong(KEY_LAST_MESSAGE_MS, System.currentTimeMillis()).apply();
+        String key = hallKey + '\n' + dateKey;
+        if (version != null && version.equals(applied.get(key))) {
+            return;
+        }
+        pending.remove(key);
+        pending.put(key, version);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(flushTask, DEBOUNCE_MS);
+        }
+    }
+
+    private void flush() {
+        Map<String, String> batch;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+
+        String today = dateFormat().format(new Date());
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            String[] key = entry.getKey().split("\n", 2);
+            HallRegistry.Hall hall = HallRegistry.find(key[0]);
+            Date date = parseDate(key[1]);
+            if (hall == null || date == null) {
+                Log.w(TAG, "Ignoring menu change of unknown hall or date: " + key[0] + " " + key[1]);
+                continue;
+            }
+            if (!hall.isDiningHall()) {
+                // Markets are published too, but the app shows no menus for them
+                continue;
+            }
+            String hallName = hall.getName();
+            if (key[1].equals(today) && MenuFirestoreSync.getInstance(context).hasLiveMenu(hallName)) {
+                markApplied(entry.getKey(), entry.getValue());
+                continue;
+            }
+            Log.d(TAG, "Refreshing " + hallName + " " + key[1] + " (version " + entry.getValue() + ")");
+            menuUpdateService.updateMenuForHallAndDate(hallName, date, true,
+                    () -> markApplied(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private synchronized void markApplied(String key, String version) {
+        applied.put(key, version);
+    }
+
+    private static Date parseDate(String dateKey) {
+        try {
+            return dateFormat().parse(dateKey);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static SimpleDateFormat dateFormat() {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    }
+}
@@ -22,7 +22,8 @@ import java.text.DecimalFormat;
  * - Back button returns to MenuActivity
  *
  * Data Source:
- * - Fetches detailed item information from SQLite database
+ * - Reads the record NutritionEnricher precomputed for the item (scraped items are matched to
+ *   nutrition records when menus are fetched); falls back to an exact-name database query
  * - Uses MenuItemDetailed model for comprehensive nutrition data
  */
 public class MenuItemDetailActivity extends AppCompatActivity {
@@ -126,7 +127,10 @@ public class MenuItemDetailActivity extends AppCompatActivity {
      * @param itemName The name of the menu item to load details for
      */
     private void loadMenuItemDetails(String itemName) {
-        MenuItemDetailed item = dbHelper.getMenuItemDetails(itemName);
+        MenuItemDetailed item = NutritionEnricher.getInstance(this).getDetails(itemName);
+        if (item == null) {
+            item = dbHelper.getMenuItemDetails(itemName);
+        }
 
         if (item != null) {
             populateBasicInformation(item);
@@ -162,11 +166,11 @@ public class MenuItemDetailActivity extends AppCompatActivity {
      */
     private void populateNutritionInformation(MenuItemDetailed item) {
         tvCalories.setText(String.valueOf(item.getCalories()));
-        tvFat.setText(formatNutritionValue(item.getFat()) + "g");
-        tvProtein.setText(formatNutritionValue(item.getProtein()) + "g");
-        tvCarbs.setText(formatNutritionValue(item.getCarbs()) + "g");
-        tvFiber.setText(formatNutritionValue(item.getFiber()) + "g");
-        tvSugar.setText(formatNutritionValue(item.getSugar()) + "g");
+        tvFat.setText(formatNutritionValue(item.getFat()));
+        tvProtein.setText(formatNutritionValue(item.getProtein()));
+        tvCarbs.setText(formatNutritionValue(item.getCarbs()));
+        tvFiber.setText(formatNutritionValue(item.getFiber()));
+        tvSugar.setText(formatNutritionValue(item.getSugar()));
     }
 
     /**
@@ -182,10 +186,10 @@ public class MenuItemDetailActivity extends AppCompatActivity {
     /**
      * Formats nutrition values to display with appropriate decimal places
      *
-     * @param value The nutrition value to format
+     * @param value The nutrition value to format, in grams; NaN if unknown
      * @return Formatted string representation of the value
      */
     private String formatNutritionValue(double value) {
-        return NUTRITION_FORMAT.format(value);
+        return Double.isNaN(value) ? "–" : NUTRITION_FORMAT.format(value) + "g";
     }
 }
\ No newline at end of file
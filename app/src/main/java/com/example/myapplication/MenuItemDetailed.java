@@ -6,6 +6,7 @@ public class MenuItemDetailed {
     private String description;
     private String category;
     private int calories;
+    // Grams; NaN where the source did not list the nutrient
     private double fat;
     private double protein;
     private double carbs;
@@ -15,6 +16,8 @@ public class MenuItemDetailed {
     private String ingredients;
     private String imagePath;
     private double price;
+    // Normalized allergen/diet tags, see AllergenIndex
+    private int allergenMask;
 
     public MenuItemDetailed() {}
 
@@ -80,4 +83,7 @@ public class MenuItemDetailed {
 
     public double getPrice() { return price; }
     public void setPrice(double price) { this.price = price; }
+
+    public int getAllergenMask() { return allergenMask; }
+    public void setAllergenMask(int allergenMask) { this.allergenMask = allergenMask; }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.messaging.FirebaseMessagingService;
+import com.google.firebase.messaging.RemoteMessage;
+
+import java.util.Map;
+
+/**
+ * MenuMessagingService - Receives the menu service's FCM data messages
+ *
+ * Menu change messages {hall, date, version} (see MenuDocuments) are handed to MenuInvalidator,
+ * which refreshes just that menu. Other messages are ignored.
+ */
+public class MenuMessagingService extends FirebaseMessagingService {
+    private static final String TAG = "MenuMessagingService";
+
+    @Override
+    public void onMessageReceived(@NonNull RemoteMessage message) {
+        Map<String, String> data = message.getData();
+        String hall = data.get(MenuDocuments.MESSAGE_HALL);
+        String date = data.get(MenuDocuments.MESSAGE_DATE);
+        if (hall == null || date == null) {
+            return;
+        }
+        MenuInvalidator.getInstance(this).invalidate(hall, date, data.get(MenuDocuments.MESSAGE_VERSION));
+    }
+
+    @Override
+    public void onNewToken(@NonNull String token) {
+        // Menu changes are sent to a topic, so the token itself is not registered anywhere
+        Log.d(TAG, "FCM registration token refreshed");
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MenuServiceClient - Fetches menus from the menu service (server module) instead of scraping
+ *
+ * The service scrapes every hall and date once for all clients. The client remembers the last
+ * version of each (hall, date) it received and sends it along, so an unchanged menu costs a 304
+ * and a changed one only its added and removed entries.
+ *
+ * The service is used when R.string.menu_service_url is set; fetchMenu() returns null when it
+ * is not set or not reachable, and callers fall back to MSUMenuScraper.
+ *
+ * Threading: fetchMenu() blocks, call it from a background thread.
+ */
+public class MenuServiceClient {
+    private static final String TAG = "MenuServiceClient";
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    private static MenuServiceClient instance;
+
+    /**
+     * Last received version of a hall's menu for a date
+     */
+    private static final class CachedMenu {
+        final String version;
+        // {meal, station, item, tags, detail URL}
+        final List<String[]> entries;
+
+        CachedMenu(String version, List<String[]> entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+    }
+
+    private final String baseUrl;
+    // "hall\ndate" -> last received version
+    private final Map<String, CachedMenu> menus = new HashMap<>();
+
+    public static synchronized MenuServiceClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new MenuServiceClient(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MenuServiceClient(Context context) {
+        String url = context.getString(R.string.menu_service_url).trim();
+        baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    public boolean isEnabled() {
+        return !baseUrl.isEmpty();
+    }
+
+    /**
+     * @return The hall's menu for the date, or null if the service is disabled, unreachable or
+     *         has no menu for that day
+     */
+    public MSUMenuScraper.MenuResult fetchMenu(String hallName, Date date) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String dateKey = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date);
+        String menuKey = hallName + '\n' + dateKey;
+        CachedMenu cached;
+        synchronized (menus) {
+            cached = menus.get(menuKey);
+        }
+
+        Uri.Builder uri = Uri.parse(baseUrl + "/v1/menu").buildUpon()
+                .appendQueryParameter("hall", hallName)
+                .appendQueryParameter("date", dateKey);
+        if (cached != null) {
+            uri.appendQueryParameter("since", cached.version);
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(uri.build().toString()).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            int status = connection.getResponseCode();
+
+            CachedMenu menu;
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                menu = cached;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                menu = applyResponse(cached, readJson(connection));
+                if (menu == null) {
+                    // Delta against a version we no longer have; ask for the whole menu
+                    synchronized (menus) {
+                        menus.remove(menuKey);
+                    }
+                    return fetchMenu(hallName, date);
+                }
+            } else {
+                Log.w(TAG, "Menu service answered " + status + " for " + hallName + " " + dateKey);
+                return null;
+            }
+
+            synchronized (menus) {
+                menus.put(menuKey, menu);
+            }
+            Log.d(TAG, hallName + " " + dateKey + ": version " + menu.version
+                    + (status == HttpURLConnection.HTTP_NOT_MODIFIED ? " (unchanged)" : ""));
+            return MSUMenuScraper.menuFromEntries(hallName, dateKey, menu.entries);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Menu service unavailable, scraping directly", e);
+            return null;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * @return The menu after a full or delta response, or null if the delta's base is not
+     *         the cached version
+     */
+    private static CachedMenu applyResponse(CachedMenu cached, JsonObject body) {
+        String version = body.get("version").getAsString();
+        if (body.has("entries")) {
+            return new CachedMenu(version, readEntries(body.getAsJsonArray("entries")));
+        }
+
+        JsonElement base = body.get("base");
+        if (cached == null || base == null || !cached.version.equals(base.getAsString())) {
+            return null;
+        }
+        Map<String, String[]> entries = new LinkedHashMap<>();
+        for (String[] entry : cached.entries) {
+            entries.put(key(entry), entry);
+        }
+        for (String[] removed : readEntries(body.getAsJsonArray("removed"))) {
+            entries.remove(key(removed));
+        }
+        for (String[] added : readEntries(body.getAsJsonArray("added"))) {
+            entries.put(key(added), added);
+        }
+        return new CachedMenu(version, new ArrayList<>(entries.values()));
+    }
+
+    private static List<String[]> readEntries(JsonArray array) {
+        List<String[]> entries = new ArrayList<>();
+        if (array == null) {
+            return entries;
+        }
+        for (JsonElement element : array) {
+            JsonArray fields = element.getAsJsonArray();
+            String[] entry = new String[fields.size()];
+            for (int i = 0; i < entry.length; i++) {
+                entry[i] = fields.get(i).getAsString();
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static JsonObject readJson(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return JsonParser.parseString(new String(bytes.toByteArray(), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+
+    private static String key(String[] entry) {
+        return entry[0] + '\u001F' + entry[1] + '\u001F' + entry[2];
+    }
+}
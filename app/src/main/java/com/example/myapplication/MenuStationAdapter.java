@@ -13,19 +13,27 @@ import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.HashSet;
 
 public class MenuStationAdapter extends RecyclerView.Adapter<MenuStationAdapter.StationViewHolder> {
     private List<MenuStation> stations;
     private boolean expandAll = false;
-    private Set<String> userFavorites = new HashSet<>();
     public MenuStationAdapter() {
         this.stations = new ArrayList<>();
     }
 
-    public void setUserFavorites(Set<String> favorites) {
-        this.userFavorites = (favorites != null) ? favorites : new HashSet<>();
-        notifyDataSetChanged(); // Re-bind all visible viewholders
+    /**
+     * Re-binds the favorite stars of the changed items only; the payload carries the
+     * changed item names down to the station's item adapter
+     */
+    public void notifyFavoritesChanged(Set<String> changedItems) {
+        for (int i = 0; i < stations.size(); i++) {
+            for (String item : stations.get(i).getItems()) {
+                if (changedItems.contains(item)) {
+                    notifyItemChanged(i, changedItems);
+                    break;
+                }
+            }
+        }
     }
 
     public void setStations(List<MenuStation> stations) {
@@ -62,6 +70,18 @@ public class MenuStationAdapter extends RecyclerView.Adapter<MenuStationAdapter.
         holder.bind(stations.get(position));
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(@NonNull StationViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        for (Object payload : payloads) {
+            holder.itemsAdapter.notifyFavoritesChanged((Set<String>) payload);
+        }
+    }
+
     @Override
     public int getItemCount() {
         return stations.size();
@@ -97,7 +117,6 @@ public class MenuStationAdapter extends RecyclerView.Adapter<MenuStationAdapter.
             itemCount.setText(count + (count == 1 ? " item" : " items"));
 
             itemsAdapter.setItems(station.getItems());
-            itemsAdapter.setUserFavorites(userFavorites);
             updateExpandedState(station.isExpanded());
 
             stationHeader.setOnClickListener(v -> {
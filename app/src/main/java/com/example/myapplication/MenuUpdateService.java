@@ -5,8 +5,13 @@ import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.widget.Toast;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -15,10 +20,14 @@ public class MenuUpdateService {
     private static final String PREFS_NAME = "MenuUpdatePrefs";
     private static final String LAST_UPDATE_KEY = "last_update_";
     private static final long UPDATE_INTERVAL_MS = 3600000;
+    // Polling interval while menu changes are pushed (MenuInvalidator); only a safety net
+    static final long PUSH_SAFETY_INTERVAL_MS = 12 * 3600000L;
 
     private final Context context;
     private final ExecutorService executorService;
     private final Handler mainHandler;
+    private final FavoritesMatcher favoritesMatcher;
+    private final MenuServiceClient menuServiceClient;
     private MenuUpdateListener listener;
 
     public interface MenuUpdateListener {
@@ -30,6 +39,10 @@ public class MenuUpdateService {
         this.context = context.getApplicationContext();
         this.executorService = Executors.newSingleThreadExecutor();
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.favoritesMatcher = FavoritesMatcher.getInstance();
+        this.menuServiceClient = MenuServiceClient.getInstance(context);
+        // The store keeps the matcher compiled with the current favorites
+        FavoritesStore.getInstance(context);
     }
 
     public void setMenuUpdateListener(MenuUpdateListener listener) {
@@ -41,6 +54,14 @@ public class MenuUpdateService {
     }
 
     public void updateMenuForHallAndDate(String hallName, Date date, boolean forceUpdate) {
+        updateMenuForHallAndDate(hallName, date, forceUpdate, null);
+    }
+
+    /**
+     * @param onUpdated Run on the background thread once the menu was fetched and stored;
+     *                  not run when the fetch fails or is skipped
+     */
+    public void updateMenuForHallAndDate(String hallName, Date date, boolean forceUpdate, Runnable onUpdated) {
         executorService.execute(() -> {
             try {
                 if (!forceUpdate && !shouldUpdateHall(hallName)) {
@@ -48,15 +69,30 @@ public class MenuUpdateService {
                     notifyListener(hallName, true, "Menu is up to date");
                     return;
                 }
+                if (!forceUpdate && isSameDay(date, new Date())
+                        && MenuFirestoreSync.getInstance(context).hasLiveMenu(hallName)) {
+                    Log.d(TAG, "Menu for " + hallName + " is pushed from Firestore, skipping fetch");
+                    notifyListener(hallName, true, "Menu is up to date");
+                    return;
+                }
 
                 Log.d(TAG, "Fetching menu for " + hallName + " for date: " + date);
-                MSUMenuScraper.MenuResult result = MSUMenuScraper.fetchMenuData(hallName, date);
+                MSUMenuScraper.MenuResult result = fetchMenu(hallName, date);
 
                 if (result.success) {
-                    MenuDatabaseHelper dbHelper = MenuDatabaseHelper.getInstance(context);
-                    dbHelper.updateDynamicMenu(hallName, result);
+                    List<MenuDiff.Change> changes = storeMenu(hallName, result, date);
+                    if (!changes.isEmpty()) {
+                        AllergenIndex.getInstance(context).rebuild();
+                        NutritionIndex.getInstance(context).invalidate();
+                        MenuChangeBus.getInstance().publish(hallName, changes);
+                    }
 
-                    updateLastFetchTime(hallName);
+                    if (isSameDay(date, new Date())) {
+                        updateLastFetchTime(hallName);
+                    }
+                    if (onUpdated != null) {
+                        onUpdated.run();
+                    }
                     notifyListener(hallName, true, "Menu updated successfully");
                 } else {
                     notifyListener(hallName, false, result.error);
@@ -68,10 +104,30 @@ public class MenuUpdateService {
         });
     }
 
+    /**
+     * Stores today's menu of a hall as published to Firestore (see MenuFirestoreSync) and
+     * announces its changes like a fetched menu
+     */
+    public void storePublishedMenu(String hallName, MSUMenuScraper.MenuResult result) {
+        executorService.execute(() -> {
+            try {
+                List<MenuDiff.Change> changes = storeMenu(hallName, result, new Date());
+                if (!changes.isEmpty()) {
+                    AllergenIndex.getInstance(context).rebuild();
+                    NutritionIndex.getInstance(context).invalidate();
+                    MenuChangeBus.getInstance().publish(hallName, changes);
+                }
+                updateLastFetchTime(hallName);
+            } catch (Exception e) {
+                Log.e(TAG, "Error storing published menu for " + hallName, e);
+            }
+        });
+    }
+
     public void updateAllHallMenus(boolean forceUpdate) {
         executorService.execute(() -> {
-            DiningHall[] halls = DiningHall.getAllDiningHalls();
-            for (DiningHall hall : halls) {
+            Map<String, List<MenuDiff.Change>> changesByHall = new LinkedHashMap<>();
+            for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
                 try {
                     if (!forceUpdate && !shouldUpdateHall(hall.getName())) {
                         Log.d(TAG, "Menu for " + hall.getName() + " is up to date");
@@ -79,11 +135,13 @@ public class MenuUpdateService {
                     }
 
                     Log.d(TAG, "Fetching menu for " + hall.getName());
-                    MSUMenuScraper.MenuResult result = MSUMenuScraper.fetchMenuData(hall.getName(), new Date());
+                    MSUMenuScraper.MenuResult result = fetchMenu(hall.getName(), new Date());
 
                     if (result.success) {
-                        MenuDatabaseHelper dbHelper = MenuDatabaseHelper.getInstance(context);
-                        dbHelper.updateDynamicMenu(hall.getName(), result);
+                        List<MenuDiff.Change> changes = storeMenu(hall.getName(), result, new Date());
+                        if (!changes.isEmpty()) {
+                            changesByHall.put(hall.getName(), changes);
+                        }
                         updateLastFetchTime(hall.getName());
                     } else {
                         Log.e(TAG, "Failed to fetch menu for " + hall.getName() + ": " + result.error);
@@ -93,6 +151,15 @@ public class MenuUpdateService {
                 }
             }
 
+            // Hourly refreshes keep the history compacted while the app stays alive for days
+            MenuHistoryCompactor.getInstance(context).compactIfDue();
+            if (!changesByHall.isEmpty()) {
+                AllergenIndex.getInstance(context).rebuild();
+                NutritionIndex.getInstance(context).invalidate();
+                for (Map.Entry<String, List<MenuDiff.Change>> entry : changesByHall.entrySet()) {
+                    MenuChangeBus.getInstance().publish(entry.getKey(), entry.getValue());
+                }
+            }
             mainHandler.post(() -> {
                 if (listener != null) {
                     listener.onAllMenusUpdated();
@@ -111,7 +178,8 @@ public class MenuUpdateService {
         }
 
         long timeSinceUpdate = currentTime - lastUpdate;
-        if (timeSinceUpdate > UPDATE_INTERVAL_MS) {
+        long interval = MenuInvalidator.getInstance(context).isPushActive() ? PUSH_SAFETY_INTERVAL_MS : UPDATE_INTERVAL_MS;
+        if (timeSinceUpdate > interval) {
             return true;
         }
 
@@ -120,6 +188,59 @@ public class MenuUpdateService {
         return !isSameDay(lastUpdateDate, currentDate);
     }
 
+    /**
+     * Fetches from the menu service when it is configured and reachable, otherwise scrapes MSU
+     */
+    private MSUMenuScraper.MenuResult fetchMenu(String hallName, Date date) {
+        MSUMenuScraper.MenuResult result = menuServiceClient.fetchMenu(hallName, date);
+        return result != null ? result : MSUMenuScraper.fetchMenuData(hallName, date);
+    }
+
+    /**
+     * Records the fetched menu as the hall's menu version for its date. For today, also writes
+     * the difference between the stored and the fetched menu, then enriches what changed.
+     * Indexes are left to the caller so several halls can share one rebuild.
+     *
+     * @return Today's menu changes; empty when the refresh changed nothing or is for another day
+     */
+    private List<MenuDiff.Change> storeMenu(String hallName, MSUMenuScraper.MenuResult result, Date date) {
+        MenuVersionStore.getInstance(context).record(hallName, result);
+        if (!isSameDay(date, new Date())) {
+            // Other days are only kept as menu versions; dynamic_menus is today's working set
+            return Collections.emptyList();
+        }
+        List<MenuDiff.Change> changes = MenuDatabaseHelper.getInstance(context).updateDynamicMenu(hallName, result);
+        Log.d(TAG, hallName + ": " + changes.size() + " menu changes");
+        if (changes.isEmpty()) {
+            return changes;
+        }
+        ItemDetailFetcher.getInstance(context).fetchMissing(result);
+        NutritionEnricher.getInstance(context).enrich(hallName);
+        announceFavorites(result, date);
+        return changes;
+    }
+
+    /**
+     * Scans a freshly stored menu for the user's favorites and shows one alert per hall
+     * for favorites on today's menu that were not announced yet
+     */
+    private void announceFavorites(MSUMenuScraper.MenuResult result, Date date) {
+        if (!favoritesMatcher.hasFavorites() || !isSameDay(date, new Date())) {
+            return;
+        }
+        List<FavoritesMatcher.Hit> hits = favoritesMatcher.ingest(result);
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        String hallName = result.hallName;
+        String message = hits.size() == 1
+                ? hits.get(0).favorite + " is at " + hallName + " today"
+                : hits.get(0).favorite + " and " + (hits.size() - 1) + " more favorites are at " + hallName + " today";
+        Log.d(TAG, "Favorites on today's menu at " + hallName + ": " + hits.size());
+        mainHandler.post(() -> Toast.makeText(context, message, Toast.LENGTH_LONG).show());
+    }
+
     private boolean isSameDay(Date date1, Date date2) {
         java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("yyyyMMdd");
         return fmt.format(date1).equals(fmt.format(date2));
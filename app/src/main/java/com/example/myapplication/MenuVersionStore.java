@@ -0,0 +1,239 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MenuVersionStore - Content-addressed storage of every hall's menu per date
+ *
+ * Halls repeat menus on a rotation, so a menu is stored once as a version: the set of
+ * (meal, station, item) entries, identified by the SHA-256 of its canonical (sorted,
+ * deduplicated) form. Each (hall, date) only points to a version, so a menu served on many days
+ * or at several halls costs one copy.
+ *
+ * Reading a day is one pointer lookup plus a version that is usually already decoded: decoded
+ * versions and day pointers are kept in LRU caches, and versions are immutable, so they are
+ * shared by every caller.
+ *
+ * Dates are menu dates (yyyy-MM-dd, as in MSUMenuScraper.MenuResult.date).
+ *
+ * Threading: all methods may be called from any thread but read the database on a miss, so
+ * call them from a background thread where possible.
+ */
+public class MenuVersionStore {
+    private static final String TAG = "MenuVersionStore";
+
+    private static final int VERSION_CACHE_SIZE = 32;
+    private static final int DAY_CACHE_SIZE = 256;
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char ENTRY_SEPARATOR = '\u001E';
+    private static final Comparator<String[]> ENTRY_ORDER = (a, b) -> {
+        for (int i = 0; i < 3; i++) {
+            int c = a[i].compareTo(b[i]);
+            if (c != 0) return c;
+        }
+        return 0;
+    };
+
+    private static MenuVersionStore instance;
+
+    /**
+     * Immutable, decoded menu version
+     */
+    public static final class MenuVersion {
+        public final long id;
+        public final String hash;
+        // Meal -> station -> items, all in canonical (sorted) order
+        private final Map<String, Map<String, List<String>>> meals;
+        private final int size;
+
+        MenuVersion(long id, String hash, List<String[]> entries) {
+            this.id = id;
+            this.hash = hash;
+            Map<String, Map<String, List<String>>> meals = new LinkedHashMap<>();
+            for (String[] entry : entries) {
+                Map<String, List<String>> stations = meals.get(entry[0]);
+                if (stations == null) {
+                    stations = new LinkedHashMap<>();
+                    meals.put(entry[0], stations);
+                }
+                List<String> items = stations.get(entry[1]);
+                if (items == null) {
+                    items = new ArrayList<>();
+                    stations.put(entry[1], items);
+                }
+                items.add(entry[2]);
+            }
+            for (Map<String, List<String>> stations : meals.values()) {
+                for (Map.Entry<String, List<String>> station : stations.entrySet()) {
+                    station.setValue(Collections.unmodifiableList(station.getValue()));
+                }
+            }
+            this.meals = meals;
+            this.size = entries.size();
+        }
+
+        public Set<String> getMeals() {
+            return Collections.unmodifiableSet(meals.keySet());
+        }
+
+        /**
+         * @return Station -> items of the meal; empty if the meal is not on this menu
+         */
+        public Map<String, List<String>> getStations(String mealTime) {
+            Map<String, List<String>> stations = meals.get(mealTime);
+            return stations != null ? Collections.unmodifiableMap(stations) : Collections.emptyMap();
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    private final MenuDatabaseHelper dbHelper;
+    private final LruCache<Long, MenuVersion> versions = new LruCache<>(VERSION_CACHE_SIZE);
+    // "hall\ndate" -> version id
+    private final LruCache<String, Long> days = new LruCache<>(DAY_CACHE_SIZE);
+
+    public static synchronized MenuVersionStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new MenuVersionStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MenuVersionStore(Context context) {
+        dbHelper = MenuDatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Stores a fetched menu as the hall's menu for the result's date
+     *
+     * @return The menu's version, or null if the fetch failed
+     */
+    public MenuVersion record(String hallName, MSUMenuScraper.MenuResult result) {
+        if (result == null || !result.success || result.stations == null || result.date == null) {
+            return null;
+        }
+        List<String[]> entries = new ArrayList<>();
+        for (MSUMenuScraper.Station station : result.stations) {
+            for (MSUMenuScraper.Meal meal : station.meals) {
+                for (String item : meal.items) {
+                    entries.add(new String[]{meal.mealName, station.stationName, item});
+                }
+            }
+        }
+        return record(hallName, result.date, entries, true);
+    }
+
+    /**
+     * Stores (meal, station, item) entries as the hall's menu for a date
+     *
+     * @param replace Whether an existing menu for that day is replaced or kept
+     */
+    public synchronized MenuVersion record(String hallName, String dateKey, List<String[]> entries, boolean replace) {
+        List<String[]> canonical = canonicalize(entries);
+        String hash = hash(canonical);
+        String dayKey = hallName + '\n' + dateKey;
+
+        Long current = days.get(dayKey);
+        if (current == null) {
+            current = dbHelper.getMenuDayVersion(hallName, dateKey);
+        }
+        MenuVersion currentVersion = current >= 0 ? getVersion(current) : null;
+        if (currentVersion != null && (currentVersion.hash.equals(hash) || !replace)) {
+            days.put(dayKey, current);
+            return currentVersion;
+        }
+
+        long id = dbHelper.storeMenuDay(hallName, dateKey, hash, canonical);
+        days.put(dayKey, id);
+        MenuVersion version = versions.get(id);
+        if (version == null) {
+            version = new MenuVersion(id, hash, canonical);
+            versions.put(id, version);
+        }
+        Log.d(TAG, hallName + " " + dateKey + " -> version " + id + " (" + canonical.size() + " items)");
+        return version;
+    }
+
+    /**
+     * @return The hall's menu for the date, or null if none was stored
+     */
+    public MenuVersion getMenu(String hallName, String dateKey) {
+        String dayKey = hallName + '\n' + dateKey;
+        Long id = days.get(dayKey);
+        if (id == null) {
+            id = dbHelper.getMenuDayVersion(hallName, dateKey);
+            days.put(dayKey, id);
+        }
+        return id >= 0 ? getVersion(id) : null;
+    }
+
+    /**
+     * Drops cached day pointers, e.g. after old days were pruned from the database
+     */
+    public void invalidateDays() {
+        days.evictAll();
+    }
+
+    private MenuVersion getVersion(long id) {
+        MenuVersion version = versions.get(id);
+        if (version == null) {
+            String hash = dbHelper.getMenuVersionHash(id);
+            if (hash == null) {
+                return null;
+            }
+            version = new MenuVersion(id, hash, dbHelper.readMenuVersionEntries(id));
+            versions.put(id, version);
+        }
+        return version;
+    }
+
+    /**
+     * Sorted by meal, station, item without duplicates
+     */
+    static List<String[]> canonicalize(List<String[]> entries) {
+        List<String[]> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted, ENTRY_ORDER);
+        List<String[]> canonical = new ArrayList<>();
+        for (String[] entry : sorted) {
+            if (canonical.isEmpty() || ENTRY_ORDER.compare(canonical.get(canonical.size() - 1), entry) != 0) {
+                canonical.add(entry);
+            }
+        }
+        return canonical;
+    }
+
+    static String hash(List<String[]> canonical) {
+        StringBuilder text = new StringBuilder();
+        for (String[] entry : canonical) {
+            text.append(entry[0]).append(FIELD_SEPARATOR)
+                    .append(entry[1]).append(FIELD_SEPARATOR)
+                    .append(entry[2]).append(ENTRY_SEPARATOR);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
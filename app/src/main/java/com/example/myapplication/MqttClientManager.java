@@ -1,59 +1,310 @@
 package com.example.myapplication;
 
 import android.content.Context;
+import android.util.Log;
 
 import org.eclipse.paho.android.service.MqttAndroidClient;
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MqttClientManager {
-    private MqttAndroidClient client;
+    private static final String TAG = "MqttClientManager";
 
-    // Connect and report success/failure via the provided IMqttActionListener
-    public void connect(Context ctx, String serverUri, String clientId, IMqttActionListener cb) {
-        client = new MqttAndroidClient(ctx.getApplicationContext(), serverUri, clientId);
+    // Listener filters share one broker subscription per family: the first FAMILY_DEPTH
+    // topic levels plus '#', e.g. every screen watching Brody shares "seatshare/hall/brody/#"
+    private static final int FAMILY_DEPTH = 3;
+    private static final int DELIVERY_THREADS = 2;
+    // Messages kept for the outbox while connect() has not been called yet
+    private static final int MAX_EARLY_MESSAGES = 100;
+    // Automatic reconnect only starts after a first successful connect; until then a failed
+    // connect is retried with a new client, backing off between these delays
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    private static MqttClientManager instance;
+
+    /**
+     * Creates the client for a broker: MqttAndroidClient in the app, a plain client in tests
+     */
+    interface ClientFactory {
+        IMqttAsyncClient create(String serverUri, String clientId) throws MqttException;
+    }
+
+    private IMqttAsyncClient client;
+    // Outbox for outgoing messages; created with the client
+    private MqttPublisher publisher;
+    // Topic/payload pairs published before the outbox existed (guarded by this)
+    private final List<Object[]> earlyMessages = new ArrayList<>();
+
+    // Fans broker messages out to in-process listeners on the delivery executor
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(DELIVERY_THREADS);
+    private final MqttTopicRouter router = new MqttTopicRouter(deliveryExecutor);
+    private final IMqttMessageListener routeMessage =
+            (topic, message) -> router.route(topic, message.getPayload());
+
+    // Broker subscription family -> number of listeners using it (guarded by this).
+    // Re-issued on every connect, since clean sessions drop them.
+    private final Map<String, Integer> families = new HashMap<>();
+
+    // Connection settings of the last connect(), reused by first-connect retries (guarded by this)
+    private ClientFactory clientFactory;
+    private String serverUri;
+    private String clientId;
+    private IMqttActionListener connectCallback;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> retry;
+    private long retryDelayMs = INITIAL_RETRY_DELAY_MS;
+
+    public static synchronized MqttClientManager getInstance() {
+        if (instance == null) {
+            instance = new MqttClientManager();
+        }
+        return instance;
+    }
+
+    // Package-private for tests; the app uses the shared instance
+    MqttClientManager() {
+    }
+
+    // Connect and report success/failure via the provided IMqttActionListener. A first connect
+    // that fails (e.g. offline at launch) is retried with backoff, reporting each attempt.
+    public synchronized void connect(Context ctx, String serverUri, String clientId, IMqttActionListener cb) {
+        Context appContext = ctx.getApplicationContext();
+        connect(publisher != null ? publisher : new MqttPublisher(appContext),
+                (uri, id) -> new MqttAndroidClient(appContext, uri, id), serverUri, clientId, cb);
+    }
+
+    // Package-private for tests, which pass a plain client factory and their own outbox
+    synchronized void connect(MqttPublisher outbox, ClientFactory factory, String serverUri, String clientId,
+                              IMqttActionListener cb) {
+        if (client != null || retry != null) {
+            // Shared connection already created; automatic reconnect (or the first-connect
+            // retry) keeps it alive
+            if (cb != null && isConnected()) cb.onSuccess(null);
+            return;
+        }
+
+        if (publisher == null) {
+            publisher = outbox;
+            for (Object[] message : earlyMessages) {
+                publisher.publish((String) message[0], (byte[]) message[1]);
+            }
+            earlyMessages.clear();
+        }
+        this.clientFactory = factory;
+        this.serverUri = serverUri;
+        this.clientId = clientId;
+        this.connectCallback = cb;
+        retryDelayMs = INITIAL_RETRY_DELAY_MS;
+        openClient();
+    }
+
+    private void openClient() {
+        IMqttAsyncClient connectingClient;
+        try {
+            connectingClient = clientFactory.create(serverUri, clientId);
+        } catch (MqttException e) {
+            scheduleRetry(null, e);
+            return;
+        }
+        client = connectingClient;
+        client.setCallback(new MqttCallbackExtended() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                subscribeAllFamilies();
+                publisher.onConnected(connectingClient);
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+                Log.w(TAG, "Connection lost", cause);
+                publisher.onConnectionLost();
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                // Delivered through the family subscriptions
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
 
         MqttConnectOptions opts = new MqttConnectOptions();
         opts.setAutomaticReconnect(true);
         opts.setCleanSession(true);
 
+        IMqttActionListener cb = connectCallback;
         try {
-            client.connect(opts, null, cb);
+            client.connect(opts, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    if (cb != null) cb.onSuccess(asyncActionToken);
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    firstConnectFailed(connectingClient, asyncActionToken, exception);
+                }
+            });
         } catch (MqttException e) {
-            if (cb != null) cb.onFailure(null, e);
+            firstConnectFailed(connectingClient, null, e);
         }
     }
 
+    private void firstConnectFailed(IMqttAsyncClient failedClient, IMqttToken token, Throwable exception) {
+        IMqttActionListener cb;
+        synchronized (this) {
+            if (client != failedClient) {
+                // Disconnected (or replaced) meanwhile
+                return;
+            }
+            client = null;
+            cb = connectCallback;
+            scheduleRetry(failedClient, exception);
+        }
+        if (cb != null) cb.onFailure(token, exception);
+    }
+
+    // Called with the lock held
+    private void scheduleRetry(IMqttAsyncClient failedClient, Throwable cause) {
+        long delayMs = retryDelayMs;
+        retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        Log.w(TAG, "Connect failed, retrying in " + delayMs + " ms", cause);
+        retry = retryScheduler.schedule(() -> {
+            // Closed here rather than in its own failure callback
+            if (failedClient != null) {
+                try { failedClient.close(); } catch (Exception ignored) { }
+            }
+            synchronized (MqttClientManager.this) {
+                if (retry == null) {
+                    // disconnect() was called meanwhile
+                    return;
+                }
+                retry = null;
+                openClient();
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isConnected() {
+        return client != null && client.isConnected();
+    }
+
     // Publish a small payload
     public void publish(String topic, String payload) {
-        if (client == null || !client.isConnected()) return;
-        try {
-            MqttMessage msg = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
-            msg.setQos(0);
-            client.publish(topic, msg);
-        } catch (Exception ignored) { }
+        publish(topic, payload.getBytes(StandardCharsets.UTF_8));
     }
 
-    // Subscribe; returns true if request accepted, false if it failed immediately
-    public boolean subscribe(String topic, IMqttMessageListener listener) {
-        if (client == null) return false;
-        try {
-            client.subscribe(topic, 0, listener);
-            return true;
-        } catch (MqttException e) {
-            return false;
+    // Queue a payload through the outbox; sent now if connected, otherwise after reconnect.
+    // QoS and coalescing are chosen per topic (see MqttPublisher). The array must not be reused.
+    public synchronized void publish(String topic, byte[] payload) {
+        if (publisher == null) {
+            // The outbox needs a Context; it takes these over in connect()
+            if (earlyMessages.size() >= MAX_EARLY_MESSAGES) {
+                Log.w(TAG, "Too many messages before connect, dropping the oldest");
+                earlyMessages.remove(0);
+            }
+            earlyMessages.add(new Object[]{topic, payload});
+            return;
+        }
+        publisher.publish(topic, payload);
+    }
+
+    // Register an in-process listener for an MQTT topic filter. May be called before connect;
+    // the broker subscription for the filter's family is made once connected.
+    // The listener runs on a background thread; see MqttTopicRouter for the drop policies.
+    public synchronized MqttTopicRouter.Subscription subscribe(String filter, MqttTopicRouter.Listener listener,
+                                                               MqttTopicRouter.DropPolicy policy, int capacity) {
+        MqttTopicRouter.Subscription subscription = router.addListener(filter, listener, policy, capacity);
+        String family = familyOf(filter);
+        Integer count = families.get(family);
+        families.put(family, count == null ? 1 : count + 1);
+        if (count == null && isConnected()) {
+            subscribeFamily(family);
+        }
+        return subscription;
+    }
+
+    // Remove a listener; the broker subscription goes away with the family's last listener
+    public synchronized void unsubscribe(MqttTopicRouter.Subscription subscription) {
+        router.removeListener(subscription);
+        String family = familyOf(subscription.getFilter());
+        Integer count = families.get(family);
+        if (count == null) return;
+        if (count > 1) {
+            families.put(family, count - 1);
+            return;
+        }
+        families.remove(family);
+        if (isConnected()) {
+            try { client.unsubscribe(family); } catch (MqttException ignored) { }
         }
     }
 
     // Disconnect if connected
-    public void disconnect() {
+    public synchronized void disconnect() {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
         if (client != null) {
             try { client.disconnect(); } catch (Exception ignored) { }
+            client = null;
+            // Queued messages stay on disk and go out after the next connect
+            if (publisher != null) publisher.onConnectionLost();
+        }
+    }
+
+    /**
+     * Broker filter covering a listener filter: the first FAMILY_DEPTH levels plus '#', cut
+     * short at the first wildcard. Short filters are used as they are.
+     */
+    static String familyOf(String filter) {
+        String[] levels = filter.split("/", -1);
+        if (levels.length <= FAMILY_DEPTH && !filter.contains("+")) {
+            return filter;
+        }
+        StringBuilder family = new StringBuilder();
+        for (int i = 0; i < FAMILY_DEPTH; i++) {
+            if (levels[i].equals("+") || levels[i].equals("#")) {
+                break;
+            }
+            family.append(levels[i]).append('/');
+        }
+        return family.append('#').toString();
+    }
+
+    private synchronized void subscribeAllFamilies() {
+        for (String family : families.keySet()) {
+            subscribeFamily(family);
+        }
+    }
+
+    private void subscribeFamily(String family) {
+        try {
+            client.subscribe(family, 0, routeMessage);
+        } catch (MqttException e) {
+            Log.w(TAG, "Subscribe failed for " + family, e);
         }
     }
 }
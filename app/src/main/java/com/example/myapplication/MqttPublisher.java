@@ -0,0 +1,321 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MqttPublisher - Outbox between callers and the MQTT connection
+ *
+ * Features:
+ * - Per-topic policy: claim (check-in/check-out) topics are QoS 1 events, every message is
+ *   kept and must be acknowledged; all other topics are QoS 0 state, where only the latest
+ *   payload per topic is kept (coalescing)
+ * - Bounded outbox (MAX_PENDING messages); state is evicted before events when full
+ * - The outbox is mirrored to a file in filesDir, so unsent events survive network drops
+ *   and process death; writes are debounced and done atomically (temp file + rename).
+ *   QoS 1 events stay in the file until the broker acknowledges them
+ * - Events carry a sequence number; an unacknowledged event goes back to its place in the
+ *   queue, so a check-out is never sent ahead of its check-in
+ * - Flushing is batched: at most FLUSH_BATCH_SIZE messages per tick and at most
+ *   MAX_IN_FLIGHT unacknowledged QoS 1 messages, so a reconnect or a burst of updates
+ *   does not flood the broker
+ *
+ * Threading: all outbox state is owned by one scheduler thread; public methods only post to it.
+ */
+public class MqttPublisher {
+    private static final String TAG = "MqttPublisher";
+
+    private static final String OUTBOX_FILE = "mqtt_outbox.bin";
+    private static final int OUTBOX_FORMAT_VERSION = 1;
+
+    private static final int MAX_PENDING = 500;
+    private static final int MAX_IN_FLIGHT = 10;
+    private static final int FLUSH_BATCH_SIZE = 20;
+    // State updates wait this long so a burst on one topic collapses into one message
+    private static final long COALESCE_DELAY_MS = 100;
+    private static final long FLUSH_INTERVAL_MS = 50;
+    private static final long PERSIST_DELAY_MS = 1000;
+
+    // Topics ending with this suffix carry seat check-in/check-out events
+    static final String CLAIM_SUFFIX = "/claim";
+
+    private static final class Pending {
+        final long seq;
+        final String topic;
+        final byte[] payload;
+        final int qos;
+
+        Pending(long seq, String topic, byte[] payload, int qos) {
+            this.seq = seq;
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+        }
+    }
+
+    private final File outboxFile;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Scheduler-thread state
+    // Events waiting to be sent, and events sent but not yet acknowledged, by sequence number
+    private final TreeMap<Long, Pending> events = new TreeMap<>();
+    private final TreeMap<Long, Pending> inFlight = new TreeMap<>();
+    private final LinkedHashMap<String, Pending> latestState = new LinkedHashMap<>();
+    private IMqttAsyncClient client;
+    private boolean connected = false;
+    private long nextSeq = 0;
+    private boolean flushScheduled = false;
+    private boolean persistScheduled = false;
+
+    MqttPublisher(Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), OUTBOX_FILE));
+    }
+
+    // Package-private for tests, which keep the outbox in a temporary folder
+    MqttPublisher(File outboxFile) {
+        this.outboxFile = outboxFile;
+        scheduler.execute(this::loadOutbox);
+    }
+
+    /**
+     * Returns the QoS used for a topic: 1 for claim events, 0 for state
+     */
+    static int qosForTopic(String topic) {
+        return isEvent(topic) ? 1 : 0;
+    }
+
+    private static boolean isEvent(String topic) {
+        return topic.endsWith(CLAIM_SUFFIX);
+    }
+
+    /**
+     * Queues a payload; the array is owned by the publisher from here on
+     */
+    void publish(String topic, byte[] payload) {
+        scheduler.execute(() -> {
+            Pending pending = new Pending(nextSeq++, topic, payload, qosForTopic(topic));
+            if (isEvent(topic)) {
+                events.put(pending.seq, pending);
+                scheduleFlush(0);
+            } else {
+                // Re-insert so the topic moves to the back of the send order
+                latestState.remove(topic);
+                latestState.put(topic, pending);
+                scheduleFlush(COALESCE_DELAY_MS);
+            }
+            enforceBound();
+            schedulePersist();
+        });
+    }
+
+    /**
+     * Called when the client (re)connects; starts draining the outbox
+     */
+    void onConnected(IMqttAsyncClient connectedClient) {
+        scheduler.execute(() -> {
+            client = connectedClient;
+            connected = true;
+            // Acknowledgements of the previous connection may never come; send those events again
+            events.putAll(inFlight);
+            inFlight.clear();
+            scheduleFlush(0);
+        });
+    }
+
+    void onConnectionLost() {
+        scheduler.execute(() -> connected = false);
+    }
+
+    private void enforceBound() {
+        while (events.size() + latestState.size() > MAX_PENDING) {
+            if (!latestState.isEmpty()) {
+                Iterator<String> oldest = latestState.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            } else {
+                Pending dropped = events.pollFirstEntry().getValue();
+                Log.w(TAG, "Outbox full, dropping event for " + dropped.topic);
+            }
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled || !connected) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (!connected || client == null) {
+            return;
+        }
+
+        int sent = 0;
+        // Events first, in order, bounded by the QoS 1 in-flight window
+        while (sent < FLUSH_BATCH_SIZE && inFlight.size() < MAX_IN_FLIGHT && !events.isEmpty()) {
+            Pending event = events.pollFirstEntry().getValue();
+            if (!send(event)) {
+                events.put(event.seq, event);
+                return;
+            }
+            sent++;
+        }
+
+        Iterator<Pending> state = latestState.values().iterator();
+        while (sent < FLUSH_BATCH_SIZE && state.hasNext()) {
+            Pending pending = state.next();
+            if (!send(pending)) {
+                return;
+            }
+            state.remove();
+            sent++;
+        }
+
+        if (sent > 0) {
+            schedulePersist();
+        }
+        if (!latestState.isEmpty() || (!events.isEmpty() && inFlight.size() < MAX_IN_FLIGHT)) {
+            scheduleFlush(FLUSH_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Hands one message to the client
+     *
+     * @return false if the client refused it (connection gone); the caller keeps the message
+     */
+    private boolean send(Pending pending) {
+        try {
+            if (pending.qos == 0) {
+                client.publish(pending.topic, pending.payload, 0, false);
+                return true;
+            }
+
+            // Stays in the persisted outbox until acknowledged
+            inFlight.put(pending.seq, pending);
+            client.publish(pending.topic, pending.payload, pending.qos, false, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    scheduler.execute(() -> {
+                        if (inFlight.remove(pending.seq) != null) {
+                            schedulePersist();
+                        }
+                        scheduleFlush(0);
+                    });
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    scheduler.execute(() -> {
+                        // Not acknowledged - back to its place in the queue
+                        if (inFlight.remove(pending.seq) != null) {
+                            events.put(pending.seq, pending);
+                        }
+                        scheduleFlush(FLUSH_INTERVAL_MS);
+                    });
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            if (pending.qos > 0) {
+                inFlight.remove(pending.seq);
+            }
+            connected = false;
+            Log.w(TAG, "Publish failed, keeping message for " + pending.topic, e);
+            return false;
+        }
+    }
+
+    private void schedulePersist() {
+        if (persistScheduled) {
+            return;
+        }
+        persistScheduled = true;
+        scheduler.schedule(this::persistOutbox, PERSIST_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void persistOutbox() {
+        persistScheduled = false;
+        File tmp = new File(outboxFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(OUTBOX_FORMAT_VERSION);
+            // Unacknowledged and queued events, in their original order
+            TreeMap<Long, Pending> unsent = new TreeMap<>(events);
+            unsent.putAll(inFlight);
+            out.writeInt(unsent.size() + latestState.size());
+            for (Pending pending : unsent.values()) {
+                writePending(out, pending);
+            }
+            for (Pending pending : latestState.values()) {
+                writePending(out, pending);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not persist outbox", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(outboxFile)) {
+            Log.w(TAG, "Could not replace outbox file");
+            tmp.delete();
+        }
+    }
+
+    private static void writePending(DataOutputStream out, Pending pending) throws IOException {
+        out.writeUTF(pending.topic);
+        out.writeByte(pending.qos);
+        out.writeInt(pending.payload.length);
+        out.write(pending.payload);
+    }
+
+    private void loadOutbox() {
+        if (!outboxFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(outboxFile)))) {
+            if (in.readInt() != OUTBOX_FORMAT_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String topic = in.readUTF();
+                int qos = in.readByte();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                Pending pending = new Pending(nextSeq++, topic, payload, qos);
+                if (isEvent(topic)) {
+                    events.put(pending.seq, pending);
+                } else {
+                    latestState.put(topic, pending);
+                }
+            }
+            enforceBound();
+            Log.d(TAG, "Restored " + (events.size() + latestState.size()) + " queued message(s)");
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable outbox", e);
+            events.clear();
+            latestState.clear();
+        }
+    }
+}
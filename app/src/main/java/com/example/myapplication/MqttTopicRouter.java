@@ -0,0 +1,302 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MqttTopicRouter - In-process fan-out of MQTT messages to many listeners
+ *
+ * Features:
+ * - Listener filters use MQTT syntax ('+' one level, '#' trailing multi-level) and are
+ *   stored in a trie, so matching a topic costs one walk per level regardless of how many
+ *   listeners are registered
+ * - Every listener has its own bounded mailbox and is drained on the shared delivery
+ *   executor; a listener never runs concurrently with itself and a slow listener only
+ *   fills its own mailbox
+ * - When a mailbox is full the listener's DropPolicy decides what is lost
+ *
+ * Threading: route() may be called from any thread (the MQTT callback thread in practice)
+ * and only matches and enqueues. Listeners run on the delivery executor.
+ */
+public class MqttTopicRouter {
+    private static final String TAG = "MqttTopicRouter";
+
+    // Messages a listener may process in one turn before yielding the executor thread
+    private static final int DRAIN_BATCH = 64;
+
+    /**
+     * Receives routed messages on the delivery executor
+     */
+    public interface Listener {
+        void onMessage(String topic, byte[] payload);
+    }
+
+    /**
+     * What to do when a listener's mailbox is full
+     */
+    public enum DropPolicy {
+        // Discard the oldest queued message (stream of independent events)
+        DROP_OLDEST,
+        // Discard the incoming message (the backlog matters more than new data)
+        DROP_NEWEST,
+        // Keep only the latest payload per topic; the mailbox bounds distinct topics
+        LATEST_PER_TOPIC
+    }
+
+    private final Executor deliveryExecutor;
+    private final Node root = new Node();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public MqttTopicRouter(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Registers a listener
+     *
+     * @param filter MQTT topic filter, e.g. "seatshare/hall/brody/#"
+     * @param capacity Mailbox size (messages, or distinct topics for LATEST_PER_TOPIC)
+     * @return Handle for removeListener
+     */
+    public Subscription addListener(String filter, Listener listener, DropPolicy policy, int capacity) {
+        validateFilter(filter);
+        Subscription subscription = new Subscription(filter, listener, policy, Math.max(1, capacity));
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            for (String level : filter.split("/", -1)) {
+                Node child = node.children.get(level);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(level, child);
+                }
+                node = child;
+            }
+            node.subscriptions.add(subscription);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return subscription;
+    }
+
+    public void removeListener(Subscription subscription) {
+        lock.writeLock().lock();
+        try {
+            removeFrom(root, subscription.filter.split("/", -1), 0, subscription);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        subscription.closed = true;
+    }
+
+    /**
+     * Delivers a message to every matching listener's mailbox
+     *
+     * @return Number of listeners the message was routed to
+     */
+    public int route(String topic, byte[] payload) {
+        List<Subscription> matches = new ArrayList<>(4);
+        lock.readLock().lock();
+        try {
+            match(root, topic, 0, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < matches.size(); i++) {
+            matches.get(i).offer(topic, payload);
+        }
+        return matches.size();
+    }
+
+    private static void validateFilter(String filter) {
+        String[] levels = filter.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.equals("#") && i != levels.length - 1) {
+                throw new IllegalArgumentException("'#' must be the last level: " + filter);
+            }
+            if (level.length() > 1 && (level.contains("#") || level.contains("+"))) {
+                throw new IllegalArgumentException("Wildcards must occupy a whole level: " + filter);
+            }
+        }
+    }
+
+    /**
+     * Walks the trie for the topic level starting at 'start'
+     */
+    private static void match(Node node, String topic, int start, List<Subscription> out) {
+        // '#' under this node matches all remaining levels
+        Node multi = node.children.get("#");
+        if (multi != null && !(start == 0 && topic.startsWith("$"))) {
+            out.addAll(multi.subscriptions);
+        }
+
+        int end = topic.indexOf('/', start);
+        if (end < 0) end = topic.length();
+        String level = topic.substring(start, end);
+
+        Node exact = node.children.get(level);
+        if (exact != null) {
+            descend(exact, topic, end, out);
+        }
+        Node single = node.children.get("+");
+        if (single != null && !(start == 0 && topic.startsWith("$"))) {
+            descend(single, topic, end, out);
+        }
+    }
+
+    private static void descend(Node child, String topic, int levelEnd, List<Subscription> out) {
+        if (levelEnd == topic.length()) {
+            // Last level: exact subscribers plus "x/#" which also matches "x"
+            out.addAll(child.subscriptions);
+            Node multi = child.children.get("#");
+            if (multi != null) {
+                out.addAll(multi.subscriptions);
+            }
+        } else {
+            match(child, topic, levelEnd + 1, out);
+        }
+    }
+
+    private static boolean removeFrom(Node node, String[] levels, int depth, Subscription subscription) {
+        if (depth == levels.length) {
+            node.subscriptions.remove(subscription);
+        } else {
+            Node child = node.children.get(levels[depth]);
+            if (child != null && removeFrom(child, levels, depth + 1, subscription)) {
+                node.children.remove(levels[depth]);
+            }
+        }
+        return node.subscriptions.isEmpty() && node.children.isEmpty();
+    }
+
+    private static final class Message {
+        final String topic;
+        final byte[] payload;
+
+        Message(String topic, byte[] payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<Subscription> subscriptions = new ArrayList<>(1);
+    }
+
+    /**
+     * A registered listener and its mailbox
+     */
+    public final class Subscription {
+        final String filter;
+        private final Listener listener;
+        private final DropPolicy policy;
+        private final int capacity;
+
+        // Guarded by 'this'
+        private final ArrayDeque<Message> queue = new ArrayDeque<>();
+        private final LinkedHashMap<String, byte[]> latest = new LinkedHashMap<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed = false;
+
+        private final Runnable drainTask = this::drain;
+
+        Subscription(String filter, Listener listener, DropPolicy policy, int capacity) {
+            this.filter = filter;
+            this.listener = listener;
+            this.policy = policy;
+            this.capacity = capacity;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        /**
+         * Messages lost to this listener's drop policy so far
+         */
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        void offer(String topic, byte[] payload) {
+            if (closed) return;
+            synchronized (this) {
+                if (policy == DropPolicy.LATEST_PER_TOPIC) {
+                    if (latest.remove(topic) != null) {
+                        dropped.incrementAndGet();
+                    } else if (latest.size() >= capacity) {
+                        Iterator<String> oldest = latest.keySet().iterator();
+                        oldest.next();
+                        oldest.remove();
+                        dropped.incrementAndGet();
+                    }
+                    latest.put(topic, payload);
+                } else if (queue.size() >= capacity) {
+                    dropped.incrementAndGet();
+                    if (policy == DropPolicy.DROP_NEWEST) {
+                        return;
+                    }
+                    queue.pollFirst();
+                    queue.addLast(new Message(topic, payload));
+                } else {
+                    queue.addLast(new Message(topic, payload));
+                }
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(drainTask);
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH && !closed; i++) {
+                String topic;
+                byte[] payload;
+                synchronized (this) {
+                    if (policy == DropPolicy.LATEST_PER_TOPIC) {
+                        Iterator<Map.Entry<String, byte[]>> first = latest.entrySet().iterator();
+                        if (!first.hasNext()) break;
+                        Map.Entry<String, byte[]> entry = first.next();
+                        first.remove();
+                        topic = entry.getKey();
+                        payload = entry.getValue();
+                    } else {
+                        Message message = queue.pollFirst();
+                        if (message == null) break;
+                        topic = message.topic;
+                        payload = message.payload;
+                    }
+                }
+                try {
+                    listener.onMessage(topic, payload);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Listener for " + filter + " failed", e);
+                }
+            }
+
+            scheduled.set(false);
+            // Re-check: more work may have arrived, or the batch limit was hit
+            boolean more;
+            synchronized (this) {
+                more = !closed && (!queue.isEmpty() || !latest.isEmpty());
+            }
+            if (more && scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(drainTask);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * NutritionEnricher - Links scraped menu items to nutrition records in bulk
+ *
+ * Scraped names rarely equal the seeded item names ("Belgian Waffle Bar" vs "Belgian Waffles"),
+ * so after every menu change the distinct names of the hall's unlinked items are resolved at once:
+ * 1. Names are normalized (case, accents, punctuation, plural "s", filler words)
+ * 2. Names already in the nutrition_resolution table are taken from there, including misses,
+ *    which are only retried after MISS_RETRY_MS
+ * 3. The rest are fuzzy matched against the catalog: candidates come from an inverted token
+ *    index and are scored by token overlap (Dice coefficient); MIN_SCORE or better wins
+ * 4. Resolutions are stored and dynamic_menus rows get their menu_item_id (and allergen mask
+ *    when the page had no tags) in one transaction
+ *
+ * Detail screens read from an in-memory cache of the catalog records keyed by every resolved
+ * scraped name, so opening an item does not query the database.
+ *
+ * Threading: enrich() runs on the caller's background thread; getDetails() may be called from
+ * any thread.
+ */
+public class NutritionEnricher {
+    private static final String TAG = "NutritionEnricher";
+
+    private static final float MIN_SCORE = 0.6f;
+    private static final long MISS_RETRY_MS = 7 * 24 * 60 * 60 * 1000L;
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList(
+            "a", "and", "the", "of", "with", "w", "in", "on", "fresh", "homemade", "style"));
+
+    private static NutritionEnricher instance;
+
+    /**
+     * Cached outcome of resolving one normalized name
+     */
+    public static final class Resolution {
+        public final String normalizedName;
+        // -1 when no catalog item matched
+        public final long menuItemId;
+        public final float score;
+        public final long resolvedAtMs;
+
+        public Resolution(String normalizedName, long menuItemId, float score, long resolvedAtMs) {
+            this.normalizedName = normalizedName;
+            this.menuItemId = menuItemId;
+            this.score = score;
+            this.resolvedAtMs = resolvedAtMs;
+        }
+    }
+
+    /**
+     * Catalog of nutrition records with a token index for candidate lookup
+     */
+    private static final class Catalog {
+        final Map<Long, MenuItemDetailed> byId = new HashMap<>();
+        final Map<String, Long> byNormalizedName = new HashMap<>();
+        final Map<Long, Set<String>> tokensById = new HashMap<>();
+        final Map<String, List<Long>> idsByToken = new HashMap<>();
+
+        Catalog(List<MenuItemDetailed> items) {
+            for (MenuItemDetailed item : items) {
+                long id = item.getId();
+                byId.put(id, item);
+                // Items come in id order, so scraped details win over a sample item of the same name
+                String normalized = normalizeName(item.getName());
+                byNormalizedName.put(normalized, id);
+                Set<String> tokens = tokens(normalized);
+                tokensById.put(id, tokens);
+                for (String token : tokens) {
+                    List<Long> ids = idsByToken.get(token);
+                    if (ids == null) {
+                        ids = new ArrayList<>();
+                        idsByToken.put(token, ids);
+                    }
+                    ids.add(id);
+                }
+            }
+        }
+
+        Resolution match(String normalized, long nowMs) {
+            Long exact = byNormalizedName.get(normalized);
+            if (exact != null) {
+                return new Resolution(normalized, exact, 1f, nowMs);
+            }
+
+            Set<String> tokens = tokens(normalized);
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String token : tokens) {
+                List<Long> ids = idsByToken.get(token);
+                if (ids == null) continue;
+                for (long id : ids) {
+                    Integer count = shared.get(id);
+                    shared.put(id, count == null ? 1 : count + 1);
+                }
+            }
+
+            long bestId = -1;
+            float bestScore = 0f;
+            int bestSize = Integer.MAX_VALUE;
+            for (Map.Entry<Long, Integer> entry : shared.entrySet()) {
+                int size = tokensById.get(entry.getKey()).size();
+                float score = 2f * entry.getValue() / (tokens.size() + size);
+                // Ties go to the more specific (shorter) catalog name
+                if (score > bestScore || (score == bestScore && size < bestSize)) {
+                    bestId = entry.getKey();
+                    bestScore = score;
+                    bestSize = size;
+                }
+            }
+            return bestScore >= MIN_SCORE
+                    ? new Resolution(normalized, bestId, bestScore, nowMs)
+                    : new Resolution(normalized, -1, bestScore, nowMs);
+        }
+    }
+
+    private final MenuDatabaseHelper dbHelper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private Catalog catalog;
+    // Scraped or catalog item name (lower case) -> record shown on the detail screen
+    private final Map<String, MenuItemDetailed> details = new ConcurrentHashMap<>();
+
+    public static synchronized NutritionEnricher getInstance(Context context) {
+        if (instance == null) {
+            instance = new NutritionEnricher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NutritionEnricher(Context context) {
+        dbHelper = MenuDatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Fills the detail cache in the background (catalog items and today's resolved items)
+     */
+    public void preloadAsync() {
+        executor.execute(() -> {
+            Catalog current = getCatalog();
+            for (Map.Entry<String, Long> entry : dbHelper.getResolvedDynamicItems().entrySet()) {
+                cacheDetails(current, entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Precomputed nutrition record for a menu item, or null if none is known
+     */
+    public MenuItemDetailed getDetails(String itemName) {
+        return details.get(itemName.toLowerCase());
+    }
+
+    /**
+     * Resolves the nutrition of the items of the hall's menu for today that are not linked yet
+     */
+    public synchronized void enrich(String hallName) {
+        Catalog current = getCatalog();
+        Collection<String> names = dbHelper.getUnlinkedItemNamesForToday(hallName);
+        if (names.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> normalizedByName = new HashMap<>();
+        for (String name : names) {
+            normalizedByName.put(name, normalizeName(name));
+        }
+        Map<String, Resolution> resolutions = dbHelper.getNutritionResolutions(
+                new HashSet<>(normalizedByName.values()));
+
+        long now = System.currentTimeMillis();
+        List<Resolution> fresh = new ArrayList<>();
+        for (String normalized : new HashSet<>(normalizedByName.values())) {
+            Resolution cached = resolutions.get(normalized);
+            boolean stale = cached != null && cached.menuItemId < 0 && now - cached.resolvedAtMs > MISS_RETRY_MS;
+            if (cached == null || stale) {
+                Resolution resolved = current.match(normalized, now);
+                resolutions.put(normalized, resolved);
+                fresh.add(resolved);
+            }
+        }
+
+        Map<String, Long> idsByName = new HashMap<>();
+        int matched = 0;
+        for (Map.Entry<String, String> entry : normalizedByName.entrySet()) {
+            long id = resolutions.get(entry.getValue()).menuItemId;
+            if (id >= 0) {
+                idsByName.put(entry.getKey(), id);
+                matched++;
+                cacheDetails(current, entry.getKey(), id);
+            }
+        }
+        dbHelper.applyNutritionResolutions(hallName, fresh, idsByName);
+        Log.d(TAG, hallName + ": matched " + matched + "/" + names.size() + " items, "
+                + fresh.size() + " newly resolved");
+    }
+
+    /**
+     * Reloads the catalog on next use after menu_items changed. Misses and fuzzy matches are
+     * dropped from the resolution cache, since a new record may now match them better.
+     */
+    public synchronized void onCatalogChanged() {
+        catalog = null;
+        dbHelper.clearWeakNutritionResolutions();
+    }
+
+    private synchronized Catalog getCatalog() {
+        if (catalog == null) {
+            List<MenuItemDetailed> items = dbHelper.getAllMenuItemDetails();
+            catalog = new Catalog(items);
+            for (MenuItemDetailed item : items) {
+                details.put(item.getName().toLowerCase(), item);
+            }
+        }
+        return catalog;
+    }
+
+    private void cacheDetails(Catalog current, String itemName, long menuItemId) {
+        MenuItemDetailed record = current.byId.get(menuItemId);
+        if (record == null) {
+            return;
+        }
+        // Same nutrition, shown under the name the hall uses
+        MenuItemDetailed copy = new MenuItemDetailed(record.getId(), itemName, record.getDescription(),
+                record.getCategory(), record.getCalories(), record.getFat(), record.getProtein(),
+                record.getCarbs(), record.getFiber(), record.getSugar(), record.getAllergens(),
+                record.getIngredients(), record.getImagePath(), record.getPrice());
+        copy.setAllergenMask(record.getAllergenMask());
+        details.put(itemName.toLowerCase(), copy);
+    }
+
+    /**
+     * Canonical form used for matching and as the resolution table key
+     */
+    static String normalizeName(String name) {
+        StringBuilder buffer = new StringBuilder();
+        FavoritesMatcher.normalize(name, buffer);
+        StringBuilder normalized = new StringBuilder();
+        for (String token : buffer.toString().trim().split(" ")) {
+            if (token.isEmpty() || FILLER_WORDS.contains(token)) {
+                continue;
+            }
+            // Crude singular form: "waffles" -> "waffle", but keep "ss" words like "bass"
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            if (normalized.length() > 0) normalized.append(' ');
+            normalized.append(token);
+        }
+        return normalized.toString();
+    }
+
+    private static Set<String> tokens(String normalized) {
+        Set<String> tokens = new HashSet<>();
+        if (!normalized.isEmpty()) {
+            tokens.addAll(Arrays.asList(normalized.split(" ")));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * NutritionIndex - Columnar in-memory index of the nutrition values on every hall's current menu
+ *
+ * Layout: one row per (hall, meal, station, item) with known nutrition; each nutrient is a
+ * float[] column, plus a permutation of the rows sorted by that nutrient. Queries:
+ * - Range constraints on several nutrients: the constraint matching the fewest rows (found by
+ *   binary search in its sorted column) drives the scan, the others are checked column-wise
+ * - Top-K by a nutrient: either a bounded heap over the range candidates, or, when the ranges
+ *   are loose, a walk down the sorted column that stops after K matches
+ *
+ * Unknown values are NaN: a row never matches a range on a nutrient it does not know, and is
+ * left out when ordering by it. Rows with equal values keep the order they were loaded in.
+ *
+ * The index is built on first use (refreshAsync) and reloaded only when menus changed since
+ * (invalidate), so nothing is read while no screen filters by nutrition.
+ *
+ * Usage:
+ *   NutritionIndex.Query query = new NutritionIndex.Query()
+ *           .atMost(Nutrient.CALORIES, 400).atLeast(Nutrient.PROTEIN, 20)
+ *           .meal("Lunch").orderBy(Nutrient.PROTEIN, true).limit(10);
+ *   index.refreshAsync(() -> show(index.query(query)));
+ *
+ * Threading: rebuilds run in the background and publish a new immutable snapshot; queries may
+ * be called from any thread, and never touch the database.
+ */
+public class NutritionIndex {
+    private static final String TAG = "NutritionIndex";
+
+    // Above this many range candidates an ordered query walks the sorted order column instead
+    private static final int SORTED_WALK_THRESHOLD = 256;
+
+    private static NutritionIndex instance;
+
+    public enum Nutrient {
+        CALORIES, FAT, PROTEIN, CARBS, FIBER, SUGAR
+    }
+
+    private static final int NUTRIENTS = Nutrient.values().length;
+
+    /**
+     * Receives one row while the index is loaded from the database; values are in Nutrient
+     * order, NaN where unknown
+     */
+    public interface RowSink {
+        void add(String hallName, String mealTime, String stationName, String itemName, float[] values);
+    }
+
+    /**
+     * Supplies the rows of a rebuild (the database, or fixed rows in tests)
+     */
+    interface RowSource {
+        void readInto(RowSink sink);
+    }
+
+    /**
+     * One matching menu row
+     */
+    public static final class Result {
+        public final String hallName;
+        public final String mealTime;
+        public final String stationName;
+        public final String itemName;
+        private final float[] values;
+
+        Result(String hallName, String mealTime, String stationName, String itemName, float[] values) {
+            this.hallName = hallName;
+            this.mealTime = mealTime;
+            this.stationName = stationName;
+            this.itemName = itemName;
+            this.values = values;
+        }
+
+        /**
+         * @return The value, or NaN if unknown
+         */
+        public float get(Nutrient nutrient) {
+            return values[nutrient.ordinal()];
+        }
+    }
+
+    /**
+     * Multi-attribute range / top-K query. Bounds are inclusive; unset bounds are open, and
+     * only those let rows with unknown values through.
+     */
+    public static final class Query {
+        private final float[] min = new float[NUTRIENTS];
+        private final float[] max = new float[NUTRIENTS];
+        private String mealTime;
+        private String hallName;
+        private Nutrient orderBy;
+        private boolean descending;
+        private int limit = Integer.MAX_VALUE;
+
+        public Query() {
+            Arrays.fill(min, Float.NEGATIVE_INFINITY);
+            Arrays.fill(max, Float.POSITIVE_INFINITY);
+        }
+
+        public Query range(Nutrient nutrient, float low, float high) {
+            min[nutrient.ordinal()] = low;
+            max[nutrient.ordinal()] = high;
+            return this;
+        }
+
+        public Query atLeast(Nutrient nutrient, float low) {
+            min[nutrient.ordinal()] = low;
+            return this;
+        }
+
+        public Query atMost(Nutrient nutrient, float high) {
+            max[nutrient.ordinal()] = high;
+            return this;
+        }
+
+        /**
+         * Only rows of this meal ("Breakfast", "Lunch", "Dinner"); null for all meals
+         */
+        public Query meal(String mealTime) {
+            this.mealTime = mealTime;
+            return this;
+        }
+
+        /**
+         * Only rows of this hall; null for every hall
+         */
+        public Query hall(String hallName) {
+            this.hallName = hallName;
+            return this;
+        }
+
+        public Query orderBy(Nutrient nutrient, boolean descending) {
+            this.orderBy = nutrient;
+            this.descending = descending;
+            return this;
+        }
+
+        public Query limit(int limit) {
+            this.limit = Math.max(0, limit);
+            return this;
+        }
+
+        boolean isConstrained(int n) {
+            return min[n] != Float.NEGATIVE_INFINITY || max[n] != Float.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Immutable columnar snapshot
+     */
+    private static final class Columns {
+        static final Columns EMPTY = new Columns(0);
+
+        final int rows;
+        final String[] halls;
+        final String[] meals;
+        final String[] stations;
+        final String[] items;
+        // values[nutrient][row]
+        final float[][] values;
+        // sorted[nutrient] = row ids ordered by ascending value, then row id (unknown values
+        // last); sortedValues alongside it
+        final int[][] sorted;
+        final float[][] sortedValues;
+
+        Columns(int rows) {
+            this.rows = rows;
+            halls = new String[rows];
+            meals = new String[rows];
+            stations = new String[rows];
+            items = new String[rows];
+            values = new float[NUTRIENTS][rows];
+            sorted = new int[NUTRIENTS][];
+            sortedValues = new float[NUTRIENTS][rows];
+        }
+
+        void buildSortOrders() {
+            long[] keys = new long[rows];
+            for (int n = 0; n < NUTRIENTS; n++) {
+                float[] column = values[n];
+                // Sortable bits of the value in the high half, row id in the low half
+                for (int i = 0; i < rows; i++) {
+                    int bits = Float.floatToIntBits(column[i]);
+                    bits ^= (bits >> 31) & 0x7fffffff;
+                    keys[i] = ((long) bits << 32) | i;
+                }
+                Arrays.sort(keys);
+                sorted[n] = new int[rows];
+                for (int i = 0; i < rows; i++) {
+                    int row = (int) keys[i];
+                    sorted[n][i] = row;
+                    sortedValues[n][i] = column[row];
+                }
+            }
+        }
+
+        /**
+         * First position in the sorted column whose value is >= value (or > value if 'after');
+         * unknown values count as above every bound
+         */
+        int lowerBound(int n, float value, boolean after) {
+            float[] column = sortedValues[n];
+            int low = 0;
+            int high = rows;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (after ? column[mid] <= value : column[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        boolean matches(int row, Query query) {
+            for (int n = 0; n < NUTRIENTS; n++) {
+                float v = values[n][row];
+                // Written so that NaN (unknown) fails any constraint
+                if (query.isConstrained(n) && !(v >= query.min[n] && v <= query.max[n])) {
+                    return false;
+                }
+            }
+            return (query.mealTime == null || query.mealTime.equalsIgnoreCase(meals[row]))
+                    && (query.hallName == null || query.hallName.equalsIgnoreCase(halls[row]));
+        }
+    }
+
+    private final MenuDatabaseHelper dbHelper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile Columns columns = Columns.EMPTY;
+    // Set until the first build, and again whenever menus change
+    private volatile boolean stale = true;
+
+    public static synchronized NutritionIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new NutritionIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NutritionIndex(Context context) {
+        this(MenuDatabaseHelper.getInstance(context));
+    }
+
+    // Package-private for tests, which load rows with load() instead of from the database
+    NutritionIndex(MenuDatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Marks the index out of date after menus changed; the next refreshAsync() reloads it
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Reloads the index in the background if it is out of date, then runs onReady (if not
+     * null) on the main thread
+     */
+    public void refreshAsync(Runnable onReady) {
+        executor.execute(() -> {
+            if (stale) {
+                rebuild();
+            }
+            if (onReady != null) {
+                mainHandler.post(onReady);
+            }
+        });
+    }
+
+    /**
+     * Reloads the current menus of every hall on the calling (background) thread
+     */
+    public void rebuild() {
+        load(dbHelper::readCurrentNutrition);
+    }
+
+    void load(RowSource source) {
+        // Cleared first, so a change while reading marks the index stale again
+        stale = false;
+        List<Object[]> rows = new ArrayList<>();
+        source.readInto((hallName, mealTime, stationName, itemName, values) ->
+                rows.add(new Object[]{hallName, mealTime, stationName, itemName, values}));
+
+        Columns rebuilt = new Columns(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            rebuilt.halls[i] = (String) row[0];
+            rebuilt.meals[i] = (String) row[1];
+            rebuilt.stations[i] = (String) row[2];
+            rebuilt.items[i] = (String) row[3];
+            float[] values = (float[]) row[4];
+            for (int n = 0; n < NUTRIENTS; n++) {
+                rebuilt.values[n][i] = values[n];
+            }
+        }
+        rebuilt.buildSortOrders();
+        columns = rebuilt;
+        Log.d(TAG, "Indexed nutrition of " + rebuilt.rows + " menu rows");
+    }
+
+    public int size() {
+        return columns.rows;
+    }
+
+    public List<Result> query(Query query) {
+        Columns c = columns;
+        if (c.rows == 0 || query.limit == 0) {
+            return Collections.emptyList();
+        }
+
+        // Driving constraint: the one with the fewest rows in range
+        int drive = -1;
+        int driveFrom = 0;
+        int driveTo = c.rows;
+        for (int n = 0; n < NUTRIENTS; n++) {
+            if (!query.isConstrained(n)) continue;
+            int from = c.lowerBound(n, query.min[n], false);
+            int to = c.lowerBound(n, query.max[n], true);
+            if (drive < 0 || to - from < driveTo - driveFrom) {
+                drive = n;
+                driveFrom = from;
+                driveTo = Math.max(from, to);
+            }
+        }
+
+        if (query.orderBy != null && (drive < 0 || driveTo - driveFrom > SORTED_WALK_THRESHOLD)) {
+            return walkSorted(c, query);
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        if (drive < 0) {
+            for (int row = 0; row < c.rows; row++) {
+                if (c.matches(row, query)) candidates.add(row);
+            }
+        } else {
+            int[] order = c.sorted[drive];
+            for (int i = driveFrom; i < driveTo; i++) {
+                if (c.matches(order[i], query)) candidates.add(order[i]);
+            }
+        }
+
+        if (query.orderBy == null) {
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < candidates.size() && results.size() < query.limit; i++) {
+                results.add(toResult(c, candidates.get(i)));
+            }
+            return results;
+        }
+        return topK(c, candidates, query);
+    }
+
+    /**
+     * Walks the order-by column from the preferred end, stopping after 'limit' matches. The
+     * range ends before the unknown values, so rows without an order-by value are skipped.
+     */
+    private List<Result> walkSorted(Columns c, Query query) {
+        int n = query.orderBy.ordinal();
+        int[] order = c.sorted[n];
+        float[] sortedValues = c.sortedValues[n];
+        int from = c.lowerBound(n, query.min[n], false);
+        int to = c.lowerBound(n, query.max[n], true);
+        List<Result> results = new ArrayList<>();
+        if (!query.descending) {
+            for (int i = from; i < to && results.size() < query.limit; i++) {
+                if (c.matches(order[i], query)) {
+                    results.add(toResult(c, order[i]));
+                }
+            }
+            return results;
+        }
+        // Descending: groups of equal values from the top, each in row order
+        int groupEnd = to;
+        while (groupEnd > from && results.size() < query.limit) {
+            int groupStart = groupEnd - 1;
+            while (groupStart > from && sortedValues[groupStart - 1] == sortedValues[groupEnd - 1]) {
+                groupStart--;
+            }
+            for (int i = groupStart; i < groupEnd && results.size() < query.limit; i++) {
+                if (c.matches(order[i], query)) {
+                    results.add(toResult(c, order[i]));
+                }
+            }
+            groupEnd = groupStart;
+        }
+        return results;
+    }
+
+    /**
+     * Bounded heap over the candidates; the heap's head is the worst row kept so far. Among
+     * equal values the earlier row ranks first, as in walkSorted.
+     */
+    private List<Result> topK(Columns c, List<Integer> candidates, Query query) {
+        float[] key = c.values[query.orderBy.ordinal()];
+        int sign = query.descending ? 1 : -1;
+        // > 0 if row a ranks before row b
+        Comparator<Integer> ranking = (a, b) -> {
+            int byValue = sign * Float.compare(key[a], key[b]);
+            return byValue != 0 ? byValue : Integer.compare(b, a);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(ranking);
+        for (int row : candidates) {
+            if (Float.isNaN(key[row])) {
+                continue;
+            }
+            if (heap.size() < query.limit) {
+                heap.add(row);
+            } else if (ranking.compare(row, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+
+        Result[] results = new Result[heap.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            results[i] = toResult(c, heap.poll());
+        }
+        return Arrays.asList(results);
+    }
+
+    private static Result toResult(Columns c, int row) {
+        float[] values = new float[NUTRIENTS];
+        for (int n = 0; n < NUTRIENTS; n++) {
+            values[n] = c.values[n][row];
+        }
+        return new Result(c.halls[row], c.meals[row], c.stations[row], c.items[row], values);
+    }
+}
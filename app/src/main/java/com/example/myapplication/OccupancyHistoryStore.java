@@ -0,0 +1,638 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OccupancyHistoryStore - Embedded time-series store for per-hall seat occupancy
+ *
+ * Samples from SeatOccupancyEngine are folded into 1-minute buckets (mean, max, capacity);
+ * closed minutes are rolled up again into 15-minute and hourly buckets. Each resolution is
+ * written to its own append-only segment files under filesDir/occupancy_history:
+ *
+ *   <hall>_<1m|15m|1h>_<segmentIndex>.seg
+ *
+ * Segment format: 6-byte header (magic, format version, resolution) followed by records of
+ *   zigzag varint  delta-of-delta of the bucket index (0 for consecutive buckets)
+ *   zigzag varint  delta of mean occupied seats, in tenths
+ *   zigzag varint  delta of max occupied seats
+ *   zigzag varint  delta of capacity
+ * so a steady stream of buckets costs 4-6 bytes per record. A torn record at the end of a
+ * segment (crash mid-append) is ignored by readers and truncated away by the next writer.
+ *
+ * Retention: minute data is kept for 14 days, 15-minute data for ~13 months, hourly data
+ * for 3 years; whole expired segments are deleted once a day.
+ *
+ * Threading: writes and retention run on one background thread. query() reads segment files
+ * directly and may be called from any background thread.
+ */
+public class OccupancyHistoryStore {
+    private static final String TAG = "OccupancyHistoryStore";
+
+    private static final String DIRECTORY = "occupancy_history";
+    private static final int SEGMENT_MAGIC = 0x4F434353; // "OCCS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+    /**
+     * Stored resolutions: bucket size, buckets per segment file and retention
+     */
+    public enum Resolution {
+        MINUTE("1m", 1, 24 * 60, 14),
+        QUARTER_HOUR("15m", 15, 7 * 24 * 4, 400),
+        HOUR("1h", 60, 30 * 24, 3 * 365);
+
+        final String fileToken;
+        final int bucketMinutes;
+        final int bucketsPerSegment;
+        final long retentionMs;
+
+        Resolution(String fileToken, int bucketMinutes, int bucketsPerSegment, int retentionDays) {
+            this.fileToken = fileToken;
+            this.bucketMinutes = bucketMinutes;
+            this.bucketsPerSegment = bucketsPerSegment;
+            this.retentionMs = retentionDays * DAY_MS;
+        }
+
+        public long getBucketMs() {
+            return bucketMinutes * MINUTE_MS;
+        }
+
+        /**
+         * Finest resolution that still covers the start of the range and returns a
+         * reasonable number of points (at most a few thousand)
+         */
+        public static Resolution forRange(long fromMs, long toMs, long nowMs) {
+            long span = toMs - fromMs;
+            if (span <= 2 * DAY_MS && fromMs >= nowMs - MINUTE.retentionMs) {
+                return MINUTE;
+            }
+            if (span <= 31 * DAY_MS && fromMs >= nowMs - QUARTER_HOUR.retentionMs) {
+                return QUARTER_HOUR;
+            }
+            return HOUR;
+        }
+    }
+
+    /**
+     * Result of a range query; parallel arrays of length size()
+     */
+    public static final class Series {
+        public final Resolution resolution;
+        private long[] startMs = new long[64];
+        private float[] meanOccupied = new float[64];
+        private int[] maxOccupied = new int[64];
+        private int[] capacity = new int[64];
+        private int size = 0;
+
+        Series(Resolution resolution) {
+            this.resolution = resolution;
+        }
+
+        void add(long bucketStartMs, int meanTenths, int max, int cap) {
+            if (size == startMs.length) {
+                int grown = size * 2;
+                startMs = Arrays.copyOf(startMs, grown);
+                meanOccupied = Arrays.copyOf(meanOccupied, grown);
+                maxOccupied = Arrays.copyOf(maxOccupied, grown);
+                capacity = Arrays.copyOf(capacity, grown);
+            }
+            startMs[size] = bucketStartMs;
+            meanOccupied[size] = meanTenths / 10f;
+            maxOccupied[size] = max;
+            capacity[size] = cap;
+            size++;
+        }
+
+        public int size() { return size; }
+        public long getStartMs(int i) { return startMs[i]; }
+        public float getMeanOccupied(int i) { return meanOccupied[i]; }
+        public int getMaxOccupied(int i) { return maxOccupied[i]; }
+        public int getCapacity(int i) { return capacity[i]; }
+
+        /**
+         * Mean occupancy ratio (0-1) of bucket i, or -1 if capacity is unknown
+         */
+        public float getOccupancyRatio(int i) {
+            return capacity[i] > 0 ? meanOccupied[i] / capacity[i] : -1f;
+        }
+    }
+
+    /**
+     * Notified on the store's thread whenever a 15-minute or hourly bucket is written
+     */
+    public interface RollupListener {
+        void onRollupClosed(String hallKey, Resolution resolution, long bucketStartMs,
+                            float meanOccupied, int maxOccupied, int capacity);
+    }
+
+    private static OccupancyHistoryStore instance;
+
+    private final File directory;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Writer-thread state, per hall
+    private final Map<String, HallSeries> halls = new HashMap<>();
+    private long lastRetentionDay = -1;
+    private final List<RollupListener> rollupListeners = new CopyOnWriteArrayList<>();
+
+    public static synchronized OccupancyHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new OccupancyHistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private OccupancyHistoryStore(Context context) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create " + directory);
+        }
+        // Close buckets even when samples stop arriving
+        executor.scheduleWithFixedDelay(this::closeExpiredBuckets, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Records one occupancy sample; cheap, the work happens on the store's thread
+     */
+    public void record(String hallKey, long timestampMs, int occupied, int capacity) {
+        executor.execute(() -> {
+            try {
+                hallSeries(hallKey).addSample(timestampMs, occupied, capacity);
+                enforceRetentionDaily(timestampMs);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not record sample for " + hallKey, e);
+            }
+        });
+    }
+
+    public void addRollupListener(RollupListener listener) {
+        rollupListeners.add(listener);
+    }
+
+    /**
+     * Reads the closed buckets of a hall between fromMs (inclusive) and toMs (exclusive)
+     *
+     * @param resolution Resolution to read, or null to pick one with Resolution.forRange
+     */
+    public Series query(String hallName, long fromMs, long toMs, Resolution resolution) {
+        if (resolution == null) {
+            resolution = Resolution.forRange(fromMs, toMs, System.currentTimeMillis());
+        }
+        Series series = new Series(resolution);
+        String hall = fileKey(SeatOccupancyEngine.hallKey(hallName));
+        long bucketMs = resolution.getBucketMs();
+        long fromBucket = Math.floorDiv(fromMs, bucketMs);
+        long toBucket = Math.floorDiv(toMs - 1, bucketMs);
+
+        for (long segment = Math.floorDiv(fromBucket, resolution.bucketsPerSegment);
+             segment <= Math.floorDiv(toBucket, resolution.bucketsPerSegment); segment++) {
+            File file = segmentFile(hall, resolution, segment);
+            if (!file.exists()) {
+                continue;
+            }
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                decodeSegment(data, resolution, segment, (bucket, meanTenths, max, cap) -> {
+                    if (bucket >= fromBucket && bucket <= toBucket) {
+                        series.add(bucket * bucketMs, meanTenths, max, cap);
+                    }
+                });
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read " + file, e);
+            }
+        }
+        return series;
+    }
+
+    private HallSeries hallSeries(String hallKey) throws IOException {
+        HallSeries series = halls.get(hallKey);
+        if (series == null) {
+            series = new HallSeries(hallKey);
+            halls.put(hallKey, series);
+        }
+        return series;
+    }
+
+    private void closeExpiredBuckets() {
+        long now = System.currentTimeMillis();
+        for (HallSeries series : halls.values()) {
+            try {
+                series.closeBefore(Math.floorDiv(now, MINUTE_MS));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close buckets for " + series.hall, e);
+            }
+        }
+    }
+
+    private void enforceRetentionDaily(long nowMs) {
+        long day = Math.floorDiv(nowMs, DAY_MS);
+        if (day == lastRetentionDay) {
+            return;
+        }
+        lastRetentionDay = day;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        int deleted = 0;
+        for (File file : files) {
+            // <hall>_<token>_<segment>.seg; hall keys never contain '_'
+            String[] parts = file.getName().split("_");
+            if (parts.length != 3 || !parts[2].endsWith(".seg")) {
+                continue;
+            }
+            for (Resolution resolution : Resolution.values()) {
+                if (!resolution.fileToken.equals(parts[1])) {
+                    continue;
+                }
+                try {
+                    long segment = Long.parseLong(parts[2].substring(0, parts[2].length() - 4));
+                    long segmentEndMs = (segment + 1) * resolution.bucketsPerSegment * resolution.getBucketMs();
+                    if (segmentEndMs < nowMs - resolution.retentionMs && file.delete()) {
+                        deleted++;
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        if (deleted > 0) {
+            Log.d(TAG, "Retention removed " + deleted + " segment(s)");
+        }
+    }
+
+    private File segmentFile(String hall, Resolution resolution, long segment) {
+        return new File(directory, hall + "_" + resolution.fileToken + "_" + segment + ".seg");
+    }
+
+    private static String fileKey(String hallKey) {
+        return hallKey.replaceAll("[^a-z0-9-]", "_");
+    }
+
+    /**
+     * Accumulates samples into one bucket
+     */
+    private static final class Bucket {
+        long index = Long.MIN_VALUE;
+        long sumTenths;
+        int count;
+        int max;
+        int capacity;
+
+        boolean isOpen() {
+            return index != Long.MIN_VALUE;
+        }
+
+        void start(long bucketIndex) {
+            index = bucketIndex;
+            sumTenths = 0;
+            count = 0;
+            max = 0;
+        }
+
+        void add(int meanTenths, int maxValue, int cap) {
+            sumTenths += meanTenths;
+            count++;
+            max = Math.max(max, maxValue);
+            if (cap > 0) capacity = cap;
+        }
+
+        int meanTenths() {
+            return count > 0 ? (int) Math.round((double) sumTenths / count) : 0;
+        }
+    }
+
+    /**
+     * The three resolutions of one hall: open buckets plus segment writers
+     */
+    private final class HallSeries {
+        final String hallKey;
+        final String hall;
+        final Bucket minute = new Bucket();
+        final Bucket quarter = new Bucket();
+        final Bucket hour = new Bucket();
+        final SegmentWriter minuteWriter;
+        final SegmentWriter quarterWriter;
+        final SegmentWriter hourWriter;
+
+        HallSeries(String hallKey) throws IOException {
+            this.hallKey = hallKey;
+            this.hall = fileKey(hallKey);
+            minuteWriter = new SegmentWriter(hall, Resolution.MINUTE);
+            quarterWriter = new SegmentWriter(hall, Resolution.QUARTER_HOUR);
+            hourWriter = new SegmentWriter(hall, Resolution.HOUR);
+            restoreOpenRollups();
+        }
+
+        void addSample(long timestampMs, int occupied, int capacity) throws IOException {
+            long minuteIndex = Math.floorDiv(timestampMs, MINUTE_MS);
+            if (minuteWriter.lastBucket >= minuteIndex) {
+                // Late sample for a minute that is already on disk
+                return;
+            }
+            if (minute.isOpen() && minute.index != minuteIndex) {
+                closeMinute();
+            }
+            if (!minute.isOpen()) {
+                minute.start(minuteIndex);
+            }
+            minute.add(occupied * 10, occupied, capacity);
+        }
+
+        /**
+         * Closes every open bucket that ends before the given minute
+         */
+        void closeBefore(long minuteIndex) throws IOException {
+            if (minute.isOpen() && minute.index < minuteIndex) {
+                closeMinute();
+            }
+            if (quarter.isOpen() && (quarter.index + 1) * 15 <= minuteIndex) {
+                closeRollup(quarter, quarterWriter);
+            }
+            if (hour.isOpen() && (hour.index + 1) * 60 <= minuteIndex) {
+                closeRollup(hour, hourWriter);
+            }
+        }
+
+        private void closeMinute() throws IOException {
+            int mean = minute.meanTenths();
+            minuteWriter.append(minute.index, mean, minute.max, minute.capacity);
+            feedRollups(minute.index, mean, minute.max, minute.capacity);
+            minute.index = Long.MIN_VALUE;
+        }
+
+        private void feedRollups(long minuteIndex, int meanTenths, int max, int capacity) throws IOException {
+            feed(quarter, quarterWriter, Math.floorDiv(minuteIndex, 15), meanTenths, max, capacity);
+            feed(hour, hourWriter, Math.floorDiv(minuteIndex, 60), meanTenths, max, capacity);
+        }
+
+        private void feed(Bucket bucket, SegmentWriter writer, long index,
+                          int meanTenths, int max, int capacity) throws IOException {
+            if (writer.lastBucket >= index) {
+                return;
+            }
+            if (bucket.isOpen() && bucket.index != index) {
+                closeRollup(bucket, writer);
+            }
+            if (!bucket.isOpen()) {
+                bucket.start(index);
+            }
+            bucket.add(meanTenths, max, capacity);
+        }
+
+        private void closeRollup(Bucket bucket, SegmentWriter writer) throws IOException {
+            writer.append(bucket.index, bucket.meanTenths(), bucket.max, bucket.capacity);
+            for (RollupListener listener : rollupListeners) {
+                listener.onRollupClosed(hallKey, writer.resolution,
+                        bucket.index * writer.resolution.getBucketMs(),
+                        bucket.meanTenths() / 10f, bucket.max, bucket.capacity);
+            }
+            bucket.index = Long.MIN_VALUE;
+        }
+
+        /**
+         * After a restart, rebuilds the open 15-minute and hourly buckets from the minute
+         * records already on disk, so rollups are not lost with the process
+         */
+        private void restoreOpenRollups() throws IOException {
+            if (minuteWriter.lastBucket == Long.MIN_VALUE) {
+                return;
+            }
+            long segment = Math.floorDiv(minuteWriter.lastBucket, Resolution.MINUTE.bucketsPerSegment);
+            File file = segmentFile(hall, Resolution.MINUTE, segment);
+            if (!file.exists()) {
+                return;
+            }
+            byte[] data = Files.readAllBytes(file.toPath());
+            IOException[] failure = new IOException[1];
+            decodeSegment(data, Resolution.MINUTE, segment, (bucket, meanTenths, max, cap) -> {
+                try {
+                    feedRollups(bucket, meanTenths, max, cap);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * Appends records to the current segment of one (hall, resolution), keeping the
+     * encoder state needed for the delta encoding
+     */
+    private final class SegmentWriter {
+        final String hall;
+        final Resolution resolution;
+        long segment = Long.MIN_VALUE;
+        long lastBucket = Long.MIN_VALUE;
+
+        // Encoder state within the current segment
+        long prevBucket;
+        long prevDelta;
+        int prevMean;
+        int prevMax;
+        int prevCapacity;
+
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream(24);
+
+        SegmentWriter(String hall, Resolution resolution) throws IOException {
+            this.hall = hall;
+            this.resolution = resolution;
+            // Resume from the newest existing segment, if any
+            long newest = newestSegment();
+            if (newest != Long.MIN_VALUE) {
+                openSegment(newest);
+            }
+        }
+
+        void append(long bucket, int meanTenths, int max, int capacity) throws IOException {
+            long bucketSegment = Math.floorDiv(bucket, resolution.bucketsPerSegment);
+            if (bucketSegment != segment) {
+                openSegment(bucketSegment);
+            }
+            if (bucket <= prevBucket) {
+                return;
+            }
+
+            long delta = bucket - prevBucket;
+            record.reset();
+            writeZigzag(record, delta - prevDelta);
+            writeZigzag(record, meanTenths - prevMean);
+            writeZigzag(record, max - prevMax);
+            writeZigzag(record, capacity - prevCapacity);
+
+            try (FileOutputStream out = new FileOutputStream(segmentFile(hall, resolution, segment), true)) {
+                record.writeTo(out);
+            }
+
+            prevDelta = delta;
+            prevBucket = bucket;
+            prevMean = meanTenths;
+            prevMax = max;
+            prevCapacity = capacity;
+            lastBucket = bucket;
+        }
+
+        private void openSegment(long newSegment) throws IOException {
+            segment = newSegment;
+            resetEncoder();
+            File file = segmentFile(hall, resolution, segment);
+
+            if (!file.exists() || file.length() < HEADER_SIZE) {
+                try (FileOutputStream out = new FileOutputStream(file, false)) {
+                    out.write(new byte[] {
+                        (byte) (SEGMENT_MAGIC >>> 24), (byte) (SEGMENT_MAGIC >>> 16),
+                        (byte) (SEGMENT_MAGIC >>> 8), (byte) SEGMENT_MAGIC,
+                        (byte) FORMAT_VERSION, (byte) resolution.ordinal()
+                    });
+                }
+                return;
+            }
+
+            // Replay the segment to restore the encoder state; drop a torn tail record
+            byte[] data = Files.readAllBytes(file.toPath());
+            int validLength = decodeSegment(data, resolution, segment, (bucket, meanTenths, max, cap) -> {
+                prevDelta = bucket - prevBucket;
+                prevBucket = bucket;
+                prevMean = meanTenths;
+                prevMax = max;
+                prevCapacity = cap;
+                lastBucket = Math.max(lastBucket, bucket);
+            });
+            if (validLength < 0) {
+                Log.w(TAG, "Replacing unreadable segment " + file.getName());
+                if (file.delete()) {
+                    openSegment(newSegment);
+                }
+                return;
+            }
+            if (validLength < data.length) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+
+        private void resetEncoder() {
+            prevBucket = segment * resolution.bucketsPerSegment - 1;
+            prevDelta = 1;
+            prevMean = 0;
+            prevMax = 0;
+            prevCapacity = 0;
+        }
+
+        private long newestSegment() {
+            String prefix = hall + "_" + resolution.fileToken + "_";
+            String[] names = directory.list();
+            long newest = Long.MIN_VALUE;
+            if (names == null) {
+                return newest;
+            }
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.endsWith(".seg")) {
+                    try {
+                        newest = Math.max(newest, Long.parseLong(name.substring(prefix.length(), name.length() - 4)));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            return newest;
+        }
+    }
+
+    interface RecordSink {
+        void onRecord(long bucket, int meanTenths, int max, int capacity);
+    }
+
+    /**
+     * Decodes a segment, stopping at the first incomplete record
+     *
+     * @return Length in bytes of the valid prefix, or -1 if the header is not recognised
+     */
+    static int decodeSegment(byte[] data, Resolution resolution, long segment, RecordSink sink) {
+        if (data.length < HEADER_SIZE
+                || ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF)) != SEGMENT_MAGIC
+                || data[4] != FORMAT_VERSION || data[5] != resolution.ordinal()) {
+            return -1;
+        }
+
+        long bucket = segment * resolution.bucketsPerSegment - 1;
+        long delta = 1;
+        int mean = 0;
+        int max = 0;
+        int capacity = 0;
+
+        int[] pos = {HEADER_SIZE};
+        int validLength = HEADER_SIZE;
+        while (pos[0] < data.length) {
+            long dod = readZigzag(data, pos);
+            long meanDelta = readZigzag(data, pos);
+            long maxDelta = readZigzag(data, pos);
+            long capacityDelta = readZigzag(data, pos);
+            if (pos[0] < 0) {
+                break;
+            }
+            delta += dod;
+            bucket += delta;
+            mean += (int) meanDelta;
+            max += (int) maxDelta;
+            capacity += (int) capacityDelta;
+            validLength = pos[0];
+            sink.onRecord(bucket, mean, max, capacity);
+        }
+        return validLength;
+    }
+
+    private static void writeZigzag(ByteArrayOutputStream out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    /**
+     * Reads one zigzag varint; sets pos[0] to -1 if the data ends mid-value
+     */
+    private static long readZigzag(byte[] data, int[] pos) {
+        if (pos[0] < 0) {
+            return 0;
+        }
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) {
+                pos[0] = -1;
+                return 0;
+            }
+            int b = data[pos[0]++] & 0xFF;
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        pos[0] = -1;
+        return 0;
+    }
+}
@@ -0,0 +1,566 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SeatOccupancyEngine - Real-time seat occupancy per dining hall, fed over MQTT
+ *
+ * Topics (one wildcard subscription per hall):
+ * - seatshare/hall/<hall>/zone/<zone>/seat/<seatNumber>  SeatShareCodec SEAT_STATE
+ * - seatshare/hall/<hall>/zone/<zone>/sensor             SeatShareCodec OCCUPANCY_DELTA,
+ *   zone counts plus any seat changes since the sensor's last report
+ * Legacy ASCII payloads ("1"/"0" for seats, "<occupied>/<capacity>" for sensors) are
+ * still accepted.
+ *
+ * Pipeline:
+ * - Messages arrive through the MqttClientManager router, which keeps only the latest
+ *   payload per topic if the engine falls behind; the router thread only enqueues the raw
+ *   topic and payload into a bounded queue (oldest dropped when full)
+ * - A single fold thread drains the queue in batches and folds events into per-hall,
+ *   per-zone state (seat bitsets plus running counters)
+ * - At most every SNAPSHOT_INTERVAL_MS the fold thread publishes an immutable
+ *   OccupancySnapshot through a volatile reference; halls that did not change reuse
+ *   their previous snapshot objects
+ * - Listeners are notified on the main thread, coalesced to one pending post
+ * - Changed halls are also recorded in OccupancyHistoryStore
+ *
+ * getSnapshot() is a single volatile read and can be called from any thread.
+ *
+ * Seat claims (check-in/check-out) are published to .../seat/<seatNumber>/claim and go
+ * through the MqttClientManager outbox as QoS 1 events, so they survive network drops.
+ */
+public class SeatOccupancyEngine {
+    private static final String TAG = "SeatOccupancyEngine";
+
+    static final String TOPIC_ROOT = "seatshare/hall/";
+
+    // Seat numbers index the zone bitsets; anything above is rejected as garbage
+    static final int MAX_SEAT = 9999;
+    private static final int QUEUE_CAPACITY = 16384;
+    private static final int MAX_BATCH = 1024;
+    private static final long SNAPSHOT_INTERVAL_MS = 100;
+
+    private static SeatOccupancyEngine instance;
+
+    /**
+     * Receives new snapshots on the main thread
+     */
+    public interface OccupancyListener {
+        void onOccupancyChanged(OccupancySnapshot snapshot);
+    }
+
+    private final Context context;
+    private final OccupancyHistoryStore history;
+    private final ArrayBlockingQueue<RawEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ExecutorService foldExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean notifyPending = new AtomicBoolean(false);
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    // Only touched by the fold thread
+    private final FoldState state = new FoldState();
+
+    private volatile OccupancySnapshot snapshot = OccupancySnapshot.EMPTY;
+    private boolean started = false;
+
+    public static synchronized SeatOccupancyEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new SeatOccupancyEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SeatOccupancyEngine(Context context) {
+        this.context = context;
+        this.history = OccupancyHistoryStore.getInstance(context);
+        // Learns from the history store's rollups while seat data flows
+        CrowdForecaster.getInstance(context);
+    }
+
+    /**
+     * Connects to the broker and subscribes to every hall; safe to call repeatedly
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        foldExecutor.execute(this::foldLoop);
+
+        String brokerUri = context.getString(R.string.mqtt_broker_uri);
+        if (brokerUri.isEmpty()) {
+            // Release build without a configured broker
+            Log.w(TAG, "No MQTT broker configured, live seating is off");
+            return;
+        }
+        String clientId = "seatshare-android-" + UUID.randomUUID().toString().substring(0, 8);
+        MqttClientManager mqtt = MqttClientManager.getInstance();
+        for (HallRegistry.Hall hall : HallRegistry.diningHalls()) {
+            // Only the latest state of each seat/sensor topic matters
+            mqtt.subscribe(TOPIC_ROOT + hall.getTopicSegment() + "/zone/#", this::enqueue,
+                    MqttTopicRouter.DropPolicy.LATEST_PER_TOPIC, QUEUE_CAPACITY);
+        }
+        mqtt.connect(context, brokerUri, clientId, new IMqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken asyncActionToken) {
+                Log.d(TAG, "Connected to " + brokerUri);
+            }
+
+            @Override
+            public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                Log.w(TAG, "Could not connect to " + brokerUri, exception);
+            }
+        });
+    }
+
+    /**
+     * Publishes a check-in for a seat
+     */
+    public void checkIn(String hallName, String zone, int seatNumber) {
+        publishClaim(hallName, zone, seatNumber, true);
+    }
+
+    /**
+     * Publishes a check-out for a seat
+     */
+    public void checkOut(String hallName, String zone, int seatNumber) {
+        publishClaim(hallName, zone, seatNumber, false);
+    }
+
+    private void publishClaim(String hallName, String zone, int seatNumber, boolean claimed) {
+        start();
+        String topic = TOPIC_ROOT + hallKey(hallName) + "/zone/" + zone + "/seat/" + seatNumber
+                + MqttPublisher.CLAIM_SUFFIX;
+        MqttClientManager.getInstance().publish(topic,
+                SeatShareCodec.encodeSeatState(seatNumber, claimed, System.currentTimeMillis() / 1000));
+    }
+
+    /**
+     * Latest published snapshot (never null)
+     */
+    public OccupancySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Number of events dropped because the fold thread fell behind
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OccupancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Hands one raw MQTT message to the fold thread. Cheap enough for the MQTT callback thread.
+     */
+    void enqueue(String topic, byte[] payload) {
+        RawEvent event = new RawEvent(topic, payload);
+        while (!queue.offer(event)) {
+            // Oldest state is the least valuable - make room for the newest
+            if (queue.poll() != null) {
+                droppedEvents.incrementAndGet();
+            }
+        }
+    }
+
+    private void foldLoop() {
+        List<RawEvent> batch = new ArrayList<>(MAX_BATCH);
+        long lastPublishMs = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                RawEvent first;
+                if (state.isDirty()) {
+                    long waitMs = Math.max(1, lastPublishMs + SNAPSHOT_INTERVAL_MS - SystemClock.elapsedRealtime());
+                    first = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                } else {
+                    first = queue.take();
+                }
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < batch.size(); i++) {
+                        RawEvent event = batch.get(i);
+                        state.apply(event.topic, event.payload, now);
+                    }
+                    batch.clear();
+                }
+
+                long nowElapsed = SystemClock.elapsedRealtime();
+                if (state.isDirty() && nowElapsed - lastPublishMs >= SNAPSHOT_INTERVAL_MS) {
+                    OccupancySnapshot previous = snapshot;
+                    snapshot = state.buildSnapshot(previous, System.currentTimeMillis());
+                    lastPublishMs = nowElapsed;
+                    notifyListeners();
+                    recordHistory(previous, snapshot);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Feeds the halls that changed in this snapshot into the history store
+     */
+    private void recordHistory(OccupancySnapshot previous, OccupancySnapshot current) {
+        for (HallOccupancy hall : current.getHalls()) {
+            if (hall != previous.getHall(hall.hallKey) && hall.totalSeats > 0) {
+                history.record(hall.hallKey, current.timestampMs, hall.occupiedSeats, hall.totalSeats);
+            }
+        }
+    }
+
+    private void notifyListeners() {
+        if (listeners.isEmpty() || !notifyPending.compareAndSet(false, true)) {
+            return;
+        }
+        mainHandler.post(() -> {
+            notifyPending.set(false);
+            OccupancySnapshot current = snapshot;
+            for (OccupancyListener listener : listeners) {
+                listener.onOccupancyChanged(current);
+            }
+        });
+    }
+
+    /**
+     * Normalizes a hall name ("Snyder-Phillips", "Brody") to its topic segment
+     */
+    static String hallKey(String hallName) {
+        HallRegistry.Hall hall = HallRegistry.find(hallName);
+        if (hall != null) {
+            return hall.getTopicSegment();
+        }
+        // Topics of halls this build does not know yet
+        return hallName.trim().toLowerCase(Locale.US).replace(' ', '-');
+    }
+
+    private static final class RawEvent {
+        final String topic;
+        final byte[] payload;
+
+        RawEvent(String topic, byte[] payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Mutable fold state. Pure Java and single-threaded, so it can be driven directly with
+     * (topic, payload) pairs captured from a local broker.
+     */
+    static final class FoldState {
+        private final Map<String, HallState> halls = new HashMap<>();
+        private boolean dirty = false;
+
+        // Reused decoders; decoding never allocates
+        private final SeatShareCodec.SeatStateView seatView = new SeatShareCodec.SeatStateView();
+        private final SeatShareCodec.OccupancyDeltaView deltaView = new SeatShareCodec.OccupancyDeltaView();
+
+        boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * Folds one message into the state
+         *
+         * @return false if the topic or payload was not understood
+         */
+        boolean apply(String topic, byte[] payload, long nowMs) {
+            if (!topic.startsWith(TOPIC_ROOT) || payload == null || payload.length == 0) {
+                return false;
+            }
+
+            int hallEnd = topic.indexOf('/', TOPIC_ROOT.length());
+            if (hallEnd < 0 || !topic.startsWith("zone/", hallEnd + 1)) {
+                return false;
+            }
+            int zoneStart = hallEnd + 1 + "zone/".length();
+            int zoneEnd = topic.indexOf('/', zoneStart);
+            if (zoneEnd < 0) {
+                return false;
+            }
+
+            String hall = hallKey(topic.substring(TOPIC_ROOT.length(), hallEnd));
+            String zone = topic.substring(zoneStart, zoneEnd);
+
+            if (topic.startsWith("seat/", zoneEnd + 1)) {
+                int seat = parseInt(topic, zoneEnd + 1 + "seat/".length(), topic.length());
+                if (seat < 0 || seat > MAX_SEAT) {
+                    return false;
+                }
+                boolean taken;
+                if (SeatShareCodec.isBinary(payload)) {
+                    if (!seatView.wrap(payload)) {
+                        return false;
+                    }
+                    taken = seatView.isTaken();
+                } else {
+                    taken = payload[0] == '1';
+                }
+                zone(hall, zone).setSeat(seat, taken, nowMs);
+            } else if (topic.startsWith("sensor", zoneEnd + 1) && SeatShareCodec.isBinary(payload)) {
+                if (!deltaView.wrap(payload)) {
+                    return false;
+                }
+                ZoneState zoneState = zone(hall, zone);
+                zoneState.setSensor(deltaView.getOccupied(), deltaView.getCapacity(), nowMs);
+                while (deltaView.nextChange()) {
+                    if (deltaView.getChangeSeat() > MAX_SEAT) {
+                        continue;
+                    }
+                    zoneState.setSeat(deltaView.getChangeSeat(), deltaView.isChangeTaken(), nowMs);
+                }
+            } else if (topic.startsWith("sensor", zoneEnd + 1)) {
+                int slash = indexOf(payload, (byte) '/');
+                int occupied = parseInt(payload, 0, slash < 0 ? payload.length : slash);
+                int capacity = slash < 0 ? -1 : parseInt(payload, slash + 1, payload.length);
+                if (occupied < 0) {
+                    return false;
+                }
+                zone(hall, zone).setSensor(occupied, capacity, nowMs);
+            } else {
+                return false;
+            }
+
+            halls.get(hall).dirty = true;
+            dirty = true;
+            return true;
+        }
+
+        /**
+         * Builds an immutable snapshot, reusing the previous objects of unchanged halls
+         */
+        OccupancySnapshot buildSnapshot(OccupancySnapshot previous, long nowMs) {
+            Map<String, HallOccupancy> result = new HashMap<>();
+            for (Map.Entry<String, HallState> entry : halls.entrySet()) {
+                HallState hall = entry.getValue();
+                HallOccupancy previousHall = previous.getHall(entry.getKey());
+                if (!hall.dirty && previousHall != null) {
+                    result.put(entry.getKey(), previousHall);
+                    continue;
+                }
+
+                List<ZoneOccupancy> zones = new ArrayList<>(hall.zones.size());
+                int occupied = 0;
+                int total = 0;
+                long updatedAt = 0;
+                for (ZoneState zone : hall.zones.values()) {
+                    ZoneOccupancy zoneOccupancy = new ZoneOccupancy(
+                            zone.name, zone.occupied(), zone.total(), zone.updatedAtMs);
+                    zones.add(zoneOccupancy);
+                    occupied += zoneOccupancy.occupiedSeats;
+                    total += zoneOccupancy.totalSeats;
+                    updatedAt = Math.max(updatedAt, zone.updatedAtMs);
+                }
+                Collections.sort(zones, (a, b) -> a.zoneName.compareTo(b.zoneName));
+                result.put(entry.getKey(), new HallOccupancy(entry.getKey(), occupied, total, updatedAt,
+                        Collections.unmodifiableList(zones)));
+                hall.dirty = false;
+            }
+            dirty = false;
+            return new OccupancySnapshot(nowMs, Collections.unmodifiableMap(result));
+        }
+
+        private ZoneState zone(String hall, String zone) {
+            HallState hallState = halls.get(hall);
+            if (hallState == null) {
+                hallState = new HallState();
+                halls.put(hall, hallState);
+            }
+            ZoneState zoneState = hallState.zones.get(zone);
+            if (zoneState == null) {
+                zoneState = new ZoneState(zone);
+                hallState.zones.put(zone, zoneState);
+            }
+            return zoneState;
+        }
+
+        private static int parseInt(CharSequence text, int start, int end) {
+            if (start >= end) return -1;
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9' || value > 100_000_000) return -1;
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private static int parseInt(byte[] bytes, int start, int end) {
+            if (start >= end) return -1;
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                byte b = bytes[i];
+                if (b < '0' || b > '9' || value > 100_000_000) return -1;
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private static int indexOf(byte[] bytes, byte target) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == target) return i;
+            }
+            return -1;
+        }
+    }
+
+    private static final class HallState {
+        final Map<String, ZoneState> zones = new HashMap<>();
+        boolean dirty = false;
+    }
+
+    /**
+     * Per-zone state. Seat-level reports win over the zone sensor once any seat has reported.
+     */
+    private static final class ZoneState {
+        final String name;
+        final BitSet knownSeats = new BitSet();
+        final BitSet takenSeats = new BitSet();
+        int knownCount = 0;
+        int takenCount = 0;
+        int sensorOccupied = -1;
+        int sensorCapacity = -1;
+        long updatedAtMs = 0;
+
+        ZoneState(String name) {
+            this.name = name;
+        }
+
+        void setSeat(int seat, boolean taken, long nowMs) {
+            if (!knownSeats.get(seat)) {
+                knownSeats.set(seat);
+                knownCount++;
+            }
+            if (takenSeats.get(seat) != taken) {
+                takenSeats.set(seat, taken);
+                takenCount += taken ? 1 : -1;
+            }
+            updatedAtMs = nowMs;
+        }
+
+        void setSensor(int occupied, int capacity, long nowMs) {
+            sensorOccupied = occupied;
+            if (capacity >= 0) {
+                sensorCapacity = capacity;
+            }
+            updatedAtMs = nowMs;
+        }
+
+        int occupied() {
+            return knownCount > 0 ? takenCount : Math.max(sensorOccupied, 0);
+        }
+
+        int total() {
+            return knownCount > 0 ? knownCount : Math.max(sensorCapacity, 0);
+        }
+    }
+
+    /**
+     * Immutable view of one zone
+     */
+    public static final class ZoneOccupancy {
+        public final String zoneName;
+        public final int occupiedSeats;
+        public final int totalSeats;
+        public final long updatedAtMs;
+
+        ZoneOccupancy(String zoneName, int occupiedSeats, int totalSeats, long updatedAtMs) {
+            this.zoneName = zoneName;
+            this.occupiedSeats = occupiedSeats;
+            this.totalSeats = totalSeats;
+            this.updatedAtMs = updatedAtMs;
+        }
+    }
+
+    /**
+     * Immutable view of one hall
+     */
+    public static final class HallOccupancy {
+        public final String hallKey;
+        public final int occupiedSeats;
+        public final int totalSeats;
+        public final long updatedAtMs;
+        public final List<ZoneOccupancy> zones;
+
+        HallOccupancy(String hallKey, int occupiedSeats, int totalSeats, long updatedAtMs,
+                      List<ZoneOccupancy> zones) {
+            this.hallKey = hallKey;
+            this.occupiedSeats = occupiedSeats;
+            this.totalSeats = totalSeats;
+            this.updatedAtMs = updatedAtMs;
+            this.zones = zones;
+        }
+
+        /**
+         * @return Fraction of seats taken (0-1), or -1 if capacity is unknown
+         */
+        public float getOccupancyRatio() {
+            return totalSeats > 0 ? (float) occupiedSeats / totalSeats : -1f;
+        }
+    }
+
+    /**
+     * Immutable occupancy of all halls at one point in time
+     */
+    public static final class OccupancySnapshot {
+        static final OccupancySnapshot EMPTY =
+                new OccupancySnapshot(0, Collections.<String, HallOccupancy>emptyMap());
+
+        public final long timestampMs;
+        private final Map<String, HallOccupancy> halls;
+
+        OccupancySnapshot(long timestampMs, Map<String, HallOccupancy> halls) {
+            this.timestampMs = timestampMs;
+            this.halls = halls;
+        }
+
+        /**
+         * @param hallName Hall name in any form accepted by hallKey ("Brody", "snyder-phillips")
+         * @return The hall's occupancy, or null if nothing has been reported for it
+         */
+        public HallOccupancy getHall(String hallName) {
+            return halls.get(hallKey(hallName));
+        }
+
+        public Collection<HallOccupancy> getHalls() {
+            return halls.values();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SeatShareCodec - Compact binary payloads for MQTT seat and menu messages
+ *
+ * Every message starts with a two-byte header:
+ *   byte 0: (MAJOR_VERSION << 4) | MINOR_VERSION
+ *   byte 1: message type (TYPE_*)
+ * followed by the type's body. Integers are unsigned LEB128 varints, and every field below is
+ * non-negative; a signed field added later would need zigzag encoding to stay short.
+ * Routing (hall, zone) lives in the topic, not the payload.
+ *
+ * Bodies (version 1.0):
+ * - SEAT_STATE:         seat (varint), flags (byte, bit 0 = taken), timestampSec (varlong)
+ * - OCCUPANCY_DELTA:    timestampSec (varlong), occupied (varint), capacity (varint),
+ *                       changeCount (varint), then changeCount x varint((seatGap << 1) | taken)
+ *                       where seatGap is the distance from the previous changed seat
+ *                       (seats ascending, first gap measured from 0)
+ * - MENU_INVALIDATION:  epochDay (varint), version (varlong), hallKey (varint length + UTF-8)
+ *
+ * Schema evolution:
+ * - A minor version may only append fields to the end of a body. Decoders ignore trailing
+ *   bytes they do not know, and fields missing from an older minor take their defaults.
+ * - Anything else (reordering, removing or retyping a field) needs a new major version;
+ *   decoders reject majors they do not know.
+ * - Unknown message types are rejected, never guessed at.
+ *
+ * Decoding is zero-copy: the views below are reusable flyweights that read directly from
+ * the MqttMessage byte array. wrap() validates the whole message and returns false instead
+ * of throwing on truncated or malformed input, so views can be fed untrusted network bytes.
+ *
+ * Pure Java, no Android dependencies.
+ */
+public final class SeatShareCodec {
+
+    public static final int MAJOR_VERSION = 1;
+    public static final int MINOR_VERSION = 0;
+
+    public static final int TYPE_SEAT_STATE = 1;
+    public static final int TYPE_OCCUPANCY_DELTA = 2;
+    public static final int TYPE_MENU_INVALIDATION = 3;
+
+    static final int HEADER_SIZE = 2;
+    private static final int FLAG_TAKEN = 1;
+    private static final int MAX_HALL_KEY_BYTES = 64;
+
+    private SeatShareCodec() {
+    }
+
+    /**
+     * Cheap check for a codec header, used to tell binary payloads apart from the legacy
+     * ASCII ones (which always start with a digit)
+     */
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length >= HEADER_SIZE
+                && ((payload[0] & 0xFF) >>> 4) == MAJOR_VERSION;
+    }
+
+    /**
+     * @return The message type, or -1 if the header is missing or from an unknown major version
+     */
+    public static int typeOf(byte[] payload) {
+        return isBinary(payload) ? payload[1] & 0xFF : -1;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Encoding
+    // ---------------------------------------------------------------------------------------
+
+    public static byte[] encodeSeatState(int seat, boolean taken, long timestampSec) {
+        Writer w = new Writer(HEADER_SIZE + 5 + 1 + 10);
+        w.header(TYPE_SEAT_STATE);
+        w.varint(seat);
+        w.b(taken ? FLAG_TAKEN : 0);
+        w.varlong(timestampSec);
+        return w.toByteArray();
+    }
+
+    /**
+     * @param changedSeats Seat numbers in ascending order
+     * @param taken taken[i] is the new state of changedSeats[i]
+     */
+    public static byte[] encodeOccupancyDelta(long timestampSec, int occupied, int capacity,
+                                              int[] changedSeats, boolean[] taken, int changeCount) {
+        Writer w = new Writer(HEADER_SIZE + 10 + 5 + 5 + 5 + changeCount * 5);
+        w.header(TYPE_OCCUPANCY_DELTA);
+        w.varlong(timestampSec);
+        w.varint(occupied);
+        w.varint(capacity);
+        w.varint(changeCount);
+        int previous = 0;
+        for (int i = 0; i < changeCount; i++) {
+            int gap = changedSeats[i] - previous;
+            if (gap < 0 || (i > 0 && gap == 0)) {
+                throw new IllegalArgumentException("changedSeats must be strictly ascending");
+            }
+            w.varint((gap << 1) | (taken[i] ? 1 : 0));
+            previous = changedSeats[i];
+        }
+        return w.toByteArray();
+    }
+
+    public static byte[] encodeMenuInvalidation(String hallKey, int epochDay, long version) {
+        byte[] hall = hallKey.getBytes(StandardCharsets.UTF_8);
+        if (hall.length > MAX_HALL_KEY_BYTES) {
+            throw new IllegalArgumentException("hallKey too long");
+        }
+        Writer w = new Writer(HEADER_SIZE + 5 + 10 + 5 + hall.length);
+        w.header(TYPE_MENU_INVALIDATION);
+        w.varint(epochDay);
+        w.varlong(version);
+        w.varint(hall.length);
+        w.bytes(hall);
+        return w.toByteArray();
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void header(int type) {
+            b((MAJOR_VERSION << 4) | MINOR_VERSION);
+            b(type);
+        }
+
+        void b(int value) {
+            if (pos == buf.length) {
+                buf = java.util.Arrays.copyOf(buf, buf.length * 2 + 8);
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                b((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            b((int) value);
+        }
+
+        void bytes(byte[] data) {
+            for (byte d : data) {
+                b(d);
+            }
+        }
+
+        byte[] toByteArray() {
+            return pos == buf.length ? buf : java.util.Arrays.copyOf(buf, pos);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Decoding
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Bounds-checked varint cursor over a byte array. Failures set ok = false and return 0,
+     * so a decoder can read a whole body and check once at the end.
+     */
+    static final class Cursor {
+        byte[] buf;
+        int pos;
+        int end;
+        boolean ok;
+
+        void reset(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.pos = offset;
+            this.end = offset + length;
+            this.ok = buf != null && offset >= 0 && length >= 0 && end <= buf.length;
+        }
+
+        int u8() {
+            if (!ok || pos >= end) {
+                ok = false;
+                return 0;
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long varlong() {
+            long result = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = u8();
+                if (!ok) return 0;
+                if (shift == 63 && b > 1) break;
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            ok = false;
+            return 0;
+        }
+
+        int varint() {
+            long value = varlong();
+            if (value < 0 || value > 0xFFFFFFFFL) {
+                ok = false;
+                return 0;
+            }
+            return (int) value;
+        }
+
+        /**
+         * Varint that must fit a non-negative int
+         */
+        int count() {
+            int value = varint();
+            if (value < 0) {
+                ok = false;
+                return 0;
+            }
+            return value;
+        }
+
+        void skip(int length) {
+            if (!ok || length < 0 || length > end - pos) {
+                ok = false;
+                return;
+            }
+            pos += length;
+        }
+
+        /**
+         * Reads and validates the header; returns false for other types or unknown majors
+         */
+        boolean header(int expectedType) {
+            int version = u8();
+            int type = u8();
+            return ok && (version >>> 4) == MAJOR_VERSION && type == expectedType;
+        }
+    }
+
+    /**
+     * Flyweight view of a SEAT_STATE message
+     */
+    public static final class SeatStateView {
+        private final Cursor cursor = new Cursor();
+        private int seat;
+        private boolean taken;
+        private long timestampSec;
+
+        public boolean wrap(byte[] payload) {
+            return wrap(payload, 0, payload == null ? 0 : payload.length);
+        }
+
+        public boolean wrap(byte[] payload, int offset, int length) {
+            Cursor c = cursor;
+            c.reset(payload, offset, length);
+            if (!c.header(TYPE_SEAT_STATE)) return false;
+            seat = c.count();
+            taken = (c.u8() & FLAG_TAKEN) != 0;
+            timestampSec = c.varlong();
+            // Trailing bytes belong to newer minor versions and are ignored
+            return c.ok;
+        }
+
+        public int getSeat() { return seat; }
+        public boolean isTaken() { return taken; }
+        public long getTimestampSec() { return timestampSec; }
+    }
+
+    /**
+     * Flyweight view of an OCCUPANCY_DELTA message. Seat changes are decoded lazily with
+     * nextChange(); wrap() has already validated that all of them are readable.
+     */
+    public static final class OccupancyDeltaView {
+        private final Cursor cursor = new Cursor();
+        private long timestampSec;
+        private int occupied;
+        private int capacity;
+        private int changeCount;
+
+        private int changesOffset;
+        private int changesRead;
+        private int changeSeat;
+        private boolean changeTaken;
+
+        public boolean wrap(byte[] payload) {
+            return wrap(payload, 0, payload == null ? 0 : payload.length);
+        }
+
+        public boolean wrap(byte[] payload, int offset, int length) {
+            Cursor c = cursor;
+            c.reset(payload, offset, length);
+            if (!c.header(TYPE_OCCUPANCY_DELTA)) return false;
+            timestampSec = c.varlong();
+            occupied = c.count();
+            capacity = c.count();
+            changeCount = c.count();
+            if (!c.ok || changeCount > c.end - c.pos) {
+                // Each change takes at least one byte
+                return false;
+            }
+            changesOffset = c.pos;
+
+            // Validate the change list now so iteration cannot fail halfway
+            long seat = 0;
+            for (int i = 0; i < changeCount; i++) {
+                seat += c.count() >>> 1;
+                if (!c.ok || seat > Integer.MAX_VALUE) return false;
+            }
+            rewindChanges();
+            return true;
+        }
+
+        public long getTimestampSec() { return timestampSec; }
+        public int getOccupied() { return occupied; }
+        public int getCapacity() { return capacity; }
+        public int getChangeCount() { return changeCount; }
+
+        /**
+         * Restarts iteration over the seat changes
+         */
+        public void rewindChanges() {
+            cursor.pos = changesOffset;
+            cursor.ok = true;
+            changesRead = 0;
+            changeSeat = 0;
+        }
+
+        /**
+         * Advances to the next seat change
+         *
+         * @return false when all changes have been read
+         */
+        public boolean nextChange() {
+            if (changesRead >= changeCount) return false;
+            int value = cursor.count();
+            changeSeat += value >>> 1;
+            changeTaken = (value & 1) != 0;
+            changesRead++;
+            return true;
+        }
+
+        public int getChangeSeat() { return changeSeat; }
+        public boolean isChangeTaken() { return changeTaken; }
+    }
+
+    /**
+     * Flyweight view of a MENU_INVALIDATION message. The hall key is only turned into a
+     * String when asked for; matchesHall() compares in place.
+     */
+    public static final class MenuInvalidationView {
+        private final Cursor cursor = new Cursor();
+        private int epochDay;
+        private long version;
+        private int hallOffset;
+        private int hallLength;
+
+        public boolean wrap(byte[] payload) {
+            return wrap(payload, 0, payload == null ? 0 : payload.length);
+        }
+
+        public boolean wrap(byte[] payload, int offset, int length) {
+            Cursor c = cursor;
+            c.reset(payload, offset, length);
+            if (!c.header(TYPE_MENU_INVALIDATION)) return false;
+            epochDay = c.count();
+            version = c.varlong();
+            hallLength = c.count();
+            if (hallLength > MAX_HALL_KEY_BYTES) return false;
+            hallOffset = c.pos;
+            c.skip(hallLength);
+            return c.ok;
+        }
+
+        public int getEpochDay() { return epochDay; }
+        public long getVersion() { return version; }
+
+        public String getHallKey() {
+            return new String(cursor.buf, hallOffset, hallLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Compares the hall key against an ASCII key without allocating
+         */
+        public boolean matchesHall(String hallKey) {
+            if (hallKey.length() != hallLength) return false;
+            for (int i = 0; i < hallLength; i++) {
+                if (cursor.buf[hallOffset + i] != hallKey.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+}
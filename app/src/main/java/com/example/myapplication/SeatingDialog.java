@@ -0,0 +1,82 @@
+package com.example.myapplication;
+
+import android.app.Activity;
+import android.text.format.DateFormat;
+
+import androidx.appcompat.app.AlertDialog;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * SeatingDialog - Live seat availability for one dining hall
+ *
+ * Shows the current SeatOccupancyEngine snapshot for the hall and keeps the text updated
+ * while the dialog is open, followed by the CrowdForecaster outlook for the next hours.
+ * Shared by MenuActivity and ImprovedMenuActivity.
+ */
+public final class SeatingDialog {
+
+    // How far ahead to look for a quieter time
+    private static final long FORECAST_WINDOW_MS = 3 * 60 * 60_000L;
+
+    private SeatingDialog() {
+    }
+
+    public static void show(Activity activity, String hallName) {
+        SeatOccupancyEngine engine = SeatOccupancyEngine.getInstance(activity);
+        engine.start();
+        CrowdForecaster forecaster = CrowdForecaster.getInstance(activity);
+        String outlook = describeForecast(activity, forecaster, hallName);
+
+        AlertDialog dialog = new AlertDialog.Builder(activity)
+                .setTitle(activity.getString(R.string.seating_options) + " - " + hallName)
+                .setMessage(describe(hallName, engine.getSnapshot().getHall(hallName)) + outlook)
+                .setPositiveButton(android.R.string.ok, null)
+                .create();
+
+        SeatOccupancyEngine.OccupancyListener listener =
+                snapshot -> dialog.setMessage(describe(hallName, snapshot.getHall(hallName)) + outlook);
+        engine.addListener(listener);
+        dialog.setOnDismissListener(d -> engine.removeListener(listener));
+        dialog.show();
+    }
+
+    private static String describe(String hallName, SeatOccupancyEngine.HallOccupancy hall) {
+        if (hall == null || hall.totalSeats == 0) {
+            return "Live seating data is not available for " + hallName + " yet.";
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "%d of %d seats taken (%.0f%%)",
+                hall.occupiedSeats, hall.totalSeats, hall.getOccupancyRatio() * 100));
+        text.append('\n');
+        for (SeatOccupancyEngine.ZoneOccupancy zone : hall.zones) {
+            int free = Math.max(zone.totalSeats - zone.occupiedSeats, 0);
+            text.append(String.format(Locale.US, "\n%s: %d free of %d",
+                    zone.zoneName, free, zone.totalSeats));
+        }
+        return text.toString();
+    }
+
+    private static String describeForecast(Activity activity, CrowdForecaster forecaster, String hallName) {
+        long now = System.currentTimeMillis();
+        float expectedNow = forecaster.expectedOccupancy(hallName, now);
+        if (expectedNow < 0) {
+            return "";
+        }
+
+        StringBuilder text = new StringBuilder("\n\n");
+        text.append(String.format(Locale.US, "Usually about %.0f%% full at this time", expectedNow * 100));
+
+        long best = forecaster.bestTimeToGo(hallName, now, now + FORECAST_WINDOW_MS);
+        if (best > now) {
+            float expectedBest = forecaster.expectedOccupancy(hallName, best);
+            if (expectedBest < expectedNow) {
+                text.append(String.format(Locale.US, "\nQuietest in the next 3 hours: %s (about %.0f%%)",
+                        DateFormat.getTimeFormat(activity).format(new Date(best)), expectedBest * 100));
+            }
+        }
+        return text.toString();
+    }
+}
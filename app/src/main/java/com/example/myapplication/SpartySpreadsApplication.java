@@ -48,6 +48,18 @@ public class SpartySpreadsApplication extends Application {
                     }
                 });
 
+        // Load the in-memory menu indexes from the database in the background
+        AllergenIndex.getInstance(this).rebuildAsync(null);
+        NutritionEnricher.getInstance(this).preloadAsync();
+        MenuHistoryCompactor.getInstance(this).compactIfDue();
+
         Log.d(TAG, "Application initialization completed");
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Decoded tile photos are cheap to rebuild from the disk cache, so release them first
+        HallImageLoader.getInstance(this).onTrimMemory(level);
+    }
 }
\ No newline at end of file
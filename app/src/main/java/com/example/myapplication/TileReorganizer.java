@@ -0,0 +1,360 @@
+package com.example.myapplication;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * TileReorganizer - Places dining halls on the MainActivity tiles by HallRankingEngine order
+ *
+ * Layout contract:
+ * - Slot 0 is the featured tile and shows the best-ranked hall
+ * - Slots 1-6 are the grid tiles and show the remaining halls in rank order
+ * - Distance is one ranking factor; location fixes feed it, other factors (occupancy,
+ *   favorites, opening hours) trigger refreshRanking() when they change
+ *
+ * Performance:
+ * - Location fixes are throttled by distance moved and time elapsed; a trailing update
+ *   makes sure the last fix of a burst is still applied once the interval has passed
+ * - Refreshes from other factors are throttled the same way (MIN_REFRESH_INTERVAL_MS), and the
+ *   featured hall only changes when another hall beats it by FEATURED_HYSTERESIS, so streaming
+ *   occupancy does not make the featured tile flicker between two close halls
+ * - Each reorganization diffs the new hall-per-slot arrangement against the current one
+ *   and rebinds only the tiles whose hall actually changed
+ * - Tile views are looked up once in the constructor and cached per slot
+ * - Distances come from a HallGeoIndex built once over the halls, so a fix costs no
+ *   per-hall trig
+ *
+ * Threading: all methods must be called on the UI thread
+ */
+public class TileReorganizer {
+    private static final String TAG = "TileReorganizer";
+
+    // A fix has to move at least this far from the last processed fix to be considered
+    public static final double MIN_UPDATE_DISTANCE_M = 25;
+    // ...and processed fixes are spaced at least this far apart
+    public static final long MIN_UPDATE_INTERVAL_MS = 5000;
+    // Re-rankings triggered by other factors are spaced at least this far apart
+    public static final long MIN_REFRESH_INTERVAL_MS = 2000;
+    // Score lead another hall needs over the featured hall to take its place
+    public static final float FEATURED_HYSTERESIS = 0.05f;
+
+    // Tile view IDs per slot: {frame, image, text}. Slot 0 is the featured tile.
+    private static final int[][] SLOT_VIEW_IDS = {
+        {R.id.boxSnyderPhillips, R.id.imgSnyderPhillips, R.id.txtSnyderPhillips},
+        {R.id.boxBrody, R.id.imgBrody, R.id.txtBrody},
+        {R.id.boxCase, R.id.imgCase, R.id.txtCase},
+        {R.id.boxOwen, R.id.imgOwen, R.id.txtOwen},
+        {R.id.boxShaw, R.id.imgShaw, R.id.txtShaw},
+        {R.id.boxAkers, R.id.imgAkers, R.id.txtAkers},
+        {R.id.boxLandon, R.id.imgLandon, R.id.txtLandon}
+    };
+
+    /**
+     * Callbacks into the hosting activity
+     */
+    public interface Listener {
+        void onHallClick(String hallName);
+        void onTilesReorganized(DiningHall featuredHall, boolean featuredChanged,
+                                double userLatitude, double userLongitude);
+    }
+
+    /**
+     * Cached views for one tile plus the index of the hall currently bound to it
+     */
+    private static final class TileSlot {
+        final FrameLayout frame;
+        final ImageView image;
+        final TextView text;
+        int hallIndex = -1;
+
+        TileSlot(FrameLayout frame, ImageView image, TextView text) {
+            this.frame = frame;
+            this.image = image;
+            this.text = text;
+        }
+    }
+
+    private final DiningHall[] halls;
+    private final HallGeoIndex geoIndex;
+    private final HallRankingEngine ranking;
+    private final HallRankingEngine.DistanceFactor distanceFactor;
+    private final TileSlot[] slots;
+    private final HallImageLoader imageLoader;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Reused for every reorganization to avoid per-fix allocation
+    private final int[] nextArrangement;
+    private final double[] distances;
+
+    private boolean hasProcessedFix = false;
+    private double processedLatitude;
+    private double processedLongitude;
+    private long processedAtMs;
+
+    private boolean hasPendingFix = false;
+    private double pendingLatitude;
+    private double pendingLongitude;
+    private final Runnable trailingUpdate = this::processPendingFix;
+
+    // Whether slot 0 holds a ranked hall (not just the default arrangement)
+    private boolean featuredRanked = false;
+    private long rankedAtMs;
+    private boolean hasPendingRefresh = false;
+    private final Runnable trailingRefresh = this::applyRanking;
+
+    /**
+     * @param activity Activity hosting the tiles (views are resolved once here)
+     * @param halls Halls in default order; must match the slot order of the layout
+     * @param imageLoader Loader used to bind tile photos
+     * @param ranking Ranking engine over the same halls array
+     * @param distanceFactor Distance factor registered with the ranking engine; fed from location fixes
+     * @param listener Receives tile clicks and reorganization results
+     */
+    public TileReorganizer(Activity activity, DiningHall[] halls, HallImageLoader imageLoader,
+                           HallRankingEngine ranking, HallRankingEngine.DistanceFactor distanceFactor,
+                           Listener listener) {
+        this.halls = halls;
+        this.ranking = ranking;
+        this.distanceFactor = distanceFactor;
+        this.geoIndex = new HallGeoIndex(halls);
+        this.distances = new double[halls.length];
+        this.imageLoader = imageLoader;
+        this.listener = listener;
+        this.slots = new TileSlot[Math.min(halls.length, SLOT_VIEW_IDS.length)];
+        this.nextArrangement = new int[slots.length];
+
+        for (int i = 0; i < slots.length; i++) {
+            TileSlot slot = new TileSlot(
+                    activity.findViewById(SLOT_VIEW_IDS[i][0]),
+                    activity.findViewById(SLOT_VIEW_IDS[i][1]),
+                    activity.findViewById(SLOT_VIEW_IDS[i][2]));
+            slots[i] = slot;
+
+            // The listener reads the slot's current hall, so it never has to be re-installed
+            if (slot.frame != null) {
+                slot.frame.setOnClickListener(v -> {
+                    if (slot.hallIndex >= 0) {
+                        listener.onHallClick(halls[slot.hallIndex].getName());
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Binds every tile to its default hall (slot i shows hall i)
+     */
+    public void bindDefaultArrangement() {
+        for (int i = 0; i < slots.length; i++) {
+            bindSlot(slots[i], i);
+        }
+    }
+
+    /**
+     * Feeds a location fix through the distance/time throttle
+     *
+     * @return true if the fix was processed immediately
+     */
+    public boolean onLocationChanged(double latitude, double longitude) {
+        if (hasProcessedFix) {
+            double moved = HallGeoIndex.approximateDistance(
+                    processedLatitude, processedLongitude, latitude, longitude);
+            if (moved < MIN_UPDATE_DISTANCE_M) {
+                // GPS jitter around the last processed position. Ignored; a trailing update
+                // already scheduled for an earlier real move still applies that move.
+                return false;
+            }
+
+            long wait = processedAtMs + MIN_UPDATE_INTERVAL_MS - SystemClock.elapsedRealtime();
+            if (wait > 0) {
+                // Too soon - remember the latest fix and apply it when the interval expires
+                pendingLatitude = latitude;
+                pendingLongitude = longitude;
+                if (!hasPendingFix) {
+                    hasPendingFix = true;
+                    handler.postDelayed(trailingUpdate, wait);
+                }
+                return false;
+            }
+        }
+
+        reorganize(latitude, longitude);
+        return true;
+    }
+
+    /**
+     * Reorganizes the tiles for the given location, bypassing the throttle
+     * Used for the initial fix, manual refreshes and the debug test locations.
+     *
+     * @return The hall now shown on the featured tile
+     */
+    public DiningHall reorganize(double userLatitude, double userLongitude) {
+        hasPendingFix = false;
+        handler.removeCallbacks(trailingUpdate);
+
+        hasProcessedFix = true;
+        processedLatitude = userLatitude;
+        processedLongitude = userLongitude;
+        processedAtMs = SystemClock.elapsedRealtime();
+
+        geoIndex.distancesFrom(userLatitude, userLongitude, distances);
+        for (int i = 0; i < halls.length; i++) {
+            halls[i].setDistanceFromUser(distances[i]);
+        }
+        distanceFactor.setDistances(distances);
+        ranking.invalidate(distanceFactor);
+
+        return applyRanking();
+    }
+
+    /**
+     * Re-applies the ranking after a non-location factor changed. Cheap when nothing moved;
+     * calls within MIN_REFRESH_INTERVAL_MS of the last ranking are folded into one trailing one.
+     */
+    public void refreshRanking() {
+        long wait = rankedAtMs + MIN_REFRESH_INTERVAL_MS - SystemClock.elapsedRealtime();
+        if (featuredRanked && wait > 0) {
+            if (!hasPendingRefresh) {
+                hasPendingRefresh = true;
+                handler.postDelayed(trailingRefresh, wait);
+            }
+            return;
+        }
+        applyRanking();
+    }
+
+    /**
+     * Binds the current ranking to the tiles, rebinding only slots whose hall changed
+     *
+     * @return The hall now shown on the featured tile
+     */
+    private DiningHall applyRanking() {
+        hasPendingRefresh = false;
+        handler.removeCallbacks(trailingRefresh);
+        rankedAtMs = SystemClock.elapsedRealtime();
+
+        int[] order = ranking.getRanking();
+        System.arraycopy(order, 0, nextArrangement, 0, nextArrangement.length);
+        keepFeaturedWithinHysteresis();
+        featuredRanked = true;
+
+        boolean featuredChanged = slots[0].hallIndex != nextArrangement[0];
+        int moves = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].hallIndex != nextArrangement[i]) {
+                bindSlot(slots[i], nextArrangement[i]);
+                moves++;
+            }
+        }
+
+        DiningHall featured = halls[nextArrangement[0]];
+        if (moves > 0) {
+            Log.d(TAG, String.format("Featured: %s (score %.2f, %.0fm), %d tile(s) rebound",
+                    featured.getName(), ranking.getScore(nextArrangement[0]),
+                    featured.getDistanceFromUser(), moves));
+        }
+
+        if (featuredChanged) {
+            animateFeaturedTile();
+        }
+
+        if (hasProcessedFix) {
+            listener.onTilesReorganized(featured, featuredChanged, processedLatitude, processedLongitude);
+        }
+        return featured;
+    }
+
+    /**
+     * Keeps the featured hall on slot 0 unless the new best hall leads it by FEATURED_HYSTERESIS;
+     * the other halls keep their rank order
+     */
+    private void keepFeaturedWithinHysteresis() {
+        int current = slots[0].hallIndex;
+        int best = nextArrangement[0];
+        if (!featuredRanked || current < 0 || current == best
+                || ranking.getScore(best) - ranking.getScore(current) >= FEATURED_HYSTERESIS) {
+            return;
+        }
+        int position = nextArrangement.length - 1;
+        for (int i = 1; i < nextArrangement.length; i++) {
+            if (nextArrangement[i] == current) {
+                position = i;
+                break;
+            }
+        }
+        System.arraycopy(nextArrangement, 0, nextArrangement, 1, position);
+        nextArrangement[0] = current;
+    }
+
+    /**
+     * Cancels any pending trailing update (call from onDestroy)
+     */
+    public void release() {
+        hasPendingFix = false;
+        handler.removeCallbacks(trailingUpdate);
+        hasPendingRefresh = false;
+        handler.removeCallbacks(trailingRefresh);
+    }
+
+    private void processPendingFix() {
+        if (hasPendingFix) {
+            reorganize(pendingLatitude, pendingLongitude);
+        }
+    }
+
+    private void bindSlot(TileSlot slot, int hallIndex) {
+        slot.hallIndex = hallIndex;
+        DiningHall hall = halls[hallIndex];
+
+        if (slot.text != null) {
+            slot.text.setText(hall.getDisplayName());
+        }
+        if (slot.image != null) {
+            slot.image.setContentDescription(hall.getDisplayName());
+            imageLoader.load(slot.image, getImageResForHall(hall.getHallId()));
+        }
+    }
+
+    private void animateFeaturedTile() {
+        FrameLayout featuredFrame = slots[0].frame;
+        if (featuredFrame == null) {
+            return;
+        }
+        featuredFrame.setAlpha(0.3f);
+        featuredFrame.animate()
+                .alpha(1.0f)
+                .setDuration(300)
+                .start();
+    }
+
+    /**
+     * Maps a HallRegistry hall id to its full-size photo
+     */
+    static int getImageResForHall(int hallId) {
+        switch (hallId) {
+            case HallRegistry.BRODY:
+                return R.drawable.brody;
+            case HallRegistry.CASE:
+                return R.drawable.casehall;
+            case HallRegistry.OWEN:
+                return R.drawable.owen;
+            case HallRegistry.SHAW:
+                return R.drawable.shaw;
+            case HallRegistry.AKERS:
+                return R.drawable.akers;
+            case HallRegistry.LANDON:
+                return R.drawable.landon;
+            case HallRegistry.SNYDER_PHILLIPS:
+            default:
+                // Fallback to Snyder-Phillips image
+                return R.drawable.sny_phi;
+        }
+    }
+}
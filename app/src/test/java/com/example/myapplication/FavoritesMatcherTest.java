@@ -0,0 +1,146 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for FavoritesMatcher: normalization and case folding, whole-word matching,
+ * overlapping favorites, and which hits ingest() announces.
+ */
+public class FavoritesMatcherTest {
+
+    private static MSUMenuScraper.MenuResult menu(String hall, String date, String[]... entries) {
+        MSUMenuScraper.MenuResult result = MSUMenuScraper.MenuResult.success();
+        result.hallName = hall;
+        result.date = date;
+        for (String[] entry : entries) {
+            // {meal, station, item}
+            MSUMenuScraper.Station station = null;
+            for (MSUMenuScraper.Station existing : result.stations) {
+                if (existing.stationName.equals(entry[1])) station = existing;
+            }
+            if (station == null) {
+                station = new MSUMenuScraper.Station(entry[1]);
+                result.stations.add(station);
+            }
+            MSUMenuScraper.Meal meal = null;
+            for (MSUMenuScraper.Meal existing : station.meals) {
+                if (existing.mealName.equals(entry[0])) meal = existing;
+            }
+            if (meal == null) {
+                meal = new MSUMenuScraper.Meal(entry[0]);
+                station.meals.add(meal);
+            }
+            meal.items.add(entry[2]);
+            meal.itemTags.add("");
+        }
+        return result;
+    }
+
+    private static List<String> favorites(List<FavoritesMatcher.Hit> hits) {
+        List<String> favorites = new ArrayList<>();
+        for (FavoritesMatcher.Hit hit : hits) {
+            favorites.add(hit.favorite);
+        }
+        return favorites;
+    }
+
+    private static FavoritesMatcher matcher(String... favorites) {
+        FavoritesMatcher matcher = new FavoritesMatcher();
+        matcher.setFavorites(Arrays.asList(favorites));
+        return matcher;
+    }
+
+    @Test
+    public void normalize_foldsCaseAccentsAndPunctuation() {
+        StringBuilder out = new StringBuilder();
+        FavoritesMatcher.normalize("Cr\u00e8me BR\u00dbL\u00c9E!!", out);
+        assertEquals(" creme brulee ", out.toString());
+        FavoritesMatcher.normalize("  Chef's   Mac-n-Cheese ", out);
+        assertEquals(" chefs mac n cheese ", out.toString());
+    }
+
+    @Test
+    public void scan_foldsCaseAndAccents() {
+        FavoritesMatcher matcher = matcher("Cr\u00e8me Br\u00fbl\u00e9e", "BELGIAN waffles");
+        List<FavoritesMatcher.Hit> hits = matcher.scan(menu("Brody", "2024-01-15",
+                new String[]{"Breakfast", "Griddle", "belgian Waffles w/ Strawberries"},
+                new String[]{"Dinner", "Dessert", "CREME BRULEE cup"}));
+
+        assertEquals(Arrays.asList("BELGIAN waffles", "Cr\u00e8me Br\u00fbl\u00e9e"), favorites(hits));
+        assertEquals("CREME BRULEE cup", hits.get(1).itemName);
+        assertEquals("Dessert", hits.get(1).stationName);
+        assertEquals("Dinner", hits.get(1).mealName);
+    }
+
+    @Test
+    public void scan_matchesWholeWordsOnly() {
+        FavoritesMatcher matcher = matcher("Waffle", "Tots");
+        assertTrue(matcher.scan(menu("Brody", "2024-01-15",
+                new String[]{"Breakfast", "Griddle", "Belgian Waffles"},
+                new String[]{"Lunch", "Grill", "Tater Totsicle"})).isEmpty());
+        assertFalse(matcher.matchesAny(Collections.singletonList("Waffles")));
+        assertTrue(matcher.matchesAny(Arrays.asList("Pancakes", "Cheesy Tots")));
+    }
+
+    @Test
+    public void scan_reportsOverlappingFavorites() {
+        // Prefixes, suffixes and nested favorites all end inside the same item
+        FavoritesMatcher matcher = matcher("Chicken", "Chicken Tenders", "Tenders",
+                "Buffalo Chicken Tenders", "chicken");
+        List<FavoritesMatcher.Hit> hits = matcher.scan(menu("Case", "2024-01-15",
+                new String[]{"Lunch", "Grill", "Buffalo Chicken Tenders"}));
+
+        // Duplicates by normalized form compile once, keeping the first spelling
+        assertEquals(new HashSet<>(Arrays.asList("Chicken", "Chicken Tenders", "Tenders", "Buffalo Chicken Tenders")),
+                new HashSet<>(favorites(hits)));
+        assertEquals(4, hits.size());
+    }
+
+    @Test
+    public void scan_reportsEachFavoriteOncePerMeal() {
+        FavoritesMatcher matcher = matcher("Pizza");
+        List<FavoritesMatcher.Hit> hits = matcher.scan(menu("Shaw", "2024-01-15",
+                new String[]{"Lunch", "Ovens", "Cheese Pizza"},
+                new String[]{"Lunch", "Ovens", "Pizza Pizza"},
+                new String[]{"Lunch", "Pasta", "Pizza Bread"},
+                new String[]{"Dinner", "Ovens", "Pepperoni Pizza"}));
+
+        assertEquals(2, hits.size());
+        assertEquals("Cheese Pizza", hits.get(0).itemName);
+        assertEquals("Dinner", hits.get(1).mealName);
+    }
+
+    @Test
+    public void ingest_announcesEachFavoriteOncePerHallAndDay() {
+        FavoritesMatcher matcher = matcher("Pizza", "Tacos");
+        String[] pizza = {"Lunch", "Ovens", "Cheese Pizza"};
+        String[] tacos = {"Dinner", "Grill", "Street Tacos"};
+
+        assertEquals(Arrays.asList("Pizza"), favorites(matcher.ingest(menu("Shaw", "2024-01-15", pizza))));
+        // Same day: only the new favorite, and other halls are announced on their own
+        assertEquals(Arrays.asList("Tacos"), favorites(matcher.ingest(menu("Shaw", "2024-01-15", pizza, tacos))));
+        assertEquals(Arrays.asList("Pizza"), favorites(matcher.ingest(menu("Brody", "2024-01-15", pizza))));
+        assertEquals(Arrays.asList("Pizza", "Tacos"), favorites(matcher.getHits("Shaw")));
+
+        // The next day starts over
+        assertEquals(Arrays.asList("Pizza", "Tacos"),
+                favorites(matcher.ingest(menu("Shaw", "2024-01-16", pizza, tacos))));
+        assertTrue(matcher.ingest(menu("Shaw", "2024-01-16", pizza)).isEmpty());
+    }
+
+    @Test
+    public void noFavorites_matchNothing() {
+        FavoritesMatcher matcher = matcher();
+        assertFalse(matcher.hasFavorites());
+        assertTrue(matcher.scan(menu("Brody", "2024-01-15", new String[]{"Lunch", "Grill", "Burger"})).isEmpty());
+        assertFalse(matcher.matchesAny(Collections.singletonList("Burger")));
+    }
+}
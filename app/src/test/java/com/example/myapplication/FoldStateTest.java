@@ -0,0 +1,111 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for SeatOccupancyEngine.FoldState: topic parsing and folding of seat and sensor
+ * messages, driven with (topic, payload) pairs like the ones a broker delivers.
+ */
+public class FoldStateTest {
+
+    private static final String ZONE = "seatshare/hall/brody/zone/main/";
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void seatMessages_countKnownAndTakenSeats() {
+        SeatOccupancyEngine.FoldState state = new SeatOccupancyEngine.FoldState();
+        assertTrue(state.apply(ZONE + "seat/1", SeatShareCodec.encodeSeatState(1, true, 10L), 1000));
+        assertTrue(state.apply(ZONE + "seat/2", ascii("0"), 1000));
+        assertTrue(state.apply(ZONE + "seat/3", ascii("1"), 2000));
+        // Repeated reports of the same seat are not counted twice
+        assertTrue(state.apply(ZONE + "seat/3", ascii("1"), 3000));
+        assertTrue(state.isDirty());
+
+        SeatOccupancyEngine.OccupancySnapshot snapshot =
+                state.buildSnapshot(SeatOccupancyEngine.OccupancySnapshot.EMPTY, 3000);
+        SeatOccupancyEngine.HallOccupancy hall = snapshot.getHall("Brody");
+        assertNotNull(hall);
+        assertEquals(2, hall.occupiedSeats);
+        assertEquals(3, hall.totalSeats);
+        assertEquals(3000, hall.updatedAtMs);
+        assertEquals(1, hall.zones.size());
+        assertEquals("main", hall.zones.get(0).zoneName);
+        assertFalse(state.isDirty());
+    }
+
+    @Test
+    public void sensorMessages_usedUntilSeatsReport() {
+        SeatOccupancyEngine.FoldState state = new SeatOccupancyEngine.FoldState();
+        assertTrue(state.apply(ZONE + "sensor", ascii("40/120"), 1000));
+        SeatOccupancyEngine.HallOccupancy hall = state
+                .buildSnapshot(SeatOccupancyEngine.OccupancySnapshot.EMPTY, 1000).getHall("brody");
+        assertEquals(40, hall.occupiedSeats);
+        assertEquals(120, hall.totalSeats);
+
+        int[] seats = {4, 7};
+        boolean[] taken = {true, false};
+        byte[] delta = SeatShareCodec.encodeOccupancyDelta(2L, 41, 120, seats, taken, seats.length);
+        assertTrue(state.apply(ZONE + "sensor", delta, 2000));
+        hall = state.buildSnapshot(SeatOccupancyEngine.OccupancySnapshot.EMPTY, 2000).getHall("brody");
+        assertEquals(1, hall.occupiedSeats);
+        assertEquals(2, hall.totalSeats);
+    }
+
+    @Test
+    public void unchangedHalls_reusePreviousSnapshot() {
+        SeatOccupancyEngine.FoldState state = new SeatOccupancyEngine.FoldState();
+        state.apply(ZONE + "seat/1", ascii("1"), 1000);
+        state.apply("seatshare/hall/case/zone/east/seat/1", ascii("1"), 1000);
+        SeatOccupancyEngine.OccupancySnapshot first =
+                state.buildSnapshot(SeatOccupancyEngine.OccupancySnapshot.EMPTY, 1000);
+
+        state.apply(ZONE + "seat/2", ascii("1"), 2000);
+        SeatOccupancyEngine.OccupancySnapshot second = state.buildSnapshot(first, 2000);
+        assertSame(first.getHall("Case"), second.getHall("Case"));
+        assertNotSame(first.getHall("Brody"), second.getHall("Brody"));
+        assertEquals(2, second.getHall("Brody").occupiedSeats);
+    }
+
+    @Test
+    public void malformedTopicsAndPayloads_areRejected() {
+        SeatOccupancyEngine.FoldState state = new SeatOccupancyEngine.FoldState();
+        assertFalse(state.apply("other/hall/brody/zone/main/seat/1", ascii("1"), 0));
+        assertFalse(state.apply("seatshare/hall/brody", ascii("1"), 0));
+        assertFalse(state.apply("seatshare/hall/brody/floor/main/seat/1", ascii("1"), 0));
+        assertFalse(state.apply("seatshare/hall/brody/zone/main", ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/", ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/12a", ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/-1", ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/1", new byte[0], 0));
+        assertFalse(state.apply(ZONE + "seat/1", null, 0));
+        assertFalse(state.apply(ZONE + "sensor", ascii("lots"), 0));
+        assertFalse(state.apply(ZONE + "table/1", ascii("1"), 0));
+        assertFalse(state.isDirty());
+    }
+
+    @Test
+    public void seatsAboveMaxSeat_areRejected() {
+        SeatOccupancyEngine.FoldState state = new SeatOccupancyEngine.FoldState();
+        int max = SeatOccupancyEngine.MAX_SEAT;
+        assertTrue(state.apply(ZONE + "seat/" + max, ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/" + (max + 1), ascii("1"), 0));
+        assertFalse(state.apply(ZONE + "seat/999999999", ascii("1"), 0));
+
+        int[] seats = {1, max + 1, 1_000_000_000};
+        boolean[] taken = {true, true, true};
+        byte[] delta = SeatShareCodec.encodeOccupancyDelta(1L, 3, 3, seats, taken, seats.length);
+        assertTrue(state.apply(ZONE + "sensor", delta, 0));
+
+        SeatOccupancyEngine.HallOccupancy hall =
+                state.buildSnapshot(SeatOccupancyEngine.OccupancySnapshot.EMPTY, 0).getHall("brody");
+        assertEquals(2, hall.occupiedSeats);
+        assertEquals(2, hall.totalSeats);
+    }
+}
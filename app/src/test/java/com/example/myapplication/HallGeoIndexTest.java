@@ -0,0 +1,111 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares HallGeoIndex with a brute-force Haversine search over every hall, for random
+ * fixes on campus, off the grid but within the planar range, and far away (Haversine path).
+ */
+public class HallGeoIndexTest {
+
+    private static final int FIXES = 20_000;
+
+    private final DiningHall[] halls = allHalls();
+    private final HallGeoIndex index = new HallGeoIndex(halls);
+    private final double centerLat = mean(true);
+    private final double centerLon = mean(false);
+
+    @Test
+    public void campusFixes_matchBruteForce() {
+        // Within about 2 km of the halls: decimetre error, so 0.1% of the distance is ample
+        checkRandomFixes(0, 0.02, 0.001, 1);
+    }
+
+    @Test
+    public void offGridFixes_matchBruteForce() {
+        // Up to about 20 km away, outside the grid but still projected
+        checkRandomFixes(0, 0.18, 0.005, 2);
+    }
+
+    @Test
+    public void distantFixes_useExactDistances() {
+        checkRandomFixes(1, 5, 1e-9, 3);
+    }
+
+    @Test
+    public void emptyIndex_findsNothing() {
+        HallGeoIndex empty = new HallGeoIndex(new DiningHall[0]);
+        assertEquals(-1, empty.nearest(centerLat, centerLon));
+        assertEquals(0, empty.kNearest(centerLat, centerLon, 3, new int[3], new double[3]));
+    }
+
+    /**
+     * @param minDegrees Fixes are drawn at least this many degrees of latitude and longitude
+     *                   away from the halls' centre
+     * @param maxDegrees ... and at most this many
+     * @param relativeError Allowed error of the returned distances, relative to the exact ones
+     */
+    private void checkRandomFixes(double minDegrees, double maxDegrees, double relativeError, long seed) {
+        Random random = new Random(seed);
+        int k = 3;
+        int[] indices = new int[k];
+        double[] distances = new double[k];
+        for (int i = 0; i < FIXES; i++) {
+            double lat = centerLat + offset(random, minDegrees, maxDegrees);
+            double lon = centerLon + offset(random, minDegrees, maxDegrees);
+
+            double[] exact = new double[halls.length];
+            double closest = Double.MAX_VALUE;
+            for (int h = 0; h < halls.length; h++) {
+                exact[h] = DiningHall.calculateDistance(lat, lon, halls[h].getLatitude(), halls[h].getLongitude());
+                closest = Math.min(closest, exact[h]);
+            }
+
+            // A different hall is only acceptable if it is as close within the error
+            String fix = lat + "," + lon;
+            int nearest = index.nearest(lat, lon);
+            assertTrue(fix, exact[nearest] <= closest * (1 + 2 * relativeError));
+
+            assertEquals(fix, k, index.kNearest(lat, lon, k, indices, distances));
+            for (int r = 0; r < k; r++) {
+                assertEquals(fix, exact[indices[r]], distances[r], exact[indices[r]] * relativeError);
+                if (r > 0) {
+                    assertTrue(fix, distances[r - 1] <= distances[r]);
+                }
+            }
+            // No hall left out is clearly closer than the last one returned
+            for (int h = 0; h < halls.length; h++) {
+                if (h != indices[0] && h != indices[1] && h != indices[2]) {
+                    assertTrue(fix, exact[h] >= exact[indices[k - 1]] * (1 - 2 * relativeError));
+                }
+            }
+        }
+    }
+
+    private static double offset(Random random, double minDegrees, double maxDegrees) {
+        double degrees = minDegrees + random.nextDouble() * (maxDegrees - minDegrees);
+        return random.nextBoolean() ? degrees : -degrees;
+    }
+
+    private static DiningHall[] allHalls() {
+        List<HallRegistry.Hall> registry = HallRegistry.all();
+        DiningHall[] halls = new DiningHall[registry.size()];
+        for (int i = 0; i < halls.length; i++) {
+            halls[i] = new DiningHall(registry.get(i), 0);
+        }
+        return halls;
+    }
+
+    private double mean(boolean latitude) {
+        double sum = 0;
+        for (DiningHall hall : halls) {
+            sum += latitude ? hall.getLatitude() : hall.getLongitude();
+        }
+        return sum / halls.length;
+    }
+}
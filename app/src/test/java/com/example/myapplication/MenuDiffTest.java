@@ -0,0 +1,146 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MenuDiff: added, removed, renamed and moved items, redundant stored rows, and
+ * menus that did not change.
+ */
+public class MenuDiffTest {
+
+    // Stored rows are {meal, station, item}, with ids 1, 2, ... in order
+    private static List<MenuDiff.StoredRow> stored(String[]... rows) {
+        List<MenuDiff.StoredRow> stored = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            stored.add(new MenuDiff.StoredRow(i + 1, rows[i][0], rows[i][1], rows[i][2]));
+        }
+        return stored;
+    }
+
+    // Scraped entries are {meal, station, item, tags}
+    private static MSUMenuScraper.MenuResult scraped(String[]... entries) {
+        MSUMenuScraper.MenuResult result = MSUMenuScraper.MenuResult.success();
+        result.hallName = "Brody";
+        result.date = "2024-01-15";
+        for (String[] entry : entries) {
+            MSUMenuScraper.Station station = null;
+            for (MSUMenuScraper.Station existing : result.stations) {
+                if (existing.stationName.equals(entry[1])) station = existing;
+            }
+            if (station == null) {
+                station = new MSUMenuScraper.Station(entry[1]);
+                result.stations.add(station);
+            }
+            MSUMenuScraper.Meal meal = null;
+            for (MSUMenuScraper.Meal existing : station.meals) {
+                if (existing.mealName.equals(entry[0])) meal = existing;
+            }
+            if (meal == null) {
+                meal = new MSUMenuScraper.Meal(entry[0]);
+                station.meals.add(meal);
+            }
+            meal.items.add(entry[2]);
+            meal.itemTags.add(entry[3]);
+        }
+        return result;
+    }
+
+    private static void assertChange(MenuDiff.Change change, MenuDiff.Type type, String item,
+                                     String station, String previousStation, long rowId) {
+        assertEquals(type, change.type);
+        assertEquals(item, change.itemName);
+        assertEquals(station, change.stationName);
+        assertEquals(previousStation, change.previousStation);
+        assertEquals(rowId, change.rowId);
+    }
+
+    @Test
+    public void unchangedMenu_isEmpty() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Burger"}, new String[]{"Lunch", "Grill", "Fries"}),
+                scraped(new String[]{"Lunch", "Grill", "Fries", ""}, new String[]{"Lunch", "Grill", "Burger", "Beef"}));
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.getChanges().isEmpty());
+    }
+
+    @Test
+    public void newItem_isAddedWithItsTags() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Burger"}),
+                scraped(new String[]{"Lunch", "Grill", "Burger", ""}, new String[]{"Lunch", "Pasta", "Penne", "Vegetarian"}));
+        assertEquals(1, diff.getChanges().size());
+        MenuDiff.Change change = diff.getChanges().get(0);
+        assertChange(change, MenuDiff.Type.ADDED, "Penne", "Pasta", null, -1);
+        assertEquals("Lunch", change.mealTime);
+        assertEquals("Vegetarian", change.tags);
+    }
+
+    @Test
+    public void missingItem_isRemovedWithItsRow() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Burger"}, new String[]{"Dinner", "Grill", "Burger"}),
+                scraped(new String[]{"Lunch", "Grill", "Burger", ""}));
+        assertEquals(1, diff.getChanges().size());
+        assertChange(diff.getChanges().get(0), MenuDiff.Type.REMOVED, "Burger", "Grill", null, 2);
+        assertEquals("Dinner", diff.getChanges().get(0).mealTime);
+    }
+
+    @Test
+    public void renamedItem_isRemovedAndAdded() {
+        // Items are identified by name, so a new name is a different item
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Cheeseburger"}),
+                scraped(new String[]{"Lunch", "Grill", "Bacon Cheeseburger", ""}));
+        assertEquals(2, diff.getChanges().size());
+        assertChange(diff.getChanges().get(0), MenuDiff.Type.REMOVED, "Cheeseburger", "Grill", null, 1);
+        assertChange(diff.getChanges().get(1), MenuDiff.Type.ADDED, "Bacon Cheeseburger", "Grill", null, -1);
+    }
+
+    @Test
+    public void itemAtAnotherStation_isMovedAndKeepsItsRow() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Fries"}, new String[]{"Lunch", "Grill", "Burger"}),
+                scraped(new String[]{"Lunch", "Grill", "Burger", ""}, new String[]{"Lunch", "Sides", "Fries", ""}));
+        assertEquals(1, diff.getChanges().size());
+        assertChange(diff.getChanges().get(0), MenuDiff.Type.MOVED, "Fries", "Sides", "Grill", 1);
+    }
+
+    @Test
+    public void extraStations_pairUpBeforeAddingOrRemoving() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Fries"}),
+                scraped(new String[]{"Lunch", "Sides", "Fries", ""}, new String[]{"Lunch", "Snacks", "Fries", ""}));
+        assertEquals(2, diff.getChanges().size());
+        assertChange(diff.getChanges().get(0), MenuDiff.Type.MOVED, "Fries", "Sides", "Grill", 1);
+        assertChange(diff.getChanges().get(1), MenuDiff.Type.ADDED, "Fries", "Snacks", null, -1);
+    }
+
+    @Test
+    public void duplicateStoredRows_areRedundantWithoutChanges() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Burger"}, new String[]{"Lunch", "Grill", "Burger"}),
+                scraped(new String[]{"Lunch", "Grill", "Burger", ""}));
+        assertTrue(diff.getChanges().isEmpty());
+        assertEquals(Collections.singletonList(2L), diff.getRedundantRowIds());
+        assertFalse(diff.isEmpty());
+    }
+
+    @Test
+    public void noScrapedMenu_removesEverything() {
+        MenuDiff diff = MenuDiff.compute(
+                stored(new String[]{"Lunch", "Grill", "Burger"}, new String[]{"Lunch", "Grill", "Fries"}), null);
+        assertEquals(2, diff.getChanges().size());
+        for (MenuDiff.Change change : diff.getChanges()) {
+            assertEquals(MenuDiff.Type.REMOVED, change.type);
+        }
+        assertEquals(Arrays.asList("Burger", "Fries"),
+                Arrays.asList(diff.getChanges().get(0).itemName, diff.getChanges().get(1).itemName));
+    }
+}
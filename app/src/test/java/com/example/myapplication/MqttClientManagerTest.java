@@ -0,0 +1,153 @@
+package com.example.myapplication;
+
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs MqttClientManager against an embedded broker (Moquette), with plain Paho clients in
+ * place of MqttAndroidClient. An observer client records every seatshare message the broker
+ * routes.
+ */
+public class MqttClientManagerTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+    private static final String CLAIM_TOPIC = "seatshare/hall/brody/zone/main/seat/7/claim";
+    private static final String STATE_TOPIC = "seatshare/hall/brody/zone/main/seat/7/state";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private Server broker;
+    private String brokerUri;
+    private MqttAsyncClient observer;
+    private MqttClientManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        int port = freePort();
+        Properties config = new Properties();
+        config.setProperty("host", "127.0.0.1");
+        config.setProperty("port", Integer.toString(port));
+        config.setProperty("allow_anonymous", "true");
+        config.setProperty("persistence_enabled", "false");
+        broker = new Server();
+        broker.startServer(new MemoryConfig(config));
+        brokerUri = "tcp://127.0.0.1:" + port;
+
+        observer = new MqttAsyncClient(brokerUri, "observer", new MemoryPersistence());
+        observer.connect().waitForCompletion(TIMEOUT_MS);
+        observer.subscribe("seatshare/#", 1, (topic, message) ->
+                received.add(topic + " " + new String(message.getPayload(), StandardCharsets.UTF_8)))
+                .waitForCompletion(TIMEOUT_MS);
+
+        manager = new MqttClientManager();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.disconnect();
+        observer.disconnect().waitForCompletion(TIMEOUT_MS);
+        observer.close();
+        broker.stopServer();
+    }
+
+    @Test
+    public void failedFirstConnect_isRetriedAndDeliversQueuedClaims() throws Exception {
+        // Nothing listens on the first client's port, like a device that is offline at launch
+        String unreachableUri = "tcp://127.0.0.1:" + freePort();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch connected = new CountDownLatch(1);
+
+        manager.publish(CLAIM_TOPIC, "in");
+        manager.connect(outbox(),
+                (uri, id) -> new MqttAsyncClient(attempts.getAndIncrement() == 0 ? unreachableUri : uri, id,
+                        new MemoryPersistence()),
+                brokerUri, "app", listener(connected, failed));
+
+        assertTrue(failed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        manager.publish(CLAIM_TOPIC, "out");
+
+        assertTrue(connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(manager.isConnected());
+        assertEquals(2, attempts.get());
+        assertEquals(CLAIM_TOPIC + " in", received.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(CLAIM_TOPIC + " out", received.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void subscribedListener_receivesOwnStateAndClaimThroughBroker() throws Exception {
+        // First payload per topic, as the router delivered it
+        Map<String, String> delivered = new ConcurrentHashMap<>();
+        CountDownLatch both = new CountDownLatch(2);
+        manager.subscribe("seatshare/hall/brody/zone/#", (topic, payload) -> {
+            if (delivered.putIfAbsent(topic, new String(payload, StandardCharsets.UTF_8)) == null) {
+                both.countDown();
+            }
+        }, MqttTopicRouter.DropPolicy.LATEST_PER_TOPIC, 16);
+
+        // Queued before connect: sent after the broker subscription, on the same connection.
+        // The two state updates coalesce into the latest one.
+        manager.publish(STATE_TOPIC, "free");
+        manager.publish(STATE_TOPIC, "occupied");
+        manager.publish(CLAIM_TOPIC, "in");
+        CountDownLatch connected = new CountDownLatch(1);
+        manager.connect(outbox(), (uri, id) -> new MqttAsyncClient(uri, id, new MemoryPersistence()),
+                brokerUri, "app", listener(connected, new CountDownLatch(1)));
+
+        assertTrue(connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(both.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("occupied", delivered.get(STATE_TOPIC));
+        assertEquals("in", delivered.get(CLAIM_TOPIC));
+    }
+
+    private MqttPublisher outbox() {
+        return new MqttPublisher(new File(folder.getRoot(), "mqtt_outbox.bin"));
+    }
+
+    private static IMqttActionListener listener(CountDownLatch connected, CountDownLatch failed) {
+        return new IMqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken asyncActionToken) {
+                connected.countDown();
+            }
+
+            @Override
+            public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                failed.countDown();
+            }
+        };
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
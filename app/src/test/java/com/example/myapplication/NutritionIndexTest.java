@@ -0,0 +1,194 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for NutritionIndex queries: inclusive ranges, unknown (NaN) values, top-K in both
+ * directions and the order of ties, plus a randomized comparison with a brute-force scan.
+ */
+public class NutritionIndexTest {
+
+    private static final float NaN = Float.NaN;
+
+    // name, hall, meal, then calories, fat, protein, carbs, fiber, sugar
+    private static final Object[][] ROWS = {
+            {"Salad", "Brody", "Lunch", new float[]{300, 10, 8, 20, 5, 4}},
+            {"Burger", "Brody", "Lunch", new float[]{500, 25, 30, 40, 2, 8}},
+            {"Pizza", "Brody", "Lunch", new float[]{501, 20, 22, 60, 3, 6}},
+            {"Mystery Stew", "Brody", "Lunch", new float[]{NaN, NaN, NaN, NaN, NaN, NaN}},
+            {"Chicken", "Case", "Lunch", new float[]{400, 5, 30, 0, 0, 0}},
+            {"Omelet", "Case", "Breakfast", new float[]{350, 20, 22, 2, 0, 1}},
+    };
+
+    private static NutritionIndex index(Object[][] rows) {
+        NutritionIndex index = new NutritionIndex((MenuDatabaseHelper) null);
+        index.load(sink -> {
+            for (Object[] row : rows) {
+                sink.add((String) row[1], (String) row[2], "Station", (String) row[0], (float[]) row[3]);
+            }
+        });
+        return index;
+    }
+
+    private static List<String> names(List<NutritionIndex.Result> results) {
+        List<String> names = new ArrayList<>();
+        for (NutritionIndex.Result result : results) {
+            names.add(result.itemName);
+        }
+        return names;
+    }
+
+    private static Set<String> nameSet(List<NutritionIndex.Result> results) {
+        return new HashSet<>(names(results));
+    }
+
+    @Test
+    public void ranges_areInclusiveAndSkipUnknownValues() {
+        NutritionIndex index = index(ROWS);
+        assertEquals(6, index.size());
+
+        assertEquals(new HashSet<>(Arrays.asList("Salad", "Burger", "Chicken", "Omelet")),
+                nameSet(index.query(new NutritionIndex.Query().atMost(NutritionIndex.Nutrient.CALORIES, 500))));
+        assertEquals(new HashSet<>(Arrays.asList("Burger", "Pizza")),
+                nameSet(index.query(new NutritionIndex.Query().range(NutritionIndex.Nutrient.CALORIES, 500, 501))));
+        assertEquals(new HashSet<>(Arrays.asList("Burger", "Chicken")),
+                nameSet(index.query(new NutritionIndex.Query()
+                        .atLeast(NutritionIndex.Nutrient.PROTEIN, 30).atMost(NutritionIndex.Nutrient.FAT, 25))));
+
+        // Unconstrained nutrients do not filter, so the unknown row is still listed
+        assertEquals(6, index.query(new NutritionIndex.Query()).size());
+        assertTrue(Float.isNaN(index.query(new NutritionIndex.Query().hall("brody").meal("lunch")).stream()
+                .filter(result -> result.itemName.equals("Mystery Stew"))
+                .findFirst().get().get(NutritionIndex.Nutrient.CALORIES)));
+    }
+
+    @Test
+    public void hallAndMeal_narrowTheRows() {
+        NutritionIndex index = index(ROWS);
+        assertEquals(new HashSet<>(Arrays.asList("Chicken")),
+                nameSet(index.query(new NutritionIndex.Query().hall("Case").meal("Lunch"))));
+        assertEquals(new HashSet<>(Arrays.asList("Salad", "Burger")),
+                nameSet(index.query(new NutritionIndex.Query().hall("Brody")
+                        .atMost(NutritionIndex.Nutrient.CALORIES, 500))));
+    }
+
+    @Test
+    public void topK_ordersAndLimits() {
+        NutritionIndex index = index(ROWS);
+        // Unconstrained: walks the sorted column; unknown values are never ranked
+        assertEquals(Arrays.asList("Salad", "Omelet", "Chicken"), names(index.query(new NutritionIndex.Query()
+                .orderBy(NutritionIndex.Nutrient.CALORIES, false).limit(3))));
+        assertEquals(Arrays.asList("Pizza", "Burger", "Chicken", "Omelet", "Salad"), names(index.query(
+                new NutritionIndex.Query().orderBy(NutritionIndex.Nutrient.CALORIES, true))));
+        // Constrained: bounded heap over the range candidates
+        assertEquals(Arrays.asList("Chicken", "Omelet"), names(index.query(new NutritionIndex.Query()
+                .atMost(NutritionIndex.Nutrient.CALORIES, 450)
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, true).limit(2))));
+        assertTrue(index.query(new NutritionIndex.Query().limit(0)).isEmpty());
+    }
+
+    @Test
+    public void ties_keepLoadOrderInBothDirections() {
+        // Burger and Chicken both have 30 g protein; Pizza and Omelet both 22 g
+        NutritionIndex index = index(ROWS);
+        List<String> descending = Arrays.asList("Burger", "Chicken", "Pizza", "Omelet", "Salad");
+        List<String> ascending = Arrays.asList("Salad", "Pizza", "Omelet", "Burger", "Chicken");
+
+        // Sorted walk (no range) and heap (small range) must agree
+        assertEquals(descending, names(index.query(new NutritionIndex.Query()
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, true))));
+        assertEquals(descending, names(index.query(new NutritionIndex.Query()
+                .atLeast(NutritionIndex.Nutrient.PROTEIN, 0)
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, true))));
+        assertEquals(ascending, names(index.query(new NutritionIndex.Query()
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, false))));
+        assertEquals(ascending, names(index.query(new NutritionIndex.Query()
+                .atLeast(NutritionIndex.Nutrient.PROTEIN, 0)
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, false))));
+
+        // A limit that cuts through a tie keeps the earlier row
+        assertEquals(Arrays.asList("Burger"), names(index.query(new NutritionIndex.Query()
+                .atLeast(NutritionIndex.Nutrient.PROTEIN, 0)
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, true).limit(1))));
+        assertEquals(Arrays.asList("Burger"), names(index.query(new NutritionIndex.Query()
+                .orderBy(NutritionIndex.Nutrient.PROTEIN, true).limit(1))));
+    }
+
+    @Test
+    public void randomQueries_matchBruteForce() {
+        Random random = new Random(7);
+        int rowCount = 2000;
+        Object[][] rows = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            float[] values = new float[6];
+            for (int n = 0; n < values.length; n++) {
+                // Coarse values so ties are common; some unknown
+                values[n] = random.nextInt(20) == 0 ? NaN : random.nextInt(50) * 10;
+            }
+            rows[i] = new Object[]{"item" + i, "hall" + random.nextInt(3), "meal" + random.nextInt(2), values};
+        }
+        NutritionIndex index = index(rows);
+        NutritionIndex.Nutrient[] nutrients = NutritionIndex.Nutrient.values();
+
+        for (int q = 0; q < 500; q++) {
+            NutritionIndex.Query query = new NutritionIndex.Query();
+            float[] min = new float[6];
+            float[] max = new float[6];
+            Arrays.fill(min, Float.NEGATIVE_INFINITY);
+            Arrays.fill(max, Float.POSITIVE_INFINITY);
+            for (int c = random.nextInt(3); c > 0; c--) {
+                int n = random.nextInt(6);
+                min[n] = random.nextInt(50) * 10;
+                max[n] = min[n] + random.nextInt(5) * 10 * (random.nextBoolean() ? 1 : 20);
+                query.range(nutrients[n], min[n], max[n]);
+            }
+            String hall = random.nextBoolean() ? "hall" + random.nextInt(3) : null;
+            query.hall(hall);
+            int orderBy = random.nextInt(7) - 1;
+            boolean descending = random.nextBoolean();
+            int limit = 1 + random.nextInt(300);
+            if (orderBy >= 0) {
+                query.orderBy(nutrients[orderBy], descending).limit(limit);
+            }
+
+            List<Integer> expected = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                float[] values = (float[]) rows[row][3];
+                boolean match = hall == null || hall.equals(rows[row][1]);
+                for (int n = 0; n < 6 && match; n++) {
+                    boolean constrained = min[n] != Float.NEGATIVE_INFINITY || max[n] != Float.POSITIVE_INFINITY;
+                    match = !constrained || (values[n] >= min[n] && values[n] <= max[n]);
+                }
+                if (match && (orderBy < 0 || !Float.isNaN(values[orderBy]))) {
+                    expected.add(row);
+                }
+            }
+
+            List<String> actual = names(index.query(query));
+            if (orderBy < 0) {
+                Set<String> expectedNames = new HashSet<>();
+                for (int row : expected) expectedNames.add("item" + row);
+                assertEquals("query " + q, expectedNames, new HashSet<>(actual));
+                continue;
+            }
+            int sign = descending ? -1 : 1;
+            expected.sort(Comparator.<Integer>comparingDouble(row -> sign * ((float[]) rows[row][3])[orderBy])
+                    .thenComparingInt(row -> row));
+            List<String> expectedNames = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, expected.size()); i++) {
+                expectedNames.add("item" + expected.get(i));
+            }
+            assertEquals("query " + q, expectedNames, actual);
+        }
+    }
+}
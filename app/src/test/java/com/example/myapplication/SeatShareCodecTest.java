@@ -0,0 +1,175 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip and fuzz tests for SeatShareCodec. The decoders must never throw, whatever
+ * bytes arrive over the network.
+ */
+public class SeatShareCodecTest {
+
+    private static final int FUZZ_ITERATIONS = 200_000;
+
+    @Test
+    public void seatState_roundTrip() {
+        byte[] payload = SeatShareCodec.encodeSeatState(137, true, 1_700_000_000L);
+        SeatShareCodec.SeatStateView view = new SeatShareCodec.SeatStateView();
+
+        assertEquals(SeatShareCodec.TYPE_SEAT_STATE, SeatShareCodec.typeOf(payload));
+        assertTrue(view.wrap(payload));
+        assertEquals(137, view.getSeat());
+        assertTrue(view.isTaken());
+        assertEquals(1_700_000_000L, view.getTimestampSec());
+
+        // Much smaller than the equivalent JSON
+        byte[] json = "{\"seat\":137,\"taken\":true,\"ts\":1700000000}".getBytes(StandardCharsets.UTF_8);
+        assertTrue(payload.length * 4 < json.length);
+    }
+
+    @Test
+    public void occupancyDelta_roundTrip() {
+        int[] seats = {0, 3, 4, 250, 251};
+        boolean[] taken = {true, false, true, true, false};
+        byte[] payload = SeatShareCodec.encodeOccupancyDelta(42L, 60, 120, seats, taken, seats.length);
+
+        SeatShareCodec.OccupancyDeltaView view = new SeatShareCodec.OccupancyDeltaView();
+        assertTrue(view.wrap(payload));
+        assertEquals(42L, view.getTimestampSec());
+        assertEquals(60, view.getOccupied());
+        assertEquals(120, view.getCapacity());
+        assertEquals(seats.length, view.getChangeCount());
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < seats.length; i++) {
+                assertTrue(view.nextChange());
+                assertEquals(seats[i], view.getChangeSeat());
+                assertEquals(taken[i], view.isChangeTaken());
+            }
+            assertFalse(view.nextChange());
+            view.rewindChanges();
+        }
+    }
+
+    @Test
+    public void menuInvalidation_roundTrip() {
+        byte[] payload = SeatShareCodec.encodeMenuInvalidation("snyder-phillips", 20000, 7L);
+        SeatShareCodec.MenuInvalidationView view = new SeatShareCodec.MenuInvalidationView();
+
+        assertTrue(view.wrap(payload));
+        assertEquals(20000, view.getEpochDay());
+        assertEquals(7L, view.getVersion());
+        assertEquals("snyder-phillips", view.getHallKey());
+        assertTrue(view.matchesHall("snyder-phillips"));
+        assertFalse(view.matchesHall("brody"));
+    }
+
+    @Test
+    public void newerMinorVersion_trailingBytesIgnored() {
+        byte[] payload = SeatShareCodec.encodeSeatState(5, false, 9L);
+        byte[] extended = new byte[payload.length + 3];
+        System.arraycopy(payload, 0, extended, 0, payload.length);
+        extended[0] = (byte) ((SeatShareCodec.MAJOR_VERSION << 4) | 0x0F);
+        extended[payload.length] = 0x7F;
+
+        SeatShareCodec.SeatStateView view = new SeatShareCodec.SeatStateView();
+        assertTrue(view.wrap(extended));
+        assertEquals(5, view.getSeat());
+        assertFalse(view.isTaken());
+    }
+
+    @Test
+    public void unknownMajorVersionOrType_rejected() {
+        byte[] payload = SeatShareCodec.encodeSeatState(5, true, 9L);
+        SeatShareCodec.SeatStateView view = new SeatShareCodec.SeatStateView();
+
+        byte[] nextMajor = payload.clone();
+        nextMajor[0] = (byte) ((SeatShareCodec.MAJOR_VERSION + 1) << 4);
+        assertFalse(view.wrap(nextMajor));
+
+        assertFalse(new SeatShareCodec.OccupancyDeltaView().wrap(payload));
+        assertFalse(view.wrap(new byte[] {'1'}));
+        assertFalse(SeatShareCodec.isBinary(new byte[] {'4', '2', '/', '9'}));
+    }
+
+    @Test
+    public void truncatedMessages_rejected() {
+        byte[][] messages = {
+            SeatShareCodec.encodeSeatState(300, true, 1_700_000_000L),
+            SeatShareCodec.encodeOccupancyDelta(1L, 2, 3, new int[] {1, 200}, new boolean[] {true, true}, 2),
+            SeatShareCodec.encodeMenuInvalidation("brody", 1, 1L)
+        };
+        SeatShareCodec.SeatStateView seat = new SeatShareCodec.SeatStateView();
+        SeatShareCodec.OccupancyDeltaView delta = new SeatShareCodec.OccupancyDeltaView();
+        SeatShareCodec.MenuInvalidationView menu = new SeatShareCodec.MenuInvalidationView();
+
+        for (byte[] message : messages) {
+            for (int length = 0; length < message.length; length++) {
+                assertFalse(seat.wrap(message, 0, length));
+                assertFalse(delta.wrap(message, 0, length));
+                assertFalse(menu.wrap(message, 0, length));
+            }
+        }
+    }
+
+    @Test
+    public void fuzz_randomAndMutatedInput_neverThrows() {
+        Random random = new Random(0x5EA75);
+        SeatShareCodec.SeatStateView seat = new SeatShareCodec.SeatStateView();
+        SeatShareCodec.OccupancyDeltaView delta = new SeatShareCodec.OccupancyDeltaView();
+        SeatShareCodec.MenuInvalidationView menu = new SeatShareCodec.MenuInvalidationView();
+
+        byte[][] seeds = {
+            SeatShareCodec.encodeSeatState(12, true, 1_700_000_000L),
+            SeatShareCodec.encodeOccupancyDelta(5L, 10, 40, new int[] {2, 9, 31}, new boolean[] {true, false, true}, 3),
+            SeatShareCodec.encodeMenuInvalidation("case", 19999, 123456789L)
+        };
+
+        for (int i = 0; i < FUZZ_ITERATIONS; i++) {
+            byte[] input;
+            if (random.nextBoolean()) {
+                input = new byte[random.nextInt(24)];
+                random.nextBytes(input);
+                if (input.length > 0 && random.nextBoolean()) {
+                    // Keep a valid header so the body decoders get exercised
+                    input[0] = (byte) (SeatShareCodec.MAJOR_VERSION << 4);
+                }
+                if (input.length > 1 && random.nextBoolean()) {
+                    input[1] = (byte) (1 + random.nextInt(3));
+                }
+            } else {
+                input = seeds[random.nextInt(seeds.length)].clone();
+                int flips = 1 + random.nextInt(3);
+                for (int f = 0; f < flips; f++) {
+                    input[random.nextInt(input.length)] ^= (byte) (1 << random.nextInt(8));
+                }
+            }
+
+            int offset = input.length > 0 ? random.nextInt(input.length) : 0;
+            int length = input.length - offset;
+
+            seat.wrap(input);
+            seat.wrap(input, offset, length);
+            if (delta.wrap(input, offset, length)) {
+                int changes = 0;
+                while (delta.nextChange()) {
+                    changes++;
+                    assertTrue(delta.getChangeSeat() >= 0);
+                }
+                assertEquals(delta.getChangeCount(), changes);
+            }
+            if (menu.wrap(input, offset, length)) {
+                assertNotNull(menu.getHallKey());
+            }
+        }
+
+        // Garbage ranges and null input are rejected rather than thrown on
+        assertFalse(seat.wrap(null));
+        assertFalse(seat.wrap(new byte[4], 3, 5));
+        assertFalse(seat.wrap(new byte[4], -1, 2));
+    }
+}
@@ -0,0 +1,41 @@
+plugins {
+    java
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The scraper and its model are compiled from the app's sources, so the service scrapes
+// exactly like the app; android.util.Log is provided by a shim in this module
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/myapplication/MSUMenuScraper.java",
+                "com/example/myapplication/MenuItemDetailed.java",
+                "com/example/myapplication/MenuDocuments.java",
+                "com/example/myapplication/HallRegistry.java",
+                "com/example/myapplication/server/**",
+                "android/util/**"
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation("org.jsoup:jsoup:1.16.1")
+    implementation("com.google.code.gson:gson:2.10.1")
+    // Publishing menus to Firestore and announcing them over FCM (MenuPublisher)
+    implementation("com.google.cloud:google-cloud-firestore:3.26.5")
+    implementation("com.google.firebase:firebase-admin:9.4.1")
+
+    testImplementation(libs.junit)
+}
+
+application {
+    mainClass.set("com.example.myapplication.server.MenuServer")
+}
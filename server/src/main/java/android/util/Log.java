@@ -0,0 +1,45 @@
+package android.util;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Log - Stand-in for Android's android.util.Log on the JVM
+ *
+ * Lets the menu service compile app classes that only use Android for logging
+ * (MSUMenuScraper); messages go to java.util.logging under the tag's name.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return log(tag, Level.FINE, msg, null);
+    }
+
+    public static int i(String tag, String msg) {
+        return log(tag, Level.INFO, msg, null);
+    }
+
+    public static int w(String tag, String msg) {
+        return log(tag, Level.WARNING, msg, null);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return log(tag, Level.WARNING, msg, tr);
+    }
+
+    public static int e(String tag, String msg) {
+        return log(tag, Level.SEVERE, msg, null);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return log(tag, Level.SEVERE, msg, tr);
+    }
+
+    private static int log(String tag, Level level, String msg, Throwable tr) {
+        Logger.getLogger(tag).log(level, msg, tr);
+        return 0;
+    }
+}
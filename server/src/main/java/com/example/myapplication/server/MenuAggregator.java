@@ -0,0 +1,219 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.HallRegistry;
+import com.example.myapplication.MSUMenuScraper;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * MenuAggregator - Scrapes each hall and date once for all clients and keeps its versions
+ *
+ * Features:
+ * - One slot per (hall, date); hall names are resolved to the scraper's hall key, so every
+ *   alias of a hall shares a slot
+ * - Concurrent requests for a slot that needs a scrape wait for a single scrape
+ * - Only dates from MAX_DAYS_BACK days ago to MAX_DAYS_AHEAD days ahead are served, so clients
+ *   cannot make the service scrape and keep slots for arbitrary dates
+ * - Menus of today and later are re-scraped after REFRESH_MS, past menus after PAST_REFRESH_MS
+ * - A failed scrape keeps serving the last good menu
+ * - The last MAX_VERSIONS_PER_DAY versions of a slot are kept so clients holding one of them
+ *   get a delta instead of the whole menu
+ * - New versions are handed to an optional VersionListener (MenuPublisher)
+ *
+ * Threading: all methods are thread-safe; get() blocks while the slot is being scraped.
+ */
+public class MenuAggregator {
+    private static final Logger LOG = Logger.getLogger("MenuAggregator");
+
+    static final long REFRESH_MS = 30 * 60 * 1000L;
+    static final long PAST_REFRESH_MS = 24 * 60 * 60 * 1000L;
+    private static final int MAX_VERSIONS_PER_DAY = 8;
+    static final int MAX_DAYS_BACK = 14;
+    static final int MAX_DAYS_AHEAD = 14;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Where menus come from; MSUMenuScraper in production
+     */
+    public interface MenuSource {
+        MSUMenuScraper.MenuResult fetch(String hallName, Date date);
+    }
+
+    /**
+     * Told about every new version of a menu, on the scraping thread
+     */
+    public interface VersionListener {
+        /**
+         * @param hallKey HallRegistry key of the hall
+         */
+        void onNewVersion(String hallKey, MenuSnapshot snapshot);
+    }
+
+    /**
+     * Outcome of a lookup
+     */
+    public static final class Lookup {
+        // Current menu, null if the hall is unknown or was never scraped successfully
+        public final MenuSnapshot current;
+        // The version the client already has, if it is still known
+        public final MenuSnapshot base;
+        // Scrape error when there is no menu to serve
+        public final String error;
+
+        Lookup(MenuSnapshot current, MenuSnapshot base, String error) {
+            this.current = current;
+            this.base = base;
+            this.error = error;
+        }
+    }
+
+    private static final class Slot {
+        MenuSnapshot current;
+        long checkedAtMs;
+        String lastError;
+        // Token -> version, oldest first
+        final LinkedHashMap<String, MenuSnapshot> versions = new LinkedHashMap<>();
+    }
+
+    private final MenuSource source;
+    private final long refreshMs;
+    private final long pastRefreshMs;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger scrapeCount = new AtomicInteger();
+    private volatile VersionListener versionListener;
+
+    public MenuAggregator(MenuSource source) {
+        this(source, REFRESH_MS, PAST_REFRESH_MS);
+    }
+
+    MenuAggregator(MenuSource source, long refreshMs, long pastRefreshMs) {
+        this.source = source;
+        this.refreshMs = refreshMs;
+        this.pastRefreshMs = pastRefreshMs;
+    }
+
+    public void setVersionListener(VersionListener listener) {
+        versionListener = listener;
+    }
+
+    /**
+     * @param dateKey Menu date (yyyy-MM-dd), within the served window (see parseDate)
+     * @param sinceToken Version the client has, or null
+     */
+    public Lookup get(String hallName, String dateKey, String sinceToken) {
+        String hallKey = HallRegistry.keyOf(hallName);
+        Date date = parseDate(dateKey);
+        if (hallKey == null || date == null) {
+            return new Lookup(null, null, hallKey == null ? "Unknown dining hall: " + hallName : "Invalid or out of range date: " + dateKey);
+        }
+
+        Slot slot = slots.computeIfAbsent(hallKey + '\n' + dateKey, key -> new Slot());
+        synchronized (slot) {
+            long now = System.currentTimeMillis();
+            if (slot.checkedAtMs == 0 || now - slot.checkedAtMs >= refreshIntervalMs(dateKey)) {
+                scrape(slot, hallKey, hallName, date, now);
+            }
+            MenuSnapshot base = sinceToken != null ? slot.versions.get(sinceToken) : null;
+            return new Lookup(slot.current, base, slot.current == null ? slot.lastError : null);
+        }
+    }
+
+    /**
+     * Forgets the slots of dates before the given one (yyyy-MM-dd)
+     */
+    public void evictBefore(String dateKey) {
+        Iterator<String> keys = slots.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.substring(key.indexOf('\n') + 1).compareTo(dateKey) < 0) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * @return Number of scrapes run so far
+     */
+    public int getScrapeCount() {
+        return scrapeCount.get();
+    }
+
+    private void scrape(Slot slot, String hallKey, String hallName, Date date, long now) {
+        scrapeCount.incrementAndGet();
+        slot.checkedAtMs = now;
+        MSUMenuScraper.MenuResult result;
+        try {
+            result = source.fetch(hallName, date);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Scrape of " + hallName + " failed", e);
+            slot.lastError = "Scrape failed: " + e.getMessage();
+            return;
+        }
+        if (result == null || !result.success || result.stations == null) {
+            slot.lastError = result != null && result.error != null ? result.error : "No menu data";
+            return;
+        }
+
+        MenuSnapshot snapshot = MenuSnapshot.of(result, now);
+        slot.lastError = null;
+        if (slot.current != null && slot.current.getToken().equals(snapshot.getToken())) {
+            slot.current = slot.current.rescraped(now);
+            return;
+        }
+        slot.current = snapshot;
+        slot.versions.remove(snapshot.getToken());
+        slot.versions.put(snapshot.getToken(), snapshot);
+        while (slot.versions.size() > MAX_VERSIONS_PER_DAY) {
+            Iterator<String> oldest = slot.versions.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        LOG.info(hallName + " " + result.date + ": version " + snapshot.getToken()
+                + " (" + snapshot.getEntries().size() + " items)");
+        VersionListener listener = versionListener;
+        if (listener != null) {
+            listener.onNewVersion(hallKey, snapshot);
+        }
+    }
+
+    private long refreshIntervalMs(String dateKey) {
+        return dateKey.compareTo(dateFormat().format(new Date())) >= 0 ? refreshMs : pastRefreshMs;
+    }
+
+    /**
+     * @return The date, or null if it is malformed or outside MAX_DAYS_BACK..MAX_DAYS_AHEAD
+     *         days from today
+     */
+    static Date parseDate(String dateKey) {
+        if (dateKey == null || !dateKey.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return null;
+        }
+        SimpleDateFormat format = dateFormat();
+        long now = System.currentTimeMillis();
+        if (dateKey.compareTo(format.format(new Date(now - MAX_DAYS_BACK * DAY_MS))) < 0
+                || dateKey.compareTo(format.format(new Date(now + MAX_DAYS_AHEAD * DAY_MS))) > 0) {
+            return null;
+        }
+        try {
+            return format.parse(dateKey);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setLenient(false);
+        return format;
+    }
+}
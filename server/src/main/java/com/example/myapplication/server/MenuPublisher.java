@@ -0,0 +1,220 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.MenuDocuments;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.Message;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * MenuPublisher - Publishes every new menu version to Firestore, one document per meal
+ *
+ * Layout: see MenuDocuments. Only meal shards whose content version changed are written (and
+ * shards of meals that disappeared deleted), so clients listening to a menu receive just the
+ * changed meals. The versions already in Firestore are read once per menu document, so a
+ * restarted server does not rewrite unchanged menus.
+ *
+ * After a change is written, an FCM data message {hall, date, version} goes to
+ * MenuDocuments.TOPIC_MENU_UPDATES so apps refresh just that menu (MenuInvalidator). The
+ * message's collapse key is the menu document, so a device that was offline during a burst of
+ * versions receives only the latest.
+ *
+ * Configuration (environment):
+ * - FIRESTORE_PROJECT_ID (or GOOGLE_CLOUD_PROJECT): enables publishing
+ * - FIRESTORE_EMULATOR_HOST: publish to the Firestore emulator instead, without credentials
+ *   and without FCM messages (there is no FCM emulator)
+ * Otherwise the application default credentials are used.
+ *
+ * Threading: onNewVersion() may be called from any thread; writes run on one background thread.
+ */
+public class MenuPublisher implements MenuAggregator.VersionListener {
+    private static final Logger LOG = Logger.getLogger("MenuPublisher");
+
+    private static final long COMMIT_TIMEOUT_SECONDS = 30;
+    // A menu change is worthless once the day is over
+    private static final long MESSAGE_TTL_MS = 24 * 60 * 60 * 1000L;
+
+    private final Firestore db;
+    // Null when change messages are not sent
+    private final FirebaseMessaging messaging;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // Menu document id -> meal -> version currently in Firestore
+    private final Map<String, Map<String, String>> publishedVersions = new ConcurrentHashMap<>();
+
+    public MenuPublisher(Firestore db, FirebaseMessaging messaging) {
+        this.db = db;
+        this.messaging = messaging;
+    }
+
+    /**
+     * @return A publisher configured from the environment, or null if publishing is not enabled
+     */
+    public static MenuPublisher fromEnvironment() throws IOException {
+        String projectId = System.getenv("FIRESTORE_PROJECT_ID");
+        if (projectId == null) {
+            projectId = System.getenv("GOOGLE_CLOUD_PROJECT");
+        }
+        if (projectId == null || projectId.isEmpty()) {
+            return null;
+        }
+
+        FirestoreOptions.Builder options = FirestoreOptions.newBuilder().setProjectId(projectId);
+        String emulatorHost = System.getenv("FIRESTORE_EMULATOR_HOST");
+        if (emulatorHost != null && !emulatorHost.isEmpty()) {
+            options.setEmulatorHost(emulatorHost).setCredentials(NoCredentials.getInstance());
+            LOG.info("Publishing menus to the Firestore emulator at " + emulatorHost);
+            return new MenuPublisher(options.build().getService(), null);
+        }
+
+        GoogleCredentials credentials = GoogleCredentials.getApplicationDefault();
+        options.setCredentials(credentials);
+        FirebaseApp app = FirebaseApp.initializeApp(FirebaseOptions.builder()
+                .setCredentials(credentials)
+                .setProjectId(projectId)
+                .build());
+        return new MenuPublisher(options.build().getService(), FirebaseMessaging.getInstance(app));
+    }
+
+    @Override
+    public void onNewVersion(String hallKey, MenuSnapshot snapshot) {
+        writer.execute(() -> {
+            try {
+                publish(hallKey, snapshot);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Publishing " + hallKey + " " + snapshot.getDate() + " failed", e);
+            }
+        });
+    }
+
+    private void publish(String hallKey, MenuSnapshot snapshot) throws Exception {
+        String documentId = MenuDocuments.menuDocumentId(hallKey, snapshot.getDate());
+        DocumentReference menuRef = db.collection(MenuDocuments.COLLECTION_MENUS).document(documentId);
+        CollectionReference mealsRef = menuRef.collection(MenuDocuments.COLLECTION_MEALS);
+
+        Map<String, List<String[]>> shards = new LinkedHashMap<>();
+        for (String[] entry : snapshot.getEntries()) {
+            shards.computeIfAbsent(entry[MenuSnapshot.MEAL], meal -> new ArrayList<>()).add(entry);
+        }
+        Map<String, String> published = publishedVersions.get(documentId);
+        if (published == null) {
+            published = readPublishedVersions(mealsRef);
+        }
+
+        WriteBatch batch = db.batch();
+        Map<String, String> versions = new HashMap<>();
+        int writes = 0;
+        for (Map.Entry<String, List<String[]>> shard : shards.entrySet()) {
+            String version = MenuSnapshot.tokenOf(shard.getValue());
+            versions.put(shard.getKey(), version);
+            if (!version.equals(published.get(shard.getKey()))) {
+                batch.set(mealsRef.document(mealDocumentId(shard.getKey())),
+                        mealDocument(shard.getKey(), version, shard.getValue()));
+                writes++;
+            }
+        }
+        for (String meal : published.keySet()) {
+            if (!shards.containsKey(meal)) {
+                batch.delete(mealsRef.document(mealDocumentId(meal)));
+                writes++;
+            }
+        }
+        if (writes == 0) {
+            publishedVersions.put(documentId, versions);
+            return;
+        }
+
+        Map<String, Object> menu = new HashMap<>();
+        menu.put(MenuDocuments.FIELD_HALL, snapshot.getHallName());
+        menu.put(MenuDocuments.FIELD_DATE, snapshot.getDate());
+        menu.put(MenuDocuments.FIELD_VERSION, snapshot.getToken());
+        menu.put(MenuDocuments.FIELD_MEALS, new ArrayList<>(shards.keySet()));
+        menu.put(MenuDocuments.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        batch.set(menuRef, menu);
+
+        batch.commit().get(COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        publishedVersions.put(documentId, versions);
+        LOG.info("Published " + documentId + ": " + writes + " meal document(s) changed");
+        announce(documentId, hallKey, snapshot);
+    }
+
+    private void announce(String documentId, String hallKey, MenuSnapshot snapshot) {
+        if (messaging == null) {
+            return;
+        }
+        Message message = Message.builder()
+                .setTopic(MenuDocuments.TOPIC_MENU_UPDATES)
+                .putData(MenuDocuments.MESSAGE_HALL, hallKey)
+                .putData(MenuDocuments.MESSAGE_DATE, snapshot.getDate())
+                .putData(MenuDocuments.MESSAGE_VERSION, snapshot.getToken())
+                .setAndroidConfig(AndroidConfig.builder()
+                        .setCollapseKey(documentId)
+                        .setPriority(AndroidConfig.Priority.NORMAL)
+                        .setTtl(MESSAGE_TTL_MS)
+                        .build())
+                .build();
+        try {
+            messaging.send(message);
+        } catch (Exception e) {
+            // Apps still get the change from Firestore listeners and safety polling
+            LOG.log(Level.WARNING, "Announcing " + documentId + " failed", e);
+        }
+    }
+
+    private static Map<String, String> readPublishedVersions(CollectionReference mealsRef) throws Exception {
+        Map<String, String> versions = new HashMap<>();
+        for (QueryDocumentSnapshot meal : mealsRef.get().get(COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            String name = meal.getString(MenuDocuments.FIELD_MEAL);
+            String version = meal.getString(MenuDocuments.FIELD_VERSION);
+            if (name != null && version != null) {
+                versions.put(name, version);
+            }
+        }
+        return versions;
+    }
+
+    private static Map<String, Object> mealDocument(String meal, String version, List<String[]> entries) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (String[] entry : entries) {
+            Map<String, Object> item = new HashMap<>();
+            item.put(MenuDocuments.ENTRY_STATION, entry[MenuSnapshot.STATION]);
+            item.put(MenuDocuments.ENTRY_ITEM, entry[MenuSnapshot.ITEM]);
+            item.put(MenuDocuments.ENTRY_TAGS, entry[MenuSnapshot.TAGS]);
+            item.put(MenuDocuments.ENTRY_DETAIL_URL, entry[MenuSnapshot.DETAIL_URL]);
+            items.add(item);
+        }
+        Map<String, Object> document = new HashMap<>();
+        document.put(MenuDocuments.FIELD_MEAL, meal);
+        document.put(MenuDocuments.FIELD_VERSION, version);
+        document.put(MenuDocuments.FIELD_ENTRIES, items);
+        return document;
+    }
+
+    // Document ids may not contain slashes
+    private static String mealDocumentId(String meal) {
+        return meal.replace('/', '-');
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.HallRegistry;
+import com.example.myapplication.MSUMenuScraper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MenuServer - HTTP API serving scraped menus to the app, scraped once for all clients
+ *
+ * GET /v1/menu?hall=NAME&date=yyyy-MM-dd[&since=TOKEN]
+ * - 200 with the whole menu:
+ *   {"hall", "date", "version", "entries": [[meal, station, item, tags, detailUrl], ...]}
+ * - 200 with a delta when 'since' is a version the server still knows:
+ *   {"hall", "date", "version", "base", "added": [[...5 fields]], "removed": [[meal, station, item]]}
+ * - 304 when 'since' is the current version
+ * - 404 for unknown halls or dates without a menu, 400 for bad parameters
+ * GET /v1/health answers "ok".
+ *
+ * The current version is also sent as the ETag. Responses are gzipped when the client accepts it.
+ *
+ * Features:
+ * - Today's menu of every hall is scraped in the background every MenuAggregator.REFRESH_MS,
+ *   so clients rarely wait for a scrape
+ * - Slots older than KEEP_DAYS are dropped once a day
+ *
+ * Usage: MenuServer [port] (default 8080, or the PORT environment variable). New menu versions
+ * are also published to Firestore when configured (see MenuPublisher).
+ */
+public class MenuServer {
+    private static final Logger LOG = Logger.getLogger("MenuServer");
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int WORKER_THREADS = 8;
+    private static final int KEEP_DAYS = 14;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final MenuAggregator aggregator;
+    private final HttpServer httpServer;
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+    private ScheduledExecutorService scheduler;
+
+    public MenuServer(MenuAggregator aggregator, int port) throws IOException {
+        this.aggregator = aggregator;
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        httpServer.createContext("/v1/menu", this::handleMenu);
+        httpServer.createContext("/v1/health", exchange -> send(exchange, 200, "text/plain", "ok"));
+        httpServer.setExecutor(workers);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String env = System.getenv("PORT");
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : env != null ? Integer.parseInt(env) : DEFAULT_PORT;
+        MenuAggregator aggregator = new MenuAggregator(MSUMenuScraper::fetchMenuData);
+        MenuPublisher publisher = MenuPublisher.fromEnvironment();
+        if (publisher != null) {
+            aggregator.setVersionListener(publisher);
+        }
+        MenuServer server = new MenuServer(aggregator, port);
+        server.start();
+        server.startBackgroundRefresh();
+        LOG.info("Serving menus on port " + server.getPort());
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Keeps today's menu of every known hall scraped and drops old slots
+     */
+    public synchronized void startBackgroundRefresh() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::refreshToday, 0, MenuAggregator.REFRESH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        httpServer.stop(0);
+        workers.shutdownNow();
+    }
+
+    /**
+     * @return The port the server listens on (useful when created with port 0)
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    private void refreshToday() {
+        try {
+            String today = MenuAggregator.dateFormat().format(new Date());
+            for (String hallName : HallRegistry.getMenuSiteNames()) {
+                aggregator.get(hallName, today, null);
+            }
+            aggregator.evictBefore(MenuAggregator.dateFormat().format(new Date(System.currentTimeMillis() - KEEP_DAYS * DAY_MS)));
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Background refresh failed", e);
+        }
+    }
+
+    private void handleMenu(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Only GET is supported");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String hall = query.get("hall");
+            String date = query.get("date");
+            String since = query.get("since");
+            if (hall == null || hall.isEmpty() || date == null) {
+                send(exchange, 400, "text/plain", "hall and date are required");
+                return;
+            }
+
+            MenuAggregator.Lookup lookup = aggregator.get(hall, date, since);
+            if (lookup.current == null) {
+                send(exchange, MenuAggregator.parseDate(date) == null ? 400 : 404, "text/plain", lookup.error);
+                return;
+            }
+
+            MenuSnapshot current = lookup.current;
+            exchange.getResponseHeaders().set("ETag", "\"" + current.getToken() + "\"");
+            if (current.getToken().equals(since)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            JsonObject body = new JsonObject();
+            body.addProperty("hall", hall);
+            body.addProperty("date", date);
+            body.addProperty("version", current.getToken());
+            if (lookup.base != null) {
+                MenuSnapshot.Delta delta = current.diff(lookup.base);
+                body.addProperty("base", lookup.base.getToken());
+                body.add("added", toJson(delta.added));
+                body.add("removed", toJson(delta.removed));
+            } else {
+                body.add("entries", toJson(current.getEntries()));
+            }
+            send(exchange, 200, "application/json; charset=utf-8", body.toString());
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Menu request failed", e);
+            send(exchange, 500, "text/plain", "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static JsonArray toJson(List<String[]> entries) {
+        JsonArray array = new JsonArray();
+        for (String[] entry : entries) {
+            JsonArray fields = new JsonArray();
+            for (String field : entry) {
+                fields.add(field);
+            }
+            array.add(fields);
+        }
+        return array;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.MSUMenuScraper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MenuSnapshot - Immutable scraped menu of one hall and date, identified by a version token
+ *
+ * The menu is kept as flat entries {meal, station, item, tags, detail URL} in page order.
+ * An entry is identified by (meal, station, item); repeats of that key are dropped. The
+ * version token is a hash of the sorted entries, so equal menus have equal tokens however
+ * often they are scraped.
+ */
+public final class MenuSnapshot {
+
+    public static final int MEAL = 0;
+    public static final int STATION = 1;
+    public static final int ITEM = 2;
+    public static final int TAGS = 3;
+    public static final int DETAIL_URL = 4;
+
+    private static final int TOKEN_LENGTH = 16;
+    private static final Comparator<String[]> ENTRY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.length; i++) {
+            int c = a[i].compareTo(b[i]);
+            if (c != 0) return c;
+        }
+        return 0;
+    };
+
+    /**
+     * Entries of a newer snapshot that differ from an older one
+     */
+    public static final class Delta {
+        // Entries that are new or whose tags/detail URL changed
+        public final List<String[]> added;
+        // {meal, station, item} of entries that are gone or changed
+        public final List<String[]> removed;
+
+        Delta(List<String[]> added, List<String[]> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    private final String hallName;
+    private final String date;
+    private final String token;
+    private final List<String[]> entries;
+    private final long scrapedAtMs;
+
+    private MenuSnapshot(String hallName, String date, List<String[]> entries, long scrapedAtMs) {
+        this.hallName = hallName;
+        this.date = date;
+        this.entries = Collections.unmodifiableList(entries);
+        this.token = tokenOf(entries);
+        this.scrapedAtMs = scrapedAtMs;
+    }
+
+    /**
+     * @param result A successful scrape
+     */
+    public static MenuSnapshot of(MSUMenuScraper.MenuResult result, long scrapedAtMs) {
+        Map<String, String[]> entries = new LinkedHashMap<>();
+        for (MSUMenuScraper.Station station : result.stations) {
+            for (MSUMenuScraper.Meal meal : station.meals) {
+                for (int i = 0; i < meal.items.size(); i++) {
+                    String[] entry = {
+                            meal.mealName,
+                            station.stationName,
+                            meal.items.get(i),
+                            i < meal.itemTags.size() ? meal.itemTags.get(i) : "",
+                            i < meal.itemDetailUrls.size() ? meal.itemDetailUrls.get(i) : ""
+                    };
+                    entries.putIfAbsent(key(entry), entry);
+                }
+            }
+        }
+        return new MenuSnapshot(result.hallName, result.date, new ArrayList<>(entries.values()), scrapedAtMs);
+    }
+
+    public String getHallName() {
+        return hallName;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public List<String[]> getEntries() {
+        return entries;
+    }
+
+    public long getScrapedAtMs() {
+        return scrapedAtMs;
+    }
+
+    /**
+     * Same menu, scraped again at a later time
+     */
+    MenuSnapshot rescraped(long scrapedAtMs) {
+        return new MenuSnapshot(hallName, date, new ArrayList<>(entries), scrapedAtMs);
+    }
+
+    /**
+     * @return What a client holding 'base' has to apply to get this snapshot
+     */
+    public Delta diff(MenuSnapshot base) {
+        Map<String, String[]> before = new LinkedHashMap<>();
+        for (String[] entry : base.entries) {
+            before.put(key(entry), entry);
+        }
+
+        List<String[]> added = new ArrayList<>();
+        List<String[]> removed = new ArrayList<>();
+        for (String[] entry : entries) {
+            String[] old = before.remove(key(entry));
+            if (old == null) {
+                added.add(entry);
+            } else if (ENTRY_ORDER.compare(old, entry) != 0) {
+                removed.add(new String[]{old[MEAL], old[STATION], old[ITEM]});
+                added.add(entry);
+            }
+        }
+        for (String[] old : before.values()) {
+            removed.add(new String[]{old[MEAL], old[STATION], old[ITEM]});
+        }
+        return new Delta(added, removed);
+    }
+
+    static String key(String[] entry) {
+        return entry[MEAL] + '\u001F' + entry[STATION] + '\u001F' + entry[ITEM];
+    }
+
+    /**
+     * @return Content hash of the entries, independent of their order
+     */
+    static String tokenOf(List<String[]> entries) {
+        List<String[]> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted, ENTRY_ORDER);
+        StringBuilder text = new StringBuilder();
+        for (String[] entry : sorted) {
+            for (String field : entry) {
+                text.append(field).append('\u001F');
+            }
+            text.append('\u001E');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < TOKEN_LENGTH / 2; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.MSUMenuScraper;
+import com.example.myapplication.MenuDocuments;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Publishes menus to the Firestore emulator and reads them back the way MenuFirestoreSync
+ * does. Runs only when FIRESTORE_EMULATOR_HOST is set (see README), e.g.
+ *
+ *     FIRESTORE_EMULATOR_HOST=localhost:8080 ./gradlew :server:test
+ */
+public class MenuPublisherEmulatorTest {
+
+    private static final String DATE = "2024-01-15";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private Firestore db;
+    private MenuPublisher publisher;
+    // Fresh per test, so documents left by earlier runs are never read
+    private String hallKey;
+
+    @Before
+    public void setUp() {
+        String emulatorHost = System.getenv("FIRESTORE_EMULATOR_HOST");
+        Assume.assumeTrue("FIRESTORE_EMULATOR_HOST is not set", emulatorHost != null && !emulatorHost.isEmpty());
+        db = FirestoreOptions.newBuilder()
+                .setProjectId("demo-spartys-spreads")
+                .setEmulatorHost(emulatorHost)
+                .setCredentials(NoCredentials.getInstance())
+                .build()
+                .getService();
+        publisher = new MenuPublisher(db, null);
+        hallKey = "test" + System.nanoTime();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    public void newMenu_writesMenuAndMealDocuments() throws Exception {
+        MenuSnapshot snapshot = snapshot(
+                new String[]{"Lunch", "Grill", "Burger", "Beef"},
+                new String[]{"Lunch", "Grill", "Fries", ""},
+                new String[]{"Dinner", "Pasta", "Penne", "Vegetarian"});
+        publisher.onNewVersion(hallKey, snapshot);
+
+        DocumentSnapshot menu = awaitVersion(snapshot.getToken());
+        assertEquals("Brody Square", menu.getString(MenuDocuments.FIELD_HALL));
+        assertEquals(DATE, menu.getString(MenuDocuments.FIELD_DATE));
+        assertEquals(2, ((List<?>) menu.get(MenuDocuments.FIELD_MEALS)).size());
+
+        Map<String, List<String[]>> meals = readMeals();
+        assertEquals(2, meals.size());
+        assertEquals(2, meals.get("Lunch").size());
+        String[] penne = meals.get("Dinner").get(0);
+        assertEquals("Pasta", penne[0]);
+        assertEquals("Penne", penne[1]);
+        assertEquals("Vegetarian", penne[2]);
+    }
+
+    @Test
+    public void changedMenu_rewritesChangedMealsAndDeletesRemovedOnes() throws Exception {
+        MenuSnapshot first = snapshot(
+                new String[]{"Lunch", "Grill", "Burger", ""},
+                new String[]{"Dinner", "Pasta", "Penne", ""});
+        publisher.onNewVersion(hallKey, first);
+        awaitVersion(first.getToken());
+
+        MenuSnapshot second = snapshot(
+                new String[]{"Lunch", "Grill", "Burger", ""},
+                new String[]{"Lunch", "Grill", "Onion Rings", ""});
+        publisher.onNewVersion(hallKey, second);
+        awaitVersion(second.getToken());
+
+        Map<String, List<String[]>> meals = readMeals();
+        assertEquals(1, meals.size());
+        assertEquals(2, meals.get("Lunch").size());
+        assertNull(meals.get("Dinner"));
+    }
+
+    private MenuSnapshot snapshot(String[]... entries) {
+        MSUMenuScraper.MenuResult result = MSUMenuScraper.MenuResult.success();
+        result.hallName = "Brody Square";
+        result.date = DATE;
+        for (String[] entry : entries) {
+            MSUMenuScraper.Station station = null;
+            for (MSUMenuScraper.Station existing : result.stations) {
+                if (existing.stationName.equals(entry[1])) station = existing;
+            }
+            if (station == null) {
+                station = new MSUMenuScraper.Station(entry[1]);
+                result.stations.add(station);
+            }
+            MSUMenuScraper.Meal meal = null;
+            for (MSUMenuScraper.Meal existing : station.meals) {
+                if (existing.mealName.equals(entry[0])) meal = existing;
+            }
+            if (meal == null) {
+                meal = new MSUMenuScraper.Meal(entry[0]);
+                station.meals.add(meal);
+            }
+            meal.items.add(entry[2]);
+            meal.itemTags.add(entry[3]);
+            meal.itemDetailUrls.add("");
+        }
+        return MenuSnapshot.of(result, System.currentTimeMillis());
+    }
+
+    private DocumentReference menuRef() {
+        return db.collection(MenuDocuments.COLLECTION_MENUS).document(MenuDocuments.menuDocumentId(hallKey, DATE));
+    }
+
+    /**
+     * Publishing runs on the publisher's own thread; waits until the menu document has the version
+     */
+    private DocumentSnapshot awaitVersion(String version) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            DocumentSnapshot menu = menuRef().get().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (menu.exists() && version.equals(menu.getString(MenuDocuments.FIELD_VERSION))) {
+                return menu;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Version " + version + " was not published");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * @return Meal -> {station, item, tags} of each entry, parsed as MenuFirestoreSync parses them
+     */
+    private Map<String, List<String[]>> readMeals() throws Exception {
+        Map<String, List<String[]>> meals = new HashMap<>();
+        for (QueryDocumentSnapshot document : menuRef().collection(MenuDocuments.COLLECTION_MEALS).get()
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            String meal = document.getString(MenuDocuments.FIELD_MEAL);
+            Object value = document.get(MenuDocuments.FIELD_ENTRIES);
+            assertNotNull(meal);
+            assertTrue(value instanceof List);
+            List<String[]> entries = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                Map<?, ?> entry = (Map<?, ?>) element;
+                entries.add(new String[]{
+                        (String) entry.get(MenuDocuments.ENTRY_STATION),
+                        (String) entry.get(MenuDocuments.ENTRY_ITEM),
+                        (String) entry.get(MenuDocuments.ENTRY_TAGS)
+                });
+            }
+            meals.put(meal, entries);
+        }
+        return meals;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.myapplication.server;
+
+import com.example.myapplication.MSUMenuScraper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs MenuServer on a local port against a fake menu source and checks the full, delta and
+ * not-modified responses and that each hall and date is scraped once.
+ */
+public class MenuServerTest {
+
+    private static final String DATE = MenuAggregator.dateFormat().format(new Date());
+
+    private final List<String[]> menu = new ArrayList<>();
+    private MenuAggregator aggregator;
+    private MenuServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        menu.add(new String[]{"Lunch", "Grill", "Burger"});
+        menu.add(new String[]{"Lunch", "Grill", "Fries"});
+        menu.add(new String[]{"Dinner", "Pasta", "Penne"});
+        // Refresh on every request, so every request sees the current fake menu
+        aggregator = new MenuAggregator(this::fetch, 0, 0);
+        server = new MenuServer(aggregator, 0);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void fullMenu_thenNotModified() throws IOException {
+        Response first = get("Brody Square", null);
+        assertEquals(200, first.status);
+        assertEquals(3, first.body.getAsJsonArray("entries").size());
+        String version = first.body.get("version").getAsString();
+
+        Response second = get("Brody Square", version);
+        assertEquals(304, second.status);
+    }
+
+    @Test
+    public void changedMenu_returnsDelta() throws IOException {
+        String version = get("Brody Square", null).body.get("version").getAsString();
+
+        synchronized (menu) {
+            menu.remove(1);
+            menu.add(new String[]{"Lunch", "Grill", "Onion Rings"});
+        }
+        Response delta = get("Brody Square", version);
+        assertEquals(200, delta.status);
+        assertEquals(version, delta.body.get("base").getAsString());
+        assertNull(delta.body.get("entries"));
+
+        JsonArray added = delta.body.getAsJsonArray("added");
+        JsonArray removed = delta.body.getAsJsonArray("removed");
+        assertEquals(1, added.size());
+        assertEquals("Onion Rings", added.get(0).getAsJsonArray().get(MenuSnapshot.ITEM).getAsString());
+        assertEquals(1, removed.size());
+        assertEquals("Fries", removed.get(0).getAsJsonArray().get(MenuSnapshot.ITEM).getAsString());
+        assertNotEquals(version, delta.body.get("version").getAsString());
+    }
+
+    @Test
+    public void unknownVersion_returnsFullMenu() throws IOException {
+        Response response = get("Brody Square", "0000000000000000");
+        assertEquals(200, response.status);
+        assertNotNull(response.body.getAsJsonArray("entries"));
+    }
+
+    @Test
+    public void concurrentRequests_scrapeOnce() throws Exception {
+        MenuAggregator cached = new MenuAggregator(this::fetch);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<MenuAggregator.Lookup>> lookups = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            // Aliases of the same hall share one slot
+            String hall = i % 2 == 0 ? "Brody Square" : "Brody";
+            lookups.add(pool.submit(() -> cached.get(hall, DATE, null)));
+        }
+        String token = null;
+        for (Future<MenuAggregator.Lookup> lookup : lookups) {
+            MenuSnapshot current = lookup.get().current;
+            assertNotNull(current);
+            if (token == null) token = current.getToken();
+            assertEquals(token, current.getToken());
+        }
+        pool.shutdown();
+        assertEquals(1, cached.getScrapeCount());
+    }
+
+    @Test
+    public void unknownHall_returns404() throws IOException {
+        assertEquals(404, get("Nowhere Hall", null).status);
+    }
+
+    @Test
+    public void datesOutsideWindow_rejectedWithoutScraping() {
+        long day = 24 * 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        String[] dates = {
+                MenuAggregator.dateFormat().format(new Date(now - (MenuAggregator.MAX_DAYS_BACK + 1) * day)),
+                MenuAggregator.dateFormat().format(new Date(now + (MenuAggregator.MAX_DAYS_AHEAD + 1) * day)),
+                "9999-12-31", "2025-02-30", "2025-13-01"
+        };
+        for (String date : dates) {
+            MenuAggregator.Lookup lookup = aggregator.get("Brody Square", date, null);
+            assertNull(lookup.current);
+            assertNotNull(lookup.error);
+        }
+        assertEquals(0, aggregator.getScrapeCount());
+    }
+
+    private MSUMenuScraper.MenuResult fetch(String hallName, Date date) {
+        MSUMenuScraper.MenuResult result = MSUMenuScraper.MenuResult.success();
+        result.hallName = hallName;
+        result.date = DATE;
+        synchronized (menu) {
+            for (String[] entry : menu) {
+                MSUMenuScraper.Station station = null;
+                for (MSUMenuScraper.Station existing : result.stations) {
+                    if (existing.stationName.equals(entry[1])) station = existing;
+                }
+                if (station == null) {
+                    station = new MSUMenuScraper.Station(entry[1]);
+                    result.stations.add(station);
+                }
+                MSUMenuScraper.Meal meal = null;
+                for (MSUMenuScraper.Meal existing : station.meals) {
+                    if (existing.mealName.equals(entry[0])) meal = existing;
+                }
+                if (meal == null) {
+                    meal = new MSUMenuScraper.Meal(entry[0]);
+                    station.meals.add(meal);
+                }
+                meal.items.add(entry[2]);
+                meal.itemTags.add("");
+                meal.itemDetailUrls.add("");
+            }
+        }
+        return result;
+    }
+
+    private static final class Response {
+        final int status;
+        final JsonObject body;
+
+        Response(int status, JsonObject body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response get(String hall, String since) throws IOException {
+        String url = "http://localhost:" + server.getPort() + "/v1/menu?hall=" + URLEncoder.encode(hall, "UTF-8")
+                + "&date=" + DATE + (since != null ? "&since=" + since : "");
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            int status = connection.getResponseCode();
+            JsonObject body = null;
+            if (status == 200) {
+                try (InputStream in = connection.getInputStream()) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    in.transferTo(bytes);
+                    body = JsonParser.parseString(bytes.toString(StandardCharsets.UTF_8.name())).getAsJsonObject();
+                }
+            }
+            return new Response(status, body);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+#!/usr/bin/env python3
+"""Builds the seed catalog shipped as app/src/main/assets/seed_catalog.db.
+
+The app copies sample menu items and hall menus from this database into MenuDatabase.db with a
+single INSERT ... SELECT per table (see MenuDatabaseHelper.activateSeedCatalog), instead of
+inserting them one by one on first open.
+
+When the catalog changes, bump SEED_VERSION here and in MenuDatabaseHelper, then rerun:
+
+    python3 tools/build_seed_db.py
+
+Items are identified by a stable seed key, not a row id: the app stores it as the source_key
+"seed:<key>" and assigns its own row ids, so seed items never collide with scraped items. Hall
+menus refer to items by seed key. An existing item keeps its key forever; a new item takes a key
+never used before (one above the highest in MENU_ITEMS), even if an older item was removed.
+"""
+
+import os
+import sqlite3
+
+# Stored as PRAGMA user_version; must equal MenuDatabaseHelper.SEED_VERSION
+SEED_VERSION = 1
+
+OUTPUT = os.path.join(os.path.dirname(os.path.abspath(__file__)),
+                      "..", "app", "src", "main", "assets", "seed_catalog.db")
+
+# seed_key, name, description, category, calories, fat, protein, carbs, fiber, sugar,
+# allergens, ingredients, image_path, price
+MENU_ITEMS = [
+    (1, "Scrambled Eggs", "Fresh scrambled eggs with herbs", "Main", 155, 10.6, 13.6, 1.1, 0.0, 1.1, "Eggs", "Eggs, butter, milk, salt, pepper, herbs", "placeholder_eggs.jpg", 3.50),
+    (2, "Pancakes", "Fluffy buttermilk pancakes", "Main", 227, 9.0, 6.0, 28.0, 1.4, 5.0, "Gluten, Eggs, Milk", "Flour, eggs, milk, butter, baking powder, sugar", "placeholder_pancakes.jpg", 4.25),
+    (3, "Bacon", "Crispy bacon strips", "Protein", 43, 3.3, 3.0, 0.1, 0.0, 0.0, "None", "Pork belly, salt, sodium nitrite", "placeholder_bacon.jpg", 2.75),
+    (4, "Fresh Fruit", "Seasonal fresh fruit selection", "Healthy", 62, 0.2, 0.9, 15.6, 2.4, 12.2, "None", "Mixed seasonal fruits", "placeholder_fruit.jpg", 2.50),
+
+    (5, "Grilled Chicken", "Herb-seasoned grilled chicken breast", "Main", 231, 5.0, 43.5, 0.0, 0.0, 0.0, "None", "Chicken breast, olive oil, herbs, spices", "placeholder_chicken.jpg", 6.75),
+    (6, "Caesar Salad", "Crisp romaine with Caesar dressing", "Salad", 470, 40.0, 10.0, 15.0, 3.0, 4.0, "Eggs, Fish, Milk", "Romaine lettuce, parmesan, croutons, caesar dressing", "placeholder_salad.jpg", 5.25),
+    (7, "Pizza", "Fresh made pizza with various toppings", "Main", 285, 10.4, 12.2, 35.6, 2.3, 3.8, "Gluten, Milk", "Pizza dough, tomato sauce, mozzarella, toppings", "placeholder_pizza.jpg", 4.50),
+
+    (8, "Grilled Salmon", "Atlantic salmon with lemon herbs", "Main", 231, 11.0, 31.0, 0.0, 0.0, 0.0, "Fish", "Salmon fillet, lemon, herbs, olive oil", "placeholder_salmon.jpg", 8.75),
+    (9, "Beef Stir Fry", "Tender beef with mixed vegetables", "Main", 250, 12.0, 26.0, 8.0, 3.0, 5.0, "Soy", "Beef strips, mixed vegetables, soy sauce, garlic", "placeholder_stirfry.jpg", 7.25),
+    (10, "Chocolate Cake", "Rich chocolate layer cake", "Dessert", 352, 14.0, 5.0, 56.0, 3.0, 45.0, "Gluten, Eggs, Milk", "Flour, cocoa, eggs, butter, sugar, milk", "placeholder_cake.jpg", 3.75),
+
+    # Specialty items for specific halls
+    (11, "Belgian Waffles", "Authentic Belgian waffles with syrup", "Specialty", 310, 12.0, 8.0, 44.0, 2.0, 15.0, "Gluten, Eggs, Milk", "Waffle batter, maple syrup", "placeholder_waffles.jpg", 5.50),
+    (12, "Breakfast Burrito", "Eggs, cheese, and potato burrito", "Specialty", 380, 18.0, 16.0, 38.0, 4.0, 2.0, "Gluten, Eggs, Milk", "Tortilla, eggs, cheese, potatoes, peppers", "placeholder_burrito.jpg", 4.75),
+    (13, "Sushi Bar", "Fresh sushi and sashimi selection", "Specialty", 200, 2.0, 20.0, 30.0, 1.0, 5.0, "Fish, Soy", "Sushi rice, nori, fresh fish, wasabi", "placeholder_sushi.jpg", 12.50),
+    (14, "Taco Bar", "Build your own tacos", "Specialty", 320, 15.0, 18.0, 28.0, 5.0, 3.0, "Gluten, Milk", "Tortillas, meat, cheese, lettuce, tomatoes", "placeholder_tacos.jpg", 6.25),
+]
+
+# App names of the dining halls (HallRegistry.Hall.getName)
+HALLS = ["Snyder-Phillips", "Brody", "Case", "Owen", "Shaw", "Akers", "Landon"]
+
+# meal time -> seed keys of the items every hall serves
+COMMON_MENUS = {
+    "Breakfast": [1, 2, 3, 4],
+    "Lunch": [5, 6, 7],
+    "Dinner": [8, 9, 10],
+}
+
+# (hall, meal time, item seed key)
+SPECIALTIES = [
+    ("Brody", "Breakfast", 11),
+    ("Case", "Breakfast", 12),
+    ("Owen", "Lunch", 13),
+    ("Shaw", "Lunch", 14),
+]
+
+
+def hall_menus():
+    rows = []
+    for meal_time, item_keys in COMMON_MENUS.items():
+        for hall in HALLS:
+            rows.extend((hall, meal_time, item_key) for item_key in item_keys)
+    rows.extend(SPECIALTIES)
+    return rows
+
+
+def main():
+    item_keys = {item[0] for item in MENU_ITEMS}
+    assert len(item_keys) == len(MENU_ITEMS), "duplicate seed key"
+    for _, _, item_key in hall_menus():
+        assert item_key in item_keys, "hall menu references unknown item %d" % item_key
+
+    if os.path.exists(OUTPUT):
+        os.remove(OUTPUT)
+    os.makedirs(os.path.dirname(OUTPUT), exist_ok=True)
+
+    db = sqlite3.connect(OUTPUT)
+    # The allergen_mask column is derived by the app (AllergenIndex.parseTags) when it copies
+    # the items, so the tag parsing lives in one place
+    db.execute("""CREATE TABLE menu_items (
+        seed_key INTEGER PRIMARY KEY,
+        name TEXT NOT NULL,
+        description TEXT,
+        category TEXT,
+        calories INTEGER,
+        fat REAL,
+        protein REAL,
+        carbs REAL,
+        fiber REAL,
+        sugar REAL,
+        allergens TEXT,
+        ingredients TEXT,
+        image_path TEXT,
+        price REAL)""")
+    db.execute("""CREATE TABLE hall_menus (
+        hall_name TEXT,
+        meal_time TEXT,
+        item_seed_key INTEGER,
+        PRIMARY KEY (hall_name, meal_time, item_seed_key)) WITHOUT ROWID""")
+    db.executemany("INSERT INTO menu_items VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", MENU_ITEMS)
+    db.executemany("INSERT INTO hall_menus VALUES (?, ?, ?)", hall_menus())
+    db.execute("PRAGMA user_version = %d" % SEED_VERSION)
+    db.commit()
+    db.execute("VACUUM")
+    db.close()
+    print("Wrote %s (seed version %d, %d items, %d hall menu rows)"
+          % (os.path.normpath(OUTPUT), SEED_VERSION, len(MENU_ITEMS), len(hall_menus())))
+
+
+if __name__ == "__main__":
+    main()